@@ -2,6 +2,7 @@ package com.demo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * ImgProcessServiceApplication 是 Spring Boot 应用的主入口类。
@@ -10,8 +11,10 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * - @Configuration: 表示该类是一个配置类，用于定义 Spring 的配置。
  * - @EnableAutoConfiguration: 启用 Spring Boot 的自动配置功能。
  * - @ComponentScan: 启用组件扫描，自动扫描当前包及其子包下的组件。
+ * @EnableScheduling 用于启用定时任务 (例如 RetentionService 的保留策略)。
  */
 @SpringBootApplication
+@EnableScheduling
 public class ImgProcessServiceApplication {
 
     /**
@@ -0,0 +1,36 @@
+package com.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 批量单帧识别 (/api/infer_batch) 的配置类。
+ * 对应配置文件中 app.batch 前缀下的属性。
+ */
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "app.batch")
+public class BatchProperties {
+    /**
+     * 单个批量请求允许的最大帧数。
+     */
+    private int maxFrames = 500;
+
+    /**
+     * CPU 线程池大小 (读取、转换、编码、序列化)。0 表示使用 CPU 核数。
+     */
+    private int cpuThreads = 0;
+
+    /**
+     * 原生调用线程池大小，限制同时进行的 C++ 调用数。
+     */
+    private int nativeThreads = 2;
+
+    /**
+     * 单个批量请求同时在流水线中的最大帧数 (限制内存占用)。0 表示 CPU 线程数 + 原生线程数的两倍。
+     */
+    private int maxInFlight = 0;
+}
@@ -18,4 +18,5 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "app.features")
 public class FeatureProperties {
     private List<FeatureDefinition> definitions;
+    private boolean archive = true; // 持久化时是否同时生成列式归档 Feature.col
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.demo.config;
+
+import com.demo.util.PngEncoder;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.zip.Deflater;
+
+/**
+ * 图像编码相关的配置类。
+ * 对应配置文件中 app.image 前缀下的属性。
+ */
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "app.image")
+public class ImageProperties {
+    private Png png = new Png();
+
+    @Setter
+    @Getter
+    public static class Png {
+        /**
+         * 内部传递给 C++ 的图像 (单帧原图及裁剪图)，以速度优先。
+         */
+        private PngEncoder.Options handoff = new PngEncoder.Options(true, Deflater.BEST_SPEED, PngEncoder.Filter.NONE);
+        /**
+         * 写入结果目录、供前端预览的图像，兼顾文件大小。
+         */
+        private PngEncoder.Options preview = new PngEncoder.Options(true, Deflater.BEST_SPEED, PngEncoder.Filter.SUB);
+    }
+}
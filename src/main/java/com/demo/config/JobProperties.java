@@ -0,0 +1,31 @@
+package com.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 异步多帧任务 (/api/jobs) 的配置类。
+ * 对应配置文件中 app.jobs 前缀下的属性。
+ */
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "app.jobs")
+public class JobProperties {
+    /**
+     * 执行多帧任务的线程数 (同时处理的任务数)。
+     */
+    private int threads = 1;
+
+    /**
+     * 排队中的任务上限，超过时拒绝提交。
+     */
+    private int maxQueued = 100;
+
+    /**
+     * 已结束的任务 (成功、失败或取消) 在内存中保留的分钟数，过期后查询返回 404。
+     */
+    private long retentionMinutes = 60;
+}
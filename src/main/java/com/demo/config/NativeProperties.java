@@ -0,0 +1,53 @@
+package com.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 原生库 (C++ / JNA) 调用相关的配置类。
+ * 对应配置文件中 app.native 前缀下的属性。
+ */
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "app.native")
+public class NativeProperties {
+    /**
+     * 是否使用 JNA 直接映射 (Native.register)。
+     * 为 false 时回退到 Native.load 创建的反射代理。
+     */
+    private boolean directMapping = true;
+
+    /**
+     * 多帧处理的持久化会话配置。
+     */
+    private Session session = new Session();
+
+    @Setter
+    @Getter
+    public static class Session {
+        /**
+         * 是否使用持久化会话 (模型只加载一次)。不可用时自动回退到逐次调用。
+         */
+        private boolean enabled = true;
+        /**
+         * 是否在应用启动完成后立即预热 (打开) 会话；否则在第一次请求时懒加载。
+         */
+        private boolean warmUp = true;
+        /**
+         * 同时打开的会话个数，即通过会话并行处理的最大请求数。每个会话各自加载一份模型。
+         * 多帧分片处理 (app.sharding) 的实际并行度不超过该值。
+         */
+        private int poolSize = 1;
+        /**
+         * initSession 失败后第一次重试前的等待时间 (毫秒)，之后每次失败翻倍。
+         */
+        private long retryInitialMs = 5_000;
+        /**
+         * 重试等待时间的上限 (毫秒)。
+         */
+        private long retryMaxMs = 5 * 60 * 1000L;
+    }
+}
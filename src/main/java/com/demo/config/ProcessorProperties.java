@@ -0,0 +1,39 @@
+package com.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 图像处理核心配置类。
+ * 对应配置文件中 app.processor 前缀下的属性。
+ */
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "app.processor")
+public class ProcessorProperties {
+    /**
+     * 处理核心实现：native (C++ 库，默认) 或 java (纯 Java 参考实现)。
+     */
+    private String type = "native";
+
+    /**
+     * 纯 Java 参考实现的参数。
+     */
+    private Java java = new Java();
+
+    @Setter
+    @Getter
+    public static class Java {
+        private long singleLatencyMs = 0;      // 单帧处理的模拟延迟
+        private long multiBaseLatencyMs = 0;   // 多帧处理每次调用的固定模拟延迟 (例如模型加载)
+        private long perFrameLatencyMs = 0;    // 多帧处理每帧的模拟延迟
+        private int resultLength = 8;          // 单帧结果数组长度
+        private int categoryNum = 3;           // Feature.dat 中每帧的置信度个数
+        private int imageWidth = 512;          // 多帧输入图像宽度 (列数)
+        private int imageHeight = 512;         // 多帧输入图像高度 (行数)
+        private long seed = 42L;               // 合成数据的随机种子，保证结果可复现
+    }
+}
@@ -0,0 +1,48 @@
+package com.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 单帧识别结果缓存的配置类。
+ * 对应配置文件中 app.result-cache 前缀下的属性。
+ */
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "app.result-cache")
+public class ResultCacheProperties {
+    /**
+     * 是否启用结果缓存。
+     */
+    private boolean enabled = true;
+
+    /**
+     * 内存缓存的字节预算，超出后按最近最少使用 (LRU) 淘汰。
+     */
+    private long maxBytes = 64L * 1024 * 1024;
+
+    /**
+     * 磁盘二级缓存配置。
+     */
+    private Disk disk = new Disk();
+
+    @Setter
+    @Getter
+    public static class Disk {
+        /**
+         * 是否启用磁盘二级缓存 (内存淘汰的条目写入磁盘)。
+         */
+        private boolean enabled = false;
+        /**
+         * 缓存目录，相对路径相对于工作目录。
+         */
+        private String dir = "result/cache";
+        /**
+         * 磁盘缓存的字节预算，超出后删除最久未使用的文件。
+         */
+        private long maxBytes = 512L * 1024 * 1024;
+    }
+}
@@ -0,0 +1,81 @@
+package com.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * result 目录与 SQLite 数据的保留与压缩策略配置类。
+ * 对应配置文件中 app.retention 前缀下的属性。
+ */
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "app.retention")
+public class RetentionProperties {
+    /**
+     * 是否启用定时保留策略。关闭时不清理分析、不轮转 statistics.sql、也不执行 VACUUM。
+     */
+    private boolean enabled = false;
+
+    /**
+     * 两次检查之间的间隔 (毫秒)。
+     */
+    private long intervalMs = 60 * 60 * 1000L;
+
+    /**
+     * 分析最多保留的天数。0 表示不按时间清理。
+     */
+    private int maxAgeDays = 0;
+
+    /**
+     * 所有分析 (图像目录 + 特征目录) 合计最多占用的字节数，超出时从最旧的分析开始清理。0 表示不限制。
+     */
+    private long maxTotalBytes = 0;
+
+    /**
+     * 最多保留的分析个数。0 表示不限制。
+     */
+    private int maxCount = 0;
+
+    /**
+     * 清理方式: DELETE 删除文件; ARCHIVE 将分析的目录与 SQL 文件移动到 archive-dir。两种方式都会删除数据库中的帧数据。
+     */
+    private Action action = Action.DELETE;
+
+    /**
+     * 归档目录，相对路径基于 result 目录。
+     */
+    private String archiveDir = "archive";
+
+    /**
+     * 每批删除的帧数据行数 (每批一个短事务，避免长时间占用 SQLite 写锁)。
+     */
+    private int deleteBatchSize = 1000;
+
+    /**
+     * statistics.sql 超过该大小 (字节) 时轮转为 statistics-{时间戳}.sql。0 表示不轮转。
+     */
+    private long statisticsMaxBytes = 10L * 1024 * 1024;
+
+    /**
+     * 保留的已轮转 statistics 文件个数。
+     */
+    private int statisticsKeep = 5;
+
+    /**
+     * 空闲时每次增量 VACUUM 释放的最大页数。0 表示不执行。
+     */
+    private int vacuumPages = 2000;
+
+    /**
+     * 数据库尚未启用 auto_vacuum=INCREMENTAL 时，是否切换并执行一次完整 VACUUM (阻塞所有读写，耗时与数据库大小成正比)。
+     * 关闭时只对已是 INCREMENTAL 模式的数据库执行增量 VACUUM。
+     */
+    private boolean convertAutoVacuum = false;
+
+    public enum Action {
+        DELETE, ARCHIVE
+    }
+}
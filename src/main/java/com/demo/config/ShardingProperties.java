@@ -0,0 +1,45 @@
+package com.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 多帧分片并行处理的配置类 (仅 mode=1)。
+ * 对应配置文件中 app.sharding 前缀下的属性。
+ */
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "app.sharding")
+public class ShardingProperties {
+    /**
+     * 是否启用分片。
+     * 使用持久化会话 (app.native.session.enabled=true，默认) 时，每个会话同一时刻只处理一个分片，
+     * 实际并行度不超过 app.native.session.pool-size；pool-size 为 1 时不分片。
+     * 不使用会话时，要求原生库的 processImageWrapper 支持并发调用。
+     */
+    private boolean enabled = false;
+
+    /**
+     * 同时处理的分片数。0 表示使用 CPU 核数。不超过处理核心的并行能力 (见 enabled)。
+     */
+    private int parallelism = 0;
+
+    /**
+     * 帧数少于该值的请求不分片。
+     */
+    private int minFrames = 64;
+
+    /**
+     * 每个分片的最小帧数 (限制固定开销所占的比例)。
+     */
+    private int minChunkFrames = 16;
+
+    /**
+     * 期望的单个分片处理时间 (毫秒)。分片大小按实测的每帧耗时调整到接近该值，
+     * 但不超过 (总帧数 / 并行度)，保证所有线程都有分片可处理。
+     */
+    private long targetChunkMillis = 10_000;
+}
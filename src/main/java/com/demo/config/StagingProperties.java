@@ -0,0 +1,32 @@
+package com.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 上传文件暂存目录的配置类。
+ * 对应配置文件中 app.staging 前缀下的属性。
+ */
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "app.staging")
+public class StagingProperties {
+    /**
+     * 暂存根目录 (可以位于 tmpfs，例如 /dev/shm/demo-staging)。为空时使用 {java.io.tmpdir}/demo-staging。
+     * 该目录归本应用独占：启动时其中残留的目录都会被当作孤儿目录删除，不要让多个实例共用。
+     */
+    private String root = "";
+
+    /**
+     * 所有暂存目录合计可占用的字节数 (按上传文件大小预留)。0 表示不限制。
+     */
+    private long quotaBytes = 10L * 1024 * 1024 * 1024;
+
+    /**
+     * 暂存空间不足时新的上传最多等待的毫秒数，超时后请求失败。
+     */
+    private long acquireTimeoutMs = 10 * 60 * 1000L;
+}
@@ -0,0 +1,37 @@
+package com.demo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 上传文件读取相关的配置类。
+ * 对应配置文件中 app.upload 前缀下的属性。
+ */
+@Setter
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "app.upload")
+public class UploadProperties {
+    /**
+     * 共享池中每个直接缓冲区的最大容量 (字节)。
+     * 不超过该大小的上传文件读入池中的直接缓冲区，更大的文件写入临时文件后以只读方式内存映射。
+     */
+    private int pooledBufferMaxBytes = 16 * 1024 * 1024;
+
+    /**
+     * 共享池中直接缓冲区的个数。直接内存占用不超过 poolSize × pooledBufferMaxBytes。
+     */
+    private int poolSize = 4;
+
+    /**
+     * 池中没有空闲缓冲区时的最长等待时间 (毫秒)，超时后改为写入临时文件并内存映射。
+     */
+    private long poolWaitMs = 50;
+
+    /**
+     * 读取上传流时每次拷贝的块大小 (字节)。
+     */
+    private int chunkBytes = 64 * 1024;
+}
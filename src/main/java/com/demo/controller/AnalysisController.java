@@ -0,0 +1,129 @@
+package com.demo.controller;
+
+import com.demo.entity.AnalysisCatalog;
+import com.demo.service.AnalysisCatalogService;
+import com.demo.service.FrameQueryService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 分析查询控制器
+ * 基于分析目录表 (ANALYSIS_CATALOG) 提供分析的分页列表与详情，不遍历 result 目录；
+ * 以及单个分析的帧数据查询。
+ */
+@RestController
+@RequestMapping("/api/analyses")
+public class AnalysisController {
+
+    private static final String MIN_PREFIX = "min.";
+    private static final String MAX_PREFIX = "max.";
+
+    private final AnalysisCatalogService catalogService;
+    private final FrameQueryService frameQueryService;
+    private final ObjectMapper objectMapper;
+
+    public AnalysisController(AnalysisCatalogService catalogService,
+                              FrameQueryService frameQueryService,
+                              ObjectMapper objectMapper) {
+        this.catalogService = catalogService;
+        this.frameQueryService = frameQueryService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 分页列出分析，默认按创建时间倒序。
+     * 例如: /api/analyses?page=0&size=20&sort=createdAt,desc
+     */
+    @GetMapping
+    public Page<AnalysisCatalog> listAnalyses(
+            @PageableDefault(size = 20, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
+        return catalogService.list(pageable);
+    }
+
+    /**
+     * 查询单个分析。
+     */
+    @GetMapping("/{analysisId}")
+    public ResponseEntity<AnalysisCatalog> getAnalysis(@PathVariable String analysisId) {
+        return catalogService.find(analysisId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * 查询一个分析的帧数据 (keyset 分页，流式输出)。
+     * 例如: /api/analyses/{id}/frames?fromIndex=10&toIndex=99&min.SCR=20&max.apAvgRad=5&fields=SCR,apAvgRad&limit=100
+     * 下一页把响应中的 nextCursor 作为 cursor 参数传入；nextCursor 为 null 表示没有更多数据。
+     *
+     * @param fromIndex 帧索引下限 (含)
+     * @param toIndex   帧索引上限 (含)
+     * @param fromTime  FATIME 下限 (含，ISO-8601)
+     * @param toTime    FATIME 上限 (含，ISO-8601)
+     * @param fields    逗号分隔的返回属性 (实体属性名)，默认 faTime,lgt,lat,alt；all 表示全部
+     * @param limit     每页行数，默认 500，最大 10000
+     * @param cursor    上一页的 nextCursor
+     * @param params    全部请求参数，其中 min.{属性}/max.{属性} 为特征阈值 (含)
+     */
+    @GetMapping("/{analysisId}/frames")
+    public ResponseEntity<StreamingResponseBody> getFrames(
+            @PathVariable String analysisId,
+            @RequestParam(required = false) Integer fromIndex,
+            @RequestParam(required = false) Integer toIndex,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant fromTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant toTime,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam Map<String, String> params) {
+        if (!catalogService.find(analysisId).isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        FrameQueryService.Criteria criteria = new FrameQueryService.Criteria();
+        criteria.setFromIndex(fromIndex);
+        criteria.setToIndex(toIndex);
+        criteria.setFromTime(fromTime);
+        criteria.setToTime(toTime);
+        criteria.setLimit(limit);
+        criteria.setCursor(cursor);
+        if (fields != null && !fields.trim().isEmpty()) {
+            criteria.setFields(Arrays.asList(fields.split(",")));
+        }
+        for (Map.Entry<String, String> e : params.entrySet()) {
+            if (e.getKey().startsWith(MIN_PREFIX)) {
+                criteria.getMin().put(e.getKey().substring(MIN_PREFIX.length()), parseThreshold(e.getKey(), e.getValue()));
+            } else if (e.getKey().startsWith(MAX_PREFIX)) {
+                criteria.getMax().put(e.getKey().substring(MAX_PREFIX.length()), parseThreshold(e.getKey(), e.getValue()));
+            }
+        }
+        // 先校验并生成查询，参数错误在开始写响应前以 400 返回
+        FrameQueryService.FrameQuery query = frameQueryService.prepare(analysisId, criteria);
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                frameQueryService.stream(query, gen);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private static double parseThreshold(String name, String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("阈值 " + name + " 不是有效的数字: " + value);
+        }
+    }
+}
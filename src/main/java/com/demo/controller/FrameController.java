@@ -0,0 +1,122 @@
+package com.demo.controller;
+
+import com.demo.dto.FrameAggregateResponse;
+import com.demo.service.FrameAggregationService;
+import com.demo.service.FrameQueryService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 跨分析的帧数据查询控制器
+ */
+@RestController
+@RequestMapping("/api/frames")
+public class FrameController {
+
+    private final FrameQueryService frameQueryService;
+    private final FrameAggregationService frameAggregationService;
+    private final ObjectMapper objectMapper;
+
+    public FrameController(FrameQueryService frameQueryService,
+                           FrameAggregationService frameAggregationService,
+                           ObjectMapper objectMapper) {
+        this.frameQueryService = frameQueryService;
+        this.frameAggregationService = frameAggregationService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 按经纬度矩形查询所有分析中的帧 (按网格编号与 id 做 keyset 分页，流式输出)。
+     * 例如: /api/frames/search?bbox=116.0,39.0,116.5,39.5&fields=SCR,alt&limit=100
+     * 下一页把响应中的 nextCursor 作为 cursor 参数传入。
+     *
+     * @param bbox       minLgt,minLat,maxLgt,maxLat (含边界)
+     * @param analysisId 可选，只查询该分析
+     * @param fromTime   FATIME 下限 (含，ISO-8601)
+     * @param toTime     FATIME 上限 (含，ISO-8601)
+     * @param fields     逗号分隔的返回属性，默认 faTime,lgt,lat,alt；all 表示全部
+     * @param limit      每页行数，默认 500，最大 10000
+     * @param cursor     上一页的 nextCursor
+     */
+    @GetMapping("/search")
+    public ResponseEntity<StreamingResponseBody> search(
+            @RequestParam String bbox,
+            @RequestParam(required = false) String analysisId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant fromTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant toTime,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        FrameQueryService.Criteria criteria = new FrameQueryService.Criteria();
+        criteria.setFromTime(fromTime);
+        criteria.setToTime(toTime);
+        criteria.setLimit(limit);
+        criteria.setCursor(cursor);
+        if (fields != null && !fields.trim().isEmpty()) {
+            criteria.setFields(Arrays.asList(fields.split(",")));
+        }
+        FrameQueryService.FrameQuery query = frameQueryService.prepareSearch(parseBbox(bbox), analysisId, criteria);
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                frameQueryService.stream(query, gen);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * 按 FATIME 时间桶聚合特征 (count / mean / min / max / p95)，只返回有数据的时间桶。
+     * 例如: /api/frames/aggregate?bucket=1m&from=2025-01-01T00:00:00Z&to=2025-01-02T00:00:00Z&fields=SCR,apAvgRad
+     *
+     * @param bucket     时间桶宽度: 1s / 1m / 1h 等 (支持 ms/s/m/h/d)，默认 1m
+     * @param from       范围起点 (含，ISO-8601)
+     * @param to         范围终点 (不含，ISO-8601)
+     * @param fields     逗号分隔的特征属性名
+     * @param analysisId 可选，只统计该分析
+     * @param p95        是否计算 p95，默认 true
+     * @param engine     auto (默认: 需要 p95 时流式计算，否则 SQL) / sql / stream
+     */
+    @GetMapping("/aggregate")
+    public FrameAggregateResponse aggregate(
+            @RequestParam(defaultValue = "1m") String bucket,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam String fields,
+            @RequestParam(required = false) String analysisId,
+            @RequestParam(defaultValue = "true") boolean p95,
+            @RequestParam(defaultValue = "auto") String engine) {
+        FrameAggregationService.Engine mode;
+        try {
+            mode = FrameAggregationService.Engine.valueOf(engine.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的 engine: " + engine + " (auto / sql / stream)");
+        }
+        return frameAggregationService.aggregate(bucket, from, to, Arrays.asList(fields.split(",")), analysisId, p95, mode);
+    }
+
+    private static double[] parseBbox(String bbox) {
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("bbox 必须是 minLgt,minLat,maxLgt,maxLat 四个数。");
+        }
+        double[] values = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                values[i] = Double.parseDouble(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bbox 包含无效的数字: " + bbox);
+        }
+        return values;
+    }
+}
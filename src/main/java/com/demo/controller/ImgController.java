@@ -3,14 +3,23 @@ import com.demo.service.jna.ImgProcessorCpp;
 import com.demo.service.jna.MultiFrameProcessorCpp;
 import com.demo.dto.ConfigDto;
 
-import com.demo.util.ConvertDatToImg;
-import com.demo.util.CropImg;
+import com.demo.util.AppPaths;
 import com.demo.util.ParseCoord;
 import com.demo.dto.FolderPathRequest;
 import com.demo.dto.MultiFrameResultResponse;
 import com.demo.dto.FeatureDataResponse;
 import com.demo.service.FeatureParserService;
 import com.demo.service.ConfigService;
+import com.demo.service.UploadIngestService;
+import com.demo.service.InferResultCache;
+import com.demo.service.SingleFrameService;
+import com.demo.service.BatchInferService;
+import com.demo.service.StagingManager;
+import com.demo.service.AnalysisCatalogService;
+import com.demo.service.RetentionService;
+import com.demo.service.FeatureArchiveService;
+import com.demo.service.FeatureFilterService;
+import com.demo.entity.AnalysisCatalog;
 import com.demo.service.FeaturePersistenceService;
 
 import org.springframework.core.io.InputStreamResource;
@@ -18,24 +27,23 @@ import org.springframework.http.MediaType;
 import org.springframework.http.HttpHeaders;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.File;
-import java.net.URL;
 import java.net.URLDecoder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.util.*;
 import java.text.SimpleDateFormat;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 /**
  * 图像处理控制器类
@@ -46,24 +54,52 @@ import java.security.NoSuchAlgorithmException;
 public class ImgController {
 
     private static final Logger logger = LoggerFactory.getLogger(ImgController.class);
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
-    private final ImgProcessorCpp singleFrameProcessor;
     private final MultiFrameProcessorCpp multiFrameProcessor;
     private final FeatureParserService featureParserService;
     private final ConfigService configService;
+    private final UploadIngestService uploadIngestService;
+    private final InferResultCache resultCache;
+    private final SingleFrameService singleFrameService;
+    private final BatchInferService batchInferService;
+    private final StagingManager stagingManager;
+    private final AnalysisCatalogService analysisCatalogService;
+    private final RetentionService retentionService;
+    private final FeatureArchiveService featureArchiveService;
+    private final FeatureFilterService featureFilterService;
+    private final ObjectMapper objectMapper;
     //private final FeaturePersistenceService featurePersistenceService;
 
     @Autowired
-    public ImgController(ImgProcessorCpp singleFrameProcessor,
-                         MultiFrameProcessorCpp multiFrameProcessor,
+    public ImgController(MultiFrameProcessorCpp multiFrameProcessor,
                          FeatureParserService featureParserService,
-                         ConfigService configService
+                         ConfigService configService,
+                         UploadIngestService uploadIngestService,
+                         InferResultCache resultCache,
+                         SingleFrameService singleFrameService,
+                         BatchInferService batchInferService,
+                         StagingManager stagingManager,
+                         AnalysisCatalogService analysisCatalogService,
+                         RetentionService retentionService,
+                         FeatureArchiveService featureArchiveService,
+                         FeatureFilterService featureFilterService,
+                         ObjectMapper objectMapper
                          //FeaturePersistenceService featurePersistenceService
                          ) {
-        this.singleFrameProcessor = singleFrameProcessor;
         this.multiFrameProcessor = multiFrameProcessor;
         this.featureParserService = featureParserService;
         this.configService = configService;
+        this.uploadIngestService = uploadIngestService;
+        this.resultCache = resultCache;
+        this.singleFrameService = singleFrameService;
+        this.batchInferService = batchInferService;
+        this.stagingManager = stagingManager;
+        this.analysisCatalogService = analysisCatalogService;
+        this.retentionService = retentionService;
+        this.featureArchiveService = featureArchiveService;
+        this.featureFilterService = featureFilterService;
+        this.objectMapper = objectMapper;
         //this.featurePersistenceService = featurePersistenceService;
     }
 
@@ -77,7 +113,6 @@ public class ImgController {
      * @param fileMD5FromFrontend 前端提供的文件 MD5 校验值
      * @return 处理结果
      * @throws IOException 文件操作异常
-     * @throws NoSuchAlgorithmException 无效算法异常
      */
     @PostMapping("/infer")
     public ResponseEntity<Map<String, Object>> inferImage(
@@ -86,7 +121,7 @@ public class ImgController {
             @RequestParam(value = "rows", required = true) int rows,
             @RequestParam(value = "cols", required = true) int cols,
             @RequestParam(value = "cropData", required = false) String cropDataJson,
-            @RequestParam("fileMD5") String fileMD5FromFrontend) throws IOException, NoSuchAlgorithmException {
+            @RequestParam("fileMD5") String fileMD5FromFrontend) throws IOException {
 
         logger.info("单帧识别请求: 文件: {}, 算法: {}, 行列: {}x{}, crop: {}",
                 file.getOriginalFilename(), algorithm, rows, cols, cropDataJson != null);
@@ -94,42 +129,105 @@ public class ImgController {
             throw new IllegalArgumentException("必须提供有效的图像行数和列数。");
         }
 
-        String backendGeneratedMD5 = calculateMD5(file.getBytes());
-        if (!fileMD5FromFrontend.equals(backendGeneratedMD5)) {
-            throw new IllegalArgumentException("MD5 校验失败。");
-        }
-        logger.info("MD5校验成功.");
-
         String originalFilename = file.getOriginalFilename();
-        ConvertDatToImg.ConvertResult conversionResult = ConvertDatToImg.convertToPngBase64(file.getBytes(), originalFilename, rows, cols);
-        if (conversionResult == null || conversionResult.normalizedBase64 == null) {
-            throw new RuntimeException("文件转换处理失败。可能由于行列数与.dat文件不匹配。");
+        Map<String, Integer> cropCoordinates = ParseCoord.parse(cropDataJson);
+        ImgProcessorCpp.SingleFrameResult result;
+        // 只读取一次上传流：MD5 与读取同一遍完成，数据放在共享池的直接缓冲区中；超出池容量或池已用尽时写入内存映射的临时文件
+        try (UploadIngestService.IngestedFile upload = uploadIngestService.ingest(file)) {
+            if (!fileMD5FromFrontend.equals(upload.getMd5())) {
+                throw new IllegalArgumentException("MD5 校验失败。");
+            }
+            logger.info("MD5校验成功.");
+
+            result = singleFrameService.infer(upload, originalFilename, rows, cols, cropCoordinates, algorithm);
         }
 
-        String originalBase64ForCpp = conversionResult.normalizedBase64;
-        String processedBase64ForCpp = originalBase64ForCpp;
+        logger.info("单帧识别请求处理完成: {}", originalFilename);
+        return ResponseEntity.ok(singleFrameService.buildResponse(result, algorithm));
+    }
 
-        Map<String, Integer> cropCoordinates = ParseCoord.parse(cropDataJson);
-        if (cropCoordinates != null && !cropCoordinates.isEmpty()) {
-            logger.info("进行图像裁剪: {}", cropCoordinates);
-            processedBase64ForCpp = CropImg.cropImage(originalBase64ForCpp, cropCoordinates);
-        }
+    /**
+     * 单帧识别结果缓存的统计信息接口。
+     * @return 命中、未命中、淘汰次数及占用字节数，以及请求合并的计数
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getResultCacheStats() {
+        Map<String, Object> stats = resultCache.stats();
+        stats.put("coalesced", singleFrameService.coalescedCount());
+        stats.put("inFlight", singleFrameService.inFlightCount());
+        stats.put("multiFrameCoalesced", multiFrameProcessor.coalescedCount());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * 上传文件暂存目录的统计信息接口。
+     * @return 暂存根目录、配额、已预留字节数、排队等待的上传数与目录回收计数
+     */
+    @GetMapping("/staging/stats")
+    public ResponseEntity<Map<String, Object>> getStagingStats() {
+        return ResponseEntity.ok(stagingManager.stats());
+    }
+
+    /**
+     * 结果保留策略的状态接口。
+     * @return 是否启用、执行次数、最近一次执行时间、清理的分析与行数、释放的空间
+     */
+    @GetMapping("/retention/stats")
+    public ResponseEntity<Map<String, Object>> getRetentionStats() {
+        return ResponseEntity.ok(retentionService.stats());
+    }
 
-        logger.info("调用服务进行单帧处理，算法: {}", algorithm);
-        ImgProcessorCpp.SingleFrameResult result = singleFrameProcessor.processImage(originalBase64ForCpp, processedBase64ForCpp, cropCoordinates, algorithm);
+    /**
+     * 批量单帧识别接口。
+     * 所有帧使用同一算法；行列数和裁剪框可以通过 rows/cols/cropData 统一指定，
+     * 也可以通过 frames (JSON 数组，与 files 一一对应) 为每一帧单独指定：
+     * [{"rows":512,"cols":512,"cropData":{"left":0,"top":0,"width":100,"height":100},"fileMD5":"..."}]
+     * 结果按完成顺序以 NDJSON (每行一个 JSON 对象，带 index 字段) 流式返回。
+     *
+     * @param files 上传的图像文件
+     * @param algorithm 使用的算法
+     * @param rows 默认图像行数
+     * @param cols 默认图像列数
+     * @param cropDataJson 默认裁剪坐标 JSON 字符串
+     * @param framesJson 每帧参数的 JSON 数组
+     * @return NDJSON 流
+     * @throws IOException frames 参数解析失败
+     */
+    @PostMapping("/infer_batch")
+    public ResponseEntity<StreamingResponseBody> inferBatch(
+            @RequestPart("files") List<MultipartFile> files,
+            @RequestParam("algorithm") String algorithm,
+            @RequestParam(value = "rows", required = false) Integer rows,
+            @RequestParam(value = "cols", required = false) Integer cols,
+            @RequestParam(value = "cropData", required = false) String cropDataJson,
+            @RequestParam(value = "frames", required = false) String framesJson) throws IOException {
 
-        // 成功逻辑保持不变，因为如果 processImage 失败，它会抛出异常，根本不会执行到这里
-        Map<String, Object> responseMap = new HashMap<>();
-        responseMap.put("success", true);
-        responseMap.put("processedImage", result.getProcessedBase64());
-        responseMap.put("algorithm", algorithm);
-        responseMap.put("timestamp", new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
-        responseMap.put("result", result.getResultArray());
-        responseMap.put("result_length", result.getResultLength());
-        responseMap.put("message", result.getMessage() != null ? result.getMessage() : "处理成功");
+        logger.info("批量单帧识别请求: 文件数量: {}, 算法: {}", files.size(), algorithm);
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("必须上传至少一个图像文件 (files)。");
+        }
+        if (files.size() > batchInferService.getMaxFrames()) {
+            throw new IllegalArgumentException("单次批量请求最多 " + batchInferService.getMaxFrames() + " 帧。");
+        }
+        JsonNode frameParams = framesJson != null ? objectMapper.readTree(framesJson) : null;
+        if (frameParams != null && (!frameParams.isArray() || frameParams.size() != files.size())) {
+            throw new IllegalArgumentException("frames 必须是与 files 数量一致的 JSON 数组。");
+        }
 
-        logger.info("单帧识别请求处理完成: {}", originalFilename);
-        return ResponseEntity.ok(responseMap);
+        Map<String, Integer> defaultCrop = ParseCoord.parse(cropDataJson);
+        List<BatchInferService.FrameRequest> frames = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            JsonNode params = frameParams != null ? frameParams.get(i) : null;
+            int frameRows = params != null && params.has("rows") ? params.get("rows").asInt() : (rows != null ? rows : 0);
+            int frameCols = params != null && params.has("cols") ? params.get("cols").asInt() : (cols != null ? cols : 0);
+            Map<String, Integer> crop = params != null && params.hasNonNull("cropData")
+                    ? ParseCoord.parse(params.get("cropData").toString()) : defaultCrop;
+            String md5 = params != null && params.hasNonNull("fileMD5") ? params.get("fileMD5").asText() : null;
+            frames.add(new BatchInferService.FrameRequest(files.get(i), frameRows, frameCols, crop, md5));
+        }
+
+        StreamingResponseBody body = out -> batchInferService.run(frames, algorithm, out);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
     }
 
     /**
@@ -193,7 +291,7 @@ public class ImgController {
             if (cleanFolderPath == null) {
                 throw new IllegalArgumentException("无效的文件夹路径: " + folder);
             }
-            imagePath = getApplicationBasePath().resolve(cleanFolderPath).resolve(file).normalize();
+            imagePath = AppPaths.projectRoot().resolve(cleanFolderPath).resolve(file).normalize();
         }
         //logger.info("最终尝试访问的图像文件路径: {}", imagePath.toString());
 
@@ -221,8 +319,18 @@ public class ImgController {
                 .body(resource);
     }
 
+    /**
+     * 读取一次多帧分析的特征数据。
+     * source: dat (默认) 解析 Feature.dat；archive 读取压缩的列式归档 Feature.col；auto 优先归档，不存在时回退到 Feature.dat。
+     * fields: 逗号分隔的特征名 (含 confidences)，只返回这些列；读取归档时只解码这些列。
+     * filter: 筛选表达式 (例如 "SCR > 3 &amp;&amp; xjy_area > 20")，只返回命中帧的序号 (frameIndices) 与这些帧上的 fields 列；
+     * 直接在内存映射的 Feature.dat 上执行，source 不能为 archive。
+     */
     @GetMapping("/get_feature_data")
-    public ResponseEntity<FeatureDataResponse> getFeatureData(@RequestParam("resultPath") String resultPathArg) throws IOException {
+    public ResponseEntity<FeatureDataResponse> getFeatureData(@RequestParam("resultPath") String resultPathArg,
+                                                              @RequestParam(value = "source", defaultValue = "dat") String source,
+                                                              @RequestParam(value = "fields", required = false) String fields,
+                                                              @RequestParam(value = "filter", required = false) String filter) throws IOException {
         logger.info("--- 接收到的 resultPathArg (图像目录): {} ---", resultPathArg);
 
         if (resultPathArg == null || resultPathArg.trim().isEmpty()) {
@@ -236,7 +344,7 @@ public class ImgController {
         // 我们需要从 img 目录推断出 feature 目录。
 
         // 1. 获取项目根目录 (e.g., /path/to/project)
-        Path basePath = getApplicationBasePath();
+        Path basePath = AppPaths.projectRoot();
 
         // 2. 解析C++返回的相对路径 (e.g., ../result/img.../)
         Path relativeImgPath = Paths.get(resultPathArg);
@@ -250,32 +358,95 @@ public class ImgController {
         // 5. 获取目录名 (e.g., img2025-10-30...)
         String imgDirName = absoluteImgPath.getFileName().toString();
 
-        // 6. 推断 feature 目录名
-        String featureDirName = imgDirName.replaceFirst("img", "feature");
+        // 6. 优先从分析目录表解析 feature 目录；未登记时 (例如回填尚未完成) 再按命名约定推断
+        Optional<AnalysisCatalog> catalogEntry = analysisCatalogService.findByImgDirName(imgDirName);
+        if (catalogEntry.isPresent()) {
+            analysisId = catalogEntry.get().getAnalysisId();
+            featureDatFileAbsolutePath = Paths.get(catalogEntry.get().getFeatureDir()).resolve("Feature.dat");
+        } else {
+            String featureDirName = imgDirName.replaceFirst("img", "feature");
 
-        if (absoluteParentDir == null || featureDirName.equals(imgDirName)) {
-            throw new IllegalArgumentException("无效的结果路径 (无法解析特征路径): " + resultPathArg);
-        }
+            if (absoluteParentDir == null || featureDirName.equals(imgDirName)) {
+                throw new IllegalArgumentException("无效的结果路径 (无法解析特征路径): " + resultPathArg);
+            }
 
-        // 7. [新增] 提取 analysisId (例如 "feature2025-10-30-19-40-38")
-        // 这将用作数据库和 SQL 文件的主键
-        analysisId = featureDirName;
+            // 7. [新增] 提取 analysisId (例如 "feature2025-10-30-19-40-38")
+            // 这将用作数据库和 SQL 文件的主键
+            analysisId = featureDirName;
 
-        // 8. 构造最终的 Feature.dat 文件路径
-        featureDatFileAbsolutePath = absoluteParentDir.resolve(featureDirName).resolve("Feature.dat");
+            // 8. 构造最终的 Feature.dat 文件路径
+            featureDatFileAbsolutePath = absoluteParentDir.resolve(featureDirName).resolve("Feature.dat");
+        }
 
         // --- 路径推断结束 ---
 
 
-        logger.info("尝试读取和解析的特征文件绝对路径: {}", featureDatFileAbsolutePath.toString());
+        List<String> selectedFields = new ArrayList<>();
+        if (fields != null) {
+            for (String field : fields.split(",")) {
+                if (!field.trim().isEmpty()) {
+                    selectedFields.add(field.trim());
+                }
+            }
+        }
+        if (filter != null) {
+            if ("archive".equalsIgnoreCase(source)) {
+                throw new IllegalArgumentException("filter 只能在 Feature.dat 上执行，source 不能为 archive。");
+            }
+            FeatureFilterService.Filter compiled = this.featureFilterService.compile(filter);
+            if (!Files.exists(featureDatFileAbsolutePath) || !Files.isReadable(featureDatFileAbsolutePath)) {
+                throw new java.io.FileNotFoundException("特征文件 (Feature.dat) 未找到或不可读。检查路径: " + featureDatFileAbsolutePath);
+            }
+            FeatureFilterService.Result result = this.featureFilterService.filter(featureDatFileAbsolutePath, compiled, selectedFields);
+            return ResponseEntity.ok(new FeatureDataResponse(true,
+                    String.format("筛选完成: %d / %d 帧满足条件。", result.getFrameIndices().length, result.getTotalFrames()),
+                    result.getFeatures(), result.getFrameIndices()));
+        }
 
-        if (!Files.exists(featureDatFileAbsolutePath) || !Files.isReadable(featureDatFileAbsolutePath)) {
-            throw new java.io.FileNotFoundException("特征文件 (Feature.dat) 未找到或不可读。检查路径: " + featureDatFileAbsolutePath);
+        Path archivePath = featureDatFileAbsolutePath.resolveSibling(FeatureArchiveService.ARCHIVE_FILE);
+        boolean useArchive;
+        switch (source.toLowerCase()) {
+            case "dat":
+                useArchive = false;
+                break;
+            case "archive":
+                useArchive = true;
+                break;
+            case "auto":
+                useArchive = Files.isReadable(archivePath);
+                break;
+            default:
+                throw new IllegalArgumentException("source 只能是 dat、archive 或 auto: " + source);
         }
 
-        // 1. 解析 Feature.dat 文件
-        //
-        Map<String, List<? extends Number>> features = this.featureParserService.parseFeatureFile(featureDatFileAbsolutePath.toString());
+        Map<String, List<? extends Number>> features;
+        if (useArchive) {
+            logger.info("尝试读取的列式归档绝对路径: {}", archivePath);
+            if (!Files.isReadable(archivePath)) {
+                throw new java.io.FileNotFoundException("列式归档 (Feature.col) 未找到或不可读。检查路径: " + archivePath);
+            }
+            features = this.featureArchiveService.readArchive(archivePath, selectedFields);
+        } else {
+            logger.info("尝试读取和解析的特征文件绝对路径: {}", featureDatFileAbsolutePath.toString());
+
+            if (!Files.exists(featureDatFileAbsolutePath) || !Files.isReadable(featureDatFileAbsolutePath)) {
+                throw new java.io.FileNotFoundException("特征文件 (Feature.dat) 未找到或不可读。检查路径: " + featureDatFileAbsolutePath);
+            }
+
+            // 1. 解析 Feature.dat 文件
+            //
+            features = this.featureParserService.parseFeatureFile(featureDatFileAbsolutePath.toString());
+            if (!selectedFields.isEmpty() && features != null && !features.isEmpty()) {
+                Map<String, List<? extends Number>> selected = new LinkedHashMap<>();
+                for (String field : selectedFields) {
+                    if (!features.containsKey(field)) {
+                        throw new IllegalArgumentException("不存在的特征列: " + field);
+                    }
+                    selected.put(field, features.get(field));
+                }
+                features = selected;
+            }
+        }
 
         if (features == null || features.isEmpty()) {
             logger.warn("特征文件解析完成，但未提取到任何特征数据 (可能 numFrames <= 0)。 文件: {}", featureDatFileAbsolutePath.toString());
@@ -305,63 +476,6 @@ public class ImgController {
     }
 
 
-    //TODO: 读取生成数据有问题,路径需要两个result才能生成，和c++的代码有关系
-    /**
-     * 获取应用的基准目录路径。
-     * - 在IDE中运行时，返回项目根目录 (e.g., D:\...\demo\)。
-     * - 从jar包运行时，返回jar包所在目录 (e.g., D:\...\demo\target\)。
-     *
-     * @return 应用的基准目录Path对象
-     */
-    private Path getApplicationBasePath() {
-        try {
-            URL location = ImgController.class.getProtectionDomain().getCodeSource().getLocation();
-            Path basePath;
-
-            if ("jar".equals(location.getProtocol())) {
-                logger.info("检测到JAR环境。");
-                // 从 "jar:file:/D:/demo/target/demo.jar!/..." 提取出 JAR 文件的路径
-                String jarPathString = location.toURI().getSchemeSpecificPart();
-                int bangIndex = jarPathString.indexOf('!');
-                if (bangIndex != -1) {
-                    jarPathString = jarPathString.substring(0, bangIndex);
-                }
-                Path jarFile = Paths.get(new URI(jarPathString));
-
-                // 【核心逻辑 for JAR】
-                // jarFile 是 D:\demo\target\demo.jar
-                // .getParent() 是 D:\demo\target
-                // .getParent().getParent() 正是项目根目录 D:\demo
-                basePath = jarFile.getParent().getParent();
-                logger.info("项目根目录（基准目录）设置为: {}", basePath);
-
-            } else { // "file" protocol for IDE
-                logger.info("检测到IDE/文件环境。");
-                // classesPath 是 D:\demo\target\classes
-                Path classesPath = Paths.get(location.toURI());
-
-                // 【核心逻辑 for IDE】
-                // .getParent() 是 D:\demo\target
-                // .getParent().getParent() 正是项目根目录 D:\demo
-                basePath = classesPath.getParent().getParent();
-                logger.info("项目根目录（基准目录）设置为: {}", basePath);
-            }
-
-            // 确保在项目根目录下存在 result 文件夹
-            Path resultPath = basePath.resolve("result");
-            if (!Files.exists(resultPath)) {
-                Files.createDirectories(resultPath);
-                logger.info("结果目录不存在，已在基准目录下自动创建: {}", resultPath);
-            }
-
-            return basePath;
-        } catch (Exception e) {
-            logger.error("无法动态确定应用基准目录，将回退到使用当前工作目录。错误详情: ", e);
-            // 回退到当前工作目录，这正是C++库使用的目录，因此是可靠的。
-            return Paths.get(".");
-        }
-    }
-
     /**
      * 获取配置接口。
      * @return 配置信息
@@ -386,16 +500,4 @@ public class ImgController {
         logger.info("配置保存成功.");
         return ResponseEntity.ok().build();
     }
-
-    /**
-     * 计算文件的 MD5 校验值。
-     * @param fileBytes 文件字节数组
-     * @return MD5 校验值
-     * @throws NoSuchAlgorithmException 无效算法异常
-     */
-    private String calculateMD5(byte[] fileBytes) throws NoSuchAlgorithmException {
-        MessageDigest md = MessageDigest.getInstance("MD5");
-        byte[] digest = md.digest(fileBytes);
-        return HexFormat.of().formatHex(digest);
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,103 @@
+package com.demo.controller;
+
+import com.demo.dto.JobStatusResponse;
+import com.demo.service.MultiFrameJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 异步多帧任务控制器。
+ * 提交后立即返回任务 ID，通过 /api/jobs/{jobId} 查询状态和结果，通过 /sse/jobs/{jobId} 接收进度事件。
+ */
+@RestController
+public class JobController {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobController.class);
+
+    private final MultiFrameJobService jobService;
+
+    public JobController(MultiFrameJobService jobService) {
+        this.jobService = jobService;
+    }
+
+    /**
+     * 提交异步多帧任务，参数与 /api/infer_multi_frame 相同。
+     * 上传文件保存完成后立即返回 202 和任务 ID，处理在后台进行。
+     */
+    @PostMapping("/api/jobs")
+    public ResponseEntity<Map<String, Object>> submitMultiFrameJob(
+            @RequestPart("files") List<MultipartFile> imageFiles,
+            @RequestPart(value = "trackFile", required = false) MultipartFile trackFile,
+            @RequestParam("algorithm") String algorithm,
+            @RequestParam("mode") int mode) throws IOException {
+
+        if (imageFiles == null || imageFiles.isEmpty()) {
+            throw new IllegalArgumentException("必须上传至少一个图像文件 (files)。");
+        }
+        if (algorithm == null || algorithm.trim().isEmpty()) {
+            throw new IllegalArgumentException("algorithm 参数不能为空。");
+        }
+        if (mode == 2 && (trackFile == null || trackFile.isEmpty())) {
+            throw new IllegalArgumentException("模式 2 (GJDeal) 必须提供一个轨迹 (trackFile) 文件。");
+        }
+
+        String jobId = jobService.submit(imageFiles, trackFile, algorithm, mode);
+
+        Map<String, Object> responseMap = new LinkedHashMap<>();
+        responseMap.put("jobId", jobId);
+        responseMap.put("status", MultiFrameJobService.Status.QUEUED.name());
+        responseMap.put("statusUrl", "/api/jobs/" + jobId);
+        responseMap.put("eventsUrl", "/sse/jobs/" + jobId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(responseMap);
+    }
+
+    /**
+     * 查询任务状态；任务成功后 result 字段为多帧处理结果。
+     */
+    @GetMapping("/api/jobs/{jobId}")
+    public ResponseEntity<JobStatusResponse> getJob(@PathVariable String jobId) {
+        return jobService.status(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * 取消排队中的任务。已开始或已结束的任务返回 409 和当前状态。
+     */
+    @DeleteMapping("/api/jobs/{jobId}")
+    public ResponseEntity<JobStatusResponse> cancelJob(@PathVariable String jobId) {
+        try {
+            return jobService.cancel(jobId)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            logger.info("取消任务失败: {}", e.getMessage());
+            return jobService.status(jobId)
+                    .map(status -> ResponseEntity.status(HttpStatus.CONFLICT).body(status))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        }
+    }
+
+    /**
+     * 任务进度的 SSE 端点 (与 /sse/logs 并列)。
+     * 事件名为阶段名 (staged、native_started、native_finished、parsed、persisted、completed、failed、cancelled)，
+     * 数据为 JSON 格式的 {@link JobStatusResponse.JobEvent}。任务结束后服务端关闭连接。
+     */
+    @GetMapping(path = "/sse/jobs/{jobId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJobEvents(@PathVariable String jobId) {
+        return jobService.subscribe(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
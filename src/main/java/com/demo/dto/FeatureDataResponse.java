@@ -1,5 +1,6 @@
 package com.demo.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -18,4 +19,10 @@ public class FeatureDataResponse {
     private boolean success;// 是否成功标志
     private String message; // 消息内容
     private Map<String, List<? extends Number>> features;// 特征数据，以Map形式存储，键为特征名称，值为特征值的列表（可以是任何数字类型）
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private int[] frameIndices; // 使用 filter 时命中的帧序号 (升序)，与 features 中各列的值一一对应；未筛选时不输出
+
+    public FeatureDataResponse(boolean success, String message, Map<String, List<? extends Number>> features) {
+        this(success, message, features, null);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按 FATIME 时间桶聚合的帧特征统计。只返回有数据的时间桶。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FrameAggregateResponse {
+    private String bucket;          // 时间桶宽度，例如 "1m"
+    private long bucketMillis;      // 时间桶宽度 (毫秒)
+    private Instant from;           // 查询范围起点 (含)
+    private Instant to;             // 查询范围终点 (不含)
+    private String analysisId;      // 只统计该分析，为 null 表示全部分析
+    private boolean streamed;       // true: 在 Java 中流式计算；false: 完全在 SQL 中聚合
+    private List<Bucket> buckets;   // 按时间升序
+
+    /**
+     * 一个时间桶。
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+        private Instant start;                  // 时间桶起点
+        private long count;                     // 帧数
+        private Map<String, FieldStats> fields; // 特征属性名 -> 统计值
+    }
+
+    /**
+     * 一个特征在一个时间桶内的统计值 (忽略空值)。
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FieldStats {
+        private long count;   // 非空值个数
+        private Double mean;
+        private Double min;
+        private Double max;
+        private Double p95;   // 最近秩法 95 分位数，未请求时为 null
+    }
+}
@@ -0,0 +1,42 @@
+package com.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 异步多帧任务的状态响应。
+ * 任务成功结束后 result 为与 /api/infer_multi_frame 相同的结果；失败时 error 为错误描述。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobStatusResponse {
+    private String jobId;                    // 任务 ID
+    private String status;                   // QUEUED / RUNNING / SUCCEEDED / FAILED / CANCELLED
+    private String algorithm;                // 算法名称
+    private int mode;                        // 处理模式
+    private int fileCount;                   // 上传的图像文件数量
+    private LocalDateTime submittedAt;       // 提交时间
+    private LocalDateTime startedAt;         // 开始执行时间，未开始时为 null
+    private LocalDateTime finishedAt;        // 结束时间，未结束时为 null
+    private List<JobEvent> events;           // 已发生的进度事件
+    private MultiFrameResultResponse result; // 处理结果，成功后才有
+    private String error;                    // 失败原因
+
+    /**
+     * 任务进度事件，同时通过 /sse/jobs/{jobId} 推送。
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class JobEvent {
+        private long seq;              // 事件序号，从 1 开始
+        private String stage;          // staged / native_started / native_finished / parsed / persisted / completed / failed / cancelled
+        private String detail;         // 附加信息
+        private LocalDateTime time;    // 发生时间
+    }
+}
@@ -0,0 +1,39 @@
+package com.demo.entity;
+
+import lombok.Data;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * 分析目录实体类
+ * 每一行对应一次多帧处理的输出 (result/img{时间戳} 与 result/feature{时间戳})，
+ * 列出和定位分析时只查询此表，不再遍历 result 目录。
+ */
+@Data
+@Entity
+@Table(name = "ANALYSIS_CATALOG", indexes = {
+        @Index(name = "IDX_CATALOG_CREATED_AT", columnList = "createdAt"),
+        @Index(name = "IDX_CATALOG_IMG_DIR_NAME", columnList = "imgDirName")
+})
+public class AnalysisCatalog {
+
+    /**
+     * 特征目录名，与 FALSEALARMITEMDATA.analysisId 相同 (例如: "feature2025-10-30-19-40-38")
+     */
+    @Id
+    private String analysisId;
+
+    private String imgDirName;   // 图像目录名 (例如: "img2025-10-30-19-40-38")
+    private String imgDir;       // 图像目录绝对路径
+    private String featureDir;   // 特征目录绝对路径
+
+    private Integer frameCount;  // Feature.dat 中的帧数
+    private Integer imageCount;  // 图像目录中的文件数
+    private String algorithm;    // 算法名称 (启动时回填的历史分析为 null)
+    private Integer mode;        // 处理模式 (启动时回填的历史分析为 null)
+
+    private Instant createdAt;   // 处理完成时间 (回填时由目录名中的时间戳推断)
+    private Long imgBytes;       // 图像目录占用字节数
+    private Long featureBytes;   // 特征目录占用字节数
+}
@@ -1,5 +1,7 @@
 package com.demo.entity;
 
+import com.demo.util.GeoGrid;
+import com.demo.util.PackedFloats;
 import lombok.Data;
 import javax.persistence.*;
 import java.time.Instant;
@@ -11,7 +13,11 @@ import java.nio.file.Path;
  */
 @Data
 @Entity
-@Table(name = "FALSEALARMITEMDATA")
+@Table(name = "FALSEALARMITEMDATA", indexes = {
+        @Index(name = "IDX_FRAME_ANALYSIS_INDEX", columnList = "analysisId, frameIndex"),
+        @Index(name = "IDX_FRAME_FATIME", columnList = "FATIME"),
+        @Index(name = "IDX_FRAME_GEO_CELL", columnList = "geoCell, id")
+})
 public class FrameFeature {
 
     @Id
@@ -37,11 +43,20 @@ public class FrameFeature {
 
     // --- Category Info ---
     /**
-     * 存储该帧的置信度数组，例如 "0.1,0.05,0.8"
+     * 旧格式的置信度，逗号分隔的文本，例如 "0.1,0.05,0.8"。新写入的帧不再填写，只保留用于读取历史数据
      */
-    @Lob // 对于可能很长的字符串使用 @Lob
+    // SQLite JDBC 驱动不支持 Clob 绑定 (setCharacterStream)，@Lob 会导致插入失败，这里直接使用 TEXT 列
+    @Column(columnDefinition = "TEXT")
     private String confidences;
 
+    /**
+     * 该帧的置信度，categoryNum 个 float32 按小端序打包 (见 {@link PackedFloats})
+     */
+    @Column(columnDefinition = "BLOB")
+    private byte[] confidencesBlob;
+
+    private Integer categoryNum; // 置信度个数
+
     @Column(name = "FATIME")
     private Instant faTime;
     //@Lob // [!! 新增 !!] @Lob 告诉 JPA 这是一个大对象 (用于存储字节)
@@ -101,6 +116,11 @@ public class FrameFeature {
     private Float lat;
     private Float alt;
 
+    /**
+     * lgt/lat 所在的固定网格编号 (见 {@link GeoGrid})，写入时自动计算，用于范围查询
+     */
+    private Long geoCell;
+
     // --- Time Related ---
     private Short year;
     private Short month;
@@ -109,4 +129,20 @@ public class FrameFeature {
     private Short min;
     private Short sec;
     private Float msec;
-}
\ No newline at end of file
+
+    @PrePersist
+    @PreUpdate
+    void updateGeoCell() {
+        geoCell = GeoGrid.cellOf(lgt, lat);
+    }
+
+    /**
+     * @return 该帧的置信度；优先读取 confidencesBlob，历史数据回退到解析 confidences 文本
+     */
+    public float[] decodeConfidences() {
+        if (confidencesBlob != null) {
+            return PackedFloats.unpack(confidencesBlob);
+        }
+        return PackedFloats.parseCsv(confidences);
+    }
+}
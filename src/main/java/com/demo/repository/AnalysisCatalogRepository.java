@@ -0,0 +1,21 @@
+package com.demo.repository;
+
+import com.demo.entity.AnalysisCatalog;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * AnalysisCatalog (分析目录) 的数据访问仓库接口
+ */
+@Repository
+public interface AnalysisCatalogRepository extends JpaRepository<AnalysisCatalog, String> {
+
+    Optional<AnalysisCatalog> findFirstByImgDirName(String imgDirName);
+
+    @Query("select c.analysisId from AnalysisCatalog c")
+    List<String> findAllIds();
+}
@@ -0,0 +1,257 @@
+package com.demo.service;
+
+import com.demo.entity.AnalysisCatalog;
+import com.demo.repository.AnalysisCatalogRepository;
+import com.demo.service.processor.ResultDirs;
+import com.demo.util.AppPaths;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * 分析目录服务。
+ * 每次多帧处理完成后登记一条 {@link AnalysisCatalog}；应用启动后在后台并行扫描 result 目录，
+ * 回填尚未登记的历史分析并移除目录已不存在的记录。之后列出和定位分析只查询数据库。
+ */
+@Service
+public class AnalysisCatalogService {
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisCatalogService.class);
+    private static final String IMG_PREFIX = "img";
+    private static final String FEATURE_PREFIX = "feature";
+    private static final String FEATURE_FILE = "Feature.dat";
+
+    private final AnalysisCatalogRepository repository;
+    // record() 与回填的写入互斥：回填在持有锁时重新检查已登记的 ID，不会覆盖扫描期间登记的记录
+    private final Object writeLock = new Object();
+
+    public AnalysisCatalogService(AnalysisCatalogRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * 登记一次完成的多帧处理。
+     *
+     * @param featureDatPath Feature.dat 路径 (其父目录名即 analysisId)
+     * @param imgDir         结果图像目录
+     * @param algorithm      算法名称
+     * @param mode           处理模式
+     * @return 登记的记录
+     */
+    public AnalysisCatalog record(String featureDatPath, String imgDir, String algorithm, int mode) throws IOException {
+        Path featureDir = Paths.get(featureDatPath).toAbsolutePath().getParent();
+        AnalysisCatalog entry = describe(featureDir, Paths.get(imgDir).toAbsolutePath());
+        entry.setAlgorithm(algorithm);
+        entry.setMode(mode);
+        entry.setCreatedAt(Instant.now());
+        synchronized (writeLock) {
+            repository.save(entry);
+        }
+        logger.info("分析已登记: {} ({} 帧)", entry.getAnalysisId(), entry.getFrameCount());
+        return entry;
+    }
+
+    /**
+     * 分页列出分析。
+     */
+    public Page<AnalysisCatalog> list(Pageable pageable) {
+        return repository.findAll(pageable);
+    }
+
+    public Optional<AnalysisCatalog> find(String analysisId) {
+        return repository.findById(analysisId);
+    }
+
+    /**
+     * 按图像目录名 (例如 "img2025-10-30-19-40-38") 查找分析。
+     */
+    public Optional<AnalysisCatalog> findByImgDirName(String imgDirName) {
+        return repository.findFirstByImgDirName(imgDirName);
+    }
+
+    /**
+     * 应用启动完成后在后台线程回填分析目录，不阻塞启动。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        Thread t = new Thread(() -> {
+            try {
+                backfill();
+            } catch (Exception e) {
+                logger.error("回填分析目录失败: {}", e.getMessage(), e);
+            }
+        }, "analysis-catalog-backfill");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * 扫描 result 目录一次，并行读取尚未登记的分析的帧数和大小后批量写入；删除目录已不存在的记录。
+     * 扫描期间通过 {@link #record} 登记的分析不会被覆盖。
+     *
+     * @return 新登记的分析数
+     */
+    public int backfill() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Path resultRoot = AppPaths.resultRoot();
+        if (!Files.isDirectory(resultRoot)) {
+            return 0;
+        }
+        Set<String> known = new HashSet<>(repository.findAllIds());
+
+        // 1. 单次目录扫描：收集 feature{时间戳} 目录及其对应的 img{时间戳} 目录
+        Set<String> present = new HashSet<>();
+        List<Path[]> pending = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(resultRoot, FEATURE_PREFIX + "*")) {
+            for (Path featureDir : stream) {
+                String name = featureDir.getFileName().toString();
+                if (!Files.isDirectory(featureDir)) {
+                    continue; // 例如 feature..._db_import.sql
+                }
+                present.add(name);
+                if (!known.contains(name)) {
+                    Path imgDir = resultRoot.resolve(IMG_PREFIX + name.substring(FEATURE_PREFIX.length()));
+                    pending.add(new Path[]{featureDir, imgDir});
+                }
+            }
+        }
+
+        // 2. 并行读取帧数与目录大小
+        List<AnalysisCatalog> entries;
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            entries = pool.submit(() -> pending.parallelStream()
+                    .map(dirs -> {
+                        try {
+                            AnalysisCatalog entry = describe(dirs[0], dirs[1]);
+                            entry.setCreatedAt(createdAt(dirs[0]));
+                            return entry;
+                        } catch (IOException e) {
+                            logger.warn("无法读取分析目录 {}: {}", dirs[0], e.getMessage());
+                            return null;
+                        }
+                    })
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList())).get();
+        } catch (ExecutionException e) {
+            throw new IOException("并行扫描 result 目录失败: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        // 扫描开始后由 record() 登记的分析带有算法、模式与准确的创建时间，保留它们
+        int skipped;
+        synchronized (writeLock) {
+            Set<String> recorded = new HashSet<>(repository.findAllIds());
+            int before = entries.size();
+            entries.removeIf(entry -> recorded.contains(entry.getAnalysisId()));
+            skipped = before - entries.size();
+            repository.saveAll(entries);
+        }
+        if (skipped > 0) {
+            logger.info("回填期间已登记 {} 个分析，跳过。", skipped);
+        }
+
+        // 3. 删除目录已不存在的记录
+        List<String> stale = known.stream().filter(id -> !present.contains(id)).collect(Collectors.toList());
+        if (!stale.isEmpty()) {
+            repository.deleteAllByIdInBatch(stale);
+        }
+        logger.info("分析目录回填完成: 新登记 {} 个，移除 {} 个失效记录，耗时 {} ms。",
+                entries.size(), stale.size(), (System.nanoTime() - start) / 1_000_000);
+        return entries.size();
+    }
+
+    /**
+     * 读取一个分析的帧数、文件数与目录大小 (每个目录只列出一次)。
+     */
+    private AnalysisCatalog describe(Path featureDir, Path imgDir) throws IOException {
+        AnalysisCatalog entry = new AnalysisCatalog();
+        entry.setAnalysisId(featureDir.getFileName().toString());
+        entry.setFeatureDir(featureDir.toString());
+        entry.setFeatureBytes(directorySize(featureDir)[0]);
+        entry.setFrameCount(readFrameCount(featureDir.resolve(FEATURE_FILE)));
+        if (Files.isDirectory(imgDir)) {
+            long[] img = directorySize(imgDir);
+            entry.setImgDirName(imgDir.getFileName().toString());
+            entry.setImgDir(imgDir.toString());
+            entry.setImgBytes(img[0]);
+            entry.setImageCount((int) img[1]);
+        }
+        return entry;
+    }
+
+    /**
+     * @return [0] 目录中文件的总字节数, [1] 文件数 (结果目录是平铺的，只统计一层)
+     */
+    private static long[] directorySize(Path dir) throws IOException {
+        long bytes = 0;
+        long files = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attrs.isRegularFile()) {
+                    bytes += attrs.size();
+                    files++;
+                }
+            }
+        }
+        return new long[]{bytes, files};
+    }
+
+    /**
+     * 只读取 Feature.dat 的前 4 个字节 (numFrames)。
+     */
+    private static Integer readFrameCount(Path featureFile) {
+        try (FileChannel channel = FileChannel.open(featureFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // 文件不足 4 字节时读到末尾为止
+            }
+            return buffer.position() == 4 ? buffer.getInt(0) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 由目录名中的时间戳推断创建时间，无法解析时使用目录的修改时间。
+     */
+    private static Instant createdAt(Path featureDir) throws IOException {
+        String suffix = featureDir.getFileName().toString().substring(FEATURE_PREFIX.length());
+        if (suffix.length() >= 19) {
+            try {
+                return LocalDateTime.parse(suffix.substring(0, 19), ResultDirs.DIR_TIMESTAMP).atZone(ZoneId.systemDefault()).toInstant();
+            } catch (DateTimeParseException e) {
+                // 回退到修改时间
+            }
+        }
+        return Files.getLastModifiedTime(featureDir).toInstant();
+    }
+}
@@ -0,0 +1,232 @@
+package com.demo.service;
+
+import com.demo.config.BatchProperties;
+import com.demo.service.jna.ImgProcessorCpp;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量单帧识别的流水线。
+ * 每一帧依次经过三个阶段，不同帧的阶段相互重叠：
+ * 1. CPU 线程池：读取上传文件、计算 MD5、查缓存、转换并编码 ({@link SingleFrameService#prepare})。
+ * 2. 原生线程池 (有界)：调用核心处理 ({@link SingleFrameService#process})。
+ * 3. CPU 线程池：构造响应并序列化为一行 JSON。
+ * 结果按完成顺序以 NDJSON 写出，每行带有帧在请求中的序号 index。
+ */
+@Service
+public class BatchInferService {
+    private static final Logger logger = LoggerFactory.getLogger(BatchInferService.class);
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final SingleFrameService singleFrameService;
+    private final UploadIngestService uploadIngestService;
+    private final ObjectMapper objectMapper;
+    private final BatchProperties properties;
+    private final ExecutorService cpuPool;
+    private final ExecutorService nativePool;
+    private final int maxInFlight;
+
+    /**
+     * 批量请求中的一帧。
+     */
+    public static final class FrameRequest {
+        private final MultipartFile file;
+        private final int rows;
+        private final int cols;
+        private final Map<String, Integer> cropCoordinates;
+        private final String md5;
+
+        /**
+         * @param file            上传的文件
+         * @param rows            图像行数
+         * @param cols            图像列数
+         * @param cropCoordinates 裁剪坐标，可为 null
+         * @param md5             前端提供的 MD5，为 null 时不校验
+         */
+        public FrameRequest(MultipartFile file, int rows, int cols, Map<String, Integer> cropCoordinates, String md5) {
+            this.file = file;
+            this.rows = rows;
+            this.cols = cols;
+            this.cropCoordinates = cropCoordinates;
+            this.md5 = md5;
+        }
+    }
+
+    public BatchInferService(SingleFrameService singleFrameService,
+                             UploadIngestService uploadIngestService,
+                             ObjectMapper objectMapper,
+                             BatchProperties properties) {
+        this.singleFrameService = singleFrameService;
+        this.uploadIngestService = uploadIngestService;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        int cpuThreads = properties.getCpuThreads() > 0
+                ? properties.getCpuThreads() : Runtime.getRuntime().availableProcessors();
+        int nativeThreads = Math.max(1, properties.getNativeThreads());
+        this.cpuPool = Executors.newFixedThreadPool(cpuThreads, namedThreads("batch-cpu-"));
+        this.nativePool = Executors.newFixedThreadPool(nativeThreads, namedThreads("batch-native-"));
+        this.maxInFlight = properties.getMaxInFlight() > 0
+                ? properties.getMaxInFlight() : 2 * (cpuThreads + nativeThreads);
+        logger.info("批量识别流水线: CPU 线程 {}, 原生线程 {}, 每请求最多 {} 帧在途。", cpuThreads, nativeThreads, maxInFlight);
+    }
+
+    /**
+     * @return 单个批量请求允许的最大帧数。
+     */
+    public int getMaxFrames() {
+        return properties.getMaxFrames();
+    }
+
+    /**
+     * 执行批量识别并将结果按完成顺序写为 NDJSON。
+     * 调用线程负责提交帧和写出结果；同时在流水线中的帧数不超过 maxInFlight。
+     *
+     * @param frames    待处理的帧
+     * @param algorithm 算法名称
+     * @param out       响应输出流
+     */
+    public void run(List<FrameRequest> frames, String algorithm, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        BlockingQueue<byte[]> completed = new LinkedBlockingQueue<>();
+        int total = frames.size();
+        int submitted = 0;
+        int written = 0;
+        int inFlight = 0;
+        AtomicInteger failures = new AtomicInteger();
+
+        while (written < total) {
+            if (submitted < total && inFlight < maxInFlight) {
+                submit(submitted, frames.get(submitted), algorithm, completed, failures);
+                submitted++;
+                inFlight++;
+                continue;
+            }
+            byte[] line;
+            try {
+                line = completed.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("批量识别被中断。", e);
+            }
+            if (line == null) {
+                continue;
+            }
+            out.write(line);
+            out.write(NEWLINE);
+            out.flush();
+            written++;
+            inFlight--;
+        }
+        logger.info("批量识别完成: {} 帧 (失败 {}), 算法: {}, 耗时 {} ms",
+                total, failures.get(), algorithm, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void submit(int index, FrameRequest frame, String algorithm,
+                        BlockingQueue<byte[]> completed, AtomicInteger failures) {
+        String filename = frame.file.getOriginalFilename();
+        CompletableFuture
+                .supplyAsync(() -> prepare(frame, filename, algorithm), cpuPool)
+                .thenApplyAsync(this::process, nativePool)
+                .thenApplyAsync(result -> {
+                    Map<String, Object> line = new LinkedHashMap<>();
+                    line.put("index", index);
+                    line.put("filename", filename);
+                    line.putAll(singleFrameService.buildResponse(result, algorithm));
+                    return serialize(line);
+                }, cpuPool)
+                .exceptionally(e -> {
+                    failures.incrementAndGet();
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    logger.warn("批量识别中第 {} 帧 ({}) 处理失败: {}", index, filename, cause.getMessage());
+                    Map<String, Object> line = new LinkedHashMap<>();
+                    line.put("index", index);
+                    line.put("filename", filename);
+                    line.put("success", false);
+                    line.put("error", cause.getMessage());
+                    return serialize(line);
+                })
+                .whenComplete((line, e) -> completed.add(line != null ? line
+                        : ("{\"index\":" + index + ",\"success\":false}").getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 第一阶段的结果：缓存命中时直接携带结果，否则携带待处理的帧。
+     */
+    private static final class Staged {
+        private final ImgProcessorCpp.SingleFrameResult cached;
+        private final SingleFrameService.PreparedFrame prepared;
+
+        Staged(ImgProcessorCpp.SingleFrameResult cached, SingleFrameService.PreparedFrame prepared) {
+            this.cached = cached;
+            this.prepared = prepared;
+        }
+    }
+
+    private Staged prepare(FrameRequest frame, String filename, String algorithm) {
+        if (frame.rows <= 0 || frame.cols <= 0) {
+            throw new IllegalArgumentException("必须提供有效的图像行数和列数。");
+        }
+        try (UploadIngestService.IngestedFile upload = uploadIngestService.ingest(frame.file)) {
+            if (frame.md5 != null && !frame.md5.equalsIgnoreCase(upload.getMd5())) {
+                throw new IllegalArgumentException("MD5 校验失败。");
+            }
+            InferResultCache.Key key = singleFrameService.key(upload.getMd5(), frame.rows, frame.cols,
+                    algorithm, frame.cropCoordinates);
+            Optional<ImgProcessorCpp.SingleFrameResult> cached = singleFrameService.cached(key);
+            if (cached.isPresent()) {
+                return new Staged(cached.get(), null);
+            }
+            return new Staged(null, singleFrameService.prepare(key, upload, filename, frame.cropCoordinates));
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private ImgProcessorCpp.SingleFrameResult process(Staged staged) {
+        return staged.cached != null ? staged.cached : singleFrameService.process(staged.prepared);
+    }
+
+    private byte[] serialize(Map<String, Object> line) {
+        try {
+            return objectMapper.writeValueAsBytes(line);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cpuPool.shutdownNow();
+        nativePool.shutdownNow();
+    }
+}
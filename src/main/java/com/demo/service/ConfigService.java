@@ -9,6 +9,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.File;
 import java.io.FileReader;
@@ -34,6 +36,9 @@ public class ConfigService {
     //private String iniFilePath;
     private static final Long CONFIG_ID = 1L;
 
+    // 当前已提交配置 (区域与 lr) 的指纹，用于结果缓存的键；保存配置的事务提交后替换
+    private volatile String configFingerprint;
+
     /**
      * 获取配置信息，优先从数据库读取，如果数据库没有则从本地 INI 文件读取。
      *
@@ -75,6 +80,49 @@ public class ConfigService {
 
         // 立即更新本地 .ini 文件
         updateIniFile(entity);
+
+        // 事务提交后才替换指纹: 提交前读取到的仍是旧配置，对应的缓存结果也仍然有效
+        String fingerprint = fingerprint(dto);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publishFingerprint(fingerprint);
+                }
+            });
+        } else {
+            publishFingerprint(fingerprint);
+        }
+    }
+
+    // 与 getConfigFingerprint 的计算互斥，提交前读取旧配置的计算不会覆盖新指纹
+    private synchronized void publishFingerprint(String fingerprint) {
+        configFingerprint = fingerprint;
+    }
+
+    private static String fingerprint(ConfigDto config) {
+        ConfigDto.Region region = config.getRegion();
+        return region.getX() + "," + region.getY() + "," + region.getWidth() + ","
+                + region.getHeight() + ";lr=" + config.getAlgorithm().getLr();
+    }
+
+    /**
+     * 获取当前配置的指纹 (区域坐标与 lr)。配置变化后指纹随之变化，
+     * 依赖配置的缓存结果因此自然失效。
+     *
+     * @return 配置指纹字符串
+     */
+    public String getConfigFingerprint() {
+        String fingerprint = configFingerprint;
+        if (fingerprint == null) {
+            synchronized (this) {
+                if (configFingerprint == null) {
+                    configFingerprint = fingerprint(getConfig());
+                }
+                fingerprint = configFingerprint;
+            }
+        }
+        return fingerprint;
     }
 
     /**
@@ -0,0 +1,290 @@
+package com.demo.service;
+
+import com.demo.config.FeatureProperties;
+import com.demo.util.ColumnCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 列式特征归档 (Feature.col)。
+ * 持久化时由 Feature.dat 生成，与其放在同一个 feature 目录中，每一列用 {@link ColumnCodec} 单独压缩:
+ * int / short 列使用 delta + zigzag + varint，float 列 (含 confidences) 使用 Gorilla XOR 编码。
+ * <p>
+ * 文件布局 (小端序):
+ * <pre>
+ * 文件头  "FCOL", int32 version, int32 numFrames, int32 categoryNum, int32 categoryType
+ * 列数据  每列一个压缩块，按 confidences + yml 特征定义的顺序依次存放
+ * 列索引  int32 columnCount, 每列: uint16 名称长度, 名称 (UTF-8), uint8 类型字符, int32 值个数, int64 偏移, int32 长度
+ * 文件尾  int64 列索引偏移, "FCOL"
+ * </pre>
+ * 读取时先读文件尾和列索引，再只读取并解码需要的列。
+ */
+@Service
+public class FeatureArchiveService {
+    private static final Logger logger = LoggerFactory.getLogger(FeatureArchiveService.class);
+
+    public static final String ARCHIVE_FILE = "Feature.col";
+    private static final byte[] MAGIC = "FCOL".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 20;
+    private static final int TRAILER_BYTES = 12;
+
+    private final FeatureLayout featureLayout;
+    private final boolean enabled;
+
+    public FeatureArchiveService(FeatureProperties featureProperties, FeatureLayout featureLayout) {
+        this.featureLayout = featureLayout;
+        this.enabled = featureProperties.isArchive();
+    }
+
+    /**
+     * @return 持久化时是否生成归档 (app.features.archive)
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 由 Feature.dat 生成同目录下的 Feature.col (先写临时文件再原子替换)。
+     *
+     * @return 归档文件路径
+     * @throws IOException Feature.dat 不符合布局或写入失败时抛出
+     */
+    public Path writeArchive(Path featureDat) throws IOException {
+        long start = System.nanoTime();
+        Path target = featureDat.resolveSibling(ARCHIVE_FILE);
+
+        List<String> names = new ArrayList<>();
+        List<Character> types = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        List<byte[]> blocks = new ArrayList<>();
+        int numFrames;
+        int categoryNum = 0;
+        int categoryType = 0;
+
+        try (FileChannel in = FileChannel.open(featureDat, StandardOpenOption.READ)) {
+            FeatureLayout.Header header = featureLayout.readHeader(in, featureDat);
+            numFrames = header.getNumFrames();
+            if (numFrames > 0) {
+                categoryNum = header.getCategoryNum();
+                categoryType = header.getCategoryType();
+                ByteBuffer file = featureLayout.map(in);
+                if (categoryNum > 0) {
+                    int count = numFrames * categoryNum;
+                    float[] values = new float[count];
+                    featureLayout.confidences(file, header).asFloatBuffer().get(values);
+                    addBlock(names, types, counts, blocks, FeatureLayout.CONFIDENCES, 'f', count, ColumnCodec.encodeFloats(values, count));
+                }
+                for (FeatureLayout.Column column : featureLayout.getColumns()) {
+                    ByteBuffer data = featureLayout.column(file, column, header);
+                    byte[] block;
+                    if (column.getType() == FeatureLayout.ColumnType.FLOAT) {
+                        float[] values = new float[numFrames];
+                        data.asFloatBuffer().get(values);
+                        block = ColumnCodec.encodeFloats(values, numFrames);
+                    } else {
+                        int[] values = new int[numFrames];
+                        if (column.getType() == FeatureLayout.ColumnType.INT) {
+                            data.asIntBuffer().get(values);
+                        } else {
+                            for (int i = 0; i < numFrames; i++) {
+                                values[i] = data.getShort(i * 2);
+                            }
+                        }
+                        block = ColumnCodec.encodeInts(values, numFrames);
+                    }
+                    addBlock(names, types, counts, blocks, column.getName(), column.getType().getTypeChar(), numFrames, block);
+                }
+            }
+        }
+
+        Path temp = target.resolveSibling(ARCHIVE_FILE + ".tmp");
+        long written;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC).putInt(VERSION).putInt(numFrames).putInt(categoryNum).putInt(categoryType);
+            writeFully(out, header.flip());
+
+            long offset = HEADER_BYTES;
+            int footerBytes = 4;
+            long[] offsets = new long[blocks.size()];
+            byte[][] nameBytes = new byte[blocks.size()][];
+            for (int c = 0; c < blocks.size(); c++) {
+                offsets[c] = offset;
+                writeFully(out, ByteBuffer.wrap(blocks.get(c)));
+                offset += blocks.get(c).length;
+                nameBytes[c] = names.get(c).getBytes(StandardCharsets.UTF_8);
+                footerBytes += 2 + nameBytes[c].length + 1 + 4 + 8 + 4;
+            }
+
+            ByteBuffer footer = ByteBuffer.allocate(footerBytes + TRAILER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            footer.putInt(blocks.size());
+            for (int c = 0; c < blocks.size(); c++) {
+                footer.putShort((short) nameBytes[c].length).put(nameBytes[c]);
+                footer.put((byte) types.get(c).charValue());
+                footer.putInt(counts.get(c)).putLong(offsets[c]).putInt(blocks.get(c).length);
+            }
+            footer.putLong(offset).put(MAGIC);
+            writeFully(out, footer.flip());
+            written = offset + footerBytes + TRAILER_BYTES;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        long datBytes = Files.size(featureDat);
+        logger.info("列式归档已生成: {} ({} 帧, {} -> {} 字节, 压缩比 {}, 耗时 {} ms)", target, numFrames, datBytes, written,
+                String.format("%.2f", written > 0 ? (double) datBytes / written : 0), (System.nanoTime() - start) / 1_000_000);
+        return target;
+    }
+
+    /**
+     * 读取 Feature.col，返回与 {@link FeatureParserService#parseFeatureFile(String)} 相同结构的结果
+     * (confidences 在前，其余列按归档顺序)。
+     *
+     * @param archive 归档文件
+     * @param columns 只读取这些列；null 或空表示全部
+     * @throws IllegalArgumentException 请求了归档中不存在的列
+     * @throws IOException              文件损坏或读取失败
+     */
+    public Map<String, List<? extends Number>> readArchive(Path archive, Collection<String> columns) throws IOException {
+        Map<String, List<? extends Number>> result = new LinkedHashMap<>();
+        try (FileChannel in = FileChannel.open(archive, StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES) {
+                throw new IOException("列式归档过短: " + archive);
+            }
+            ByteBuffer trailer = readAt(in, size - TRAILER_BYTES, TRAILER_BYTES);
+            long footerOffset = trailer.getLong();
+            if (!hasMagic(trailer) || footerOffset < HEADER_BYTES || footerOffset > size - TRAILER_BYTES) {
+                throw new IOException("列式归档文件尾无效: " + archive);
+            }
+            ByteBuffer header = readAt(in, 0, HEADER_BYTES);
+            if (!hasMagic(header) || header.getInt() != VERSION) {
+                throw new IOException("列式归档文件头无效或版本不支持: " + archive);
+            }
+            int numFrames = header.getInt();
+            int categoryNum = header.getInt();
+            ByteBuffer footer = readAt(in, footerOffset, (int) (size - TRAILER_BYTES - footerOffset));
+            Map<String, long[]> index = readIndex(footer, footerOffset, archive);
+
+            Collection<String> selected = columns == null || columns.isEmpty() ? index.keySet() : columns;
+            for (String name : selected) {
+                long[] entry = index.get(name);
+                if (entry == null) {
+                    throw new IllegalArgumentException("归档中不存在特征列: " + name);
+                }
+                int count = (int) entry[1];
+                long expected = FeatureLayout.CONFIDENCES.equals(name) ? (long) numFrames * categoryNum : numFrames;
+                if (count != expected) {
+                    throw new IOException("列式归档中列 " + name + " 的值个数 " + count + " 与文件头不符: " + archive);
+                }
+                ByteBuffer block = readAt(in, entry[2], (int) entry[3]);
+                char type = (char) entry[0];
+                try {
+                    if (type == 'f') {
+                        result.put(name, FeatureLayout.floatList(ColumnCodec.decodeFloats(block, count)));
+                    } else if (type == 's') {
+                        int[] values = ColumnCodec.decodeInts(block, count);
+                        short[] shorts = new short[count];
+                        for (int i = 0; i < count; i++) {
+                            shorts[i] = (short) values[i];
+                        }
+                        result.put(name, FeatureLayout.shortList(shorts));
+                    } else {
+                        result.put(name, FeatureLayout.intList(ColumnCodec.decodeInts(block, count)));
+                    }
+                } catch (BufferUnderflowException e) {
+                    throw new IOException("列式归档中列 " + name + " 的数据不完整: " + archive, e);
+                }
+                if (block.hasRemaining()) {
+                    throw new IOException("列式归档中列 " + name + " 的数据长度与值个数不符: " + archive);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 解析并校验列索引：类型必须是 f / i / s，每个压缩块都必须落在文件头与列索引之间。
+     *
+     * @return 名称 -> {类型, 个数, 偏移, 长度}
+     */
+    private static Map<String, long[]> readIndex(ByteBuffer footer, long footerOffset, Path archive) throws IOException {
+        Map<String, long[]> index = new LinkedHashMap<>();
+        try {
+            int columnCount = footer.getInt();
+            if (columnCount < 0) {
+                throw new IOException("列式归档列索引无效: " + archive);
+            }
+            for (int c = 0; c < columnCount; c++) {
+                byte[] name = new byte[footer.getShort() & 0xFFFF];
+                footer.get(name);
+                char type = (char) footer.get();
+                int count = footer.getInt();
+                long offset = footer.getLong();
+                int length = footer.getInt();
+                if ((type != 'f' && type != 'i' && type != 's') || count < 0 || length < 0
+                        || offset < HEADER_BYTES || offset > footerOffset - length) {
+                    throw new IOException("列式归档列索引无效: " + archive);
+                }
+                index.put(new String(name, StandardCharsets.UTF_8), new long[]{type, count, offset, length});
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("列式归档列索引不完整: " + archive, e);
+        }
+        if (footer.hasRemaining()) {
+            throw new IOException("列式归档列索引长度不符: " + archive);
+        }
+        return index;
+    }
+
+    private static void addBlock(List<String> names, List<Character> types, List<Integer> counts, List<byte[]> blocks,
+                                 String name, char type, int count, byte[] block) {
+        names.add(name);
+        types.add(type);
+        counts.add(count);
+        blocks.add(block);
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer) {
+        for (byte b : MAGIC) {
+            if (buffer.get() != b) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("列式归档意外结束");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
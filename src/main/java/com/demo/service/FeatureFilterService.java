@@ -0,0 +1,631 @@
+package com.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 特征列上的筛选表达式，例如 "SCR > 3 && xjy_area > 20"。
+ * <p>
+ * 语法: 比较 (列名或数值 op 列名或数值，op 为 &gt; &gt;= &lt; &lt;= == !=)，用 &amp;&amp; / || / ! (或 and / or / not) 与括号组合。
+ * 表达式只解析一次，编译为一棵谓词树；执行时直接读取内存映射的 Feature.dat，
+ * 每次处理 {@link #CHUNK} 帧: 被引用的列按块批量读入复用的 double 缓冲区，
+ * 每个比较在紧凑循环中生成该块的位图，再按位做与/或/非。不会读取未引用的列，也不会构建完整的特征 Map。
+ * 最后只对命中的帧读取需要返回的列。
+ */
+@Service
+public class FeatureFilterService {
+    private static final Logger logger = LoggerFactory.getLogger(FeatureFilterService.class);
+
+    private static final int CHUNK = 4096; // 每块的帧数，必须是 64 的倍数
+    private static final int MAX_EXPRESSION_LENGTH = 2000;
+    private static final int MAX_COMPARISONS = 64;
+
+    private final FeatureLayout featureLayout;
+
+    public FeatureFilterService(FeatureLayout featureLayout) {
+        this.featureLayout = featureLayout;
+    }
+
+    /**
+     * 编译后的筛选表达式。
+     */
+    public static final class Filter {
+        private final String expression;
+        private final Node root;
+        private final Set<FeatureLayout.Column> columns; // 表达式引用的列
+
+        private Filter(String expression, Node root, Set<FeatureLayout.Column> columns) {
+            this.expression = expression;
+            this.root = root;
+            this.columns = columns;
+        }
+
+        public String getExpression() {
+            return expression;
+        }
+    }
+
+    /**
+     * 筛选结果: 命中的帧序号 (升序) 与这些帧上投影的列。
+     */
+    public static final class Result {
+        private final int totalFrames;
+        private final int[] frameIndices;
+        private final Map<String, List<? extends Number>> features;
+
+        private Result(int totalFrames, int[] frameIndices, Map<String, List<? extends Number>> features) {
+            this.totalFrames = totalFrames;
+            this.frameIndices = frameIndices;
+            this.features = features;
+        }
+
+        public int getTotalFrames() {
+            return totalFrames;
+        }
+
+        public int[] getFrameIndices() {
+            return frameIndices;
+        }
+
+        public Map<String, List<? extends Number>> getFeatures() {
+            return features;
+        }
+    }
+
+    /**
+     * 解析并校验表达式。
+     *
+     * @throws IllegalArgumentException 语法错误、未知列名或表达式过长
+     */
+    public Filter compile(String expression) {
+        if (expression == null || expression.trim().isEmpty()) {
+            throw new IllegalArgumentException("filter 不能为空。");
+        }
+        if (expression.length() > MAX_EXPRESSION_LENGTH) {
+            throw new IllegalArgumentException("filter 过长 (最多 " + MAX_EXPRESSION_LENGTH + " 个字符)。");
+        }
+        Parser parser = new Parser(expression, featureLayout);
+        Node root = parser.parseOr();
+        if (parser.peek() != null) {
+            throw parser.error("多余的内容");
+        }
+        return new Filter(expression, root, parser.columns);
+    }
+
+    /**
+     * 在 Feature.dat 上执行筛选。
+     *
+     * @param fields 返回的列 (可含 confidences)；null 或空表示全部列
+     * @throws IllegalArgumentException 请求了不存在的列
+     * @throws IOException              文件不符合布局或读取失败
+     */
+    public Result filter(Path featureDat, Filter filter, Collection<String> fields) throws IOException {
+        long start = System.nanoTime();
+        List<String> projection = new ArrayList<>();
+        if (fields == null || fields.isEmpty()) {
+            projection.add(FeatureLayout.CONFIDENCES);
+            for (FeatureLayout.Column column : featureLayout.getColumns()) {
+                projection.add(column.getName());
+            }
+        } else {
+            for (String field : fields) {
+                if (!FeatureLayout.CONFIDENCES.equals(field) && featureLayout.column(field) == null) {
+                    throw new IllegalArgumentException("不存在的特征列: " + field);
+                }
+                projection.add(field);
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(featureDat, StandardOpenOption.READ)) {
+            FeatureLayout.Header header = featureLayout.readHeader(channel, featureDat);
+            int numFrames = header.getNumFrames();
+            int[] matches = new int[0];
+            int matched = 0;
+            Map<String, List<? extends Number>> features = new LinkedHashMap<>();
+            if (numFrames > 0) {
+                ByteBuffer file = featureLayout.map(channel);
+                Map<FeatureLayout.Column, ByteBuffer> referenced = new IdentityHashMap<>();
+                for (FeatureLayout.Column column : filter.columns) {
+                    referenced.put(column, featureLayout.column(file, column, header));
+                }
+                Context context = new Context(referenced);
+                matches = new int[Math.min(numFrames, CHUNK)];
+                for (int from = 0; from < numFrames; from += CHUNK) {
+                    int length = Math.min(CHUNK, numFrames - from);
+                    context.load(from, length);
+                    long[] bits = filter.root.evaluate(context, length);
+                    for (int w = 0; w < bits.length; w++) {
+                        long word = bits[w];
+                        while (word != 0) {
+                            if (matched == matches.length) {
+                                matches = Arrays.copyOf(matches, Math.min(numFrames, matches.length * 2));
+                            }
+                            matches[matched++] = from + (w << 6) + Long.numberOfTrailingZeros(word);
+                            word &= word - 1;
+                        }
+                    }
+                }
+                matches = Arrays.copyOf(matches, matched);
+                for (String name : projection) {
+                    if (FeatureLayout.CONFIDENCES.equals(name)) {
+                        if (header.getCategoryNum() > 0) {
+                            features.put(name, gatherConfidences(featureLayout.confidences(file, header), header.getCategoryNum(), matches));
+                        }
+                    } else {
+                        FeatureLayout.Column column = featureLayout.column(name);
+                        features.put(name, gather(featureLayout.column(file, column, header), column.getType(), matches));
+                    }
+                }
+            }
+            logger.info("筛选 '{}' 完成: {} / {} 帧命中, 耗时 {} ms", filter.expression, matched, numFrames,
+                    (System.nanoTime() - start) / 1_000_000);
+            return new Result(numFrames, matches, features);
+        }
+    }
+
+    private static List<? extends Number> gather(ByteBuffer column, FeatureLayout.ColumnType type, int[] indices) {
+        switch (type) {
+            case FLOAT: {
+                float[] values = new float[indices.length];
+                for (int i = 0; i < indices.length; i++) {
+                    values[i] = column.getFloat(indices[i] << 2);
+                }
+                return FeatureLayout.floatList(values);
+            }
+            case INT: {
+                int[] values = new int[indices.length];
+                for (int i = 0; i < indices.length; i++) {
+                    values[i] = column.getInt(indices[i] << 2);
+                }
+                return FeatureLayout.intList(values);
+            }
+            default: {
+                short[] values = new short[indices.length];
+                for (int i = 0; i < indices.length; i++) {
+                    values[i] = column.getShort(indices[i] << 1);
+                }
+                return FeatureLayout.shortList(values);
+            }
+        }
+    }
+
+    private static List<Float> gatherConfidences(ByteBuffer confidences, int categoryNum, int[] indices) {
+        float[] values = new float[indices.length * categoryNum];
+        int k = 0;
+        for (int index : indices) {
+            int base = index * categoryNum * 4;
+            for (int c = 0; c < categoryNum; c++) {
+                values[k++] = confidences.getFloat(base + c * 4);
+            }
+        }
+        return FeatureLayout.floatList(values);
+    }
+
+    // ---------------- 执行 ----------------
+
+    /**
+     * 当前块中被引用列的值。每列一个复用的 double 缓冲区，同一列在表达式中出现多次时只读取一次。
+     */
+    private static final class Context {
+        private final Map<FeatureLayout.Column, ByteBuffer> data;
+        private final Map<FeatureLayout.Column, double[]> chunks = new IdentityHashMap<>();
+        private final float[] floats = new float[CHUNK];
+        private final int[] ints = new int[CHUNK];
+        private final short[] shorts = new short[CHUNK];
+
+        Context(Map<FeatureLayout.Column, ByteBuffer> data) {
+            this.data = data;
+            for (FeatureLayout.Column column : data.keySet()) {
+                chunks.put(column, new double[CHUNK]);
+            }
+        }
+
+        void load(int from, int length) {
+            for (Map.Entry<FeatureLayout.Column, ByteBuffer> e : data.entrySet()) {
+                double[] target = chunks.get(e.getKey());
+                ByteBuffer column = e.getValue();
+                switch (e.getKey().getType()) {
+                    case FLOAT:
+                        column.asFloatBuffer().position(from).get(floats, 0, length);
+                        for (int i = 0; i < length; i++) {
+                            target[i] = floats[i];
+                        }
+                        break;
+                    case INT:
+                        column.asIntBuffer().position(from).get(ints, 0, length);
+                        for (int i = 0; i < length; i++) {
+                            target[i] = ints[i];
+                        }
+                        break;
+                    default:
+                        column.asShortBuffer().position(from).get(shorts, 0, length);
+                        for (int i = 0; i < length; i++) {
+                            target[i] = shorts[i];
+                        }
+                }
+            }
+        }
+
+        double[] values(FeatureLayout.Column column) {
+            return chunks.get(column);
+        }
+    }
+
+    private interface Node {
+        /**
+         * @return 当前块的位图，第 i 位表示块内第 i 帧是否满足条件 (length 之后的位为 0)
+         */
+        long[] evaluate(Context context, int length);
+    }
+
+    private enum Op {
+        GT(">"), GE(">="), LT("<"), LE("<="), EQ("=="), NE("!=");
+
+        final String symbol;
+
+        Op(String symbol) {
+            this.symbol = symbol;
+        }
+
+        /**
+         * @return 交换左右操作数后的等价运算符
+         */
+        Op flip() {
+            switch (this) {
+                case GT: return LT;
+                case GE: return LE;
+                case LT: return GT;
+                case LE: return GE;
+                default: return this;
+            }
+        }
+
+        boolean test(double a, double b) {
+            switch (this) {
+                case GT: return a > b;
+                case GE: return a >= b;
+                case LT: return a < b;
+                case LE: return a <= b;
+                case EQ: return a == b;
+                default: return a != b;
+            }
+        }
+    }
+
+    /**
+     * 列与常量比较。每个运算符一个独立循环，循环体内没有分支。
+     */
+    private static final class CompareConstant implements Node {
+        private final FeatureLayout.Column column;
+        private final Op op;
+        private final double constant;
+
+        CompareConstant(FeatureLayout.Column column, Op op, double constant) {
+            this.column = column;
+            this.op = op;
+            this.constant = constant;
+        }
+
+        @Override
+        public long[] evaluate(Context context, int length) {
+            double[] v = context.values(column);
+            double c = constant;
+            long[] bits = new long[(length + 63) >>> 6];
+            switch (op) {
+                case GT:
+                    for (int i = 0; i < length; i++) bits[i >>> 6] |= (v[i] > c ? 1L : 0L) << i;
+                    break;
+                case GE:
+                    for (int i = 0; i < length; i++) bits[i >>> 6] |= (v[i] >= c ? 1L : 0L) << i;
+                    break;
+                case LT:
+                    for (int i = 0; i < length; i++) bits[i >>> 6] |= (v[i] < c ? 1L : 0L) << i;
+                    break;
+                case LE:
+                    for (int i = 0; i < length; i++) bits[i >>> 6] |= (v[i] <= c ? 1L : 0L) << i;
+                    break;
+                case EQ:
+                    for (int i = 0; i < length; i++) bits[i >>> 6] |= (v[i] == c ? 1L : 0L) << i;
+                    break;
+                default:
+                    for (int i = 0; i < length; i++) bits[i >>> 6] |= (v[i] != c ? 1L : 0L) << i;
+            }
+            return bits;
+        }
+    }
+
+    /**
+     * 两列比较。
+     */
+    private static final class CompareColumns implements Node {
+        private final FeatureLayout.Column left;
+        private final Op op;
+        private final FeatureLayout.Column right;
+
+        CompareColumns(FeatureLayout.Column left, Op op, FeatureLayout.Column right) {
+            this.left = left;
+            this.op = op;
+            this.right = right;
+        }
+
+        @Override
+        public long[] evaluate(Context context, int length) {
+            double[] a = context.values(left);
+            double[] b = context.values(right);
+            long[] bits = new long[(length + 63) >>> 6];
+            for (int i = 0; i < length; i++) {
+                bits[i >>> 6] |= (op.test(a[i], b[i]) ? 1L : 0L) << i;
+            }
+            return bits;
+        }
+    }
+
+    /**
+     * 两个常量比较 (编译时求值)。
+     */
+    private static final class Constant implements Node {
+        private final boolean value;
+
+        Constant(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        public long[] evaluate(Context context, int length) {
+            long[] bits = new long[(length + 63) >>> 6];
+            if (value) {
+                Arrays.fill(bits, -1L);
+                clearTail(bits, length);
+            }
+            return bits;
+        }
+    }
+
+    private static final class And implements Node {
+        private final Node left;
+        private final Node right;
+
+        And(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public long[] evaluate(Context context, int length) {
+            long[] a = left.evaluate(context, length);
+            long[] b = right.evaluate(context, length);
+            for (int w = 0; w < a.length; w++) {
+                a[w] &= b[w];
+            }
+            return a;
+        }
+    }
+
+    private static final class Or implements Node {
+        private final Node left;
+        private final Node right;
+
+        Or(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public long[] evaluate(Context context, int length) {
+            long[] a = left.evaluate(context, length);
+            long[] b = right.evaluate(context, length);
+            for (int w = 0; w < a.length; w++) {
+                a[w] |= b[w];
+            }
+            return a;
+        }
+    }
+
+    private static final class Not implements Node {
+        private final Node operand;
+
+        Not(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public long[] evaluate(Context context, int length) {
+            long[] a = operand.evaluate(context, length);
+            for (int w = 0; w < a.length; w++) {
+                a[w] = ~a[w];
+            }
+            clearTail(a, length);
+            return a;
+        }
+    }
+
+    private static void clearTail(long[] bits, int length) {
+        int tail = length & 63;
+        if (tail != 0) {
+            bits[bits.length - 1] &= (1L << tail) - 1;
+        }
+    }
+
+    // ---------------- 解析 ----------------
+
+    /**
+     * 递归下降解析器: or := and ('||' and)*; and := unary ('&&' unary)*; unary := '!' unary | '(' or ')' | 比较。
+     */
+    private static final class Parser {
+        private final String text;
+        private final FeatureLayout layout;
+        private final Set<FeatureLayout.Column> columns = new LinkedHashSet<>();
+        private int pos;
+        private int comparisons;
+
+        Parser(String text, FeatureLayout layout) {
+            this.text = text;
+            this.layout = layout;
+        }
+
+        Node parseOr() {
+            Node node = parseAnd();
+            while (accept("||") || acceptKeyword("or")) {
+                node = new Or(node, parseAnd());
+            }
+            return node;
+        }
+
+        Node parseAnd() {
+            Node node = parseUnary();
+            while (accept("&&") || acceptKeyword("and")) {
+                node = new And(node, parseUnary());
+            }
+            return node;
+        }
+
+        Node parseUnary() {
+            if (peekOp("!=")) {
+                throw error("缺少左操作数");
+            }
+            if (accept("!") || acceptKeyword("not")) {
+                return new Not(parseUnary());
+            }
+            if (accept("(")) {
+                Node node = parseOr();
+                if (!accept(")")) {
+                    throw error("缺少 ')'");
+                }
+                return node;
+            }
+            return parseComparison();
+        }
+
+        Node parseComparison() {
+            if (++comparisons > MAX_COMPARISONS) {
+                throw error("比较条件过多 (最多 " + MAX_COMPARISONS + " 个)");
+            }
+            Object left = parseOperand();
+            Op op = parseOp();
+            Object right = parseOperand();
+            if (left instanceof FeatureLayout.Column && right instanceof FeatureLayout.Column) {
+                return new CompareColumns((FeatureLayout.Column) left, op, (FeatureLayout.Column) right);
+            }
+            if (left instanceof FeatureLayout.Column) {
+                return new CompareConstant((FeatureLayout.Column) left, op, (Double) right);
+            }
+            if (right instanceof FeatureLayout.Column) {
+                return new CompareConstant((FeatureLayout.Column) right, op.flip(), (Double) left);
+            }
+            return new Constant(op.test((Double) left, (Double) right));
+        }
+
+        /**
+         * @return 列 ({@link FeatureLayout.Column}) 或数值 (Double)
+         */
+        Object parseOperand() {
+            skipSpaces();
+            int start = pos;
+            if (pos < text.length() && (Character.isLetter(text.charAt(pos)) || text.charAt(pos) == '_')) {
+                while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+                    pos++;
+                }
+                String name = text.substring(start, pos);
+                FeatureLayout.Column column = layout.column(name);
+                if (column == null) {
+                    pos = start;
+                    throw error("未知的特征列 '" + name + "'");
+                }
+                columns.add(column);
+                return column;
+            }
+            if (pos < text.length() && (text.charAt(pos) == '-' || text.charAt(pos) == '+')) {
+                pos++;
+            }
+            while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.'
+                    || text.charAt(pos) == 'e' || text.charAt(pos) == 'E'
+                    || ((text.charAt(pos) == '-' || text.charAt(pos) == '+')
+                    && (text.charAt(pos - 1) == 'e' || text.charAt(pos - 1) == 'E')))) {
+                pos++;
+            }
+            try {
+                double value = Double.parseDouble(text.substring(start, pos));
+                if (!Double.isFinite(value)) {
+                    throw new NumberFormatException();
+                }
+                return value;
+            } catch (NumberFormatException e) {
+                pos = start;
+                throw error("需要特征列名或数值");
+            }
+        }
+
+        Op parseOp() {
+            for (String symbol : new String[]{">=", "<=", "==", "!=", ">", "<"}) {
+                if (accept(symbol)) {
+                    for (Op op : Op.values()) {
+                        if (op.symbol.equals(symbol)) {
+                            return op;
+                        }
+                    }
+                }
+            }
+            throw error("需要比较运算符 (> >= < <= == !=)");
+        }
+
+        boolean accept(String symbol) {
+            skipSpaces();
+            if (text.startsWith(symbol, pos)) {
+                pos += symbol.length();
+                return true;
+            }
+            return false;
+        }
+
+        boolean peekOp(String symbol) {
+            skipSpaces();
+            return text.startsWith(symbol, pos);
+        }
+
+        /**
+         * 关键字 and / or / not (不区分大小写，需为完整单词)。
+         */
+        boolean acceptKeyword(String keyword) {
+            skipSpaces();
+            int end = pos + keyword.length();
+            if (end <= text.length() && text.substring(pos, end).toLowerCase(Locale.ROOT).equals(keyword)
+                    && (end == text.length() || !(Character.isLetterOrDigit(text.charAt(end)) || text.charAt(end) == '_'))) {
+                pos = end;
+                return true;
+            }
+            return false;
+        }
+
+        String peek() {
+            skipSpaces();
+            return pos < text.length() ? text.substring(pos) : null;
+        }
+
+        void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("filter 在第 " + (pos + 1) + " 个字符处无效: " + message + "。");
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.demo.service;
+
+import com.demo.config.FeatureProperties;
+import com.demo.dto.FeatureDefinition;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Feature.dat 的布局描述，启动时由 app.features.definitions 编译一次 (定义无效时启动失败)。
+ * 文件布局 (小端序): int32 numFrames, int32 category_num, int32 category_type, float[numFrames * category_num] confidences,
+ * 然后按定义顺序依次存放每一列 (每列 numFrames 个值)。
+ * 由文件头即可算出每列的偏移与文件的预期长度，读取前先用文件长度校验，不匹配的文件不会分配任何列的内存。
+ * 同一个描述也用于写出 Feature.dat (Java 参考实现与合成数据)。
+ */
+@Component
+public class FeatureLayout {
+    private static final Logger logger = LoggerFactory.getLogger(FeatureLayout.class);
+
+    public static final int HEADER_BYTES = 12;
+    public static final String CONFIDENCES = "confidences";
+
+    /**
+     * 列类型与对应的读写方式。
+     */
+    public enum ColumnType {
+        FLOAT('f', 4) {
+            @Override
+            public List<? extends Number> read(ByteBuffer column, int count) {
+                float[] values = new float[count];
+                column.asFloatBuffer().get(values);
+                return floatList(values);
+            }
+
+            @Override
+            public double get(ByteBuffer column, int index) {
+                return column.getFloat(index * 4);
+            }
+
+            @Override
+            void put(ByteBuffer target, double value) {
+                target.putFloat((float) value);
+            }
+        },
+        INT('i', 4) {
+            @Override
+            public List<? extends Number> read(ByteBuffer column, int count) {
+                int[] values = new int[count];
+                column.asIntBuffer().get(values);
+                return intList(values);
+            }
+
+            @Override
+            public double get(ByteBuffer column, int index) {
+                return column.getInt(index * 4);
+            }
+
+            @Override
+            void put(ByteBuffer target, double value) {
+                target.putInt((int) value);
+            }
+        },
+        SHORT('s', 2) {
+            @Override
+            public List<? extends Number> read(ByteBuffer column, int count) {
+                short[] values = new short[count];
+                column.asShortBuffer().get(values);
+                return shortList(values);
+            }
+
+            @Override
+            public double get(ByteBuffer column, int index) {
+                return column.getShort(index * 2);
+            }
+
+            @Override
+            void put(ByteBuffer target, double value) {
+                target.putShort((short) value);
+            }
+        };
+
+        @Getter
+        private final char typeChar;
+        @Getter
+        private final int size;
+
+        ColumnType(char typeChar, int size) {
+            this.typeChar = typeChar;
+            this.size = size;
+        }
+
+        /**
+         * 读取整列，返回基于原始类型数组的只读 List。
+         *
+         * @param column {@link #column} 返回的列数据
+         */
+        public abstract List<? extends Number> read(ByteBuffer column, int count);
+
+        /**
+         * 随机读取列中的一个值。
+         */
+        public abstract double get(ByteBuffer column, int index);
+
+        abstract void put(ByteBuffer target, double value);
+
+        static ColumnType of(char typeChar) {
+            for (ColumnType type : values()) {
+                if (type.typeChar == typeChar) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 一列的名称、类型与在一帧内的字节偏移 (前面各列类型大小之和)。
+     */
+    @Getter
+    public static final class Column {
+        private final String name;
+        private final ColumnType type;
+        private final int index;
+        private final int rowOffset;
+
+        Column(String name, ColumnType type, int index, int rowOffset) {
+            this.name = name;
+            this.type = type;
+            this.index = index;
+            this.rowOffset = rowOffset;
+        }
+    }
+
+    /**
+     * 文件头。numFrames 为 0 表示空文件 (此时其余字段为 0)。
+     */
+    @Getter
+    public static final class Header {
+        private final int numFrames;
+        private final int categoryNum;
+        private final int categoryType;
+
+        public Header(int numFrames, int categoryNum, int categoryType) {
+            this.numFrames = numFrames;
+            this.categoryNum = categoryNum;
+            this.categoryType = categoryType;
+        }
+    }
+
+    /**
+     * 写文件时提供数值: 置信度为 (类别, 帧)，特征列为 (列序号, 帧)。
+     */
+    @FunctionalInterface
+    public interface ValueSource {
+        double value(int index, int frame);
+    }
+
+    @Getter
+    private final List<Column> columns;
+    private final Map<String, Column> byName;
+    @Getter
+    private final int rowBytes; // 所有特征列中一帧占用的字节数
+
+    @Autowired
+    public FeatureLayout(FeatureProperties featureProperties) {
+        this(featureProperties.getDefinitions());
+    }
+
+    /**
+     * @throws IllegalStateException 列名为空、重复、与 confidences 冲突或类型不支持
+     */
+    public FeatureLayout(List<FeatureDefinition> definitions) {
+        List<Column> result = new ArrayList<>();
+        Map<String, Column> names = new LinkedHashMap<>();
+        int offset = 0;
+        for (FeatureDefinition def : definitions == null ? Collections.<FeatureDefinition>emptyList() : definitions) {
+            String name = def.getName();
+            if (name == null || name.trim().isEmpty()) {
+                throw new IllegalStateException("app.features.definitions 第 " + (result.size() + 1) + " 项缺少 name。");
+            }
+            ColumnType type = ColumnType.of(def.getTypeChar());
+            if (type == null) {
+                throw new IllegalStateException("特征 '" + name + "' 的类型字符 '" + def.getTypeChar() + "' 不受支持 (只支持 f / i / s)。");
+            }
+            if (CONFIDENCES.equals(name) || names.containsKey(name)) {
+                throw new IllegalStateException("特征名重复或与保留名冲突: " + name);
+            }
+            Column column = new Column(name, type, result.size(), offset);
+            result.add(column);
+            names.put(name, column);
+            offset += type.getSize();
+        }
+        this.columns = Collections.unmodifiableList(result);
+        this.byName = names;
+        this.rowBytes = offset;
+        logger.info("Feature.dat 布局: {} 列, 每帧 {} 字节 (不含置信度)。", columns.size(), rowBytes);
+    }
+
+    /**
+     * @return 指定名称的列；不存在时返回 null
+     */
+    public Column column(String name) {
+        return byName.get(name);
+    }
+
+    public long expectedSize(int numFrames, int categoryNum) {
+        return HEADER_BYTES + (long) numFrames * categoryNum * 4 + (long) numFrames * rowBytes;
+    }
+
+    public long columnOffset(Column column, Header header) {
+        return HEADER_BYTES + (long) header.numFrames * header.categoryNum * 4 + (long) header.numFrames * column.rowOffset;
+    }
+
+    /**
+     * 读取文件头并按文件长度校验布局 (O(1)，不读取任何列)。
+     *
+     * @throws IOException 文件头不完整、字段为负或文件短于布局要求的长度
+     */
+    public Header readHeader(FileChannel channel, Path file) throws IOException {
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            // 文件头为 12 字节，文件更短时只读到实际长度
+        }
+        buffer.flip();
+        if (buffer.remaining() < 4) {
+            throw new IOException("无法从文件读取 num_frames (文件过短): " + file);
+        }
+        int numFrames = buffer.getInt();
+        if (numFrames <= 0) {
+            return new Header(0, 0, 0);
+        }
+        if (buffer.remaining() < 8) {
+            throw new IOException("无法读取 category_num / category_type (文件过短): " + file);
+        }
+        int categoryNum = buffer.getInt();
+        int categoryType = buffer.getInt();
+        if (categoryNum < 0) {
+            throw new IOException("特征文件的 category_num 无效 (" + categoryNum + "): " + file);
+        }
+        long expected = expectedSize(numFrames, categoryNum);
+        if (size < expected) {
+            throw new IOException("特征文件 '" + file + "' 长度 " + size + " 小于布局预期的 " + expected
+                    + " (numFrames=" + numFrames + ", category_num=" + categoryNum + ")");
+        }
+        if (size > expected) {
+            logger.warn("特征文件 '{}' 长度 {} 大于布局预期的 {}，多余的数据将被忽略。", file, size, expected);
+        }
+        return new Header(numFrames, categoryNum, categoryType);
+    }
+
+    /**
+     * 映射整个文件 (只读，小端序)。
+     */
+    public ByteBuffer map(FileChannel channel) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return 置信度区域 (numFrames * categoryNum 个 float)
+     */
+    public ByteBuffer confidences(ByteBuffer file, Header header) {
+        return slice(file, HEADER_BYTES, (long) header.numFrames * header.categoryNum * 4);
+    }
+
+    /**
+     * @return 一列的数据 (numFrames 个值)，可交给 {@link ColumnType#read} / {@link ColumnType#get}
+     */
+    public ByteBuffer column(ByteBuffer file, Column column, Header header) {
+        return slice(file, columnOffset(column, header), (long) header.numFrames * column.type.getSize());
+    }
+
+    private static ByteBuffer slice(ByteBuffer file, long offset, long length) {
+        return file.duplicate().position(Math.toIntExact(offset)).limit(Math.toIntExact(offset + length))
+                .slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 读取整个文件: confidences (category_num > 0 时) 在前，其余列按定义顺序。
+     * numFrames 为 0 时每列返回空列表。
+     */
+    public Map<String, List<? extends Number>> read(Path file) throws IOException {
+        Map<String, List<? extends Number>> result = new LinkedHashMap<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Header header = readHeader(channel, file);
+            if (header.numFrames == 0) {
+                for (Column column : columns) {
+                    result.put(column.name, Collections.emptyList());
+                }
+                return result;
+            }
+            ByteBuffer mapped = map(channel);
+            if (header.categoryNum > 0) {
+                result.put(CONFIDENCES, ColumnType.FLOAT.read(confidences(mapped, header), header.numFrames * header.categoryNum));
+            }
+            for (Column column : columns) {
+                result.put(column.name, column.type.read(column(mapped, column, header), header.numFrames));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按本布局写出 Feature.dat。先写全部置信度 (逐帧，每帧 categoryNum 个)，再逐列写出每帧的值。
+     */
+    public void write(Path file, Header header, ValueSource confidences, ValueSource values) throws IOException {
+        int numFrames = header.numFrames;
+        int categoryNum = header.categoryNum;
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(expectedSize(numFrames, categoryNum)))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(numFrames).putInt(categoryNum).putInt(header.categoryType);
+        for (int i = 0; i < numFrames; i++) {
+            for (int c = 0; c < categoryNum; c++) {
+                buffer.putFloat((float) confidences.value(c, i));
+            }
+        }
+        for (Column column : columns) {
+            for (int i = 0; i < numFrames; i++) {
+                column.type.put(buffer, values.value(column.index, i));
+            }
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    // 列数据以只读 List 视图返回，访问时才装箱
+
+    public static List<Float> floatList(float[] values) {
+        return new AbstractList<Float>() {
+            @Override
+            public Float get(int index) {
+                return values[index];
+            }
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
+    }
+
+    public static List<Integer> intList(int[] values) {
+        return new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                return values[index];
+            }
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
+    }
+
+    public static List<Short> shortList(short[] values) {
+        return new AbstractList<Short>() {
+            @Override
+            public Short get(int index) {
+                return values[index];
+            }
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
+    }
+}
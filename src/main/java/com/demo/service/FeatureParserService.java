@@ -7,13 +7,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -29,14 +30,19 @@ public class FeatureParserService {
     // 特征定义列表，存储从配置中加载的特征定义。
     private final List<FeatureDefinition> featureDefinitions;
 
+    // 由特征定义编译的 Feature.dat 布局
+    private final FeatureLayout featureLayout;
+
     /**
      * 构造函数，通过依赖注入初始化特征定义列表。
      * @param featureProperties 包含特征定义的配置对象。
+     * @param featureLayout 由特征定义编译的 Feature.dat 布局。
      */
     @Autowired
-    public FeatureParserService(FeatureProperties featureProperties) {
+    public FeatureParserService(FeatureProperties featureProperties, FeatureLayout featureLayout) {
         // 从配置对象中获取特征定义列表。
         this.featureDefinitions = featureProperties.getDefinitions();
+        this.featureLayout = featureLayout;
         // 检查特征定义列表是否为空或未初始化，并记录警告日志。
         if (this.featureDefinitions == null || this.featureDefinitions.isEmpty()) {
             logger.warn("未能从配置文件加载任何特征定义！");
@@ -121,121 +127,112 @@ public class FeatureParserService {
 //        return allParsedFeatures;
 //    }
     public Map<String, List<? extends Number>> parseFeatureFile(String filePath) throws IOException {
-        // 使用LinkedHashMap保持特征名称的插入顺序。
-        Map<String, List<? extends Number>> allParsedFeatures = new LinkedHashMap<>();
-
-        try (FileInputStream fis = new FileInputStream(filePath);
-             DataInputStream dis = new DataInputStream(fis)) {
-
-            // 准备 4 字节和 2 字节的缓冲区
-            byte[] buffer4Bytes = new byte[4];
-            byte[] buffer2Bytes = new byte[2];
-
-            // 1. 读取 C++ 的 'length' (即 numFrames)
-            if (dis.read(buffer4Bytes) < 4) {
-                throw new IOException("无法从文件读取 num_frames (文件过短): " + filePath);
+        // 布局在启动时编译；文件长度先与布局校验，不匹配时在读取任何列之前失败
+        try {
+            Map<String, List<? extends Number>> allParsedFeatures = this.featureLayout.read(Paths.get(filePath));
+            List<? extends Number> first = allParsedFeatures.isEmpty() ? null : allParsedFeatures.values().iterator().next();
+            if (first == null || first.isEmpty()) {
+                logger.warn("特征文件 '{}' 中没有有效的数据帧。将返回空的特征集。", filePath);
+            } else {
+                logger.info("成功从 '{}' 解析了 {} 个特征。", filePath, allParsedFeatures.size());
             }
-            int numFrames = ByteBuffer.wrap(buffer4Bytes).order(ByteOrder.LITTLE_ENDIAN).getInt();
-            logger.info("特征文件 '{}' 包含 {} 帧的数据。", filePath, numFrames);
+            return allParsedFeatures;
+        } catch (IOException e) {
+            logger.error("解析特征文件 '{}' 时发生IO异常: {}", filePath, e.getMessage(), e);
+            throw e;
+        }
+    }
 
-            if (numFrames <= 0) {
-                logger.warn("特征文件 '{}' 中没有有效的数据帧 (numFrames = {})。将返回空的特征集。", filePath, numFrames);
-                // (保持原有逻辑，返回空列表)
-                for (FeatureDefinition def : this.featureDefinitions) {
-                    if (def.getTypeChar() == 'f') {
-                        allParsedFeatures.put(def.getName(), new ArrayList<Float>());
-                    } else if (def.getTypeChar() == 'i') {
-                        allParsedFeatures.put(def.getName(), new ArrayList<Integer>());
-                    } else if (def.getTypeChar() == 's') {
-                        allParsedFeatures.put(def.getName(), new ArrayList<Short>());
-                    }
+    /**
+     * 按帧顺序合并多个 Feature.dat (分片处理的结果) 为一个文件。
+     * 文件布局: int32 numFrames, int32 category_num, int32 category_type, float[numFrames * category_num] confidences,
+     * 然后按 yml 中的特征定义依次存放每一列 (每列 numFrames 个值)。
+     * 合并后 numFrames 为各分片之和，confidences 与每一列分别按分片顺序拼接 (使用 FileChannel.transferTo，不解码数据)。
+     *
+     * @param parts  按帧顺序排列的分片 Feature.dat
+     * @param target 合并后的文件
+     * @return 合并后的总帧数
+     * @throws IOException 分片文件不符合布局或各分片的 category_num / category_type 不一致时抛出
+     */
+    public int mergeFeatureFiles(List<Path> parts, Path target) throws IOException {
+        List<FileChannel> channels = new ArrayList<>(parts.size());
+        try {
+            int[] frames = new int[parts.size()];
+            FeatureLayout.Header[] headers = new FeatureLayout.Header[parts.size()];
+            int totalFrames = 0;
+            Integer categoryNum = null;
+            Integer categoryType = null;
+            for (int p = 0; p < parts.size(); p++) {
+                FileChannel channel = FileChannel.open(parts.get(p), StandardOpenOption.READ);
+                channels.add(channel);
+                if (channel.size() < 4) {
+                    continue; // 空分片
                 }
-                return allParsedFeatures;
-            }
-
-            // --- [!! 关键修复 BUG #1 !!] ---
-            // 2. 读取并处理文件头
-
-            // 2A. 读取 C++ 的 'category_num' (int32)
-            if (dis.read(buffer4Bytes) < 4) {
-                throw new IOException("无法读取 category_num (文件意外结束)");
-            }
-            int categoryNum = ByteBuffer.wrap(buffer4Bytes).order(ByteOrder.LITTLE_ENDIAN).getInt();
-            logger.info("文件头: category_num = {}", categoryNum);
-
-            // 2B. 读取 C++ 的 'category_type' (int32) - 我们读取它，但目前不使用
-            if (dis.read(buffer4Bytes) < 4) {
-                throw new IOException("无法读取 category_type (文件意外结束)");
-            }
-            // int categoryType = ByteBuffer.wrap(buffer4Bytes).order(ByteOrder.LITTLE_ENDIAN).getInt();
-            // logger.info("文件头: category_type = {}", categoryType);
-
-            // 2C. 读取 C++ 的 'confidences' (float 数组)
-            if (categoryNum > 0) {
-                List<Float> confidences = new ArrayList<>(numFrames * categoryNum);
-                for (int i = 0; i < numFrames * categoryNum; i++) {
-                    if (dis.read(buffer4Bytes) < 4) {
-                        throw new IOException("读取 confidences 数组时文件意外结束。");
-                    }
-                    confidences.add(ByteBuffer.wrap(buffer4Bytes).order(ByteOrder.LITTLE_ENDIAN).getFloat());
+                // 按布局校验文件头与长度
+                FeatureLayout.Header header = this.featureLayout.readHeader(channel, parts.get(p));
+                int numFrames = header.getNumFrames();
+                if (numFrames == 0) {
+                    continue; // 空分片 (可能只有 numFrames 字段)
+                }
+                int partCategoryNum = header.getCategoryNum();
+                int partCategoryType = header.getCategoryType();
+                if (categoryNum == null) {
+                    categoryNum = partCategoryNum;
+                    categoryType = partCategoryType;
+                } else if (categoryNum != partCategoryNum || categoryType != partCategoryType) {
+                    throw new IOException("分片特征文件的 category_num / category_type 不一致: " + parts.get(p));
                 }
-                allParsedFeatures.put("confidences", confidences); // 存入 map
+                headers[p] = header;
+                frames[p] = numFrames;
+                totalFrames += numFrames;
             }
-            // --- [!! 文件头读取完毕 !!] ---
 
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(totalFrames);
+                header.putInt(categoryNum != null ? categoryNum : 0);
+                header.putInt(categoryType != null ? categoryType : 0);
+                header.flip();
+                while (header.hasRemaining()) {
+                    out.write(header);
+                }
+                if (totalFrames == 0) {
+                    return 0;
+                }
 
-            // 3. 遍历 yml 中定义的每个特征，解析对应的特征数据
-            for (FeatureDefinition featureDef : this.featureDefinitions) {
-                String featureName = featureDef.getName();
-                char typeChar = featureDef.getTypeChar();
-                int typeSize = featureDef.getTypeSize();
-
-                // 根据特征类型（float, int, 或 short）解析数据
-
-                if (typeChar == 'f') { // 4-byte float
-                    List<Float> values = new ArrayList<>(numFrames);
-                    for (int i = 0; i < numFrames; i++) {
-                        if (dis.read(buffer4Bytes) < typeSize) {
-                            throw new IOException("读取特征 '" + featureName + "' (float) 的第 " + i + " 帧数据时文件意外结束。");
-                        }
-                        values.add(ByteBuffer.wrap(buffer4Bytes).order(ByteOrder.LITTLE_ENDIAN).getFloat());
-                    }
-                    allParsedFeatures.put(featureName, values);
-
-                } else if (typeChar == 'i') { // 4-byte int
-                    List<Integer> values = new ArrayList<>(numFrames);
-                    for (int i = 0; i < numFrames; i++) {
-                        if (dis.read(buffer4Bytes) < typeSize) {
-                            throw new IOException("读取特征 '" + featureName + "' (int) 的第 " + i + " 帧数据时文件意外结束。");
-                        }
-                        values.add(ByteBuffer.wrap(buffer4Bytes).order(ByteOrder.LITTLE_ENDIAN).getInt());
-                    }
-                    allParsedFeatures.put(featureName, values);
-
-                    // --- [!! 关键修复 BUG #3 !!] ---
-                } else if (typeChar == 's') { // 2-byte short
-                    List<Short> values = new ArrayList<>(numFrames);
-                    for (int i = 0; i < numFrames; i++) {
-                        if (dis.read(buffer2Bytes) < typeSize) {
-                            throw new IOException("读取特征 '" + featureName + "' (short) 的第 " + i + " 帧数据时文件意外结束。");
+                // 1. confidences
+                for (int p = 0; p < channels.size(); p++) {
+                    transfer(channels.get(p), FeatureLayout.HEADER_BYTES, (long) frames[p] * categoryNum * 4, out);
+                }
+                // 2. 每一列依次拼接各分片的数据
+                for (FeatureLayout.Column column : this.featureLayout.getColumns()) {
+                    for (int p = 0; p < channels.size(); p++) {
+                        if (frames[p] == 0) {
+                            continue;
                         }
-                        // 使用 2 字节缓冲区和 .getShort()
-                        values.add(ByteBuffer.wrap(buffer2Bytes).order(ByteOrder.LITTLE_ENDIAN).getShort());
+                        transfer(channels.get(p), this.featureLayout.columnOffset(column, headers[p]),
+                                (long) frames[p] * column.getType().getSize(), out);
                     }
-                    allParsedFeatures.put(featureName, values);
-                    // --- [!! 修复结束 !!] ---
-
-                } else {
-                    logger.warn("特征 '{}' 定义了不支持的类型字符 '{}'。该特征将被跳过。", featureName, typeChar);
                 }
             }
+            logger.info("已将 {} 个分片特征文件合并为 '{}' (共 {} 帧)。", parts.size(), target, totalFrames);
+            return totalFrames;
+        } finally {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
 
-            logger.info("成功从 '{}' 解析了 {} 个特征 (共 {} 帧数据)。", filePath, allParsedFeatures.size(), numFrames);
-
-        } catch (IOException e) {
-            logger.error("解析特征文件 '{}' 时发生IO异常: {}", filePath, e.getMessage(), e);
-            throw e;
+    private static void transfer(FileChannel in, long position, long count, FileChannel out) throws IOException {
+        long done = 0;
+        while (done < count) {
+            long n = in.transferTo(position + done, count - done, out);
+            if (n <= 0) {
+                throw new IOException("合并特征文件时源文件意外结束。");
+            }
+            done += n;
         }
-        return allParsedFeatures;
     }
-}
\ No newline at end of file
+}
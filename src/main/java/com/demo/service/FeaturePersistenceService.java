@@ -2,6 +2,7 @@ package com.demo.service;
 
 import com.demo.entity.FrameFeature;
 import com.demo.repository.FrameFeatureRepository;
+import com.demo.util.PackedFloats;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,7 +14,6 @@ import java.net.URI;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
-import java.time.ZoneId;
 import java.time.Instant;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -22,6 +22,10 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.Comparator;
+import java.nio.file.StandardOpenOption;
+import java.time.format.DateTimeFormatter;
 import java.io.Writer;
 import java.io.BufferedWriter;
 import java.io.OutputStreamWriter;
@@ -43,6 +47,11 @@ public class FeaturePersistenceService {
     private static final Logger logger = LoggerFactory.getLogger(FeaturePersistenceService.class);
 
     private final FrameFeatureRepository frameFeatureRepository;
+    private final FrameFeatureBinder frameFeatureBinder;
+
+    /** statistics.sql 的追加与轮转共用的锁 */
+    private final Object statisticsLock = new Object();
+    private static final DateTimeFormatter ROTATED_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
 
     /**
      * 主入口方法。
@@ -364,23 +373,63 @@ private void generateAndAppendStatisticsSql(List<FrameFeature> frames, Path resu
 
     /* ---------- 7. 追加写文件 ---------- */
     Path sqlFile = resultPath.resolve(FILE_NAME);
-    try (Writer w = new BufferedWriter(new OutputStreamWriter(
-            new FileOutputStream(sqlFile.toFile(), true), StandardCharsets.UTF_8))) {
+    synchronized (statisticsLock) { // 与 rotateStatisticsSql 互斥
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(sqlFile.toFile(), true), StandardCharsets.UTF_8))) {
 
-        if (Files.size(sqlFile) == 0) {
-            w.write("-- 统计数据SQL文件 (固定文件名，自动追加)\n");
-            w.write("BEGIN TRANSACTION;\n");
+            if (Files.size(sqlFile) == 0) {
+                w.write("-- 统计数据SQL文件 (固定文件名，自动追加)\n");
+                w.write("BEGIN TRANSACTION;\n");
+            }
+            w.write(sql);
         }
-        w.write(sql);
     }
 }
 
+    /**
+     * 轮转 statistics.sql：超过 maxBytes 时补写 COMMIT 并重命名为 statistics-{时间戳}.sql，
+     * 下一次追加会重新创建带文件头的 statistics.sql。只保留最新的 keep 个已轮转文件。
+     *
+     * @param maxBytes 触发轮转的大小，0 表示不轮转
+     * @param keep     保留的已轮转文件个数
+     * @return 轮转后的文件路径；未轮转时返回 null
+     */
+    public Path rotateStatisticsSql(long maxBytes, int keep) throws IOException {
+        if (maxBytes <= 0) {
+            return null;
+        }
+        Path resultPath = getApplicationBasePath().resolve("result");
+        Path sqlFile = resultPath.resolve("statistics.sql");
+        Path rotated;
+        synchronized (statisticsLock) {
+            if (!Files.isRegularFile(sqlFile) || Files.size(sqlFile) < maxBytes) {
+                return null;
+            }
+            Files.write(sqlFile, "COMMIT;\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            String stamp = ROTATED_TIMESTAMP.format(ZonedDateTime.now());
+            rotated = resultPath.resolve("statistics-" + stamp + ".sql");
+            Files.move(sqlFile, rotated);
+        }
+        logger.info("statistics.sql 已轮转为 {}", rotated.getFileName());
+
+        // 文件名中的时间戳按字典序即时间顺序
+        List<Path> history;
+        try (Stream<Path> files = Files.list(resultPath)) {
+            history = files.filter(f -> f.getFileName().toString().matches("statistics-\\d{8}-\\d{6}-\\d{3}\\.sql"))
+                    .sorted(Comparator.comparing((Path f) -> f.getFileName().toString()).reversed())
+                    .collect(Collectors.toList());
+        }
+        for (int i = Math.max(keep, 0); i < history.size(); i++) {
+            Files.deleteIfExists(history.get(i));
+        }
+        return rotated;
+    }
+
 
 
     /**
      * 辅助方法：将 Map 转置为实体列表。
      */
-    @SuppressWarnings("unchecked")
     private List<FrameFeature> transposeMapToFrames(Map<String, List<? extends Number>> featureMap,
                                                     String analysisId,
                                                     List<Path> orderedRawFilePaths) {
@@ -392,7 +441,7 @@ private void generateAndAppendStatisticsSql(List<FrameFeature> frames, Path resu
 
         // 现在 categoryNum 也会出同样的问题，你需要一个更好的方法来获取它
         // 暂时假设 categoryNum 也是从某个地方(比如 "confidences")推断出来的
-        List<Float> confidencesFlat = (List<Float>) (List<?>) featureMap.get("confidences");
+        List<? extends Number> confidencesFlat = featureMap.get("confidences");
         int categoryNum = 0;
         if (confidencesFlat != null && numFrames > 0) {
             categoryNum = confidencesFlat.size() / numFrames; // [!!] 动态推断 categoryNum
@@ -405,8 +454,6 @@ private void generateAndAppendStatisticsSql(List<FrameFeature> frames, Path resu
             logger.error("持久化错误：特征帧数 ({}) 与原始文件数 ({}) 不匹配！", numFrames, orderedRawFilePaths.size());
         }
 
-        // 按特征名称获取列表
-        Map<String, List<? extends Number>> data = featureMap;
         List<FrameFeature> frames = new ArrayList<>(numFrames);
 
         for (int i = 0; i < numFrames; i++) {
@@ -414,80 +461,14 @@ private void generateAndAppendStatisticsSql(List<FrameFeature> frames, Path resu
             frame.setAnalysisId(analysisId);
             frame.setFrameIndex(i);
 
-            // 提取该帧的置信度
+            // 提取该帧的置信度，按 float32 打包
             int start = i * categoryNum;
             int end = start + categoryNum;
             if (confidencesFlat != null && !confidencesFlat.isEmpty() && end <= confidencesFlat.size()) {
-                List<Float> frameConfidences = confidencesFlat.subList(start, end);
-                frame.setConfidences(frameConfidences.stream().map(Object::toString).collect(Collectors.joining(",")));
+                frame.setConfidencesBlob(PackedFloats.pack(confidencesFlat, start, end));
+                frame.setCategoryNum(categoryNum);
             }
 
-            Short year = getNumber(data, "year", i, Short.class);
-            Short month = getNumber(data, "month", i, Short.class);
-            Short day = getNumber(data, "day", i, Short.class);
-            Short hour = getNumber(data, "hour", i, Short.class);
-            Short min = getNumber(data, "min", i, Short.class);
-            Short sec = getNumber(data, "sec", i, Short.class);
-            Float msec = getNumber(data, "msec", i, Float.class);
-
-            if (year != null && month != null && day != null && hour != null && min != null && sec != null && msec != null &&
-                    month > 0 && day > 0) {
-                try {
-                    // 只有在值有效时才尝试创建时间戳
-                    ZonedDateTime zdt = ZonedDateTime.of(
-                            year, month, day, hour, min, sec, (int)(msec * 1000000),
-                            ZoneId.of("UTC") // 数据是UTC时间
-                    );
-                    frame.setFaTime(zdt.toInstant());
-                } catch (Exception e) {
-                    // 捕获无效日期 (例如 2月30日)
-                    logger.warn("在第 {} 帧解析时间戳失败 (值可能无效): {}", i, e.getMessage());
-                    frame.setFaTime(null);
-                }
-            } else {
-                // 如果值是 null 或者是 C++ 的 0，则将时间戳设为 null
-                frame.setFaTime(null);
-            }
-
-            // --- 自动从 Map 填充所有字段 ---
-            // (注意：getNumber 可处理 Float, Integer, Short)
-            frame.setVariance(getNumber(data, "variance", i, Float.class));
-            frame.setMean_region(getNumber(data, "mean_region", i, Float.class));
-            frame.setSCR(getNumber(data, "SCR", i, Float.class));
-            frame.setContrast(getNumber(data, "contrast", i, Float.class));
-            frame.setEntropy(getNumber(data, "entropy", i, Float.class));
-            frame.setHomogeneity(getNumber(data, "homogeneity", i, Float.class));
-            frame.setSmoothness(getNumber(data, "smoothness", i, Float.class));
-            frame.setSkewness(getNumber(data, "skewness", i, Float.class));
-            frame.setKurtosis(getNumber(data, "kurtosis", i, Float.class));
-            frame.setAspectRatio(getNumber(data, "aspectRatio", i, Float.class));
-            frame.setLongAxis(getNumber(data, "longAxis", i, Float.class));
-            frame.setShortAxis(getNumber(data, "shortAxis", i, Float.class));
-
-            frame.setXjy_area(getNumber(data, "xjy_area", i, Integer.class));
-            frame.setPeak_cell_intensity(getNumber(data, "peak_cell_intensity", i, Float.class));
-            frame.setXjy_background_intensity(getNumber(data, "xjy_background_intensity", i, Float.class));
-
-            frame.setTl_xs(getNumber(data, "tl_xs", i, Integer.class));
-            frame.setTl_ys(getNumber(data, "tl_ys", i, Integer.class));
-            frame.setWidths(getNumber(data, "widths", i, Integer.class));
-            frame.setHeights(getNumber(data, "heights", i, Integer.class));
-
-            frame.setPeakPosX(getNumber(data, "peakPosX", i, Integer.class));
-            frame.setPeakPosY(getNumber(data, "peakPosY", i, Integer.class));
-            frame.setPixelVelocityX(getNumber(data, "pixelVelocityX", i, Float.class));
-            frame.setPixelVelocityY(getNumber(data, "pixelVelocityY", i, Float.class));
-
-            frame.setApMaxRad(getNumber(data, "apMaxRad", i, Float.class));
-            frame.setApTotalRad(getNumber(data, "apTotalRad", i, Float.class));
-            frame.setApAvgRad(getNumber(data, "apAvgRad", i, Float.class));
-            frame.setBrightnessTemperature(getNumber(data, "brightnessTemperature", i, Float.class));
-            frame.setBrightnessTemperatureBG(getNumber(data, "brightnessTemperatureBG", i, Float.class));
-
-            frame.setLgt(getNumber(data, "lgt", i, Float.class));
-            frame.setLat(getNumber(data, "lat", i, Float.class));
-            frame.setAlt(getNumber(data, "alt", i, Float.class));
-
 //            if (i < orderedRawFilePaths.size()) {
 //                Path rawFilePath = orderedRawFilePaths.get(i);
 //                byte[] rawData = readRawData(rawFilePath);
@@ -499,6 +480,8 @@ private void generateAndAppendStatisticsSql(List<FrameFeature> frames, Path resu
 
             frames.add(frame);
         }
+        // 其余特征列与 faTime 由绑定器按列填充
+        frameFeatureBinder.bind(featureMap, frames);
         return frames;
     }
 
@@ -639,31 +622,6 @@ private void generateAndAppendStatisticsSql(List<FrameFeature> frames, Path resu
 //        if (type == Double.class) return type.cast(value.doubleValue());
 //        return type.cast(value);
 //    }
-    /**
-     * [!! 已修复 !!]
-     * 安全地从 Map 中获取并转换每帧的数据
-     */
-    private <T extends Number> T getNumber(Map<String, List<? extends Number>> data, String key, int index, Class<T> type) {
-        List<? extends Number> list = data.get(key);
-        if (list == null || index >= list.size()) {
-            return null;
-        }
-        Number value = list.get(index);
-
-        // [!! 修复 !!] 增加对 value 本身的 null 检查
-        if (value == null) {
-            return null;
-        }
-
-        // 根据需要的类型进行转换
-        if (type == Float.class) return type.cast(value.floatValue());
-        if (type == Integer.class) return type.cast(value.intValue());
-        if (type == Short.class) return type.cast(value.shortValue());
-        if (type == Double.class) return type.cast(value.doubleValue());
-        return type.cast(value);
-    }
-
-
     /**
      * 辅助方法：为 FrameFeature 实体生成 INSERT SQL 语句。
      */
@@ -691,6 +649,11 @@ private void generateAndAppendStatisticsSql(List<FrameFeature> frames, Path resu
         addField.accept("frame_index", frame.getFrameIndex());
         addField.accept("created_at", frame.getCreatedAt() != null ? "'" + frame.getCreatedAt().toString() + "'" : null); // 特殊处理时间戳
         addField.accept("confidences", frame.getConfidences());
+        if (frame.getConfidencesBlob() != null) {
+            cols.append("confidences_blob, ");
+            vals.append(PackedFloats.toSqlLiteral(frame.getConfidencesBlob())).append(", ");
+        }
+        addField.accept("category_num", frame.getCategoryNum());
 
         addField.accept("variance", frame.getVariance());
         addField.accept("mean_region", frame.getMean_region());
@@ -0,0 +1,313 @@
+package com.demo.service;
+
+import com.demo.dto.FrameAggregateResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 按 FATIME 时间桶聚合帧特征 (count / mean / min / max / p95)。
+ * 两种计算方式：
+ * - SQL: 沿 FATIME 索引取范围内的行，GROUP BY 时间桶得到 count/mean/min/max；
+ *   p95 用窗口函数 ROW_NUMBER() 按桶排名后取第 ceil(0.95n) 个值 (每个特征一次窗口查询)。
+ * - 流式: 按 FATIME 顺序逐行读取，在 Java 中逐桶计算，内存占用只与最大的一个桶有关。
+ * 不需要 p95 时默认用 SQL；需要 p95 时默认流式 (一次有序扫描，比每个特征一次窗口排序快)；SQL 执行失败时回退为流式。
+ * 时间桶按 UTC 纪元对齐。SQL 计算依赖 SQLite 驱动默认以毫秒整数保存时间戳。
+ */
+@Service
+public class FrameAggregationService {
+    private static final Logger logger = LoggerFactory.getLogger(FrameAggregationService.class);
+
+    public static final int MAX_BUCKETS = 100_000;
+    public static final int MAX_FIELDS = 16;
+    private static final int FETCH_SIZE = 1024;
+    private static final Pattern BUCKET = Pattern.compile("(\\d+)(ms|s|m|h|d)");
+
+    /**
+     * 计算方式。AUTO: 需要 p95 时流式计算，否则用 SQL (失败时回退为流式)。
+     */
+    public enum Engine {
+        AUTO, SQL, STREAM
+    }
+
+    private final FrameQueryService frameQueryService;
+    private final JdbcTemplate jdbcTemplate;
+
+    public FrameAggregationService(FrameQueryService frameQueryService, JdbcTemplate jdbcTemplate) {
+        this.frameQueryService = frameQueryService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 聚合 [from, to) 范围内的帧。
+     *
+     * @param bucket     时间桶宽度，例如 "1s"、"1m"、"1h" (支持 ms/s/m/h/d)
+     * @param fields     要统计的特征属性名
+     * @param analysisId 只统计该分析，为 null 时统计全部分析
+     * @param p95        是否计算 p95
+     * @throws IllegalArgumentException 参数无效或时间桶过多
+     */
+    public FrameAggregateResponse aggregate(String bucket, Instant from, Instant to, List<String> fields,
+                                            String analysisId, boolean p95, Engine engine) {
+        long bucketMillis = parseBucket(bucket);
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("必须指定 from < to。");
+        }
+        long span = to.toEpochMilli() - from.toEpochMilli();
+        if (span / bucketMillis > MAX_BUCKETS) {
+            throw new IllegalArgumentException("时间范围内的时间桶超过 " + MAX_BUCKETS + " 个，请增大 bucket 或缩小范围。");
+        }
+        if (fields == null || fields.isEmpty() || fields.size() > MAX_FIELDS) {
+            throw new IllegalArgumentException("fields 必须包含 1 到 " + MAX_FIELDS + " 个特征属性。");
+        }
+        List<FrameQueryService.Column> columns = new ArrayList<>();
+        for (String field : fields) {
+            FrameQueryService.Column c = frameQueryService.numericColumn(field.trim());
+            if (!columns.contains(c)) {
+                columns.add(c);
+            }
+        }
+        Query query = new Query(bucketMillis, Timestamp.from(from), Timestamp.from(to), analysisId, columns, p95);
+
+        long start = System.nanoTime();
+        TreeMap<Long, FrameAggregateResponse.Bucket> buckets;
+        boolean streamed = engine == Engine.STREAM || (engine == Engine.AUTO && p95);
+        if (streamed) {
+            buckets = aggregateStreaming(query);
+        } else {
+            try {
+                buckets = aggregateSql(query);
+            } catch (DataAccessException e) {
+                if (engine == Engine.SQL) {
+                    throw e;
+                }
+                logger.warn("SQL 聚合失败，改为流式计算: {}", e.getMessage());
+                buckets = aggregateStreaming(query);
+                streamed = true;
+            }
+        }
+        logger.info("时间桶聚合完成: bucket={}, {} 个时间桶, {} 个特征, {}, 耗时 {} ms",
+                bucket, buckets.size(), columns.size(), streamed ? "流式" : "SQL", (System.nanoTime() - start) / 1_000_000);
+        return new FrameAggregateResponse(bucket, bucketMillis, from, to, analysisId, streamed, new ArrayList<>(buckets.values()));
+    }
+
+    /**
+     * 一次聚合查询的参数。
+     */
+    private final class Query {
+        final long bucketMillis;
+        final Timestamp from;
+        final Timestamp to;
+        final String analysisId;
+        final List<FrameQueryService.Column> columns;
+        final boolean p95;
+        final String table = frameQueryService.tableName();
+        final String faTime = frameQueryService.column("faTime").getName();
+
+        Query(long bucketMillis, Timestamp from, Timestamp to, String analysisId,
+              List<FrameQueryService.Column> columns, boolean p95) {
+            this.bucketMillis = bucketMillis;
+            this.from = from;
+            this.to = to;
+            this.analysisId = analysisId;
+            this.columns = columns;
+            this.p95 = p95;
+        }
+
+        String where() {
+            String where = " WHERE " + faTime + " >= ? AND " + faTime + " < ?";
+            if (analysisId != null) {
+                where += " AND " + frameQueryService.column("analysisId").getName() + " = ?";
+            }
+            return where;
+        }
+
+        Object[] whereArgs(Object... leading) {
+            List<Object> args = new ArrayList<>(Arrays.asList(leading));
+            args.add(from);
+            args.add(to);
+            if (analysisId != null) {
+                args.add(analysisId);
+            }
+            return args.toArray();
+        }
+    }
+
+    private TreeMap<Long, FrameAggregateResponse.Bucket> aggregateSql(Query q) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(q.faTime).append(" / ? AS b, COUNT(*)");
+        for (FrameQueryService.Column c : q.columns) {
+            String col = c.getName();
+            sql.append(", COUNT(").append(col).append("), AVG(").append(col).append("), MIN(")
+                    .append(col).append("), MAX(").append(col).append(')');
+        }
+        sql.append(" FROM ").append(q.table).append(q.where()).append(" GROUP BY b ORDER BY b");
+
+        TreeMap<Long, FrameAggregateResponse.Bucket> buckets = new TreeMap<>();
+        jdbcTemplate.query(sql.toString(), (ResultSet rs) -> {
+            long b = rs.getLong(1);
+            Map<String, FrameAggregateResponse.FieldStats> stats = new LinkedHashMap<>();
+            int i = 3;
+            for (FrameQueryService.Column c : q.columns) {
+                long count = rs.getLong(i);
+                stats.put(c.getProperty(), new FrameAggregateResponse.FieldStats(count,
+                        count == 0 ? null : rs.getDouble(i + 1),
+                        count == 0 ? null : rs.getDouble(i + 2),
+                        count == 0 ? null : rs.getDouble(i + 3),
+                        null));
+                i += 4;
+            }
+            buckets.put(b, new FrameAggregateResponse.Bucket(
+                    Instant.ofEpochMilli(b * q.bucketMillis), rs.getLong(2), stats));
+        }, q.whereArgs(q.bucketMillis));
+
+        if (q.p95) {
+            // 每个特征一次窗口查询：按桶分区排序，取排名为 ceil(0.95n) 的值
+            for (FrameQueryService.Column c : q.columns) {
+                String col = c.getName();
+                String p95Sql = "SELECT b, v FROM (SELECT " + q.faTime + " / ? AS b, " + col + " AS v, "
+                        + "ROW_NUMBER() OVER (PARTITION BY " + q.faTime + " / ? ORDER BY " + col + ") AS rn, "
+                        + "COUNT(*) OVER (PARTITION BY " + q.faTime + " / ?) AS n FROM " + q.table + q.where()
+                        + " AND " + col + " IS NOT NULL) WHERE rn = (n * 95 + 99) / 100";
+                jdbcTemplate.query(p95Sql, (ResultSet rs) -> {
+                    FrameAggregateResponse.Bucket bucket = buckets.get(rs.getLong(1));
+                    if (bucket != null) {
+                        bucket.getFields().get(c.getProperty()).setP95(rs.getDouble(2));
+                    }
+                }, q.whereArgs(q.bucketMillis, q.bucketMillis, q.bucketMillis));
+            }
+        }
+        return buckets;
+    }
+
+    private TreeMap<Long, FrameAggregateResponse.Bucket> aggregateStreaming(Query q) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(q.faTime);
+        for (FrameQueryService.Column c : q.columns) {
+            sql.append(", ").append(c.getName());
+        }
+        sql.append(" FROM ").append(q.table).append(q.where()).append(" ORDER BY ").append(q.faTime);
+        Object[] args = q.whereArgs();
+
+        TreeMap<Long, FrameAggregateResponse.Bucket> buckets = new TreeMap<>();
+        Accumulator[] acc = new Accumulator[q.columns.size()];
+        for (int i = 0; i < acc.length; i++) {
+            acc[i] = new Accumulator();
+        }
+        long[] current = {Long.MIN_VALUE, 0}; // [0] 当前桶编号, [1] 当前桶帧数
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps;
+        }, (ResultSet rs) -> {
+            long b = Math.floorDiv(rs.getTimestamp(1).getTime(), q.bucketMillis);
+            if (b != current[0]) {
+                flush(q, buckets, current, acc);
+                current[0] = b;
+            }
+            current[1]++;
+            for (int i = 0; i < acc.length; i++) {
+                double v = rs.getDouble(i + 2);
+                if (!rs.wasNull()) {
+                    acc[i].add(v);
+                }
+            }
+        });
+        flush(q, buckets, current, acc);
+        return buckets;
+    }
+
+    private static void flush(Query q, TreeMap<Long, FrameAggregateResponse.Bucket> buckets, long[] current, Accumulator[] acc) {
+        if (current[1] == 0) {
+            return;
+        }
+        Map<String, FrameAggregateResponse.FieldStats> stats = new LinkedHashMap<>();
+        for (int i = 0; i < acc.length; i++) {
+            stats.put(q.columns.get(i).getProperty(), acc[i].finish(q.p95));
+        }
+        buckets.put(current[0], new FrameAggregateResponse.Bucket(
+                Instant.ofEpochMilli(current[0] * q.bucketMillis), current[1], stats));
+        current[1] = 0;
+    }
+
+    /**
+     * 一个特征在当前桶内的累加器，桶结束后复用。
+     */
+    private static final class Accumulator {
+        private double[] values = new double[256];
+        private int n;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        void add(double v) {
+            if (n == values.length) {
+                values = Arrays.copyOf(values, n * 2);
+            }
+            values[n++] = v;
+            sum += v;
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+
+        FrameAggregateResponse.FieldStats finish(boolean p95) {
+            FrameAggregateResponse.FieldStats stats;
+            if (n == 0) {
+                stats = new FrameAggregateResponse.FieldStats(0, null, null, null, null);
+            } else {
+                Double percentile = null;
+                if (p95) {
+                    Arrays.sort(values, 0, n);
+                    percentile = values[(int) Math.ceil(0.95 * n) - 1];
+                }
+                stats = new FrameAggregateResponse.FieldStats(n, sum / n, min, max, percentile);
+            }
+            n = 0;
+            sum = 0;
+            min = Double.POSITIVE_INFINITY;
+            max = Double.NEGATIVE_INFINITY;
+            return stats;
+        }
+    }
+
+    /**
+     * @return 时间桶宽度 (毫秒)
+     * @throws IllegalArgumentException 格式无效
+     */
+    static long parseBucket(String bucket) {
+        Matcher m = bucket == null ? null : BUCKET.matcher(bucket.trim());
+        if (m == null || !m.matches()) {
+            throw new IllegalArgumentException("无效的 bucket: " + bucket + " (例如 1s、1m、1h)");
+        }
+        long n = Long.parseLong(m.group(1));
+        long unit;
+        switch (m.group(2)) {
+            case "ms": unit = 1L; break;
+            case "s": unit = 1000L; break;
+            case "m": unit = 60_000L; break;
+            case "h": unit = 3_600_000L; break;
+            default: unit = 86_400_000L; break;
+        }
+        if (n <= 0 || n > Long.MAX_VALUE / unit) {
+            throw new IllegalArgumentException("无效的 bucket: " + bucket);
+        }
+        return n * unit;
+    }
+}
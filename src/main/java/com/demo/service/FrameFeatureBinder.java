@@ -0,0 +1,194 @@
+package com.demo.service;
+
+import com.demo.config.FeatureProperties;
+import com.demo.dto.FeatureDefinition;
+import com.demo.entity.FrameFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 把按列存放的特征 (FeatureParserService 的解析结果) 填充到 {@link FrameFeature} 实体。
+ * 启动时按 app.features.definitions 与 FrameFeature 的同名字段生成一次 setter
+ * ({@link LambdaMetafactory} 生成的 BiConsumer，调用开销与直接调用 setter 相同)；
+ * 每次分析只按列名查找一次列表，然后逐帧调用各列的 setter。
+ * 列表元素类型与字段类型相同时直接传入原对象，不再拆箱/装箱。
+ */
+@Component
+public class FrameFeatureBinder {
+    private static final Logger logger = LoggerFactory.getLogger(FrameFeatureBinder.class);
+
+    private static final int[] DAYS_BEFORE_MONTH = {0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334};
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private final List<Binding> bindings;
+
+    /**
+     * 一个特征列到实体字段的绑定。
+     */
+    private static final class Binding {
+        final String name;
+        final Class<?> fieldType;
+        final BiConsumer<FrameFeature, Object> setter;
+
+        Binding(String name, Class<?> fieldType, BiConsumer<FrameFeature, Object> setter) {
+            this.name = name;
+            this.fieldType = fieldType;
+            this.setter = setter;
+        }
+    }
+
+    public FrameFeatureBinder(FeatureProperties featureProperties) {
+        List<Binding> result = new ArrayList<>();
+        List<FeatureDefinition> definitions = featureProperties.getDefinitions() != null
+                ? featureProperties.getDefinitions() : Collections.emptyList();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (FeatureDefinition def : definitions) {
+            String name = def.getName();
+            Class<?> fieldType;
+            try {
+                fieldType = FrameFeature.class.getDeclaredField(name).getType();
+            } catch (NoSuchFieldException e) {
+                logger.warn("特征 '{}' 在 FrameFeature 中没有同名字段，不会写入数据库。", name);
+                continue;
+            }
+            result.add(new Binding(name, fieldType, setter(lookup, name, fieldType)));
+        }
+        this.bindings = Collections.unmodifiableList(result);
+        logger.info("FrameFeature 绑定已生成: {} / {} 个特征列。", bindings.size(), definitions.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<FrameFeature, Object> setter(MethodHandles.Lookup lookup, String field, Class<?> type) {
+        String name = "set" + Character.toUpperCase(field.charAt(0)) + field.substring(1);
+        try {
+            MethodHandle handle = lookup.findVirtual(FrameFeature.class, name, MethodType.methodType(void.class, type));
+            CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                    MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class),
+                    handle,
+                    MethodType.methodType(void.class, FrameFeature.class, type));
+            return (BiConsumer<FrameFeature, Object>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("无法为 FrameFeature." + field + " 生成 setter: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 把 featureMap 中的各列写入 frames (frames[i] 对应每列的第 i 个值)，并由 year..msec 计算 faTime。
+     * year..msec 本身也与其他特征一样写入同名字段 (对应数据库列，_db_import.sql 中同样包含这些列)。
+     * 缺失的列或长度不足的部分保持为 null。
+     */
+    @SuppressWarnings("unchecked")
+    public void bind(Map<String, List<? extends Number>> featureMap, List<FrameFeature> frames) {
+        int numFrames = frames.size();
+        // 按列解析一次: 列表、setter、转换
+        int count = 0;
+        List<? extends Number>[] columns = new List[bindings.size()];
+        BiConsumer<FrameFeature, Object>[] setters = new BiConsumer[bindings.size()];
+        Function<Number, Object>[] converters = new Function[bindings.size()];
+        for (Binding binding : bindings) {
+            List<? extends Number> values = featureMap.get(binding.name);
+            if (values == null || values.isEmpty()) {
+                continue;
+            }
+            columns[count] = values;
+            setters[count] = binding.setter;
+            converters[count] = converter(values.get(0), binding.fieldType);
+            count++;
+        }
+        // 逐帧填充所有列，每个实体只被访问一次
+        for (int i = 0; i < numFrames; i++) {
+            FrameFeature frame = frames.get(i);
+            for (int c = 0; c < count; c++) {
+                List<? extends Number> values = columns[c];
+                if (i >= values.size()) {
+                    continue;
+                }
+                Number v = values.get(i);
+                Function<Number, Object> convert = converters[c];
+                setters[c].accept(frame, convert == null || v == null ? v : convert.apply(v));
+            }
+        }
+        bindFaTime(featureMap, frames);
+    }
+
+    /**
+     * @return 列表元素到字段类型的转换；类型相同 (或无法判断) 时返回 null
+     */
+    private static Function<Number, Object> converter(Number sample, Class<?> fieldType) {
+        if (sample == null || fieldType.isInstance(sample)) {
+            return null;
+        }
+        if (fieldType == Float.class) return Number::floatValue;
+        if (fieldType == Integer.class) return Number::intValue;
+        if (fieldType == Short.class) return Number::shortValue;
+        if (fieldType == Double.class) return Number::doubleValue;
+        if (fieldType == Long.class) return Number::longValue;
+        throw new IllegalStateException("不支持的 FrameFeature 字段类型: " + fieldType.getName());
+    }
+
+    private void bindFaTime(Map<String, List<? extends Number>> featureMap, List<FrameFeature> frames) {
+        List<? extends Number> year = featureMap.get("year");
+        List<? extends Number> month = featureMap.get("month");
+        List<? extends Number> day = featureMap.get("day");
+        List<? extends Number> hour = featureMap.get("hour");
+        List<? extends Number> min = featureMap.get("min");
+        List<? extends Number> sec = featureMap.get("sec");
+        List<? extends Number> msec = featureMap.get("msec");
+        if (year == null || month == null || day == null || hour == null || min == null || sec == null || msec == null) {
+            return;
+        }
+        int n = Math.min(frames.size(), Math.min(Math.min(Math.min(year.size(), month.size()), Math.min(day.size(), hour.size())),
+                Math.min(Math.min(min.size(), sec.size()), msec.size())));
+        for (int i = 0; i < n; i++) {
+            Number y = year.get(i), mo = month.get(i), d = day.get(i), h = hour.get(i), mi = min.get(i), s = sec.get(i), ms = msec.get(i);
+            // 值为 null 或 C++ 写出的 0 (无效月份/日期) 时 faTime 保持为 null
+            if (y == null || mo == null || d == null || h == null || mi == null || s == null || ms == null
+                    || mo.intValue() <= 0 || d.intValue() <= 0) {
+                continue;
+            }
+            Instant t = utcInstant(y.intValue(), mo.intValue(), d.intValue(), h.intValue(), mi.intValue(), s.intValue(),
+                    (long) (ms.floatValue() * 1000000));
+            if (t == null) {
+                logger.warn("在第 {} 帧解析时间戳失败 (值可能无效): {}-{}-{} {}:{}:{} +{}ms", i, y, mo, d, h, mi, s, ms);
+            }
+            frames.get(i).setFaTime(t);
+        }
+    }
+
+    /**
+     * 由 UTC 日期时间直接计算 Instant (与 ZonedDateTime.of(..., UTC).toInstant() 结果相同)。
+     *
+     * @return 任一字段超出范围 (例如 2 月 30 日、纳秒不在 [0, 1e9)) 时返回 null
+     */
+    static Instant utcInstant(int year, int month, int day, int hour, int minute, int second, long nanos) {
+        if (month < 1 || month > 12 || day < 1 || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || second < 0 || second > 59 || nanos < 0 || nanos > 999_999_999) {
+            return null;
+        }
+        boolean leap = (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+        int monthDays = DAYS_IN_MONTH[month - 1] + (month == 2 && leap ? 1 : 0);
+        if (day > monthDays) {
+            return null;
+        }
+        // 1970-01-01 起的天数: 先算到当年 1 月 1 日，再加上当年已过的天数
+        long y = year - 1L;
+        long days = 365 * (y - 1969) + (Math.floorDiv(y, 4) - 492) - (Math.floorDiv(y, 100) - 19) + (Math.floorDiv(y, 400) - 4)
+                + DAYS_BEFORE_MONTH[month - 1] + (month > 2 && leap ? 1 : 0) + day - 1;
+        return Instant.ofEpochSecond(days * 86400 + hour * 3600L + minute * 60L + second, nanos);
+    }
+}
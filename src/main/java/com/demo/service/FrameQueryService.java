@@ -0,0 +1,515 @@
+package com.demo.service;
+
+import com.demo.entity.FrameFeature;
+import com.demo.util.GeoGrid;
+import com.demo.util.PackedFloats;
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 帧数据查询服务。
+ * 直接通过 JDBC 查询 FALSEALARMITEMDATA 中需要的列 (不加载完整实体)，按 (排序键, id) 做 keyset 分页，
+ * 并以游标方式逐行读取结果写入 JSON 流，内存占用与页大小无关。
+ * 属性名到列名的映射取自 Hibernate 元数据，与实体定义保持一致。
+ * 经纬度矩形查询依赖写入时计算的 geo_cell 网格列 (见 {@link GeoGrid})，启动后及之后定时在后台为缺少该列的数据
+ * (历史数据，或由 _db_import.sql 等 SQL 文件导入的数据) 补齐。
+ */
+@Service
+public class FrameQueryService {
+    private static final Logger logger = LoggerFactory.getLogger(FrameQueryService.class);
+    public static final int DEFAULT_LIMIT = 500;
+    public static final int MAX_LIMIT = 10000;
+    private static final int FETCH_SIZE = 256;
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+    private static final List<String> DEFAULT_FIELDS = Arrays.asList("faTime", "lgt", "lat", "alt");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile String tableName;
+    private volatile Map<String, Column> columns; // 小写属性名 -> 列
+    private final AtomicBoolean backfilling = new AtomicBoolean();
+
+    public FrameQueryService(JdbcTemplate jdbcTemplate,
+                             EntityManagerFactory entityManagerFactory,
+                             PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 应用启动完成后在后台线程为 geo_cell 为空的历史帧 (升级前写入或由 SQL 文件导入) 计算网格编号。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillGeoCellsOnStartup() {
+        Thread t = new Thread(this::scheduledBackfill, "geo-cell-backfill");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * 定时补齐运行期间由 SQL 文件 (例如 _db_import.sql) 导入、未写 geo_cell 的帧，否则矩形查询看不到这些行。
+     * 没有待补齐的行时只执行一次索引查询。上一次补齐尚未结束时跳过。
+     */
+    @Scheduled(initialDelayString = "${app.query.geo-backfill-interval-ms:600000}",
+            fixedDelayString = "${app.query.geo-backfill-interval-ms:600000}")
+    public void scheduledBackfill() {
+        if (!backfilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            backfillGeoCells();
+        } catch (Exception e) {
+            logger.error("补齐 geo_cell 失败: {}", e.getMessage(), e);
+        } finally {
+            backfilling.set(false);
+        }
+    }
+
+    /**
+     * 按 id 顺序分批补齐 geo_cell，每批一次批量 UPDATE。
+     *
+     * @return 更新的行数
+     */
+    public long backfillGeoCells() {
+        String id = column("id").getName();
+        String geoCell = column("geoCell").getName();
+        String lgt = column("lgt").getName();
+        String lat = column("lat").getName();
+        String pending = " WHERE " + geoCell + " IS NULL AND " + lgt + " IS NOT NULL AND " + lat + " IS NOT NULL";
+        Boolean any = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + tableName() + pending + ")", Boolean.class);
+        if (!Boolean.TRUE.equals(any)) {
+            return 0;
+        }
+        // "+geo_cell" 让 SQLite 不使用 geo_cell 索引，而是沿主键顺序扫描；
+        // 否则每批都要先取出所有 geo_cell 为空的行再按 id 排序
+        String select = "SELECT " + id + ", " + lgt + ", " + lat + " FROM " + tableName()
+                + " WHERE " + id + " > ? AND +" + geoCell + " IS NULL AND " + lgt + " IS NOT NULL AND " + lat + " IS NOT NULL"
+                + " ORDER BY " + id + " LIMIT ?";
+        String update = "UPDATE " + tableName() + " SET " + geoCell + " = ? WHERE " + id + " = ?";
+        long lastId = Long.MIN_VALUE;
+        long updated = 0;
+        while (true) {
+            List<Object[]> batch = jdbcTemplate.query(select, (rs, rowNum) -> new Object[]{
+                    GeoGrid.cellOf(rs.getFloat(2), rs.getFloat(3)), rs.getLong(1)}, lastId, BACKFILL_BATCH_SIZE);
+            if (batch.isEmpty()) {
+                break;
+            }
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(update, batch));
+            updated += batch.size();
+            lastId = (Long) batch.get(batch.size() - 1)[1];
+        }
+        if (updated > 0) {
+            logger.info("已为 {} 行历史帧数据补齐 geo_cell。", updated);
+        }
+        return updated;
+    }
+
+    /**
+     * 帧查询条件。所有条件都可为空。
+     */
+    @Getter
+    @Setter
+    public static class Criteria {
+        private Integer fromIndex;              // 帧索引下限 (含)
+        private Integer toIndex;                // 帧索引上限 (含)
+        private Instant fromTime;               // FATIME 下限 (含)
+        private Instant toTime;                 // FATIME 上限 (含)
+        private Map<String, Double> min = new LinkedHashMap<>(); // 特征属性名 -> 下限 (含)
+        private Map<String, Double> max = new LinkedHashMap<>(); // 特征属性名 -> 上限 (含)
+        private List<String> fields;            // 返回的属性，空表示默认列；"all" 表示全部特征列
+        private Integer limit;                  // 每页行数
+        private String cursor;                  // 上一页返回的 nextCursor
+    }
+
+    /**
+     * 一列的属性名、列名与 Java 类型。
+     */
+    @Getter
+    public static final class Column {
+        private final String property;
+        private final String name;
+        private final Class<?> type;
+
+        Column(String property, String name, Class<?> type) {
+            this.property = property;
+            this.name = name;
+            this.type = type;
+        }
+
+        public boolean isNumeric() {
+            return Number.class.isAssignableFrom(type) || (type.isPrimitive() && type != boolean.class);
+        }
+    }
+
+    /**
+     * 已校验、可直接执行的查询。由一个或多个按顺序执行的 SQL 段组成 (矩形查询每个网格区间一段)，
+     * 每段结果都按 (排序键, id) 升序且各段之间不重叠，依次执行直到取满一页。
+     */
+    public static final class FrameQuery {
+        private final String analysisId;
+        private final String sql;
+        private final List<long[]> ranges; // 矩形查询的 geo_cell 区间 (绑定到开头的两个参数)，其他查询为 null
+        private final Object[] args; // 不含区间参数与末尾的 LIMIT 参数
+        private final List<Column> projection; // 前两列固定为排序键与 id
+        private final int limit;
+
+        private FrameQuery(String analysisId, String sql, List<long[]> ranges, Object[] args,
+                           List<Column> projection, int limit) {
+            this.analysisId = analysisId;
+            this.sql = sql;
+            this.ranges = ranges;
+            this.args = args;
+            this.projection = projection;
+            this.limit = limit;
+        }
+    }
+
+    /**
+     * 校验条件并生成 SQL。在开始写响应之前调用，参数错误可以正常返回 400。
+     *
+     * @throws IllegalArgumentException 属性名、游标或取值范围无效
+     */
+    public FrameQuery prepare(String analysisId, Criteria criteria) {
+        return build(analysisId, null, criteria);
+    }
+
+    /**
+     * 跨分析按经纬度矩形查询帧。矩形先换算为每个纬度行一个 geo_cell 区间，各区间用同一条预编译语句
+     * 沿 (geoCell, id) 索引顺序扫描并按 lgt/lat 精确过滤，取满一页即停止；结果按 (geoCell, id) 做 keyset 分页。其余条件与 {@link #prepare} 相同。
+     *
+     * @param bbox       {minLgt, minLat, maxLgt, maxLat}
+     * @param analysisId 只查询该分析，为 null 时查询全部分析
+     * @throws IllegalArgumentException 范围或其他条件无效
+     */
+    public FrameQuery prepareSearch(double[] bbox, String analysisId, Criteria criteria) {
+        if (bbox == null || bbox.length != 4) {
+            throw new IllegalArgumentException("bbox 必须是 minLgt,minLat,maxLgt,maxLat 四个数。");
+        }
+        for (double v : bbox) {
+            if (!Double.isFinite(v)) {
+                throw new IllegalArgumentException("bbox 包含无效的数值。");
+            }
+        }
+        if (bbox[0] > bbox[2] || bbox[1] > bbox[3]) {
+            throw new IllegalArgumentException("bbox 的最小值不能大于最大值。");
+        }
+        return build(analysisId, bbox, criteria);
+    }
+
+    private FrameQuery build(String analysisId, double[] bbox, Criteria criteria) {
+        int limit = criteria.getLimit() == null ? DEFAULT_LIMIT : criteria.getLimit();
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit 必须在 1 到 " + MAX_LIMIT + " 之间。");
+        }
+        // 单个分析内按 (frameIndex, id) 分页；矩形查询按 (geoCell, id) 分页
+        Column sortKey = bbox != null ? column("geoCell") : column("frameIndex");
+        String key = sortKey.getName();
+        String id = column("id").getName();
+        String frameIndex = column("frameIndex").getName();
+        String faTime = column("faTime").getName();
+
+        List<Column> projection = new ArrayList<>();
+        projection.add(sortKey);
+        projection.add(column("id"));
+        if (bbox != null) {
+            projection.add(column("analysisId"));
+            projection.add(column("frameIndex"));
+        }
+        List<String> fields = criteria.getFields() == null || criteria.getFields().isEmpty()
+                ? DEFAULT_FIELDS : criteria.getFields();
+        if (fields.size() == 1 && "all".equalsIgnoreCase(fields.get(0))) {
+            for (Column c : columns().values()) {
+                if (!projection.contains(c) && !"analysisId".equals(c.getProperty())) {
+                    projection.add(c);
+                }
+            }
+        } else {
+            for (String field : fields) {
+                Column c = column(field.trim());
+                if (!projection.contains(c)) {
+                    projection.add(c);
+                }
+            }
+        }
+
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (analysisId != null) {
+            appendBound(conditions, args, column("analysisId").getName(), "=", analysisId);
+        }
+        if (bbox != null) {
+            appendBound(conditions, args, column("lgt").getName(), ">=", bbox[0]);
+            appendBound(conditions, args, column("lgt").getName(), "<=", bbox[2]);
+            appendBound(conditions, args, column("lat").getName(), ">=", bbox[1]);
+            appendBound(conditions, args, column("lat").getName(), "<=", bbox[3]);
+        }
+        appendBound(conditions, args, frameIndex, ">=", criteria.getFromIndex());
+        appendBound(conditions, args, frameIndex, "<=", criteria.getToIndex());
+        appendBound(conditions, args, faTime, ">=", criteria.getFromTime() == null ? null : Timestamp.from(criteria.getFromTime()));
+        appendBound(conditions, args, faTime, "<=", criteria.getToTime() == null ? null : Timestamp.from(criteria.getToTime()));
+        for (Map.Entry<String, Double> e : criteria.getMin().entrySet()) {
+            appendBound(conditions, args, numericColumn(e.getKey()).getName(), ">=", e.getValue());
+        }
+        for (Map.Entry<String, Double> e : criteria.getMax().entrySet()) {
+            appendBound(conditions, args, numericColumn(e.getKey()).getName(), "<=", e.getValue());
+        }
+
+        // keyset 分页：从上一页最后一行 (排序键, id) 之后继续
+        long[] cursor = null;
+        if (criteria.getCursor() != null && !criteria.getCursor().isEmpty()) {
+            cursor = parseCursor(criteria.getCursor());
+            conditions.add(key + " >= ? AND (" + key + " > ? OR " + id + " > ?)");
+            args.add(cursor[0]);
+            args.add(cursor[0]);
+            args.add(cursor[1]);
+        }
+
+        StringBuilder select = new StringBuilder("SELECT ");
+        for (int i = 0; i < projection.size(); i++) {
+            select.append(i == 0 ? "" : ", ").append(projection.get(i).getName());
+        }
+        select.append(" FROM ").append(tableName());
+        String order = " ORDER BY " + key + ", " + id + " LIMIT ?";
+
+        List<long[]> ranges = null;
+        if (bbox != null) {
+            // 每个网格区间单独一段：沿索引有序扫描，不需要对全部命中行排序
+            conditions.add(0, key + " BETWEEN ? AND ?");
+            ranges = new ArrayList<>();
+            for (long[] range : GeoGrid.cover(bbox[0], bbox[1], bbox[2], bbox[3])) {
+                if (cursor == null || range[1] >= cursor[0]) {
+                    ranges.add(range);
+                }
+            }
+        }
+        return new FrameQuery(analysisId, select + where(conditions) + order, ranges, args.toArray(), projection, limit);
+    }
+
+    private static String where(List<String> conditions) {
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    /**
+     * 执行查询并把结果写为 {"analysisId":..,"frames":[..],"count":n,"nextCursor":..}
+     * (矩形查询没有顶层 analysisId)。
+     */
+    public void stream(FrameQuery query, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        if (query.analysisId != null) {
+            gen.writeStringField("analysisId", query.analysisId);
+        }
+        gen.writeArrayFieldStart("frames");
+        long[] state = new long[3]; // [0] 已写行数, [1] 最后一行的排序键, [2] 最后一行的 id
+        boolean[] hasMore = new boolean[1];
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(query.sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    ps.setFetchSize(FETCH_SIZE);
+                    int segments = query.ranges == null ? 1 : query.ranges.size();
+                    for (int s = 0; s < segments && !hasMore[0]; s++) {
+                        int p = 1;
+                        if (query.ranges != null) {
+                            ps.setLong(p++, query.ranges.get(s)[0]);
+                            ps.setLong(p++, query.ranges.get(s)[1]);
+                        }
+                        for (Object arg : query.args) {
+                            ps.setObject(p++, arg);
+                        }
+                        ps.setLong(p, query.limit + 1 - state[0]); // 多取一行用于判断是否还有下一页
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                if (state[0] == query.limit) {
+                                    hasMore[0] = true;
+                                    break;
+                                }
+                                writeRow(gen, rs, query.projection);
+                                state[0]++;
+                                state[1] = rs.getLong(1);
+                                state[2] = rs.getLong(2);
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        gen.writeEndArray();
+        gen.writeNumberField("count", state[0]);
+        if (hasMore[0]) {
+            gen.writeStringField("nextCursor", state[1] + ":" + state[2]);
+        } else {
+            gen.writeNullField("nextCursor");
+        }
+        gen.writeEndObject();
+        gen.flush();
+    }
+
+    private static void writeRow(JsonGenerator gen, ResultSet rs, List<Column> projection) throws IOException, SQLException {
+        gen.writeStartObject();
+        for (int i = 0; i < projection.size(); i++) {
+            Column c = projection.get(i);
+            int index = i + 1;
+            gen.writeFieldName(c.getProperty());
+            Class<?> type = c.getType();
+            if (type == Float.class || type == float.class) {
+                float v = rs.getFloat(index);
+                if (rs.wasNull()) gen.writeNull(); else gen.writeNumber(v);
+            } else if (type == Double.class || type == double.class) {
+                double v = rs.getDouble(index);
+                if (rs.wasNull()) gen.writeNull(); else gen.writeNumber(v);
+            } else if (type == Integer.class || type == int.class || type == Short.class || type == short.class) {
+                int v = rs.getInt(index);
+                if (rs.wasNull()) gen.writeNull(); else gen.writeNumber(v);
+            } else if (type == Long.class || type == long.class) {
+                long v = rs.getLong(index);
+                if (rs.wasNull()) gen.writeNull(); else gen.writeNumber(v);
+            } else if (type == Instant.class) {
+                Timestamp v = rs.getTimestamp(index);
+                if (v == null) gen.writeNull(); else gen.writeString(v.toInstant().toString());
+            } else if (type == float[].class) {
+                Object v = rs.getObject(index);
+                if (v == null) {
+                    gen.writeNull();
+                } else {
+                    float[] values = v instanceof byte[] ? PackedFloats.unpack((byte[]) v) : PackedFloats.parseCsv(v.toString());
+                    gen.writeStartArray();
+                    for (float f : values) {
+                        gen.writeNumber(f);
+                    }
+                    gen.writeEndArray();
+                }
+            } else {
+                String v = rs.getString(index);
+                if (v == null) gen.writeNull(); else gen.writeString(v);
+            }
+        }
+        gen.writeEndObject();
+    }
+
+    private static void appendBound(List<String> conditions, List<Object> args, String column, String op, Object value) {
+        if (value != null) {
+            conditions.add(column + " " + op + " ?");
+            args.add(value);
+        }
+    }
+
+    private static long[] parseCursor(String cursor) {
+        int sep = cursor.indexOf(':');
+        try {
+            if (sep > 0) {
+                return new long[]{Long.parseLong(cursor.substring(0, sep)), Long.parseLong(cursor.substring(sep + 1))};
+            }
+        } catch (NumberFormatException e) {
+            // 落到下面统一报错
+        }
+        throw new IllegalArgumentException("无效的 cursor: " + cursor);
+    }
+
+    /**
+     * 按属性名 (不区分大小写) 查找列。
+     *
+     * @throws IllegalArgumentException 属性不存在
+     */
+    public Column column(String property) {
+        Column c = columns().get(property.toLowerCase(Locale.ROOT));
+        if (c == null) {
+            throw new IllegalArgumentException("未知的帧属性: " + property);
+        }
+        return c;
+    }
+
+    /**
+     * 按属性名查找数值列。
+     *
+     * @throws IllegalArgumentException 属性不存在或不是数值
+     */
+    public Column numericColumn(String property) {
+        Column c = column(property);
+        if (!c.isNumeric()) {
+            throw new IllegalArgumentException("帧属性不是数值: " + property);
+        }
+        return c;
+    }
+
+    /**
+     * @return 帧数据表的物理表名。
+     */
+    public String tableName() {
+        columns();
+        return tableName;
+    }
+
+    private Map<String, Column> columns() {
+        Map<String, Column> result = columns;
+        if (result == null) {
+            synchronized (this) {
+                result = columns;
+                if (result == null) {
+                    AbstractEntityPersister persister = (AbstractEntityPersister) entityManagerFactory
+                            .unwrap(SessionFactoryImplementor.class)
+                            .getMetamodel()
+                            .entityPersister(FrameFeature.class);
+                    result = new LinkedHashMap<>();
+                    result.put("id", new Column(persister.getIdentifierPropertyName(),
+                            persister.getIdentifierColumnNames()[0], Long.class));
+                    for (String property : persister.getPropertyNames()) {
+                        String[] names = persister.getPropertyColumnNames(property);
+                        if (names.length == 1) {
+                            Class<?> type = persister.getPropertyType(property).getReturnedClass();
+                            result.put(property.toLowerCase(Locale.ROOT), new Column(property, names[0], type));
+                        }
+                    }
+                    // 置信度对外只暴露为一个 float 数组: 新数据在 BLOB 列，历史数据在文本列，读取时取非空的一个
+                    Column blob = result.remove("confidencesblob");
+                    Column text = result.get("confidences");
+                    if (blob != null && text != null) {
+                        result.put("confidences", new Column(text.getProperty(),
+                                "COALESCE(" + blob.getName() + ", " + text.getName() + ")", float[].class));
+                    }
+                    tableName = persister.getTableName();
+                    columns = result = Collections.unmodifiableMap(result);
+                }
+            }
+        }
+        return result;
+    }
+}
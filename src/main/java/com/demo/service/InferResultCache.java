@@ -0,0 +1,398 @@
+package com.demo.service;
+
+import com.demo.config.ResultCacheProperties;
+import com.demo.service.jna.ImgProcessorCpp;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 单帧识别结果缓存。
+ * 键为 (文件 MD5, 行列数, 算法, 裁剪框, 配置指纹)，命中时直接返回结果，跳过图像转换和 C++ 调用。
+ * - 一级缓存在内存中，按字节预算做 LRU 淘汰。
+ * - 可选的磁盘二级缓存保存内存淘汰的条目，命中后重新提升到内存。
+ * 通过 {@link #stats()} 提供命中率等统计信息。
+ */
+@Service
+public class InferResultCache {
+    private static final Logger logger = LoggerFactory.getLogger(InferResultCache.class);
+
+    private static final int DISK_FORMAT_MAGIC = 0x49524331; // "IRC1"
+    private static final String DISK_SUFFIX = ".bin";
+    // 每个条目的固定开销估算 (对象头、引用、链表节点等)
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private final ResultCacheProperties properties;
+    private final ConfigService configService;
+
+    // 访问顺序的 LinkedHashMap 即 LRU 链表；所有访问都在 this 上同步
+    private final LinkedHashMap<Key, Entry> memory = new LinkedHashMap<>(256, 0.75f, true);
+    private long memoryBytes;
+
+    // 磁盘二级缓存索引: 文件名 -> 文件大小 (访问顺序)
+    private final LinkedHashMap<String, Long> diskIndex = new LinkedHashMap<>(256, 0.75f, true);
+    private long diskBytes;
+    private final Path diskDir;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong puts = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * 缓存键。裁剪框规范化为 "left,top,width,height"，无裁剪时为空字符串。
+     */
+    @Value
+    public static class Key {
+        String md5;
+        int rows;
+        int cols;
+        String algorithm;
+        String crop;
+        String configFingerprint;
+    }
+
+    public InferResultCache(ResultCacheProperties properties, ConfigService configService) {
+        this.properties = properties;
+        this.configService = configService;
+        this.diskDir = Paths.get(properties.getDisk().getDir());
+        if (properties.isEnabled() && properties.getDisk().isEnabled()) {
+            loadDiskIndex();
+        }
+    }
+
+    /**
+     * @return 是否启用缓存。
+     */
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 根据请求参数和当前配置构造缓存键。
+     */
+    public Key key(String md5, int rows, int cols, String algorithm, Map<String, Integer> cropCoordinates) {
+        String crop = "";
+        if (cropCoordinates != null && !cropCoordinates.isEmpty()) {
+            crop = cropCoordinates.get("left") + "," + cropCoordinates.get("top") + ","
+                    + cropCoordinates.get("width") + "," + cropCoordinates.get("height");
+        }
+        return new Key(md5.toLowerCase(), rows, cols, algorithm, crop, configService.getConfigFingerprint());
+    }
+
+    /**
+     * 查找缓存结果，依次查内存和磁盘。
+     */
+    public Optional<ImgProcessorCpp.SingleFrameResult> get(Key key) {
+        if (!properties.isEnabled()) {
+            return Optional.empty();
+        }
+        synchronized (this) {
+            Entry entry = memory.get(key);
+            if (entry != null) {
+                hits.incrementAndGet();
+                return Optional.of(entry.result);
+            }
+        }
+        if (properties.getDisk().isEnabled()) {
+            ImgProcessorCpp.SingleFrameResult fromDisk = readFromDisk(key);
+            if (fromDisk != null) {
+                diskHits.incrementAndGet();
+                putInMemory(key, fromDisk);
+                return Optional.of(fromDisk);
+            }
+        }
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    /**
+     * 缓存一个成功的处理结果。
+     */
+    public void put(Key key, ImgProcessorCpp.SingleFrameResult result) {
+        if (!properties.isEnabled() || result == null || !result.isSuccess()) {
+            return;
+        }
+        puts.incrementAndGet();
+        putInMemory(key, result);
+    }
+
+    private void putInMemory(Key key, ImgProcessorCpp.SingleFrameResult result) {
+        long weight = weigh(key, result);
+        if (weight > properties.getMaxBytes()) {
+            return;
+        }
+        List<Map.Entry<Key, Entry>> evicted = new ArrayList<>();
+        synchronized (this) {
+            Entry previous = memory.put(key, new Entry(result, weight));
+            if (previous != null) {
+                memoryBytes -= previous.weight;
+            }
+            memoryBytes += weight;
+            Iterator<Map.Entry<Key, Entry>> it = memory.entrySet().iterator();
+            while (memoryBytes > properties.getMaxBytes() && it.hasNext()) {
+                Map.Entry<Key, Entry> eldest = it.next();
+                it.remove();
+                memoryBytes -= eldest.getValue().weight;
+                evictions.incrementAndGet();
+                evicted.add(eldest);
+            }
+        }
+        // 磁盘写入放在锁外
+        if (properties.getDisk().isEnabled()) {
+            for (Map.Entry<Key, Entry> e : evicted) {
+                writeToDisk(e.getKey(), e.getValue().result);
+            }
+        }
+    }
+
+    /**
+     * 清空内存缓存 (磁盘缓存保留)。
+     */
+    public synchronized void clear() {
+        memory.clear();
+        memoryBytes = 0;
+    }
+
+    /**
+     * @return 缓存统计信息 (命中、未命中、淘汰次数和占用字节数)。
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.get();
+        long diskHitCount = diskHits.get();
+        long missCount = misses.get();
+        long total = hitCount + diskHitCount + missCount;
+        stats.put("enabled", properties.isEnabled());
+        stats.put("hits", hitCount);
+        stats.put("diskHits", diskHitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", total == 0 ? 0.0 : (double) (hitCount + diskHitCount) / total);
+        stats.put("puts", puts.get());
+        stats.put("evictions", evictions.get());
+        synchronized (this) {
+            stats.put("entries", memory.size());
+            stats.put("bytes", memoryBytes);
+        }
+        stats.put("maxBytes", properties.getMaxBytes());
+        synchronized (diskIndex) {
+            stats.put("diskEntries", diskIndex.size());
+            stats.put("diskBytes", diskBytes);
+        }
+        return stats;
+    }
+
+    private static long weigh(Key key, ImgProcessorCpp.SingleFrameResult result) {
+        long weight = ENTRY_OVERHEAD_BYTES;
+        weight += key.getMd5().length() + key.getAlgorithm().length() + key.getCrop().length()
+                + key.getConfigFingerprint().length();
+        if (result.getProcessedBase64() != null) {
+            weight += result.getProcessedBase64().length();
+        }
+        if (result.getResultArray() != null) {
+            weight += (long) result.getResultArray().length * Float.BYTES;
+        }
+        if (result.getMessage() != null) {
+            weight += result.getMessage().length() * 2L;
+        }
+        return weight;
+    }
+
+    // ---------------------------------------------------------------------
+    // 磁盘二级缓存
+    // ---------------------------------------------------------------------
+
+    private void loadDiskIndex() {
+        try {
+            Files.createDirectories(diskDir);
+            List<Path> files;
+            try (Stream<Path> stream = Files.list(diskDir)) {
+                files = stream.filter(p -> p.getFileName().toString().endsWith(DISK_SUFFIX))
+                        .sorted(Comparator.comparingLong(InferResultCache::lastModified))
+                        .collect(Collectors.toList());
+            }
+            synchronized (diskIndex) {
+                for (Path file : files) {
+                    long size = Files.size(file);
+                    diskIndex.put(file.getFileName().toString(), size);
+                    diskBytes += size;
+                }
+            }
+            logger.info("结果缓存磁盘目录: {}，已有 {} 个条目，共 {} 字节。", diskDir.toAbsolutePath(), files.size(), diskBytes);
+        } catch (IOException e) {
+            logger.warn("无法初始化结果缓存磁盘目录 {}: {}", diskDir, e.getMessage());
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class).lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private ImgProcessorCpp.SingleFrameResult readFromDisk(Key key) {
+        String name = fileName(key);
+        synchronized (diskIndex) {
+            if (diskIndex.get(name) == null) {
+                return null;
+            }
+        }
+        try (InputStream in = Files.newInputStream(diskDir.resolve(name));
+             DataInputStream data = new DataInputStream(in)) {
+            if (data.readInt() != DISK_FORMAT_MAGIC) {
+                return null;
+            }
+            boolean success = data.readBoolean();
+            int resultLength = data.readInt();
+            float[] resultArray = null;
+            int arrayLength = data.readInt();
+            if (arrayLength >= 0) {
+                resultArray = new float[arrayLength];
+                for (int i = 0; i < arrayLength; i++) {
+                    resultArray[i] = data.readFloat();
+                }
+            }
+            String message = readString(data);
+            String processedBase64 = readString(data);
+            return new ImgProcessorCpp.SingleFrameResult(success, processedBase64, resultArray, resultLength, message);
+        } catch (IOException e) {
+            logger.warn("读取结果缓存文件 {} 失败: {}", name, e.getMessage());
+            removeDiskEntry(name);
+            return null;
+        }
+    }
+
+    private void writeToDisk(Key key, ImgProcessorCpp.SingleFrameResult result) {
+        String name = fileName(key);
+        Path target = diskDir.resolve(name);
+        Path temp = diskDir.resolve(name + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp);
+                 DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out))) {
+                data.writeInt(DISK_FORMAT_MAGIC);
+                data.writeBoolean(result.isSuccess());
+                data.writeInt(result.getResultLength());
+                float[] resultArray = result.getResultArray();
+                data.writeInt(resultArray == null ? -1 : resultArray.length);
+                if (resultArray != null) {
+                    for (float v : resultArray) {
+                        data.writeFloat(v);
+                    }
+                }
+                writeString(data, result.getMessage());
+                writeString(data, result.getProcessedBase64());
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long size = Files.size(target);
+            List<String> expired = new ArrayList<>();
+            synchronized (diskIndex) {
+                Long previous = diskIndex.put(name, size);
+                diskBytes += size - (previous == null ? 0 : previous);
+                Iterator<Map.Entry<String, Long>> it = diskIndex.entrySet().iterator();
+                while (diskBytes > properties.getDisk().getMaxBytes() && it.hasNext()) {
+                    Map.Entry<String, Long> eldest = it.next();
+                    it.remove();
+                    diskBytes -= eldest.getValue();
+                    expired.add(eldest.getKey());
+                }
+            }
+            for (String file : expired) {
+                Files.deleteIfExists(diskDir.resolve(file));
+            }
+        } catch (IOException e) {
+            logger.warn("写入结果缓存文件 {} 失败: {}", name, e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // 忽略清理失败
+            }
+        }
+    }
+
+    private void removeDiskEntry(String name) {
+        synchronized (diskIndex) {
+            Long size = diskIndex.remove(name);
+            if (size != null) {
+                diskBytes -= size;
+            }
+        }
+        try {
+            Files.deleteIfExists(diskDir.resolve(name));
+        } catch (IOException ignored) {
+            // 忽略清理失败
+        }
+    }
+
+    private static String fileName(Key key) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            byte[] digest = sha.digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest) + DISK_SUFFIX;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前 JRE 不支持 SHA-256。", e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 内存缓存条目：结果及其估算的字节数。
+     */
+    private static final class Entry {
+        private final ImgProcessorCpp.SingleFrameResult result;
+        private final long weight;
+
+        Entry(ImgProcessorCpp.SingleFrameResult result, long weight) {
+            this.result = result;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.demo.service;
+
+import com.demo.config.JobProperties;
+import com.demo.dto.JobStatusResponse;
+import com.demo.dto.MultiFrameResultResponse;
+import com.demo.exception.ProcessException;
+import com.demo.service.jna.MultiFrameProcessorCpp;
+import com.demo.service.processor.MultiFrameProgressListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步多帧任务。
+ * 提交时在请求线程中把上传文件保存到临时目录 (MultipartFile 在请求结束后失效)，然后立即返回任务 ID；
+ * 处理核心调用、解析、持久化在专用线程池中执行。
+ * 每个任务的进度事件保存在任务中，并推送给订阅了 /sse/jobs/{jobId} 的客户端 (新订阅者会先收到已发生的事件)。
+ * 推送在任务锁之外进行，慢速的 SSE 客户端不会阻塞状态查询。
+ * 排队中的任务可以取消；已开始的任务不能中断原生调用，只能等待结束。
+ */
+@Service
+public class MultiFrameJobService {
+    private static final Logger logger = LoggerFactory.getLogger(MultiFrameJobService.class);
+
+    /**
+     * 任务状态。
+     */
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final MultiFrameProcessorCpp multiFrameProcessor;
+    private final JobProperties properties;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public MultiFrameJobService(MultiFrameProcessorCpp multiFrameProcessor, JobProperties properties) {
+        this.multiFrameProcessor = multiFrameProcessor;
+        this.properties = properties;
+        int threads = Math.max(1, properties.getThreads());
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, properties.getMaxQueued())), r -> {
+            Thread t = new Thread(r, "multi-frame-job-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 保存上传文件并提交任务。
+     *
+     * @return 任务 ID
+     * @throws IOException 保存上传文件失败时抛出
+     */
+    public String submit(List<MultipartFile> imageFiles, MultipartFile trackFile,
+                         String algorithmName, int mode) throws IOException {
+        purgeExpired();
+        MultiFrameProcessorCpp.StagedUpload staged =
+                multiFrameProcessor.stageUploadedFiles(imageFiles, trackFile, algorithmName, mode);
+        Job job = new Job(UUID.randomUUID().toString(), staged);
+        jobs.put(job.id, job);
+        job.publish(MultiFrameProgressListener.Stage.STAGED.name(), staged.getFileCount() + " 个文件");
+        try {
+            job.future = executor.submit(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            staged.close();
+            throw new ProcessException("多帧任务队列已满，请稍后再试。", e);
+        }
+        logger.info("多帧任务已提交: {} (文件数: {}, 算法: {}, 模式: {})",
+                job.id, staged.getFileCount(), algorithmName, mode);
+        return job.id;
+    }
+
+    /**
+     * @return 任务状态；任务不存在或已过期时为空。
+     */
+    public Optional<JobStatusResponse> status(String jobId) {
+        purgeExpired();
+        Job job = jobs.get(jobId);
+        return job == null ? Optional.empty() : Optional.of(job.toResponse());
+    }
+
+    /**
+     * 取消排队中的任务。
+     *
+     * @return 取消后的任务状态；任务不存在时为空
+     * @throws IllegalStateException 任务已开始或已结束时抛出
+     */
+    public Optional<JobStatusResponse> cancel(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+        synchronized (job) {
+            if (job.status != Status.QUEUED) {
+                throw new IllegalStateException("任务 " + jobId + " 当前状态为 " + job.status + "，只能取消排队中的任务。");
+            }
+            job.status = Status.CANCELLED;
+            job.finishedAt = LocalDateTime.now();
+            if (job.future != null) {
+                job.future.cancel(false);
+                executor.remove((Runnable) job.future);
+            }
+            job.staged.close();
+            job.record("cancelled", null);
+        }
+        job.deliver();
+        job.completeEmitters();
+        logger.info("多帧任务已取消: {}", jobId);
+        return Optional.of(job.toResponse());
+    }
+
+    /**
+     * 订阅任务的进度事件。已发生的事件会先补发；任务已结束时补发后立即关闭连接。
+     *
+     * @return SseEmitter；任务不存在时为空
+     */
+    public Optional<SseEmitter> subscribe(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> job.subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(throwable -> job.subscribers.remove(subscriber));
+        boolean finished;
+        synchronized (job) {
+            finished = job.status.isFinished();
+            if (!finished) {
+                job.subscribers.add(subscriber);
+            }
+        }
+        // 补发已发生的事件；与任务线程的推送共用订阅者的发送位置，事件不会重复或乱序
+        job.deliverTo(subscriber);
+        if (finished) {
+            subscriber.complete();
+        }
+        return Optional.of(emitter);
+    }
+
+    private void run(Job job) {
+        synchronized (job) {
+            if (job.status != Status.QUEUED) {
+                return;
+            }
+            job.status = Status.RUNNING;
+            job.startedAt = LocalDateTime.now();
+        }
+        logger.info("多帧任务开始执行: {}", job.id);
+        try (MultiFrameProcessorCpp.StagedUpload staged = job.staged) {
+            MultiFrameResultResponse result = multiFrameProcessor.processStaged(staged,
+                    (stage, detail) -> job.publish(stage.name(), detail));
+            synchronized (job) {
+                job.result = result;
+                job.status = Status.SUCCEEDED;
+                job.finishedAt = LocalDateTime.now();
+                job.record("completed", result.getResultPath());
+            }
+            job.deliver();
+            job.completeEmitters();
+            logger.info("多帧任务完成: {}，结果输出目录: {}", job.id, result.getResultPath());
+        } catch (Exception e) {
+            logger.error("多帧任务失败: {}: {}", job.id, e.getMessage(), e);
+            synchronized (job) {
+                job.error = e.getMessage();
+                job.status = Status.FAILED;
+                job.finishedAt = LocalDateTime.now();
+                job.record("failed", e.getMessage());
+            }
+            job.deliver();
+            job.completeEmitters();
+        }
+    }
+
+    /**
+     * 移除超过保留时间的已结束任务。
+     */
+    private void purgeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(properties.getRetentionMinutes());
+        jobs.values().removeIf(job -> {
+            LocalDateTime finishedAt = job.finishedAt;
+            return finishedAt != null && finishedAt.isBefore(cutoff);
+        });
+    }
+
+    private static void send(SseEmitter emitter, JobStatusResponse.JobEvent event) throws IOException {
+        emitter.send(SseEmitter.event()
+                .id(Long.toString(event.getSeq()))
+                .name(event.getStage())
+                .data(event, MediaType.APPLICATION_JSON));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        for (Job job : jobs.values()) {
+            synchronized (job) {
+                if (job.status == Status.QUEUED) {
+                    job.staged.close();
+                }
+            }
+            job.completeEmitters();
+        }
+    }
+
+    /**
+     * 一个多帧任务。状态与事件列表的修改都在任务对象的锁内进行；向 SSE 客户端发送在锁外进行。
+     */
+    private static final class Job {
+        private final String id;
+        private final MultiFrameProcessorCpp.StagedUpload staged;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private final List<JobStatusResponse.JobEvent> events = new ArrayList<>();
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private volatile Status status = Status.QUEUED;
+        private volatile Future<?> future;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private MultiFrameResultResponse result;
+        private String error;
+
+        Job(String id, MultiFrameProcessorCpp.StagedUpload staged) {
+            this.id = id;
+            this.staged = staged;
+        }
+
+        /**
+         * 记录事件 (不发送)。可在修改状态的同一个锁内调用，使状态与事件一致。
+         */
+        synchronized void record(String stage, String detail) {
+            events.add(new JobStatusResponse.JobEvent(
+                    events.size() + 1, stage.toLowerCase(Locale.ROOT), detail, LocalDateTime.now()));
+        }
+
+        /**
+         * 记录事件并推送给当前的订阅者。调用时不能持有任务锁。
+         */
+        void publish(String stage, String detail) {
+            record(stage, detail);
+            deliver();
+        }
+
+        /**
+         * 把尚未发送的事件推送给所有订阅者；发送失败的订阅者被移除。
+         */
+        void deliver() {
+            List<JobStatusResponse.JobEvent> snapshot;
+            synchronized (this) {
+                snapshot = new ArrayList<>(events);
+            }
+            for (Subscriber subscriber : subscribers) {
+                deliver(subscriber, snapshot);
+            }
+        }
+
+        void deliverTo(Subscriber subscriber) {
+            List<JobStatusResponse.JobEvent> snapshot;
+            synchronized (this) {
+                snapshot = new ArrayList<>(events);
+            }
+            deliver(subscriber, snapshot);
+        }
+
+        private void deliver(Subscriber subscriber, List<JobStatusResponse.JobEvent> snapshot) {
+            if (!subscriber.send(snapshot)) {
+                subscribers.remove(subscriber);
+            }
+        }
+
+        void completeEmitters() {
+            for (Subscriber subscriber : subscribers) {
+                subscribers.remove(subscriber);
+                subscriber.complete();
+            }
+        }
+
+        synchronized JobStatusResponse toResponse() {
+            return new JobStatusResponse(id, status.name(), staged.getAlgorithmName(), staged.getMode(),
+                    staged.getFileCount(), submittedAt, startedAt, finishedAt,
+                    new ArrayList<>(events), result, error);
+        }
+    }
+
+    /**
+     * 一个 SSE 订阅者及其已发送的事件数。发送在订阅者自己的锁内进行，
+     * 补发与实时推送交替时每个事件仍按顺序只发送一次。
+     */
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private int sent;
+        private boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * 发送 events 中尚未发送的部分。
+         *
+         * @return 是否仍然可用；发送失败时关闭连接并返回 false
+         */
+        synchronized boolean send(List<JobStatusResponse.JobEvent> events) {
+            if (closed) {
+                return false;
+            }
+            try {
+                while (sent < events.size()) {
+                    MultiFrameJobService.send(emitter, events.get(sent));
+                    sent++;
+                }
+                return true;
+            } catch (Exception e) {
+                logger.warn("向 SSE 客户端推送任务事件失败: {}，已移除该客户端。", e.getMessage());
+                closed = true;
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+
+        synchronized void complete() {
+            if (!closed) {
+                closed = true;
+                emitter.complete();
+            }
+        }
+    }
+}
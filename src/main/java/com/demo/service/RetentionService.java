@@ -0,0 +1,305 @@
+package com.demo.service;
+
+import com.demo.config.RetentionProperties;
+import com.demo.entity.AnalysisCatalog;
+import com.demo.repository.AnalysisCatalogRepository;
+import com.demo.service.jna.MultiFrameProcessorCpp;
+import com.demo.util.AppPaths;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * result 目录与 SQLite 数据的保留策略。
+ * 按固定间隔执行：
+ * 1. 按保留天数、总大小、个数选出过期的分析 (从最新的分析开始累计，超出任一限制的都过期)，
+ *    分批删除其帧数据，再删除或归档其目录与 SQL 文件，最后移除目录记录；
+ * 2. 轮转过大的 statistics.sql；
+ * 3. 没有正在执行的单帧/多帧处理时，执行一次增量 VACUUM 归还空闲页。
+ * 三个步骤都只在 app.retention.enabled=true 时执行；
+ * 数据库切换为 auto_vacuum=INCREMENTAL (需要一次完整的阻塞 VACUUM) 另需 convert-auto-vacuum=true。
+ */
+@Service
+public class RetentionService {
+    private static final Logger logger = LoggerFactory.getLogger(RetentionService.class);
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    private final RetentionProperties properties;
+    private final AnalysisCatalogRepository catalogRepository;
+    private final FeaturePersistenceService featurePersistenceService;
+    private final MultiFrameProcessorCpp multiFrameProcessorCpp;
+    private final SingleFrameService singleFrameService;
+    private final FrameQueryService frameQueryService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong removedAnalyses = new AtomicLong();
+    private final AtomicLong removedRows = new AtomicLong();
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+    private final AtomicLong vacuumedPages = new AtomicLong();
+    private volatile Instant lastRunAt;
+    private volatile boolean vacuumSkipLogged;
+
+    public RetentionService(RetentionProperties properties,
+                            AnalysisCatalogRepository catalogRepository,
+                            FeaturePersistenceService featurePersistenceService,
+                            MultiFrameProcessorCpp multiFrameProcessorCpp,
+                            SingleFrameService singleFrameService,
+                            FrameQueryService frameQueryService,
+                            JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.catalogRepository = catalogRepository;
+        this.featurePersistenceService = featurePersistenceService;
+        this.multiFrameProcessorCpp = multiFrameProcessorCpp;
+        this.singleFrameService = singleFrameService;
+        this.frameQueryService = frameQueryService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelayString = "${app.retention.interval-ms:3600000}",
+            fixedDelayString = "${app.retention.interval-ms:3600000}")
+    public void scheduledRun() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            runOnce();
+        } catch (Exception e) {
+            logger.error("保留策略执行失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 执行一轮保留策略。未启用 (app.retention.enabled=false) 时不做任何事。
+     */
+    public synchronized void runOnce() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        runs.incrementAndGet();
+        lastRunAt = Instant.now();
+
+        int removed = 0;
+        for (AnalysisCatalog entry : selectExpired()) {
+            try {
+                evict(entry);
+                removed++;
+            } catch (Exception e) {
+                // 目录记录保留，下一轮重试
+                logger.error("清理分析 {} 失败: {}", entry.getAnalysisId(), e.getMessage(), e);
+            }
+        }
+
+        try {
+            featurePersistenceService.rotateStatisticsSql(properties.getStatisticsMaxBytes(), properties.getStatisticsKeep());
+        } catch (IOException e) {
+            logger.error("轮转 statistics.sql 失败: {}", e.getMessage(), e);
+        }
+
+        if (properties.getVacuumPages() > 0 && isIdle()) {
+            incrementalVacuum(properties.getVacuumPages());
+        }
+        logger.info("保留策略执行完成: 清理 {} 个分析，耗时 {} ms。", removed, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * 按创建时间从新到旧遍历目录，第 maxCount 个之后、早于 maxAgeDays、或累计大小超过 maxTotalBytes 的分析过期。
+     */
+    List<AnalysisCatalog> selectExpired() {
+        List<AnalysisCatalog> all = catalogRepository.findAll(Sort.by(Sort.Direction.DESC, "createdAt"));
+        Instant cutoff = properties.getMaxAgeDays() > 0
+                ? Instant.now().minus(Duration.ofDays(properties.getMaxAgeDays()))
+                : null;
+        List<AnalysisCatalog> expired = new ArrayList<>();
+        long totalBytes = 0;
+        for (int i = 0; i < all.size(); i++) {
+            AnalysisCatalog entry = all.get(i);
+            totalBytes += bytesOf(entry);
+            boolean overCount = properties.getMaxCount() > 0 && i >= properties.getMaxCount();
+            boolean tooOld = cutoff != null && entry.getCreatedAt() != null && entry.getCreatedAt().isBefore(cutoff);
+            boolean overSize = properties.getMaxTotalBytes() > 0 && totalBytes > properties.getMaxTotalBytes();
+            if (overCount || tooOld || overSize) {
+                expired.add(entry);
+            }
+        }
+        return expired;
+    }
+
+    private void evict(AnalysisCatalog entry) throws IOException {
+        String analysisId = entry.getAnalysisId();
+        long rows = deleteFrameRows(analysisId);
+
+        Path resultRoot = AppPaths.resultRoot();
+        List<Path> targets = new ArrayList<>();
+        if (entry.getImgDir() != null) {
+            targets.add(Paths.get(entry.getImgDir()));
+        }
+        if (entry.getFeatureDir() != null) {
+            targets.add(Paths.get(entry.getFeatureDir()));
+        }
+        targets.add(resultRoot.resolve(analysisId + "_db_import.sql"));
+        targets.add(resultRoot.resolve(analysisId + "_frame_data.sql"));
+
+        if (properties.getAction() == RetentionProperties.Action.ARCHIVE) {
+            Path archiveDir = resultRoot.resolve(properties.getArchiveDir()).resolve(analysisId);
+            Files.createDirectories(archiveDir);
+            for (Path target : targets) {
+                if (Files.exists(target)) {
+                    Files.move(target, archiveDir.resolve(target.getFileName()));
+                }
+            }
+        } else {
+            for (Path target : targets) {
+                deleteTree(target);
+            }
+            reclaimedBytes.addAndGet(bytesOf(entry));
+        }
+        catalogRepository.deleteById(analysisId);
+        removedAnalyses.incrementAndGet();
+        logger.info("已{}分析 {} (删除 {} 行帧数据)。",
+                properties.getAction() == RetentionProperties.Action.ARCHIVE ? "归档" : "删除", analysisId, rows);
+    }
+
+    /**
+     * 按帧号分批删除一个分析的帧数据：每批先取出剩余帧中第 batchSize 小的帧号，再在一个短事务中删除不超过该帧号的行，
+     * 避免一次大 DELETE 长时间持有 SQLite 写锁而阻塞正在写入的处理请求。
+     * 两条语句都只在 (analysis_id, frame_index) 索引 (IDX_FRAME_ANALYSIS_INDEX) 上做范围扫描，每批的开销与批大小成正比。
+     * 表名与列名取自 Hibernate 映射 ({@link FrameQueryService})。
+     */
+    private long deleteFrameRows(String analysisId) {
+        int batchSize = Math.max(properties.getDeleteBatchSize(), 1);
+        String table = frameQueryService.tableName();
+        String analysis = frameQueryService.column("analysisId").getName();
+        String frameIndex = frameQueryService.column("frameIndex").getName();
+        String nextBound = "SELECT MAX(" + frameIndex + ") FROM (SELECT " + frameIndex + " FROM " + table
+                + " WHERE " + analysis + " = ? ORDER BY " + frameIndex + " LIMIT ?)";
+        String delete = "DELETE FROM " + table + " WHERE " + analysis + " = ? AND " + frameIndex + " <= ?";
+        long deleted = 0;
+        while (true) {
+            Integer bound = jdbcTemplate.queryForObject(nextBound, Integer.class, analysisId, batchSize);
+            if (bound == null) {
+                break;
+            }
+            Integer count = transactionTemplate.execute(status -> jdbcTemplate.update(delete, analysisId, bound));
+            if (count == null || count == 0) {
+                break;
+            }
+            deleted += count;
+        }
+        removedRows.addAndGet(deleted);
+        return deleted;
+    }
+
+    private boolean isIdle() {
+        return multiFrameProcessorCpp.inFlightCount() == 0 && singleFrameService.inFlightCount() == 0;
+    }
+
+    /**
+     * 增量 VACUUM。数据库尚未启用 auto_vacuum=INCREMENTAL 时，只有 convert-auto-vacuum=true
+     * 才切换并执行一次完整 VACUUM (阻塞所有读写，只需一次)；否则跳过。
+     */
+    private void incrementalVacuum(int pages) {
+        try {
+            Integer mode = jdbcTemplate.queryForObject("PRAGMA auto_vacuum", Integer.class);
+            if (mode == null || mode != AUTO_VACUUM_INCREMENTAL) {
+                if (!properties.isConvertAutoVacuum()) {
+                    if (!vacuumSkipLogged) {
+                        vacuumSkipLogged = true;
+                        logger.info("SQLite 未启用 auto_vacuum=INCREMENTAL，跳过增量 VACUUM "
+                                + "(设置 app.retention.convert-auto-vacuum=true 以切换，需要一次完整 VACUUM)。");
+                    }
+                    return;
+                }
+                logger.info("切换 SQLite auto_vacuum 为 INCREMENTAL 并执行一次完整 VACUUM...");
+                jdbcTemplate.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                jdbcTemplate.execute("VACUUM");
+            }
+            Integer before = jdbcTemplate.queryForObject("PRAGMA freelist_count", Integer.class);
+            if (before == null || before == 0) {
+                return;
+            }
+            // sqlite-jdbc 执行 PRAGMA 时只 step 一次，每次只归还一页，因此在同一连接上重复执行
+            int steps = Math.min(pages, before);
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    for (int i = 0; i < steps; i++) {
+                        statement.execute("PRAGMA incremental_vacuum(1)");
+                    }
+                }
+                return null;
+            });
+            Integer after = jdbcTemplate.queryForObject("PRAGMA freelist_count", Integer.class);
+            int freed = before - (after != null ? after : 0);
+            vacuumedPages.addAndGet(freed);
+            logger.info("增量 VACUUM 归还 {} 页 (剩余空闲页 {})。", freed, after);
+        } catch (Exception e) {
+            logger.warn("增量 VACUUM 失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return 保留策略状态：是否启用、执行次数、上次执行时间、累计清理的分析数/行数/字节数、累计 VACUUM 页数。
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("action", properties.getAction());
+        stats.put("runs", runs.get());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("removedAnalyses", removedAnalyses.get());
+        stats.put("removedRows", removedRows.get());
+        stats.put("reclaimedBytes", reclaimedBytes.get());
+        stats.put("vacuumedPages", vacuumedPages.get());
+        return stats;
+    }
+
+    private static long bytesOf(AnalysisCatalog entry) {
+        return (entry.getImgBytes() != null ? entry.getImgBytes() : 0)
+                + (entry.getFeatureBytes() != null ? entry.getFeatureBytes() : 0);
+    }
+
+    private static void deleteTree(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.deleteIfExists(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException exc) throws IOException {
+                Files.deleteIfExists(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
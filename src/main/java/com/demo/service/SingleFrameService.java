@@ -0,0 +1,172 @@
+package com.demo.service;
+
+import com.demo.config.ImageProperties;
+import com.demo.service.jna.ImgProcessorCpp;
+import com.demo.service.processor.FrameProcessor;
+import com.demo.util.ConvertDatToImg;
+import com.demo.util.CropImg;
+import com.demo.util.PngEncoder;
+import com.demo.util.SingleFlight;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 单帧识别流程。
+ * 分为两个阶段，供 /api/infer 顺序调用，也供批量接口在不同线程池中流水线执行：
+ * 1. {@link #prepare}：转换、裁剪并编码 (CPU 密集)。
+ * 2. {@link #process}：调用核心处理并写入结果缓存 (原生调用)。
+ * {@link #infer} 在两个阶段外加上结果缓存和相同请求的并发合并。
+ */
+@Service
+public class SingleFrameService {
+    private static final Logger logger = LoggerFactory.getLogger(SingleFrameService.class);
+
+    private final FrameProcessor frameProcessor;
+    private final InferResultCache resultCache;
+    private final ImageProperties imageProperties;
+    // 相同单帧请求 (键同结果缓存) 的并发合并
+    private final SingleFlight<InferResultCache.Key, ImgProcessorCpp.SingleFrameResult> flights = new SingleFlight<>();
+
+    public SingleFrameService(FrameProcessor frameProcessor,
+                              InferResultCache resultCache,
+                              ImageProperties imageProperties) {
+        this.frameProcessor = frameProcessor;
+        this.resultCache = resultCache;
+        this.imageProperties = imageProperties;
+    }
+
+    /**
+     * 第一阶段的输出：传递给核心处理的原图与裁剪图。
+     */
+    public static final class PreparedFrame {
+        private final InferResultCache.Key key;
+        private final Map<String, Integer> cropCoordinates;
+        private final String originalBase64;
+        private final String processedBase64;
+
+        PreparedFrame(InferResultCache.Key key, Map<String, Integer> cropCoordinates,
+                      String originalBase64, String processedBase64) {
+            this.key = key;
+            this.cropCoordinates = cropCoordinates;
+            this.originalBase64 = originalBase64;
+            this.processedBase64 = processedBase64;
+        }
+
+        public InferResultCache.Key getKey() { return key; }
+    }
+
+    /**
+     * 构造结果缓存键。
+     */
+    public InferResultCache.Key key(String md5, int rows, int cols, String algorithm, Map<String, Integer> cropCoordinates) {
+        return resultCache.key(md5, rows, cols, algorithm, cropCoordinates);
+    }
+
+    /**
+     * 查询结果缓存。
+     */
+    public Optional<ImgProcessorCpp.SingleFrameResult> cached(InferResultCache.Key key) {
+        return resultCache.get(key);
+    }
+
+    /**
+     * 完整的单帧识别：查缓存，未命中时合并并发的相同请求，执行两个阶段。
+     *
+     * @param upload          已读取的上传文件
+     * @param filename        原始文件名
+     * @param rows            图像行数
+     * @param cols            图像列数
+     * @param cropCoordinates 裁剪坐标，可为 null
+     * @param algorithm       算法名称
+     * @return 处理结果
+     */
+    public ImgProcessorCpp.SingleFrameResult infer(UploadIngestService.IngestedFile upload, String filename,
+                                                   int rows, int cols, Map<String, Integer> cropCoordinates,
+                                                   String algorithm) throws IOException {
+        // 相同文件、算法、裁剪框和配置的结果直接从缓存返回，跳过转换和 C++ 调用
+        InferResultCache.Key key = key(upload.getMd5(), rows, cols, algorithm, cropCoordinates);
+        Optional<ImgProcessorCpp.SingleFrameResult> cached = resultCache.get(key);
+        if (cached.isPresent()) {
+            logger.info("单帧识别结果命中缓存: {}", filename);
+            return cached.get();
+        }
+        // 并发的相同请求只执行一次，其余请求等待同一个结果
+        return flights.execute(key, () -> process(prepare(key, upload, filename, cropCoordinates)));
+    }
+
+    /**
+     * 第一阶段：转换、裁剪并编码。
+     * 只转换一次：原图与裁剪图共享同一个灰度栅格，各自只编码一次。
+     */
+    public PreparedFrame prepare(InferResultCache.Key key, UploadIngestService.IngestedFile upload, String filename,
+                                 Map<String, Integer> cropCoordinates) throws IOException {
+        BufferedImage image = ConvertDatToImg.convertToImage(upload.getData(), filename, key.getRows(), key.getCols());
+        if (image == null) {
+            throw new RuntimeException("文件转换处理失败。可能由于行列数与.dat文件不匹配。");
+        }
+
+        PngEncoder.Options handoffPng = imageProperties.getPng().getHandoff();
+        String originalBase64ForCpp = PngEncoder.encodeToBase64(image, handoffPng);
+        String processedBase64ForCpp = originalBase64ForCpp;
+
+        if (cropCoordinates != null && !cropCoordinates.isEmpty()) {
+            logger.info("进行图像裁剪: {}", cropCoordinates);
+            processedBase64ForCpp = PngEncoder.encodeToBase64(CropImg.crop(image, cropCoordinates), handoffPng);
+        }
+        return new PreparedFrame(key, cropCoordinates, originalBase64ForCpp, processedBase64ForCpp);
+    }
+
+    /**
+     * 第二阶段：调用核心处理，并将成功的结果写入缓存。
+     */
+    public ImgProcessorCpp.SingleFrameResult process(PreparedFrame frame) {
+        String algorithm = frame.key.getAlgorithm();
+        logger.info("调用服务进行单帧处理，算法: {}", algorithm);
+        ImgProcessorCpp.SingleFrameResult result = frameProcessor.processSingleFrame(
+                frame.originalBase64, frame.processedBase64, frame.cropCoordinates, algorithm);
+        resultCache.put(frame.key, result);
+        return result;
+    }
+
+    /**
+     * 构造单帧识别的响应体 (与 /api/infer 的响应字段一致)。
+     * @param result 单帧处理结果 (可能来自缓存)
+     * @param algorithm 算法名称
+     * @return 响应 Map
+     */
+    public Map<String, Object> buildResponse(ImgProcessorCpp.SingleFrameResult result, String algorithm) {
+        // 如果 processImage 失败，它会抛出异常，根本不会执行到这里
+        Map<String, Object> responseMap = new HashMap<>();
+        responseMap.put("success", true);
+        responseMap.put("processedImage", result.getProcessedBase64());
+        responseMap.put("algorithm", algorithm);
+        responseMap.put("timestamp", new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
+        responseMap.put("result", result.getResultArray());
+        responseMap.put("result_length", result.getResultLength());
+        responseMap.put("message", result.getMessage() != null ? result.getMessage() : "处理成功");
+        return responseMap;
+    }
+
+    /**
+     * @return 累计被合并 (没有重复执行) 的单帧请求数。
+     */
+    public long coalescedCount() {
+        return flights.coalescedCount();
+    }
+
+    /**
+     * @return 当前正在执行的单帧请求数 (不含等待合并的请求)。
+     */
+    public int inFlightCount() {
+        return flights.inFlightCount();
+    }
+}
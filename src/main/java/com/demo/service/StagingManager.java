@@ -0,0 +1,238 @@
+package com.demo.service;
+
+import com.demo.config.StagingProperties;
+import com.demo.exception.ProcessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 上传文件暂存目录管理。
+ * - 暂存目录统一分配在 app.staging.root 下，按上传文件大小预留配额；配额用尽时新的上传排队等待。
+ * - 释放是异步的：目录先被重命名为 .trash-* (同一文件系统内的原子操作)，再由后台清理线程删除，删除完成后归还配额。
+ *   请求线程不再等待整棵目录树的删除。
+ * - 启动时清理上次进程残留的目录 (例如 JVM 在处理中途退出)。
+ */
+@Service
+public class StagingManager {
+    private static final Logger logger = LoggerFactory.getLogger(StagingManager.class);
+    private static final String TRASH_PREFIX = ".trash-";
+
+    private final StagingProperties properties;
+    private final Path root;
+    private final BlockingQueue<Reclaim> reclaimQueue = new LinkedBlockingQueue<>();
+    private final Thread reaper;
+    private final AtomicLong reclaimedDirs = new AtomicLong();
+    // 已预留 (包括等待删除) 的字节数，受 this 的锁保护
+    private long reservedBytes;
+    private int waiting;
+
+    public StagingManager(StagingProperties properties) {
+        this.properties = properties;
+        String configured = properties.getRoot();
+        this.root = (configured == null || configured.trim().isEmpty()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "demo-staging")
+                : Paths.get(configured)).toAbsolutePath().normalize();
+        this.reaper = new Thread(this::reap, "staging-reaper");
+        this.reaper.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(root);
+        reaper.start();
+        // 启动时目录中的所有内容都是上次进程的残留，交给清理线程删除 (不计入配额，也不阻塞启动)
+        int orphans = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
+            for (Path orphan : stream) {
+                reclaimQueue.add(new Reclaim(orphan, 0));
+                orphans++;
+            }
+        }
+        logger.info("暂存目录: {} (配额: {} 字节)，启动时发现 {} 个残留目录，已交给后台清理。",
+                root, properties.getQuotaBytes(), orphans);
+    }
+
+    /**
+     * 分配一个新的暂存目录，并为其预留 expectedBytes 字节的配额。
+     * 配额不足时等待其他暂存目录释放，最多等待 app.staging.acquire-timeout-ms。
+     *
+     * @param prefix        目录名前缀
+     * @param expectedBytes 预计写入的字节数 (上传文件大小之和)
+     * @return 暂存目录租约，用完后关闭以 (异步) 删除目录并归还配额
+     * @throws IOException 创建目录失败时抛出
+     */
+    public Lease allocate(String prefix, long expectedBytes) throws IOException {
+        long bytes = Math.max(0, expectedBytes);
+        reserve(bytes);
+        try {
+            Path dir = Files.createDirectory(root.resolve(prefix + UUID.randomUUID()));
+            return new Lease(dir, bytes);
+        } catch (IOException | RuntimeException e) {
+            release(bytes);
+            throw e;
+        }
+    }
+
+    private synchronized void reserve(long bytes) {
+        long quota = properties.getQuotaBytes();
+        if (quota <= 0) {
+            reservedBytes += bytes;
+            return;
+        }
+        if (bytes > quota) {
+            throw new ProcessException("上传文件总大小 " + bytes + " 字节超过暂存配额 " + quota + " 字节。");
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getAcquireTimeoutMs());
+        if (reservedBytes + bytes > quota) {
+            logger.info("暂存空间不足 (已预留 {} / {} 字节)，上传排队等待 {} 字节。", reservedBytes, quota, bytes);
+        }
+        waiting++;
+        try {
+            while (reservedBytes + bytes > quota) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    throw new ProcessException("等待暂存空间超时 (已预留 " + reservedBytes + " / " + quota + " 字节)，请稍后再试。");
+                }
+                try {
+                    wait(remainingMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ProcessException("等待暂存空间时被中断。", e);
+                }
+            }
+        } finally {
+            waiting--;
+        }
+        reservedBytes += bytes;
+    }
+
+    private synchronized void release(long bytes) {
+        reservedBytes -= bytes;
+        notifyAll();
+    }
+
+    /**
+     * @return 暂存状态：根目录、配额、已预留字节数、等待中的请求数、待删除目录数、累计删除目录数。
+     */
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("root", root.toString());
+        stats.put("quotaBytes", properties.getQuotaBytes());
+        stats.put("reservedBytes", reservedBytes);
+        stats.put("waiting", waiting);
+        stats.put("pendingReclaims", reclaimQueue.size());
+        stats.put("reclaimedDirs", reclaimedDirs.get());
+        return stats;
+    }
+
+    private void reap() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Reclaim reclaim;
+            try {
+                reclaim = reclaimQueue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            try {
+                deleteTree(reclaim.dir);
+                reclaimedDirs.incrementAndGet();
+            } catch (IOException e) {
+                logger.error("删除暂存目录 {} 失败: {}", reclaim.dir, e.getMessage(), e);
+            } finally {
+                release(reclaim.bytes);
+            }
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.deleteIfExists(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException exc) throws IOException {
+                Files.deleteIfExists(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reaper.interrupt();
+        // 未删除的目录留给下次启动时清理
+    }
+
+    /**
+     * 暂存目录租约。关闭时目录被重命名后交给后台线程删除，可重复关闭。
+     */
+    public final class Lease implements AutoCloseable {
+        private final Path dir;
+        private final long bytes;
+        private boolean closed;
+
+        private Lease(Path dir, long bytes) {
+            this.dir = dir;
+            this.bytes = bytes;
+        }
+
+        /**
+         * @return 暂存目录的绝对路径。
+         */
+        public Path getDir() {
+            return dir;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            Path target = dir;
+            try {
+                // 先移出原路径，之后在同名路径上的任何操作都不会看到残留文件
+                target = Files.move(dir, root.resolve(TRASH_PREFIX + dir.getFileName()));
+            } catch (IOException e) {
+                logger.debug("无法重命名暂存目录 {}，直接删除: {}", dir, e.getMessage());
+            }
+            reclaimQueue.add(new Reclaim(target, bytes));
+        }
+    }
+
+    private static final class Reclaim {
+        private final Path dir;
+        private final long bytes;
+
+        Reclaim(Path dir, long bytes) {
+            this.dir = dir;
+            this.bytes = bytes;
+        }
+    }
+}
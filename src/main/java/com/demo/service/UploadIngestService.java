@@ -0,0 +1,263 @@
+package com.demo.service;
+
+import com.demo.config.UploadProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 上传文件读取服务。
+ * 从 MultipartFile 的输入流只读取一次，在同一遍中计算 MD5：
+ * - 不超过 app.upload.pooled-buffer-max-bytes 的文件读入共享池中的直接缓冲区。
+ *   池中最多 app.upload.pool-size 个缓冲区，直接内存总量不超过 pool-size × pooled-buffer-max-bytes；
+ *   池已用尽时最多等待 app.upload.pool-wait-ms。
+ * - 更大的文件，或等待超时时，按块流式写入临时文件后以只读方式内存映射；
+ *   关闭时先解除映射再删除临时文件 (Windows 上映射中的文件无法删除)。
+ * 两种方式下每个请求占用的堆内存都只有一个固定大小的拷贝块，与文件大小无关。
+ */
+@Service
+public class UploadIngestService {
+    private static final Logger logger = LoggerFactory.getLogger(UploadIngestService.class);
+
+    /**
+     * sun.misc.Unsafe#invokeCleaner，用于在关闭时立即解除内存映射；不可用时为 null，映射随 GC 释放。
+     */
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.warn("无法获取 Unsafe.invokeCleaner，上传临时文件的内存映射将在 GC 时释放。", e);
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final UploadProperties uploadProperties;
+    private final Semaphore permits;                // 可借出的缓冲区个数
+    private final BlockingQueue<ByteBuffer> idle;   // 已分配且空闲的缓冲区
+
+    public UploadIngestService(UploadProperties uploadProperties) {
+        this.uploadProperties = uploadProperties;
+        int poolSize = Math.max(0, uploadProperties.getPoolSize());
+        this.permits = new Semaphore(poolSize);
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+    }
+
+    /**
+     * 读取上传文件并计算 MD5。
+     * 返回的数据在 {@link IngestedFile#close()} 之前有效，调用方应使用 try-with-resources。
+     *
+     * @param file 上传的文件
+     * @return 文件内容与 MD5
+     * @throws IOException 读取失败或文件大小与声明不符时抛出
+     */
+    public IngestedFile ingest(MultipartFile file) throws IOException {
+        long size = file.getSize();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("上传文件过大: " + file.getOriginalFilename());
+        }
+        if (size <= uploadProperties.getPooledBufferMaxBytes()) {
+            ByteBuffer pooled = acquire((int) size);
+            if (pooled != null) {
+                return read(file, pooled, () -> release(pooled));
+            }
+        }
+        return readIntoMappedFile(file);
+    }
+
+    /**
+     * 从池中借出一个容量不小于 size 的直接缓冲区。
+     *
+     * @return 缓冲区 (position 为 0，limit 为 size)；等待超时返回 null
+     */
+    private ByteBuffer acquire(int size) {
+        try {
+            if (!permits.tryAcquire(uploadProperties.getPoolWaitMs(), TimeUnit.MILLISECONDS)) {
+                logger.debug("上传缓冲池已用尽，{} 字节的文件改为写入临时文件并内存映射。", size);
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        ByteBuffer buffer = idle.poll();
+        if (buffer == null || buffer.capacity() < size) {
+            // 按 2 的幂向上取整，避免大小相近的文件反复重新分配
+            int max = uploadProperties.getPooledBufferMaxBytes();
+            int capacity = size <= 1 ? 1 : Math.min(max, Integer.highestOneBit(size - 1) << 1);
+            buffer = ByteBuffer.allocateDirect(Math.max(capacity, size));
+        }
+        buffer.clear().limit(size);
+        return buffer;
+    }
+
+    private void release(ByteBuffer buffer) {
+        idle.offer(buffer);
+        permits.release();
+    }
+
+    private IngestedFile read(MultipartFile file, ByteBuffer buffer, Runnable release) throws IOException {
+        MessageDigest md5 = newMd5();
+        try (InputStream in = file.getInputStream()) {
+            byte[] chunk = new byte[Math.min(uploadProperties.getChunkBytes(), Math.max(buffer.remaining(), 1))];
+            int n;
+            while (buffer.hasRemaining() && (n = in.read(chunk, 0, Math.min(chunk.length, buffer.remaining()))) > 0) {
+                md5.update(chunk, 0, n);
+                buffer.put(chunk, 0, n);
+            }
+            if (in.read() >= 0) {
+                throw new IOException("上传文件大小与声明不符: " + file.getOriginalFilename());
+            }
+        } catch (IOException | RuntimeException e) {
+            release.run();
+            throw e;
+        }
+        buffer.flip();
+        return new IngestedFile(buffer.asReadOnlyBuffer(), HexFormat.of().formatHex(md5.digest()), false, release);
+    }
+
+    private IngestedFile readIntoMappedFile(MultipartFile file) throws IOException {
+        long size = file.getSize();
+        MessageDigest md5 = newMd5();
+        Path temp = Files.createTempFile("infer-upload-", ".bin");
+        try {
+            byte[] chunk = new byte[(int) Math.min(uploadProperties.getChunkBytes(), Math.max(size, 1))];
+            long written = 0;
+            try (InputStream in = file.getInputStream();
+                 FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                int n;
+                while ((n = in.read(chunk)) > 0) {
+                    written += n;
+                    if (written > size) {
+                        throw new IOException("上传文件大小与声明不符: " + file.getOriginalFilename());
+                    }
+                    md5.update(chunk, 0, n);
+                    ByteBuffer slice = ByteBuffer.wrap(chunk, 0, n);
+                    while (slice.hasRemaining()) {
+                        channel.write(slice);
+                    }
+                }
+            }
+            if (written != size) {
+                throw new IOException("上传文件大小与声明不符: " + file.getOriginalFilename());
+            }
+            ByteBuffer mapped;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ)) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            logger.debug("上传文件 {} ({} 字节) 已写入临时文件并内存映射: {}", file.getOriginalFilename(), size, temp);
+            return new IngestedFile(mapped.asReadOnlyBuffer(), HexFormat.of().formatHex(md5.digest()), true, () -> {
+                unmap(mapped);
+                deleteQuietly(temp);
+            });
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * 立即解除内存映射。调用后 buffer 及其所有视图都不能再访问。
+     */
+    private static void unmap(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null || buffer.capacity() == 0) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.warn("解除上传临时文件的内存映射失败，将在 GC 时释放。", e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("无法删除临时上传文件: {}", path, e);
+            path.toFile().deleteOnExit();
+        }
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前 JRE 不支持 MD5。", e);
+        }
+    }
+
+    /**
+     * 已读取的上传文件：只读数据视图及其 MD5。关闭后数据视图不再有效。
+     */
+    public static final class IngestedFile implements AutoCloseable {
+        private final ByteBuffer data;
+        private final String md5;
+        private final boolean mapped;
+        private final Runnable release;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        IngestedFile(ByteBuffer data, String md5, boolean mapped, Runnable release) {
+            this.data = data;
+            this.md5 = md5;
+            this.mapped = mapped;
+            this.release = release;
+        }
+
+        /**
+         * @return 文件内容的只读视图 (position 为 0，limit 为文件大小)。
+         */
+        public ByteBuffer getData() {
+            return data.duplicate();
+        }
+
+        /**
+         * @return 文件内容的 MD5 (小写十六进制)。
+         */
+        public String getMd5() {
+            return md5;
+        }
+
+        /**
+         * @return 数据是否来自内存映射的临时文件 (而不是池中的直接缓冲区)。
+         */
+        boolean isMapped() {
+            return mapped;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release.run();
+            }
+        }
+    }
+}
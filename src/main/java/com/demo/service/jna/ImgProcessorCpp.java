@@ -9,6 +9,7 @@ import com.sun.jna.ptr.FloatByReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import com.demo.config.NativeProperties;
 import com.demo.exception.ProcessException;
 
 import java.util.Map;
@@ -38,6 +39,18 @@ public class ImgProcessorCpp {
         // 对于 Linux 或 macOS，可以添加相应的 else if 分支来设置路径。
     }
 
+    /**
+     * 每个工作线程持有一组可复用的 JNA 结构体，避免每次请求重新分配原生内存。
+     */
+    private static final ThreadLocal<CallFrame> CALL_FRAMES = ThreadLocal.withInitial(CallFrame::new);
+
+    private final NativeProperties nativeProperties;
+
+    public ImgProcessorCpp(NativeProperties nativeProperties) {
+        this.nativeProperties = nativeProperties;
+        logger.info("单帧原生库绑定方式: {}", nativeProperties.isDirectMapping() ? "直接映射 (Native.register)" : "接口代理 (Native.load)");
+    }
+
     /**
      * 用于封装单帧处理结果的数据传输对象 (DTO)。
      * 这个类的实例是不可变的，在构造后只提供 getter 方法，保证了数据的稳定性。
@@ -194,6 +207,98 @@ public class ImgProcessorCpp {
         void freeOutputData(OutputData.ByReference output);
     }
 
+    /**
+     * JNA 直接映射 (Direct Mapping) 绑定。
+     * 通过 Native.register 将 static native 方法直接绑定到库中的同名符号，
+     * 省去 Library 代理每次调用时的反射分派与参数转换。
+     * 该类只在第一次调用时初始化，因此库缺失不会影响应用启动。
+     */
+    static final class DirectImageProcessingLibrary {
+        static {
+            Native.register(DirectImageProcessingLibrary.class, "XJYTXFXCV");
+        }
+
+        private DirectImageProcessingLibrary() {}
+
+        static native int processImageWrapper(InputData.ByReference input, OutputData.ByReference output);
+
+        static native void freeOutputData(OutputData.ByReference output);
+    }
+
+    /**
+     * 将直接映射的静态方法适配为 {@link ImageProcessingLibrary} 接口，供业务代码统一调用。
+     */
+    private static final ImageProcessingLibrary DIRECT_BINDING = new ImageProcessingLibrary() {
+        @Override
+        public int processImageWrapper(InputData.ByReference input, OutputData.ByReference output) {
+            return DirectImageProcessingLibrary.processImageWrapper(input, output);
+        }
+
+        @Override
+        public void freeOutputData(OutputData.ByReference output) {
+            DirectImageProcessingLibrary.freeOutputData(output);
+        }
+    };
+
+    /**
+     * 单个工作线程复用的输入/输出结构体。
+     * 结构体关闭了 JNA 的自动同步 (autoRead/autoWrite)，由调用方在原生调用前后
+     * 显式执行 write()/read()，避免每次调用都通过反射遍历全部字段。
+     */
+    static final class CallFrame {
+        final InputData.ByReference input = new InputData.ByReference();
+        final OutputData.ByReference output = new OutputData.ByReference();
+
+        CallFrame() {
+            input.setAutoSynch(false);
+            output.setAutoSynch(false);
+        }
+
+        /**
+         * 填充输入结构体并写入原生内存，同时清空输出结构体。
+         */
+        void prepare(String imgBase64, String cropBase64, Map<String, Integer> cropCoordinates, String algorithm) {
+            CropBox crop = input.crop;
+            if (cropCoordinates != null && !cropCoordinates.isEmpty()) {
+                crop.x = cropCoordinates.getOrDefault("x", 0);
+                crop.y = cropCoordinates.getOrDefault("y", 0);
+                crop.width = cropCoordinates.getOrDefault("width", 0);
+                crop.height = cropCoordinates.getOrDefault("height", 0);
+            } else {
+                crop.x = 0;
+                crop.y = 0;
+                crop.width = 0;
+                crop.height = 0;
+            }
+            input.algorithmName = algorithm;
+            input.originalBase64 = imgBase64;
+            input.croppedBase64 = cropBase64;
+            input.write();
+            output.clear();
+        }
+
+        /**
+         * 释放对本次请求数据的引用 (包括 JNA 为字符串分配的原生内存)，以便下次复用。
+         */
+        void release() {
+            input.originalBase64 = null;
+            input.croppedBase64 = null;
+            input.algorithmName = null;
+            input.write();
+            output.processedBase64 = null;
+            output.result = null;
+            output.result_length = 0;
+            output.message = null;
+        }
+    }
+
+    /**
+     * 根据配置选择原生库绑定方式。
+     */
+    private ImageProcessingLibrary library() {
+        return nativeProperties.isDirectMapping() ? DIRECT_BINDING : ImageProcessingLibrary.INSTANCE;
+    }
+
     /**
      * 处理单帧图像的主业务方法。
      * @param imgBase64 原始图像的 Base64 字符串。
@@ -206,30 +311,24 @@ public class ImgProcessorCpp {
     public SingleFrameResult processImage(String imgBase64, String cropBase64, Map<String, Integer> cropCoordinates, String algorithm) {
         logger.info("开始处理单帧图像, 算法: {}", algorithm);
 
-        // 准备传递给 C++ 的输入和输出结构体
-        OutputData.ByReference outputData = new OutputData.ByReference();
-        InputData.ByReference inputData = new InputData.ByReference();
+        // 取出当前线程复用的输入和输出结构体
+        CallFrame frame = CALL_FRAMES.get();
+        InputData.ByReference inputData = frame.input;
+        OutputData.ByReference outputData = frame.output;
+        ImageProcessingLibrary library = null;
+        boolean nativeCalled = false;
         int processStatus = -1; // 初始化处理状态
 
         try {
-            // 如果提供了裁剪坐标，则填充 CropBox 结构体
-            if (cropCoordinates != null && !cropCoordinates.isEmpty()) {
-                inputData.crop = new CropBox.ByValue(
-                        cropCoordinates.getOrDefault("x", 0),
-                        cropCoordinates.getOrDefault("y", 0),
-                        cropCoordinates.getOrDefault("width", 0),
-                        cropCoordinates.getOrDefault("height", 0)
-                );
-            }
-
-            // 填充输入数据结构体
-            inputData.algorithmName = algorithm;
-            inputData.originalBase64 = imgBase64;
-            inputData.croppedBase64 = cropBase64;
+            // 填充输入数据结构体并显式写入原生内存
+            frame.prepare(imgBase64, cropBase64, cropCoordinates, algorithm);
 
             // 调用 C++ 核心处理函数
             logger.info("调用C++ processImageWrapper (单帧模式)...");
-            processStatus = ImageProcessingLibrary.INSTANCE.processImageWrapper(inputData, outputData);
+            library = library();
+            processStatus = library.processImageWrapper(inputData, outputData);
+            nativeCalled = true;
+            outputData.read(); // 显式读取 C++ 填充的结果
             logger.info("C++ processImageWrapper (单帧模式) 返回状态: {}", processStatus);
 
             // 根据返回状态码进行处理
@@ -250,23 +349,24 @@ public class ImgProcessorCpp {
                 logger.error(errorMsg);
                 throw new ProcessException(errorMsg); // 抛出自定义异常，由全局异常处理器捕获
             }
-        } catch (UnsatisfiedLinkError ule) {
-            // 捕获 JNA 无法找到或链接到库的错误
+        } catch (UnsatisfiedLinkError | NoClassDefFoundError ule) {
+            // 捕获 JNA 无法找到或链接到库的错误 (直接映射类初始化失败后再次访问会抛出 NoClassDefFoundError)
             String errorMsg = "无法链接到单帧核心处理库。确保 XJYTXFXCV 及其依赖项正确。";
             logger.error("JNA链接错误: {}", ule.getMessage(), ule);
             throw new ProcessException(errorMsg, ule);
         } finally {
-            // 无论成功还是失败，都必须尝试释放 C++ 分配的内存。
-            if (outputData != null && outputData.getPointer() != null) {
+            // 只要 C++ 函数被成功调用，无论结果如何，都必须释放 C++ 分配的内存。
+            if (nativeCalled) {
                 try {
                     // 调用 C++ 的内存释放函数
-                    ImageProcessingLibrary.INSTANCE.freeOutputData(outputData);
+                    library.freeOutputData(outputData);
                     logger.info("已调用 freeOutputData (单帧) 清理 OutputData。");
-                } catch (ProcessException e) {
+                } catch (RuntimeException e) {
                     // 记录释放内存时可能发生的错误，但不向上抛出，以免覆盖原始异常。
                     logger.error("调用 freeOutputData (单帧) 时发生错误。", e);
                 }
             }
+            frame.release();
         }
     }
 }
\ No newline at end of file
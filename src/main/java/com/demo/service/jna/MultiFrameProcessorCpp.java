@@ -9,22 +9,24 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URI;
-import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.Arrays;
-import java.util.Comparator;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.UUID;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.demo.dto.MultiFrameResultResponse;
@@ -33,19 +35,28 @@ import com.demo.service.ConfigService;
 import com.demo.dto.ConfigDto;
 import com.demo.service.FeatureParserService;
 import com.demo.service.FeaturePersistenceService;
+import com.demo.service.StagingManager;
+import com.demo.service.AnalysisCatalogService;
+import com.demo.service.FeatureArchiveService;
+import com.demo.service.processor.FrameProcessor;
+import com.demo.service.processor.MultiFrameOutput;
+import com.demo.service.processor.MultiFrameProgressListener;
+import com.demo.service.processor.MultiFrameTask;
+import com.demo.service.processor.ShardedMultiFrameProcessor;
+import com.demo.util.AppPaths;
+import com.demo.util.NaturalSort;
+import com.demo.util.SingleFlight;
 import java.util.Map;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
- * 多帧图像处理服务，通过 JNA (Java Native Access) 与 C++ 核心库交互。
+ * 多帧图像处理服务，定义与 C++ 核心库交互所用的 JNA 结构体。
  * 这个类专门负责处理基于文件夹的多帧图像序列。它会：
  * 1. 扫描指定目录下的所有文件。
- * 2. 将文件路径列表传递给 C++ 库进行批量处理。
- * 3. 接收 C++ 库返回的处理结果，包括输出目录和状态信息。
+ * 2. 将文件目录交给 {@link FrameProcessor} (C++ 库或纯 Java 参考实现) 进行批量处理。
+ * 3. 接收处理核心返回的处理结果，包括输出目录和状态信息。
  * 4. 依赖 {@link ConfigService} 来获取处理所需的配置（如裁剪区域）。
- * 5. 管理与 C++ 库交互的内存生命周期。
+ * 5. 在临时文件删除前完成特征解析与持久化。
  */
 @Service
 public class MultiFrameProcessorCpp {
@@ -59,21 +70,44 @@ public class MultiFrameProcessorCpp {
     }
 
     private static final Logger logger = LoggerFactory.getLogger(MultiFrameProcessorCpp.class);
+
     private final ConfigService configService;
     private final FeatureParserService featureParserService;
     private final FeaturePersistenceService featurePersistenceService;
+    private final FrameProcessor frameProcessor;
+    private final ShardedMultiFrameProcessor shardedProcessor;
+    private final StagingManager stagingManager;
+    private final AnalysisCatalogService analysisCatalogService;
+    private final FeatureArchiveService featureArchiveService;
+    // 相同多帧请求的并发合并，键为请求摘要
+    private final SingleFlight<String, MultiFrameResultResponse> multiFrameFlights = new SingleFlight<>();
 
     /**
      * 构造函数，通过 Spring 的依赖注入初始化 ConfigService。
      * @param configService 配置服务，用于获取应用配置，如裁剪参数。
+     * @param frameProcessor 图像处理核心 (C++ 库或纯 Java 参考实现)。
+     * @param shardedProcessor mode=1 的分片并行处理。
+     * @param stagingManager 上传文件暂存目录的分配与回收。
+     * @param analysisCatalogService 分析目录，处理完成后登记。
+     * @param featureArchiveService 持久化后生成列式归档 Feature.col。
      */
     @Autowired
     public MultiFrameProcessorCpp(ConfigService configService,
                                   FeatureParserService featureParserService,
-                                  FeaturePersistenceService featurePersistenceService) {
+                                  FeaturePersistenceService featurePersistenceService,
+                                  FrameProcessor frameProcessor,
+                                  ShardedMultiFrameProcessor shardedProcessor,
+                                  StagingManager stagingManager,
+                                  AnalysisCatalogService analysisCatalogService,
+                                  FeatureArchiveService featureArchiveService) {
         this.configService = configService;
         this.featureParserService = featureParserService;
         this.featurePersistenceService = featurePersistenceService;
+        this.frameProcessor = frameProcessor;
+        this.shardedProcessor = shardedProcessor;
+        this.stagingManager = stagingManager;
+        this.analysisCatalogService = analysisCatalogService;
+        this.featureArchiveService = featureArchiveService;
         logger.info("ConfigService 已注入到 MultiFrameProcessorCpp。");
     }
 
@@ -416,6 +450,7 @@ public class MultiFrameProcessorCpp {
      * [!! 已重构 !!]
      * 此方法现在还负责在C++调用成功后、临时文件删除前，
      * 立即调用持久化服务，以便传递原始DAT文件数据。
+     * 等价于 {@link #stageUploadedFiles} + {@link #processStaged}，最后释放暂存目录 (在后台删除，不阻塞响应)。
      *
      * @param imageFiles    从Controller接收到的图像MultipartFile列表。
      * @param trackFile     GJ 模式 (mode=2) 所需的轨迹文件。
@@ -428,19 +463,92 @@ public class MultiFrameProcessorCpp {
                                                          MultipartFile trackFile,
                                                          String algorithmName,
                                                          int mode) throws IOException {
+        try (StagedUpload staged = stageUploadedFiles(imageFiles, trackFile, algorithmName, mode)) {
+            return processStaged(staged, MultiFrameProgressListener.NONE);
+        }
+    }
+
+    /**
+     * 已保存到临时目录的一次多帧上传。
+     * MultipartFile 只在请求线程内有效，异步任务需要先在请求线程中保存文件，再在其他线程处理。
+     * 关闭时释放暂存目录。
+     */
+    public static final class StagedUpload implements AutoCloseable {
+        private final StagingManager.Lease lease;
+        private final Path tempDir;
+        private final List<Path> orderedRawFilePaths;
+        private final List<String> originalImageFileNames;
+        private final String trackFilePath;
+        private final String algorithmName;
+        private final int mode;
+        private final String requestKey;
+
+        private StagedUpload(StagingManager.Lease lease, List<Path> orderedRawFilePaths, List<String> originalImageFileNames,
+                             String trackFilePath, String algorithmName, int mode, String requestKey) {
+            this.lease = lease;
+            this.tempDir = lease.getDir();
+            this.orderedRawFilePaths = orderedRawFilePaths;
+            this.originalImageFileNames = originalImageFileNames;
+            this.trackFilePath = trackFilePath;
+            this.algorithmName = algorithmName;
+            this.mode = mode;
+            this.requestKey = requestKey;
+        }
+
+        public int getFileCount() { return orderedRawFilePaths.size(); }
+
+        public String getAlgorithmName() { return algorithmName; }
+
+        public int getMode() { return mode; }
+
+        /**
+         * 释放暂存目录 (由 {@link StagingManager} 在后台删除)。
+         */
+        @Override
+        public void close() {
+            lease.close();
+        }
+    }
+
+    /**
+     * 第一步：将上传的图像文件 (和 mode=2 的轨迹文件) 保存到 {@link StagingManager} 分配的暂存目录，同时计算请求摘要。
+     * 暂存空间不足时在这里排队等待。失败时暂存目录会被立即释放；成功时由调用方关闭返回的 {@link StagedUpload}。
+     *
+     * @param imageFiles    从Controller接收到的图像MultipartFile列表。
+     * @param trackFile     GJ 模式 (mode=2) 所需的轨迹文件。
+     * @param algorithmName 要使用的算法名称。
+     * @param mode          处理模式 (1=多帧, 2=GJ)。
+     * @return 已保存的上传
+     * @throws IOException 如果在创建临时文件或目录时发生 I/O 错误。
+     */
+    public StagedUpload stageUploadedFiles(List<MultipartFile> imageFiles,
+                                           MultipartFile trackFile,
+                                           String algorithmName,
+                                           int mode) throws IOException {
 
-        // 1. 创建一个唯一的临时目录来安全地存放上传的文件
+        // 1. 分配一个唯一的暂存目录来安全地存放上传的文件 (按上传大小预留暂存配额)
         // [!! 已更正 !!] 我们只创建根临时目录，不创建 'IMG0'
-        Path tempDir = Files.createTempDirectory("multi-frame-upload-" + UUID.randomUUID().toString());
+        long expectedBytes = 0;
+        for (MultipartFile file : imageFiles) {
+            expectedBytes += file.getSize();
+        }
+        if (trackFile != null) {
+            expectedBytes += trackFile.getSize();
+        }
+        StagingManager.Lease lease = stagingManager.allocate("multi-frame-upload-", expectedBytes);
+        Path tempDir = lease.getDir();
         logger.info("为本次请求创建了临时目录: {}", tempDir.toAbsolutePath());
 
         // [!! 新增 !!] 我们需要一个有序的 Path 列表，以便传递给持久化服务
         List<Path> orderedRawFilePaths = new ArrayList<>();
         List<String> originalImageFileNames = new ArrayList<>();
+        // 请求摘要：按顺序覆盖 (文件名, 文件摘要)，再加上轨迹文件、模式、算法和配置
+        MessageDigest requestDigest = newDigest();
 
         try {
-            // 2. 将所有上传的图像文件保存到临时目录
-            for (MultipartFile file : imageFiles) {
+            // 2. 将所有上传的图像文件按文件名的自然顺序保存到临时目录
+            // (帧顺序与上传顺序无关，持久化时的帧与文件对应关系、请求摘要都由这个顺序决定)
+            for (MultipartFile file : NaturalSort.sorted(imageFiles, MultipartFile::getOriginalFilename)) {
                 if (file.isEmpty()) {
                     continue;
                 }
@@ -456,9 +564,13 @@ public class MultiFrameProcessorCpp {
                 if (parentDir != null && !Files.exists(parentDir)) {
                     Files.createDirectories(parentDir);
                 }
-                try (InputStream inputStream = file.getInputStream()) {
+                // 保存的同时计算摘要，用于合并并发的相同请求
+                MessageDigest digest = newDigest();
+                try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
                     Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
                 }
+                requestDigest.update(originalFileName.getBytes(StandardCharsets.UTF_8));
+                requestDigest.update(digest.digest());
 
                 orderedRawFilePaths.add(tempFile); // [!! 新增 !!] 保存 Path 对象
                 originalImageFileNames.add(originalFileName);
@@ -481,31 +593,58 @@ public class MultiFrameProcessorCpp {
 
                 // [!! 已更正 !!] 轨迹文件也保存在 根临时目录 (tempDir)
                 Path tempTrackFile = tempDir.resolve(originalTrackFileName).normalize();
-                try (InputStream inputStream = trackFile.getInputStream()) {
+                try (InputStream inputStream = new DigestInputStream(trackFile.getInputStream(), requestDigest)) {
                     Files.copy(inputStream, tempTrackFile, StandardCopyOption.REPLACE_EXISTING);
                 }
                 tempTrackFilePath = tempTrackFile.toAbsolutePath().toString();
                 logger.info("轨迹文件已保存到: {}", tempTrackFilePath);
             }
 
-            // [!! 已更正 !!] 我们将 *根临时目录* 的路径传递给 processFiles
-            String imageDirectoryPathForCpp = tempDir.toAbsolutePath().toString();
-            int numImageFiles = orderedRawFilePaths.size();
+            requestDigest.update((mode + "|" + algorithmName + "|" + configService.getConfigFingerprint())
+                    .getBytes(StandardCharsets.UTF_8));
+            String requestKey = HexFormat.of().formatHex(requestDigest.digest());
+            return new StagedUpload(lease, orderedRawFilePaths, originalImageFileNames,
+                    tempTrackFilePath, algorithmName, mode, requestKey);
+        } catch (IOException | RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+    }
 
-            // 4. 调用核心处理逻辑 (该方法已被重构为返回 OutputData)
+    /**
+     * 第二步：调用处理核心、解析并持久化 Feature.dat，构建响应。
+     * 并发的相同请求 (相同帧序列、轨迹、模式、算法和配置) 只执行一次，其余请求等待同一个结果
+     * (此时只有实际执行的请求会收到中间进度)。
+     *
+     * @param staged   已保存的上传 (调用方负责关闭)
+     * @param progress 进度回调
+     * @return 包含处理结果的详细信息。
+     * @throws IOException 读取结果目录失败时抛出
+     */
+    public MultiFrameResultResponse processStaged(StagedUpload staged, MultiFrameProgressListener progress)
+            throws IOException {
+        // [!! 已更正 !!] 我们将 *根临时目录* 的路径传递给 processFiles
+        String imageDirectoryPathForCpp = staged.tempDir.toAbsolutePath().toString();
+        int numImageFiles = staged.orderedRawFilePaths.size();
+
+        return multiFrameFlights.execute(staged.requestKey, () -> {
+            // 4. 调用核心处理逻辑 (C++ 内存已在 FrameProcessor 内部释放)
             // (processFiles 方法内部会负责附加 "/IMG0" 后缀)
-            OutputData.ByReference outputData = processFiles(
+            progress.onProgress(MultiFrameProgressListener.Stage.NATIVE_STARTED, numImageFiles + " 个文件");
+            MultiFrameOutput output = processFiles(
                     imageDirectoryPathForCpp,   // 这是 .../temp-dir 路径
-                    tempTrackFilePath,
-                    algorithmName,
-                    mode,
-                    numImageFiles
+                    staged.trackFilePath,
+                    staged.algorithmName,
+                    staged.mode,
+                    numImageFiles,
+                    staged.orderedRawFilePaths
             );
+            progress.onProgress(MultiFrameProgressListener.Stage.NATIVE_FINISHED, output.getMessage());
 
             // 5. [!! 核心重构 !!] 立即执行持久化
             // (此时，C++ 已执行完毕，但 'tempDir' 中的原始 .dat 文件尚未被删除)
-            String featureDatPath = outputData.outputPathSet.feature_path;
-            String resultImgDir = outputData.outputPathSet.outImgDir;
+            String featureDatPath = output.getFeaturePath();
+            String resultImgDir = output.getOutImgDir();
 
             if (featureDatPath == null || featureDatPath.trim().isEmpty()) {
                 logger.warn("C++ 未返回 feature_path，跳过持久化。");
@@ -513,53 +652,66 @@ public class MultiFrameProcessorCpp {
                 try {
                     // 5A. 解析 C++ 生成的 Feature.dat
                     Map<String, List<? extends Number>> features = this.featureParserService.parseFeatureFile(featureDatPath);
+                    progress.onProgress(MultiFrameProgressListener.Stage.PARSED, featureDatPath);
 
                     // 5B. 推断 AnalysisID
                     String analysisId = Paths.get(featureDatPath).getParent().getFileName().toString();
 
                     // 5C. [!! 关键 !!] 调用持久化，并传入原始文件路径列表
                     logger.info("开始持久化 (在多帧处理流程中)... AnalysisID: {}", analysisId);
-                    this.featurePersistenceService.persistFeatures(features, analysisId, orderedRawFilePaths);
+                    this.featurePersistenceService.persistFeatures(features, analysisId, staged.orderedRawFilePaths);
                     logger.info("持久化完成 (在多帧处理流程中)。");
+                    progress.onProgress(MultiFrameProgressListener.Stage.PERSISTED, analysisId);
 
                 } catch (Exception e) {
                     // 记录错误，但不要让它中断对前端的响应
                     logger.error("在 infer_multi_frame 流程中持久化失败: {}", e.getMessage(), e);
                 }
+                // 5D. 生成列式归档 (失败时 get_feature_data 仍可读取 Feature.dat)
+                if (this.featureArchiveService.isEnabled()) {
+                    try {
+                        this.featureArchiveService.writeArchive(Paths.get(featureDatPath));
+                    } catch (Exception e) {
+                        logger.error("生成列式归档失败: {}", e.getMessage(), e);
+                    }
+                }
+                // 5E. 登记到分析目录 (失败同样不影响响应，启动时的回填会补上)
+                try {
+                    this.analysisCatalogService.record(featureDatPath, resultImgDir, staged.algorithmName, staged.mode);
+                } catch (Exception e) {
+                    logger.error("登记分析目录失败: {}", e.getMessage(), e);
+                }
             }
 
             // 6. 构建返回给 Controller 的 Response
-            MultiFrameResultResponse response = buildResponse(
+            return buildResponse(
                     resultImgDir,
-                    outputData.message,
-                    outputData.fileNum,
-                    originalImageFileNames // 使用我们之前保存的原始文件名
+                    output.getMessage(),
+                    output.getFileNum(),
+                    staged.originalImageFileNames // 使用我们之前保存的原始文件名
             );
+        });
+    }
 
-            // 7. 释放 C++ 内存
-            if (outputData != null && outputData.getPointer() != null) {
-                try {
-                    NativeMultiFrameLib.INSTANCE.freeOutputData(outputData);
-                    logger.info("已调用 freeOutputData (多帧) 清理 OutputData。");
-                } catch (Exception e) {
-                    logger.error("调用 freeOutputData (多帧) 时发生错误。", e);
-                }
-            }
+    /**
+     * @return 累计被合并 (没有重复执行) 的多帧请求数。
+     */
+    public long coalescedCount() {
+        return multiFrameFlights.coalescedCount();
+    }
 
-            return response;
-
-        } finally {
-            // 8. 【关键】无论成功与否，都必须清理临时文件和目录
-            logger.info("处理完成，开始清理临时目录: {}", tempDir.toAbsolutePath());
-            try (Stream<Path> walk = Files.walk(tempDir)) {
-                walk.sorted(Comparator.reverseOrder())
-                        .map(Path::toFile)
-                        .forEach(File::delete);
-                logger.info("临时目录已成功清理。");
-            } catch (IOException e) {
-                // 记录清理错误，但不向上抛出
-                logger.error("清理临时目录 {} 时发生严重错误。", tempDir.toAbsolutePath(), e);
-            }
+    /**
+     * @return 当前正在执行的多帧处理数 (不含等待合并的请求)。
+     */
+    public int inFlightCount() {
+        return multiFrameFlights.inFlightCount();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前 JRE 不支持 SHA-256。", e);
         }
     }
 
@@ -571,210 +723,91 @@ public class MultiFrameProcessorCpp {
      * @param algorithmName      算法名称。
      * @param mode               处理模式 (1 或 2)。
      * @param numFiles           图像文件数量。
+     * @param orderedFrames      按帧顺序排列的输入文件，满足条件时 (mode=1 且帧数足够) 分片并行处理。
      * @return 处理结果。
      */
-    private OutputData.ByReference processFiles(
+    private MultiFrameOutput processFiles(
             String imageDirectoryPath,
             String trackFilePath,
             String algorithmName,
             int mode,
-            int numFiles) throws IOException {
+            int numFiles,
+            List<Path> orderedFrames) throws IOException {
 
         ConfigDto config = configService.getConfig();
         ConfigDto.Region region = config.getRegion();
-        CropBox.ByValue cropBoxConfig = new CropBox.ByValue(
-                region.getX(), region.getY(), region.getWidth(), region.getHeight()
-        );
 
-        Path projectRoot = getProjectRootPath();
+        Path projectRoot = AppPaths.projectRoot();
 
-        // 1. C++ DLL 的输出根目录 (例如: ".../result/")
-        // C++ DLL 将在此目录下创建带时间戳的 'img' 和 'feature' 文件夹
+        // 1. 输出根目录 (例如: ".../result/")
+        // 处理核心将在此目录下创建带时间戳的 'img' 和 'feature' 文件夹
         Path resultBasePath = projectRoot.resolve("result");
         if (!Files.exists(resultBasePath)) {
             Files.createDirectories(resultBasePath);
         }
         String resultBaseDirString = resultBasePath.toAbsolutePath().toString();
 
-        // 2. 神经网络参数路径
-        // C++ 使用 "../Parameter/tfImg.pb"
-        Path parPath = projectRoot.resolve("Parameter").resolve("tfImg.pb");
-        String parPathString = parPath.toAbsolutePath().toString();
-        if (!Files.exists(parPath)) {
-            logger.warn("神经网络参数文件未找到: {}。C++ 调用可能因此失败。", parPathString);
-        } else {
-            logger.info("找到神经网络参数文件: {}", parPathString);
-        }
-
-        InputData.ByReference inputData = new InputData.ByReference();
-        OutputData.ByReference outputData = new OutputData.ByReference();
-        int processStatus = -1;
-
-        //try {
-            // 1. 填充 InputPathSet
-            inputData.inputPathSet = new InputPathSet.ByValue();
-            Path basePath = Paths.get(imageDirectoryPath);
-            Path finalImg0Path = basePath.resolve("IMG0");
-            inputData.inputPathSet.inImgDir = finalImg0Path.toAbsolutePath().toString();
-            inputData.inputPathSet.outputDir = resultBaseDirString; // C++ 需要这个根目录
-            inputData.inputPathSet.par_path = parPathString;
-            inputData.inputPathSet.trackPath = trackFilePath; // 如果 mode=1，可以为 null
-
-            logger.info("C++ (多帧) 接收的最终 'inImgDir' 路径: {}", inputData.inputPathSet.inImgDir);
-
-            // 2. 填充 InputData 的其余字段
-            inputData.mode = mode;
-            inputData.algorithmName = algorithmName;
-            inputData.fileNum = numFiles;
-            inputData.crop = cropBoxConfig;
-            inputData.imgType = 1; // 默认值，与 C++ demo 一致
-            inputData.id = 0; // 默认值
-
-            logger.info("调用C++ processImageWrapper (多帧模式)...");
-            processStatus = NativeMultiFrameLib.INSTANCE.processImageWrapper(inputData, outputData);
-            logger.info("C++ processImageWrapper (多帧模式) 返回状态: {}", processStatus);
-
-            if (processStatus == 0) {
-                if (outputData.outputPathSet == null) {
-                    throw new ProcessException("核心算法处理成功 (status=0) 但未返回 outputPathSet。");
-                }
-                String resultOutputDir = outputData.outputPathSet.outImgDir;
-                String featureFilePath = outputData.outputPathSet.feature_path;
-
-                if (resultOutputDir == null || resultOutputDir.trim().isEmpty() ||
-                        featureFilePath == null || featureFilePath.trim().isEmpty()) {
-                    throw new ProcessException("核心算法返回的路径无效。");
-                }
-                logger.info("C++ (多帧) 处理成功。消息: '{}', 图像输出目录: '{}', 特征文件: '{}'",
-                        outputData.message, resultOutputDir, featureFilePath);
-
-                return outputData;
+        // 2. 填充任务参数
+        Path basePath = Paths.get(imageDirectoryPath);
+        Path finalImg0Path = basePath.resolve("IMG0");
+        MultiFrameTask task = new MultiFrameTask(
+                finalImg0Path.toAbsolutePath().toString(),
+                resultBaseDirString,
+                trackFilePath, // 如果 mode=1，可以为 null
+                algorithmName,
+                mode,
+                numFiles,
+                region
+        );
+        logger.info("多帧处理接收的最终 'inImgDir' 路径: {}", task.getImageDir());
 
-//            if (processStatus == 0) {
-//                if (outputData.outputPathSet == null) {
-//                    throw new ProcessException("核心算法处理成功 (status=0) 但未返回 outputPathSet。");
-//                }
-//
-//                String resultOutputDir = outputData.outputPathSet.outImgDir;
-//                String featureFilePath = outputData.outputPathSet.feature_path;
-//
-//                if (resultOutputDir == null || resultOutputDir.trim().isEmpty() ||
-//                        featureFilePath == null || featureFilePath.trim().isEmpty()) {
-//                    throw new ProcessException("核心算法返回的路径无效。");
-//                }
-//                logger.info("C++ (多帧) 处理成功。消息: '{}', 图像输出目录: '{}', 特征文件: '{}'", outputData.message, resultOutputDir, featureFilePath);
-//
-//                // C++成功执行后，直接从结果目录读取并排序文件名
-//                List<String> generatedPngFiles;
-//                try (Stream<Path> paths = Files.list(Paths.get(resultOutputDir))) {
-//                    generatedPngFiles = paths
-//                            .map(Path::getFileName)
-//                            .map(Path::toString)
-//                            .filter(name -> name.toLowerCase().endsWith(".png"))
-//                            .collect(Collectors.toList());
-//                }
-//                // 使用自然排序对文件名进行排序
-//                generatedPngFiles.sort(new NaturalOrderComparator());
-//                logger.info("从结果目录 '{}' 读取并排序了 {} 个.png文件。", resultOutputDir, generatedPngFiles.size());
-//
-//                List<String> interestImageNames = new ArrayList<>();
-//                // 假设 "roi_" 图像与结果图像一一对应
-//                for (String pngFile : generatedPngFiles) {
-//                    if (pngFile.toLowerCase().startsWith("roi_")) {
-//                        // 如果已经是roi文件，则跳过，因为我们只关心主输出文件
-//                        continue;
-//                    }
-//                    // 检查是否存在对应的 roi 文件
-//                    Path roiPath = Paths.get(resultOutputDir, "roi_" + pngFile);
-//                    if (Files.exists(roiPath)) {
-//                        interestImageNames.add("roi_" + pngFile);
-//                    }
-//                }
-//                // 过滤掉 roi_ 开头的文件，只保留主结果文件
-//                List<String> outputImageNames = generatedPngFiles.stream()
-//                        .filter(name -> !name.toLowerCase().startsWith("roi_"))
-//                        .collect(Collectors.toList());
-//
-//                // 为每个结果帧找到它对应的原始 .dat 文件名
-//                List<String> expandedOriginalNames = new ArrayList<>();
-//                for (String pngName : outputImageNames) {
-//                    // 移除帧号和扩展名来匹配原始文件名
-//                    String pngBaseName = pngName.substring(0, pngName.lastIndexOf('_'));
-//                    String originalFound = originalFileNamesOnly.stream()
-//                            .map(ofn -> ofn.substring(0, ofn.lastIndexOf('.'))) // 获取原始文件的基础名
-//                            .filter(ofnBase -> ofnBase.equals(pngBaseName))
-//                            .findFirst()
-//                            .orElse(originalFileNamesOnly.get(0)); // 如果找不到，默认用第一个
-//                    expandedOriginalNames.add(originalFound + ".dat"); // 假设原始文件总是 .dat
-//                }
-//
-//
-//                MultiFrameResultResponse.ResultFiles resultFiles =
-//                        new MultiFrameResultResponse.ResultFiles(expandedOriginalNames, interestImageNames, outputImageNames);
-//
-//                return new MultiFrameResultResponse(
-//                        true,
-//                        resultOutputDir, // [重要] 使用 C++ 返回的实际图像目录
-//                        resultFiles,
-//                        outputData.message != null ? outputData.message : "处理成功",
-//                        outputData.fileNum
-//                );
-            } else {
-                // [!! 修改 !!] 释放内存并抛出异常
-                String errorMsg = "C++ (多帧) 处理失败。状态: " + processStatus + ", 消息: " + outputData.message;
-                logger.error(errorMsg);
-                if (outputData != null && outputData.getPointer() != null) {
-                    NativeMultiFrameLib.INSTANCE.freeOutputData(outputData);
-                }
-                throw new ProcessException(errorMsg);
-            }
-//        } finally {
-//            if (outputData != null && outputData.getPointer() != null) {
-//                try {
-//                    NativeMultiFrameLib.INSTANCE.freeOutputData(outputData);
-//                    logger.info("已调用 freeOutputData (多帧) 清理 OutputData。");
-//                } catch (Exception e) {
-//                    logger.error("调用 freeOutputData (多帧) 时发生错误。", e);
-//                }
-//            }
-//        }
+        if (shardedProcessor.shouldShard(task, orderedFrames)) {
+            return shardedProcessor.process(task, orderedFrames);
+        }
+        return frameProcessor.processMultiFrame(task);
     }
 
     // [!! 新增 !!] (从旧的 processFiles 复制过来)
     // 辅助方法，用于构建返回给前端的 Response
-    private MultiFrameResultResponse buildResponse(String resultOutputDir, String message, int fileNumProcessed, List<String> originalFileNamesOnly) throws IOException {
-        List<String> generatedPngFiles;
-        try (Stream<Path> paths = Files.list(Paths.get(resultOutputDir))) {
-            generatedPngFiles = paths
-                    .map(Path::getFileName)
-                    .map(Path::toString)
-                    .filter(name -> name.toLowerCase().endsWith(".png"))
-                    .collect(Collectors.toList());
-        }
-        generatedPngFiles.sort(new NaturalOrderComparator());
-        logger.info("从结果目录 '{}' 读取并排序了 {} 个.png文件。", resultOutputDir, generatedPngFiles.size());
-
-        List<String> interestImageNames = new ArrayList<>();
-        for (String pngFile : generatedPngFiles) {
-            if (pngFile.toLowerCase().startsWith("roi_")) continue;
-            Path roiPath = Paths.get(resultOutputDir, "roi_" + pngFile);
-            if (Files.exists(roiPath)) {
-                interestImageNames.add("roi_" + pngFile);
+    // 只扫描一次结果目录：roi_ 图像放入哈希集合，原始文件按去掉扩展名的文件名建立索引，整体为 O(n log n) (排序) + O(n)。
+    // 不依赖实例状态，公开以便基准测试 (bench/BuildResponseBenchmark) 直接调用。
+    public static MultiFrameResultResponse buildResponse(String resultOutputDir, String message, int fileNumProcessed, List<String> originalFileNamesOnly) throws IOException {
+        List<String> outputImageNames = new ArrayList<>();
+        Set<String> roiFiles = new HashSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(resultOutputDir))) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (!name.regionMatches(true, name.length() - 4, ".png", 0, 4)) {
+                    continue;
+                }
+                if (name.regionMatches(true, 0, "roi_", 0, 4)) {
+                    roiFiles.add(name);
+                } else {
+                    outputImageNames.add(name);
+                }
             }
         }
-        List<String> outputImageNames = generatedPngFiles.stream()
-                .filter(name -> !name.toLowerCase().startsWith("roi_"))
-                .collect(Collectors.toList());
+        NaturalSort.sort(outputImageNames);
+        logger.info("从结果目录 '{}' 读取并排序了 {} 个.png文件。", resultOutputDir, outputImageNames.size() + roiFiles.size());
 
-        List<String> expandedOriginalNames = new ArrayList<>();
+        // 原始文件的基本名 (不含目录与扩展名) -> 上传时的文件名；重名时保留第一个
+        Map<String, String> originalsByBaseName = new HashMap<>(originalFileNamesOnly.size() * 2);
+        for (String originalName : originalFileNamesOnly) {
+            originalsByBaseName.putIfAbsent(baseName(originalName), originalName);
+        }
+        String fallbackOriginal = originalFileNamesOnly.isEmpty() ? null : originalFileNamesOnly.get(0);
+
+        List<String> interestImageNames = new ArrayList<>(roiFiles.size());
+        List<String> expandedOriginalNames = new ArrayList<>(outputImageNames.size());
         for (String pngName : outputImageNames) {
-            String pngBaseName = pngName.substring(0, pngName.lastIndexOf('_'));
-            String originalFound = originalFileNamesOnly.stream()
-                    .map(ofn -> ofn.substring(0, ofn.lastIndexOf('.')))
-                    .filter(ofnBase -> ofnBase.equals(pngBaseName))
-                    .findFirst()
-                    .orElse(originalFileNamesOnly.get(0));
-            expandedOriginalNames.add(originalFound + ".dat");
+            String roiName = "roi_" + pngName;
+            if (roiFiles.contains(roiName)) {
+                interestImageNames.add(roiName);
+            }
+            // 输出图像名为 {原始文件名}_{帧号}.png
+            int underscore = pngName.lastIndexOf('_');
+            String pngBaseName = underscore > 0 ? pngName.substring(0, underscore) : baseName(pngName);
+            expandedOriginalNames.add(originalsByBaseName.getOrDefault(pngBaseName, fallbackOriginal));
         }
 
         MultiFrameResultResponse.ResultFiles resultFiles =
@@ -790,73 +823,11 @@ public class MultiFrameProcessorCpp {
     }
 
     /**
-     * 获取项目根目录，用于确定统一的输出路径。
-     * @return 项目根目录的Path对象
+     * @return 去掉目录和扩展名的文件名，例如 "IMG0/f12.dat" -> "f12"。
      */
-    private Path getProjectRootPath() {
-        try {
-            URL location = MultiFrameProcessorCpp.class.getProtectionDomain().getCodeSource().getLocation();
-            Path basePath;
-            if ("jar".equals(location.getProtocol())) {
-                String jarPathString = location.toURI().getSchemeSpecificPart();
-                int bangIndex = jarPathString.indexOf('!');
-                if (bangIndex != -1) {
-                    jarPathString = jarPathString.substring(0, bangIndex);
-                }
-                Path jarFile = Paths.get(new URI(jarPathString));
-                basePath = jarFile.getParent().getParent();
-            } else {
-                Path classesPath = Paths.get(location.toURI());
-                basePath = classesPath.getParent().getParent();
-            }
-            return basePath;
-        } catch (Exception e) {
-            logger.error("无法动态确定项目根目录，将回退到使用当前工作目录。", e);
-            return Paths.get(".");
-        }
-    }
-
-    /**
-     * 【新】自定义比较器，用于实现文件名的自然排序。
-     * 例如: "file_2.png" 会排在 "file_10.png" 之前。
-     */
-    class NaturalOrderComparator implements Comparator<String> {
-        private final Pattern NUMERICAL_PATTERN = Pattern.compile("(\\D*)(\\d+)(.*)");
-
-        @Override
-        public int compare(String s1, String s2) {
-            Matcher m1 = NUMERICAL_PATTERN.matcher(s1);
-            Matcher m2 = NUMERICAL_PATTERN.matcher(s2);
-
-            while (m1.find() && m2.find()) {
-                String prefix1 = m1.group(1);
-                String prefix2 = m2.group(1);
-                if (!prefix1.equals(prefix2)) {
-                    return prefix1.compareTo(prefix2);
-                }
-
-                String numStr1 = m1.group(2);
-                String numStr2 = m2.group(2);
-                if (!numStr1.equals(numStr2)) {
-                    try {
-                        long num1 = Long.parseLong(numStr1);
-                        long num2 = Long.parseLong(numStr2);
-                        if (num1 != num2) {
-                            return Long.compare(num1, num2);
-                        }
-                    } catch (NumberFormatException e) {
-                        // Fallback to string comparison if not a valid long
-                        return numStr1.compareTo(numStr2);
-                    }
-                }
-
-                s1 = m1.group(3);
-                s2 = m2.group(3);
-                m1 = NUMERICAL_PATTERN.matcher(s1);
-                m2 = NUMERICAL_PATTERN.matcher(s2);
-            }
-
-            return s1.compareTo(s2);
-        }
+    private static String baseName(String fileName) {
+        int slash = Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\'));
+        int dot = fileName.lastIndexOf('.');
+        return fileName.substring(slash + 1, dot > slash ? dot : fileName.length());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,325 @@
+package com.demo.service.jna;
+
+import com.demo.config.NativeProperties;
+import com.demo.exception.ProcessException;
+import com.demo.util.AppPaths;
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 多帧处理的持久化原生会话。
+ * 神经网络模型 (Parameter/tfImg.pb) 只在 {@code initSession} 中加载，
+ * 之后的每次处理都复用已打开的会话句柄，模型加载时间不再计入请求延迟。
+ * 生命周期：
+ * 1. 应用启动完成后在后台线程中预热 (打开 app.native.session.pool-size 个会话)，或在第一次处理时懒加载。
+ * 2. 处理时借出一个空闲句柄调用 {@code processWithSession(handle, ...)}，结束后归还。
+ * 3. 应用关闭时等待所有句柄归还，再逐个调用 {@code closeSession} 释放模型。
+ * 原生库没有声明会话可重入，因此每个句柄同一时刻只由一个线程使用：
+ * 最多 pool-size 个请求并行处理，其余请求排队等待 (每个会话各自加载一份模型)。
+ * 如果原生库不提供会话入口 (旧版本库)，{@link #process} 始终返回空；
+ * 如果 initSession 失败，在退避时间内返回空，之后再次尝试打开。
+ * 返回空时调用方应回退到逐次调用的 {@code processImageWrapper} 路径。
+ */
+@Component
+public class MultiFrameSession {
+    private static final Logger logger = LoggerFactory.getLogger(MultiFrameSession.class);
+
+    /**
+     * JNA 接口，定义多帧库中的会话相关函数 (接口代理方式)。
+     * 与 {@link MultiFrameProcessorCpp.NativeMultiFrameLib} 分开定义，
+     * 这样旧版本库缺少会话符号时不会影响原有的逐次调用路径。
+     */
+    public interface NativeSessionLib extends Library {
+        NativeSessionLib INSTANCE = Native.load("XJYTXFXCV_multi", NativeSessionLib.class);
+
+        /**
+         * 加载模型并创建会话。
+         * @param parPath 神经网络参数文件路径。
+         * @return 会话句柄，失败时返回 NULL。
+         */
+        Pointer initSession(String parPath);
+
+        /**
+         * 使用已加载的会话处理一批图像，参数与 processImageWrapper 相同。
+         * @return 整型状态码，0 表示成功。
+         */
+        int processWithSession(Pointer session,
+                               MultiFrameProcessorCpp.InputData.ByReference input,
+                               MultiFrameProcessorCpp.OutputData.ByReference output);
+
+        /**
+         * 释放会话及其持有的模型。
+         */
+        void closeSession(Pointer session);
+    }
+
+    /**
+     * 会话函数的 JNA 直接映射绑定。只在第一次使用时初始化。
+     */
+    static final class DirectSessionLib {
+        static {
+            Native.register(DirectSessionLib.class, "XJYTXFXCV_multi");
+        }
+
+        private DirectSessionLib() {}
+
+        static native Pointer initSession(String parPath);
+
+        static native int processWithSession(Pointer session,
+                                             MultiFrameProcessorCpp.InputData.ByReference input,
+                                             MultiFrameProcessorCpp.OutputData.ByReference output);
+
+        static native void closeSession(Pointer session);
+    }
+
+    private static final NativeSessionLib DIRECT_BINDING = new NativeSessionLib() {
+        @Override
+        public Pointer initSession(String parPath) {
+            return DirectSessionLib.initSession(parPath);
+        }
+
+        @Override
+        public int processWithSession(Pointer session,
+                                      MultiFrameProcessorCpp.InputData.ByReference input,
+                                      MultiFrameProcessorCpp.OutputData.ByReference output) {
+            return DirectSessionLib.processWithSession(session, input, output);
+        }
+
+        @Override
+        public void closeSession(Pointer session) {
+            DirectSessionLib.closeSession(session);
+        }
+    };
+
+    private final NativeProperties nativeProperties;
+    private final String parameterPath;
+
+    // 打开与关闭持有同一把锁；处理时从 idle 借出句柄，一个句柄不会被多个线程同时使用。
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Pointer> handles = new ArrayList<>();                 // 已打开的全部句柄 (持有锁时访问)
+    private final BlockingQueue<Pointer> idle = new LinkedBlockingQueue<>(); // 空闲句柄
+    private volatile int openCount;         // 已打开的句柄个数，0 表示会话未打开
+    private volatile boolean closed;        // 应用正在关闭，不再打开会话
+    private volatile boolean unsupported;   // 原生库缺少会话符号，不再尝试
+    private volatile long retryAtNanos;     // initSession 失败后，在此时刻之前不再尝试
+    private volatile long retryDelayMs;     // 当前退避时间，0 表示没有失败
+
+    public MultiFrameSession(NativeProperties nativeProperties) {
+        this.nativeProperties = nativeProperties;
+        Path parPath = AppPaths.projectRoot().resolve("Parameter").resolve("tfImg.pb");
+        this.parameterPath = parPath.toAbsolutePath().toString();
+        // 参数文件只在启动时检查一次
+        if (!Files.exists(parPath)) {
+            logger.warn("神经网络参数文件未找到: {}。C++ 调用可能因此失败。", parameterPath);
+        } else {
+            logger.info("找到神经网络参数文件: {}", parameterPath);
+        }
+    }
+
+    /**
+     * @return 神经网络参数文件的绝对路径 (对应 C++ par_path)。
+     */
+    public String getParameterPath() {
+        return parameterPath;
+    }
+
+    /**
+     * @return 会话是否已打开。
+     */
+    public boolean isOpen() {
+        return openCount > 0;
+    }
+
+    /**
+     * @return 通过会话可以并行执行的多帧处理个数: 已打开的会话个数，尚未打开时为配置的 pool-size；
+     *         会话被禁用、原生库不支持会话或应用正在关闭时返回 0 (处理走逐次调用路径)。
+     */
+    public int concurrency() {
+        NativeProperties.Session config = nativeProperties.getSession();
+        if (!config.isEnabled() || unsupported || closed) {
+            return 0;
+        }
+        int open = openCount;
+        return open > 0 ? open : Math.max(1, config.getPoolSize());
+    }
+
+    /**
+     * 应用启动完成后在后台线程预热会话，使模型加载不落在第一个请求上。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        NativeProperties.Session config = nativeProperties.getSession();
+        if (!config.isEnabled() || !config.isWarmUp()) {
+            return;
+        }
+        Thread t = new Thread(() -> {
+            long start = System.nanoTime();
+            if (open()) {
+                logger.info("原生会话预热完成，耗时 {} ms。", (System.nanoTime() - start) / 1_000_000);
+            }
+        }, "native-session-warmup");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * 使用持久化会话执行一次多帧处理。
+     * 输入结构体必须已由调用方写入原生内存；输出结构体由调用方读取并释放。
+     * 所有会话都在被其他请求使用时阻塞等待。
+     *
+     * @param input  已填充的输入结构体。
+     * @param output 待 C++ 填充的输出结构体。
+     * @return C++ 返回的状态码；如果会话不可用则返回空，调用方应回退到逐次调用路径。
+     */
+    public OptionalInt process(MultiFrameProcessorCpp.InputData.ByReference input,
+                               MultiFrameProcessorCpp.OutputData.ByReference output) {
+        if (!nativeProperties.getSession().isEnabled() || (openCount == 0 && !open())) {
+            return OptionalInt.empty();
+        }
+        Pointer session;
+        try {
+            while ((session = idle.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                if (openCount == 0) {
+                    return OptionalInt.empty(); // 会话已在等待期间关闭
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessException("等待原生会话时线程被中断。", e);
+        }
+        try {
+            return OptionalInt.of(library().processWithSession(session, input, output));
+        } finally {
+            idle.offer(session);
+        }
+    }
+
+    /**
+     * 打开 pool-size 个会话 (如果尚未打开)。只打开了其中一部分时按实际打开的个数处理。
+     * 原生库缺少会话符号时不再重试；一个会话都打不开时按 retry-initial-ms 起指数退避，最长 retry-max-ms。
+     * @return 会话是否处于打开状态。
+     */
+    private boolean open() {
+        if (openCount > 0) {
+            return true;
+        }
+        if (closed || unsupported || inBackoff()) {
+            return false;
+        }
+        lock.lock();
+        try {
+            if (openCount > 0) {
+                return true;
+            }
+            if (closed || unsupported || inBackoff()) {
+                return false;
+            }
+            int poolSize = Math.max(1, nativeProperties.getSession().getPoolSize());
+            logger.info("正在打开 {} 个原生会话并加载模型: {}", poolSize, parameterPath);
+            RuntimeException failure = null;
+            try {
+                while (handles.size() < poolSize) {
+                    Pointer session = library().initSession(parameterPath);
+                    if (session == null) {
+                        break;
+                    }
+                    handles.add(session);
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            if (handles.isEmpty()) {
+                scheduleRetry(failure != null ? "打开原生会话失败" : "initSession 返回空句柄", failure);
+                return false;
+            }
+            if (handles.size() < poolSize) {
+                logger.warn("只打开了 {} / {} 个原生会话，最多 {} 个请求并行处理。",
+                        handles.size(), poolSize, handles.size(), failure);
+            }
+            idle.addAll(handles);
+            openCount = handles.size();
+            retryDelayMs = 0;
+            return true;
+        } catch (UnsatisfiedLinkError | NoClassDefFoundError e) {
+            unsupported = true;
+            logger.warn("原生库不支持会话模式或无法加载 ({})，将回退到逐次调用模式。", e.getMessage());
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean inBackoff() {
+        return retryDelayMs > 0 && System.nanoTime() - retryAtNanos < 0;
+    }
+
+    /**
+     * 记录一次打开失败并计算下一次重试时间 (持有锁时调用)。
+     */
+    private void scheduleRetry(String reason, RuntimeException e) {
+        NativeProperties.Session config = nativeProperties.getSession();
+        long initial = Math.max(1, config.getRetryInitialMs());
+        long max = Math.max(initial, config.getRetryMaxMs());
+        retryDelayMs = retryDelayMs == 0 ? initial : Math.min(max, retryDelayMs * 2);
+        retryAtNanos = System.nanoTime() + retryDelayMs * 1_000_000;
+        if (e != null) {
+            logger.error("{}，{} ms 内回退到逐次调用模式，之后重试。", reason, retryDelayMs, e);
+        } else {
+            logger.warn("{}，{} ms 内回退到逐次调用模式，之后重试。", reason, retryDelayMs);
+        }
+    }
+
+    /**
+     * 应用关闭时释放会话。
+     */
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            if (handles.isEmpty()) {
+                return;
+            }
+            // 等待正在处理的请求归还句柄
+            for (int i = 0; i < handles.size(); i++) {
+                idle.take();
+            }
+            openCount = 0;
+            for (Pointer session : handles) {
+                library().closeSession(session);
+            }
+            logger.info("{} 个原生会话已关闭。", handles.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("等待原生会话归还时线程被中断，会话未关闭。");
+        } catch (RuntimeException | UnsatisfiedLinkError e) {
+            logger.error("关闭原生会话时发生错误。", e);
+        } finally {
+            openCount = 0;
+            handles.clear();
+            idle.clear();
+            lock.unlock();
+        }
+    }
+
+    private NativeSessionLib library() {
+        return nativeProperties.isDirectMapping() ? DIRECT_BINDING : NativeSessionLib.INSTANCE;
+    }
+}
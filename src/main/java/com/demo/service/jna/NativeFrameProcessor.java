@@ -0,0 +1,218 @@
+package com.demo.service.jna;
+
+import com.demo.config.NativeProperties;
+import com.demo.dto.ConfigDto;
+import com.demo.exception.ProcessException;
+import com.demo.service.jna.MultiFrameProcessorCpp.InputData;
+import com.demo.service.jna.MultiFrameProcessorCpp.NativeMultiFrameLib;
+import com.demo.service.jna.MultiFrameProcessorCpp.OutputData;
+import com.demo.service.processor.FrameProcessor;
+import com.demo.service.processor.MultiFrameOutput;
+import com.demo.service.processor.MultiFrameTask;
+import com.sun.jna.Native;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * 基于 JNA 的 {@link FrameProcessor} 实现，调用 C++ 核心库完成实际处理。
+ * - 单帧处理委托给 {@link ImgProcessorCpp}。
+ * - 多帧处理直接调用 "XJYTXFXCV_multi" 库，优先使用 {@link MultiFrameSession} 的持久化会话。
+ * 由 app.processor.type=native 启用 (默认)。
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.processor", name = "type", havingValue = "native", matchIfMissing = true)
+public class NativeFrameProcessor implements FrameProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(NativeFrameProcessor.class);
+
+    /**
+     * 每个工作线程持有一组可复用的 JNA 结构体，避免每次请求重新分配原生内存。
+     */
+    private static final ThreadLocal<CallFrame> CALL_FRAMES = ThreadLocal.withInitial(CallFrame::new);
+
+    private final ImgProcessorCpp singleFrameProcessor;
+    private final MultiFrameSession modelSession;
+    private final NativeProperties nativeProperties;
+
+    public NativeFrameProcessor(ImgProcessorCpp singleFrameProcessor,
+                                MultiFrameSession modelSession,
+                                NativeProperties nativeProperties) {
+        this.singleFrameProcessor = singleFrameProcessor;
+        this.modelSession = modelSession;
+        this.nativeProperties = nativeProperties;
+        logger.info("图像处理核心: C++ 原生库 (JNA)。");
+    }
+
+    /**
+     * JNA 直接映射 (Direct Mapping) 绑定，对应 "XJYTXFXCV_multi" 库。
+     * 该类只在第一次调用时初始化，因此库缺失不会影响应用启动。
+     * @see ImgProcessorCpp 单帧处理器中的同类实现。
+     */
+    static final class DirectMultiFrameLib {
+        static {
+            Native.register(DirectMultiFrameLib.class, "XJYTXFXCV_multi");
+        }
+
+        private DirectMultiFrameLib() {}
+
+        static native int processImageWrapper(InputData.ByReference input, OutputData.ByReference output);
+
+        static native void freeOutputData(OutputData.ByReference output);
+    }
+
+    /**
+     * 将直接映射的静态方法适配为 {@link NativeMultiFrameLib} 接口。
+     */
+    private static final NativeMultiFrameLib DIRECT_BINDING = new NativeMultiFrameLib() {
+        @Override
+        public int processImageWrapper(InputData.ByReference input, OutputData.ByReference output) {
+            return DirectMultiFrameLib.processImageWrapper(input, output);
+        }
+
+        @Override
+        public void freeOutputData(OutputData.ByReference output) {
+            DirectMultiFrameLib.freeOutputData(output);
+        }
+    };
+
+    /**
+     * 单个工作线程复用的输入/输出结构体。
+     * 关闭 JNA 自动同步，由调用方在原生调用前后显式 write()/read()。
+     */
+    static final class CallFrame {
+        final InputData.ByReference input = new InputData.ByReference();
+        final OutputData.ByReference output = new OutputData.ByReference();
+
+        CallFrame() {
+            input.setAutoSynch(false);
+            output.setAutoSynch(false);
+        }
+
+        /**
+         * 释放对本次请求数据的引用 (包括 JNA 为字符串分配的原生内存)，以便下次复用。
+         */
+        void release() {
+            input.inputPathSet.outputDir = null;
+            input.inputPathSet.par_path = null;
+            input.inputPathSet.trackPath = null;
+            input.inputPathSet.inImgDir = null;
+            input.algorithmName = null;
+            input.write();
+            output.outputPathSet.feature_path = null;
+            output.outputPathSet.outImgDir = null;
+            output.message = null;
+            output.fileNum = 0;
+        }
+    }
+
+    /**
+     * 根据配置选择原生库绑定方式。
+     */
+    private NativeMultiFrameLib library() {
+        return nativeProperties.isDirectMapping() ? DIRECT_BINDING : NativeMultiFrameLib.INSTANCE;
+    }
+
+    /**
+     * 使用持久化会话时，并行度受打开的会话个数限制 (app.native.session.pool-size)；
+     * 逐次调用路径不做限制。
+     */
+    @Override
+    public int multiFrameConcurrency() {
+        int sessions = modelSession.concurrency();
+        return sessions > 0 ? sessions : Integer.MAX_VALUE;
+    }
+
+    @Override
+    public ImgProcessorCpp.SingleFrameResult processSingleFrame(String imgBase64, String cropBase64,
+                                                                Map<String, Integer> cropCoordinates, String algorithm) {
+        return singleFrameProcessor.processImage(imgBase64, cropBase64, cropCoordinates, algorithm);
+    }
+
+    @Override
+    public MultiFrameOutput processMultiFrame(MultiFrameTask task) {
+        // 取出当前线程复用的输入和输出结构体
+        CallFrame frame = CALL_FRAMES.get();
+        InputData.ByReference inputData = frame.input;
+        OutputData.ByReference outputData = frame.output;
+        int processStatus;
+
+        // 1. 填充 InputPathSet
+        inputData.inputPathSet.inImgDir = task.getImageDir();
+        inputData.inputPathSet.outputDir = task.getOutputDir(); // C++ 需要这个根目录
+        inputData.inputPathSet.par_path = modelSession.getParameterPath();
+        inputData.inputPathSet.trackPath = task.getTrackPath(); // 如果 mode=1，可以为 null
+
+        // 2. 填充 InputData 的其余字段
+        ConfigDto.Region region = task.getCrop();
+        inputData.mode = task.getMode();
+        inputData.algorithmName = task.getAlgorithmName();
+        inputData.fileNum = task.getFileNum();
+        inputData.crop.x = region.getX();
+        inputData.crop.y = region.getY();
+        inputData.crop.width = region.getWidth();
+        inputData.crop.height = region.getHeight();
+        inputData.imgType = 1; // 默认值，与 C++ demo 一致
+        inputData.id = 0; // 默认值
+
+        // 原生调用之后无论成功与否 (含 JNA Error、封送时的 RuntimeException) 都释放输出并归还结构体
+        boolean nativeCalled = false;
+        try {
+            // 3. 显式写入输入结构体并清空输出结构体 (已关闭 JNA 自动同步)
+            inputData.write();
+            outputData.clear();
+
+            try {
+                // 优先使用已加载模型的持久化会话，不可用时回退到逐次调用 (每次都会加载模型)
+                nativeCalled = true;
+                OptionalInt sessionStatus = modelSession.process(inputData, outputData);
+                if (sessionStatus.isPresent()) {
+                    logger.info("已通过持久化会话调用C++ (多帧模式)。");
+                    processStatus = sessionStatus.getAsInt();
+                } else {
+                    logger.info("调用C++ processImageWrapper (多帧模式)...");
+                    processStatus = library().processImageWrapper(inputData, outputData);
+                }
+            } catch (UnsatisfiedLinkError | NoClassDefFoundError ule) {
+                nativeCalled = false; // 库未能链接，C++ 没有写入输出
+                logger.error("JNA链接错误: {}", ule.getMessage(), ule);
+                throw new ProcessException("无法链接到多帧核心处理库。确保 XJYTXFXCV_multi 及其依赖项正确。", ule);
+            }
+
+            outputData.read(); // 显式读取 C++ 填充的结果
+            logger.info("C++ processImageWrapper (多帧模式) 返回状态: {}", processStatus);
+
+            if (processStatus != 0) {
+                String errorMsg = "C++ (多帧) 处理失败。状态: " + processStatus + ", 消息: " + outputData.message;
+                logger.error(errorMsg);
+                throw new ProcessException(errorMsg);
+            }
+
+            String resultOutputDir = outputData.outputPathSet.outImgDir;
+            String featureFilePath = outputData.outputPathSet.feature_path;
+            if (resultOutputDir == null || resultOutputDir.trim().isEmpty() ||
+                    featureFilePath == null || featureFilePath.trim().isEmpty()) {
+                throw new ProcessException("核心算法返回的路径无效。");
+            }
+            logger.info("C++ (多帧) 处理成功。消息: '{}', 图像输出目录: '{}', 特征文件: '{}'",
+                    outputData.message, resultOutputDir, featureFilePath);
+
+            // 在释放 C++ 内存之前，将需要的数据复制到 Java 对象中
+            return new MultiFrameOutput(featureFilePath, resultOutputDir, outputData.message, outputData.fileNum);
+        } finally {
+            // 4. 释放 C++ 内存，并归还复用的结构体
+            if (nativeCalled) {
+                try {
+                    library().freeOutputData(outputData);
+                    logger.info("已调用 freeOutputData (多帧) 清理 OutputData。");
+                } catch (RuntimeException | Error e) {
+                    logger.error("调用 freeOutputData (多帧) 时发生错误。", e);
+                }
+            }
+            frame.release();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.demo.service.processor;
+
+import com.demo.service.jna.ImgProcessorCpp;
+
+import java.util.Map;
+
+/**
+ * 图像处理核心的服务提供接口 (SPI)。
+ * 上层流程 (上传、解析、持久化、导出) 只依赖这个接口，具体实现由 app.processor.type 选择：
+ * - native: 通过 JNA 调用 C++ 核心库 ({@link com.demo.service.jna.NativeFrameProcessor})。
+ * - java:   纯 Java 参考实现，生成结构正确的合成数据 ({@link JavaFrameProcessor})，
+ *           用于在没有 C++ 库的机器上进行压测、性能分析和回归测试。
+ */
+public interface FrameProcessor {
+
+    /**
+     * 处理单帧图像。
+     * @param imgBase64 原始图像的 Base64 字符串。
+     * @param cropBase64 裁剪后图像的 Base64 字符串。
+     * @param cropCoordinates 包含裁剪坐标的 Map。
+     * @param algorithm 要使用的算法名称。
+     * @return 处理结果。
+     * @throws com.demo.exception.ProcessException 如果处理失败。
+     */
+    ImgProcessorCpp.SingleFrameResult processSingleFrame(String imgBase64, String cropBase64,
+                                                         Map<String, Integer> cropCoordinates, String algorithm);
+
+    /**
+     * 处理一个目录中的多帧图像序列，生成 Feature.dat 和结果图像。
+     * @param task 多帧处理任务参数。
+     * @return 输出路径和状态信息。
+     * @throws com.demo.exception.ProcessException 如果处理失败或返回的路径无效。
+     */
+    MultiFrameOutput processMultiFrame(MultiFrameTask task);
+
+    /**
+     * @return 多帧处理实际能够并行执行的调用个数，超出部分在实现内部排队。
+     *         分片处理 ({@link ShardedMultiFrameProcessor}) 的并行度不超过该值。默认不限制。
+     */
+    default int multiFrameConcurrency() {
+        return Integer.MAX_VALUE;
+    }
+}
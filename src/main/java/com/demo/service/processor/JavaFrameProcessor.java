@@ -0,0 +1,223 @@
+package com.demo.service.processor;
+
+import com.demo.config.ImageProperties;
+import com.demo.config.ProcessorProperties;
+import com.demo.dto.ConfigDto;
+import com.demo.exception.ProcessException;
+import com.demo.service.FeatureLayout;
+import com.demo.service.jna.ImgProcessorCpp;
+import com.demo.util.ConvertDatToImg;
+import com.demo.util.NaturalSort;
+import com.demo.util.PngEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 纯 Java 参考实现的 {@link FrameProcessor}。
+ * 不依赖 C++ 库，生成布局正确的合成数据：
+ * - 单帧：原样返回输入图像，并生成可复现的特征数组。
+ * - 多帧：按 C++ 的目录约定创建 result/img{时间戳} 与 result/feature{时间戳}，
+ *   为每帧写出 {文件名}_{帧号}.png 与 roi_{文件名}_{帧号}.png，
+ *   并按 app.features.definitions 的布局写出 Feature.dat。
+ * 处理延迟可通过 app.processor.java.* 调节，用于在任意 Linux 机器上压测整条流水线。
+ * 由 app.processor.type=java 启用。
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.processor", name = "type", havingValue = "java")
+public class JavaFrameProcessor implements FrameProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(JavaFrameProcessor.class);
+
+    // 合成时间戳的起点与帧间隔
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0, 0);
+    private static final long FRAME_INTERVAL_MS = 40;
+
+    private final ProcessorProperties.Java config;
+    private final FeatureLayout featureLayout;
+    private final PngEncoder.Options previewPng;
+
+    public JavaFrameProcessor(ProcessorProperties processorProperties, FeatureLayout featureLayout,
+                              ImageProperties imageProperties) {
+        this.config = processorProperties.getJava();
+        this.featureLayout = featureLayout;
+        this.previewPng = imageProperties.getPng().getPreview();
+        logger.info("图像处理核心: 纯 Java 参考实现 (合成数据)。");
+    }
+
+    @Override
+    public ImgProcessorCpp.SingleFrameResult processSingleFrame(String imgBase64, String cropBase64,
+                                                                Map<String, Integer> cropCoordinates, String algorithm) {
+        logger.info("开始处理单帧图像 (Java 参考实现), 算法: {}", algorithm);
+        simulateLatency(config.getSingleLatencyMs());
+
+        String source = cropBase64 != null ? cropBase64 : imgBase64;
+        SplittableRandom random = new SplittableRandom(config.getSeed() ^ (source != null ? source.hashCode() : 0));
+        float[] result = new float[config.getResultLength()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (float) random.nextDouble();
+        }
+        return new ImgProcessorCpp.SingleFrameResult(true, source, result, result.length, "Java 参考实现处理成功");
+    }
+
+    @Override
+    public MultiFrameOutput processMultiFrame(MultiFrameTask task) {
+        long start = System.nanoTime();
+        List<Path> inputFiles;
+        try (Stream<Path> paths = Files.list(Paths.get(task.getImageDir()))) {
+            // 与上传时的帧顺序一致：按文件名的自然顺序
+            inputFiles = NaturalSort.sorted(paths.filter(Files::isRegularFile).collect(Collectors.toList()),
+                    path -> path.getFileName().toString());
+        } catch (IOException e) {
+            throw new ProcessException("无法读取输入目录: " + task.getImageDir(), e);
+        }
+        if (inputFiles.isEmpty()) {
+            throw new ProcessException("输入目录中没有可处理的文件: " + task.getImageDir());
+        }
+
+        int numFrames = inputFiles.size();
+        simulateLatency(config.getMultiBaseLatencyMs() + config.getPerFrameLatencyMs() * numFrames);
+
+        try {
+            ResultDirs dirs = ResultDirs.create(Paths.get(task.getOutputDir()));
+            Path imgDir = dirs.getImgDir();
+            Path featureFile = dirs.getFeatureDir().resolve("Feature.dat");
+
+            for (int i = 0; i < numFrames; i++) {
+                Path input = inputFiles.get(i);
+                String fileName = input.getFileName().toString();
+                int dot = fileName.lastIndexOf('.');
+                String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+
+                BufferedImage image = loadFrame(input, i);
+                Files.write(imgDir.resolve(baseName + "_" + i + ".png"), PngEncoder.encode(image, previewPng));
+                Files.write(imgDir.resolve("roi_" + baseName + "_" + i + ".png"),
+                        PngEncoder.encode(cropRoi(image, task.getCrop()), previewPng));
+            }
+            writeFeatureFile(featureFile, numFrames);
+
+            logger.info("Java 参考实现 (多帧) 处理完成: {} 帧, 耗时 {} ms, 图像输出目录: '{}'",
+                    numFrames, (System.nanoTime() - start) / 1_000_000, imgDir);
+            return new MultiFrameOutput(featureFile.toAbsolutePath().toString(), imgDir.toAbsolutePath().toString(),
+                    "Java 参考实现处理成功", numFrames);
+        } catch (IOException e) {
+            throw new ProcessException("Java 参考实现写出结果失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 读取一帧原始数据 (小端 double) 并归一化为灰度图；数据不足时生成合成图案。
+     */
+    private BufferedImage loadFrame(Path input, int frameIndex) throws IOException {
+        int width = config.getImageWidth();
+        int height = config.getImageHeight();
+        int pixels = width * height;
+        if (Files.size(input) >= (long) pixels * Double.BYTES) {
+            try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+                DoubleBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, (long) pixels * Double.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+                return ConvertDatToImg.toGrayImage(data, height, width);
+            }
+        }
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] gray = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                gray[y * width + x] = (byte) (x + y + frameIndex);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * 按配置的裁剪区域截取 ROI 图像，区域越界时裁剪到图像范围内。
+     */
+    private BufferedImage cropRoi(BufferedImage image, ConfigDto.Region region) {
+        if (region == null) {
+            return image;
+        }
+        int x = Math.max(0, Math.min(region.getX(), image.getWidth() - 1));
+        int y = Math.max(0, Math.min(region.getY(), image.getHeight() - 1));
+        int w = Math.max(1, Math.min(region.getWidth(), image.getWidth() - x));
+        int h = Math.max(1, Math.min(region.getHeight(), image.getHeight() - y));
+        return image.getSubimage(x, y, w, h);
+    }
+
+    /**
+     * 按 C++ 写入顺序生成 Feature.dat：
+     * numFrames, category_num, category_type, confidences[numFrames*category_num]，
+     * 然后按 app.features.definitions 顺序逐列写入 numFrames 个值。
+     */
+    private void writeFeatureFile(Path featureFile, int numFrames) throws IOException {
+        SplittableRandom random = new SplittableRandom(config.getSeed());
+        int categoryNum = config.getCategoryNum();
+        float[] remaining = new float[1];
+        featureLayout.write(featureFile, new FeatureLayout.Header(numFrames, categoryNum, 0),
+                (c, frame) -> {
+                    // 每帧的置信度之和为 1
+                    if (c == 0) {
+                        remaining[0] = 1f;
+                    }
+                    float confidence = c == categoryNum - 1 ? remaining[0] : remaining[0] * (float) random.nextDouble();
+                    remaining[0] -= confidence;
+                    return confidence;
+                },
+                (column, frame) -> syntheticValue(featureLayout.getColumns().get(column).getName(), frame, random));
+    }
+
+    /**
+     * 为指定特征生成合成值。时间与地理字段生成连续、合法的值，其余字段为随机值。
+     */
+    private double syntheticValue(String name, int frameIndex, SplittableRandom random) {
+        LocalDateTime time = BASE_TIME.plusNanos(frameIndex * FRAME_INTERVAL_MS * 1_000_000L);
+        switch (name) {
+            case "year": return time.getYear();
+            case "month": return time.getMonthValue();
+            case "day": return time.getDayOfMonth();
+            case "hour": return time.getHour();
+            case "min": return time.getMinute();
+            case "sec": return time.getSecond();
+            case "msec": return time.getNano() / 1_000_000.0;
+            case "lgt": return 116.0 + frameIndex * 1e-4;
+            case "lat": return 39.0 + frameIndex * 1e-4;
+            case "alt": return 10000.0 + random.nextDouble() * 100;
+            case "tl_xs":
+            case "peakPosX": return random.nextInt(config.getImageWidth());
+            case "tl_ys":
+            case "peakPosY": return random.nextInt(config.getImageHeight());
+            case "widths":
+            case "heights": return 1 + random.nextInt(64);
+            case "xjy_area": return 1 + random.nextInt(4096);
+            default: return random.nextDouble() * 100;
+        }
+    }
+
+    private void simulateLatency(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessException("处理被中断。", e);
+        }
+    }
+}
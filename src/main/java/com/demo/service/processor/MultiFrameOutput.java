@@ -0,0 +1,19 @@
+package com.demo.service.processor;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 多帧处理结果，对应 C++ OutputData 的内容。
+ * 数据已复制到 Java 对象中，不再引用任何原生内存。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultiFrameOutput {
+    private String featurePath; // Feature.dat 的路径
+    private String outImgDir;   // 结果图像目录
+    private String message;     // 状态或调试消息
+    private int fileNum;        // 实际处理的文件数量
+}
@@ -0,0 +1,31 @@
+package com.demo.service.processor;
+
+/**
+ * 多帧处理进度回调。
+ * 在处理线程中同步调用，实现应尽快返回且不抛出异常。
+ */
+@FunctionalInterface
+public interface MultiFrameProgressListener {
+
+    /**
+     * 多帧处理的阶段。
+     */
+    enum Stage {
+        STAGED,          // 上传文件已保存到临时目录
+        NATIVE_STARTED,  // 开始调用处理核心
+        NATIVE_FINISHED, // 处理核心返回
+        PARSED,          // Feature.dat 解析完成
+        PERSISTED        // 特征数据已写入数据库
+    }
+
+    /**
+     * 不关心进度时使用的空实现。
+     */
+    MultiFrameProgressListener NONE = (stage, detail) -> { };
+
+    /**
+     * @param stage  到达的阶段
+     * @param detail 附加信息，可为 null
+     */
+    void onProgress(Stage stage, String detail);
+}
@@ -0,0 +1,22 @@
+package com.demo.service.processor;
+
+import com.demo.dto.ConfigDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 多帧处理任务参数，对应 C++ InputData / InputPathSet 中与具体实现无关的部分。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultiFrameTask {
+    private String imageDir;      // 待处理图像所在目录 (对应 C++ inImgDir)
+    private String outputDir;     // 结果根目录，实现会在其下创建带时间戳的 img/feature 目录
+    private String trackPath;     // 轨迹文件路径，mode=1 时为 null
+    private String algorithmName; // 算法名称
+    private int mode;             // 处理模式 (1=多帧, 2=GJ)
+    private int fileNum;          // 图像文件数量
+    private ConfigDto.Region crop; // 裁剪区域
+}
@@ -0,0 +1,40 @@
+package com.demo.service.processor;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 一次多帧分析的结果目录对: imgyyyy-MM-dd-HH-mm-ss 与 featureyyyy-MM-dd-HH-mm-ss。
+ * 命名与 C++ 处理核心的输出约定一致，AnalysisCatalogService 按同样的格式解析时间戳。
+ */
+@Getter
+public final class ResultDirs {
+    public static final DateTimeFormatter DIR_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd-HH-mm-ss");
+
+    private final Path imgDir;
+    private final Path featureDir;
+
+    private ResultDirs(Path imgDir, Path featureDir) {
+        this.imgDir = imgDir;
+        this.featureDir = featureDir;
+    }
+
+    /**
+     * 在 outputDir 下创建带当前时间戳的 img 与 feature 目录 (同一秒内重复时追加序号)。
+     */
+    public static ResultDirs create(Path outputDir) throws IOException {
+        String timestamp = LocalDateTime.now().format(DIR_TIMESTAMP);
+        String suffix = timestamp;
+        for (int n = 1; Files.exists(outputDir.resolve("img" + suffix)) || Files.exists(outputDir.resolve("feature" + suffix)); n++) {
+            suffix = timestamp + "-" + n;
+        }
+        Path imgDir = Files.createDirectories(outputDir.resolve("img" + suffix));
+        Path featureDir = Files.createDirectories(outputDir.resolve("feature" + suffix));
+        return new ResultDirs(imgDir, featureDir);
+    }
+}
@@ -0,0 +1,280 @@
+package com.demo.service.processor;
+
+import com.demo.config.ShardingProperties;
+import com.demo.exception.ProcessException;
+import com.demo.service.FeatureParserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 多帧序列的分片并行处理 (仅 mode=1，帧之间没有轨迹连续性)。
+ * 1. 把按顺序排列的帧切分为 K 个连续的分片，每个分片在自己的目录中 (硬链接，不复制数据) 交给 {@link FrameProcessor}。
+ * 2. 各分片并发处理，输出到 result/.shards-{uuid}/{k}。
+ * 3. 合并为一个分析：Feature.dat 由 {@link FeatureParserService#mergeFeatureFiles} 按帧顺序拼接；
+ *    结果图像移动到新的 img 目录，文件名中的帧号 ({文件名}_{帧号}.png) 加上分片的起始帧号，与不分片时一致。
+ * 分片大小根据最近测得的每帧耗时自适应 (见 {@link ShardingProperties#getTargetChunkMillis()})。
+ * 并行度不超过 {@link FrameProcessor#multiFrameConcurrency()}：原生处理核心使用持久化会话时即打开的会话个数，
+ * 只有一个会话时各分片会在会话上排队，因此不分片。
+ */
+@Component
+public class ShardedMultiFrameProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedMultiFrameProcessor.class);
+    // {可选 roi_}{文件名}_{帧号}.png
+    private static final Pattern FRAME_IMAGE = Pattern.compile("^(.*)_(\\d+)(\\.png)$", Pattern.CASE_INSENSITIVE);
+    private static final String FEATURE_FILE = "Feature.dat";
+
+    private final FrameProcessor frameProcessor;
+    private final FeatureParserService featureParserService;
+    private final ShardingProperties properties;
+    private final int parallelism;
+    private final ExecutorService pool;
+    // 最近测得的每帧耗时 (毫秒，指数滑动平均)，含每次调用的固定开销；尚无测量时为 0
+    private volatile double msPerFrame;
+    private final AtomicBoolean serialWarningLogged = new AtomicBoolean();
+
+    public ShardedMultiFrameProcessor(FrameProcessor frameProcessor,
+                                      FeatureParserService featureParserService,
+                                      ShardingProperties properties) {
+        this.frameProcessor = frameProcessor;
+        this.featureParserService = featureParserService;
+        this.properties = properties;
+        this.parallelism = properties.getParallelism() > 0
+                ? properties.getParallelism() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "multi-frame-shard-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * @param task          多帧任务
+     * @param orderedFrames 按帧顺序排列的输入文件
+     * @return 该任务是否应分片处理 (所有输入文件都必须位于 task.imageDir 下)。
+     */
+    public boolean shouldShard(MultiFrameTask task, List<Path> orderedFrames) {
+        if (properties.isEnabled() && parallelism >= 2 && effectiveParallelism() < 2
+                && serialWarningLogged.compareAndSet(false, true)) {
+            logger.warn("已启用分片，但处理核心同一时刻只能执行一个多帧调用 (原生会话 app.native.session.pool-size=1)，不分片。");
+        }
+        if (!properties.isEnabled() || effectiveParallelism() < 2 || task.getMode() != 1
+                || orderedFrames.size() < Math.max(properties.getMinFrames(), 2 * Math.max(1, properties.getMinChunkFrames()))) {
+            return false;
+        }
+        Path imageDir = Paths.get(task.getImageDir()).toAbsolutePath().normalize();
+        return orderedFrames.stream().allMatch(p -> p.toAbsolutePath().normalize().startsWith(imageDir));
+    }
+
+    /**
+     * 分片处理并合并结果。
+     *
+     * @param task          原始任务 (imageDir 与 outputDir 用于确定分片目录与合并后的输出位置)
+     * @param orderedFrames 按帧顺序排列的输入文件 (均位于 task.imageDir 下)
+     * @return 合并后的输出，与一次完整调用的输出格式相同
+     */
+    public MultiFrameOutput process(MultiFrameTask task, List<Path> orderedFrames) throws IOException {
+        long start = System.nanoTime();
+        int numFrames = orderedFrames.size();
+        int parallelism = effectiveParallelism();
+        int chunkSize = chunkSize(numFrames, parallelism);
+        Path imageDir = Paths.get(task.getImageDir());
+        Path outputRoot = Paths.get(task.getOutputDir());
+        String shardId = ".shards-" + UUID.randomUUID();
+        Path shardRoot = outputRoot.resolve(shardId);
+        Path inputRoot = imageDir.resolveSibling(shardId);
+
+        List<CompletableFuture<MultiFrameOutput>> futures = new ArrayList<>();
+        List<Integer> offsets = new ArrayList<>();
+        try {
+            for (int offset = 0, k = 0; offset < numFrames; offset += chunkSize, k++) {
+                List<Path> chunk = orderedFrames.subList(offset, Math.min(numFrames, offset + chunkSize));
+                Path shardImageDir = linkShard(imageDir, inputRoot.resolve(Integer.toString(k)).resolve(imageDir.getFileName()), chunk);
+                Path shardOutputDir = Files.createDirectories(shardRoot.resolve(Integer.toString(k)));
+                MultiFrameTask shardTask = new MultiFrameTask(shardImageDir.toString(), shardOutputDir.toString(),
+                        null, task.getAlgorithmName(), task.getMode(), chunk.size(), task.getCrop());
+                offsets.add(offset);
+                futures.add(CompletableFuture.supplyAsync(() -> processShard(shardTask), pool));
+            }
+            logger.info("多帧序列分片处理: {} 帧, 分片大小 {}, 分片数 {}, 并行度 {}",
+                    numFrames, chunkSize, futures.size(), parallelism);
+
+            List<MultiFrameOutput> outputs = new ArrayList<>(futures.size());
+            for (CompletableFuture<MultiFrameOutput> future : futures) {
+                outputs.add(join(future));
+            }
+            MultiFrameOutput merged = merge(outputRoot, outputs, offsets);
+            logger.info("分片处理与合并完成: {} 帧, 耗时 {} ms", numFrames, (System.nanoTime() - start) / 1_000_000);
+            return merged;
+        } finally {
+            // 失败时等待已提交的分片结束，再删除分片目录
+            for (CompletableFuture<MultiFrameOutput> future : futures) {
+                future.exceptionally(e -> null).join();
+            }
+            deleteRecursively(shardRoot);
+            deleteRecursively(inputRoot);
+        }
+    }
+
+    /**
+     * @return 实际并行度: 配置的并行度与处理核心能够并行执行的调用个数中的较小值。
+     */
+    private int effectiveParallelism() {
+        return Math.min(parallelism, Math.max(1, frameProcessor.multiFrameConcurrency()));
+    }
+
+    /**
+     * 分片大小：有测量值时取 targetChunkMillis / 每帧耗时，否则平均分给所有线程；
+     * 不小于 minChunkFrames，不大于 ceil(总帧数 / 并行度)。
+     */
+    int chunkSize(int numFrames, int parallelism) {
+        int maxChunk = (numFrames + parallelism - 1) / parallelism;
+        int minChunk = Math.max(1, properties.getMinChunkFrames());
+        double perFrame = msPerFrame;
+        int chunk = perFrame > 0 ? (int) Math.min(Integer.MAX_VALUE, properties.getTargetChunkMillis() / perFrame) : maxChunk;
+        return Math.max(minChunk, Math.min(chunk, maxChunk));
+    }
+
+    private MultiFrameOutput processShard(MultiFrameTask shardTask) {
+        long start = System.nanoTime();
+        MultiFrameOutput output = frameProcessor.processMultiFrame(shardTask);
+        double perFrame = (System.nanoTime() - start) / 1e6 / Math.max(1, shardTask.getFileNum());
+        double previous = msPerFrame;
+        msPerFrame = previous > 0 ? previous * 0.7 + perFrame * 0.3 : perFrame;
+        return output;
+    }
+
+    /**
+     * 为分片建立输入目录：硬链接原文件 (保持相对 imageDir 的路径)，不支持硬链接时复制。
+     */
+    private static Path linkShard(Path imageDir, Path shardImageDir, List<Path> chunk) throws IOException {
+        Files.createDirectories(shardImageDir);
+        for (Path source : chunk) {
+            Path target = shardImageDir.resolve(imageDir.toAbsolutePath().normalize()
+                    .relativize(source.toAbsolutePath().normalize()).toString());
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            try {
+                Files.createLink(target, source);
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return shardImageDir;
+    }
+
+    /**
+     * 把各分片的输出合并到 outputRoot 下新的 img / feature 目录中。
+     */
+    private MultiFrameOutput merge(Path outputRoot, List<MultiFrameOutput> outputs, List<Integer> offsets) throws IOException {
+        ResultDirs dirs = ResultDirs.create(outputRoot);
+        Path imgDir = dirs.getImgDir();
+        Path featureDir = dirs.getFeatureDir();
+
+        List<Path> featureParts = new ArrayList<>(outputs.size());
+        int fileNum = 0;
+        for (int k = 0; k < outputs.size(); k++) {
+            MultiFrameOutput output = outputs.get(k);
+            fileNum += output.getFileNum();
+            moveImages(Paths.get(output.getOutImgDir()), imgDir, offsets.get(k), k);
+            if (output.getFeaturePath() != null && !output.getFeaturePath().trim().isEmpty()) {
+                Path featurePath = Paths.get(output.getFeaturePath());
+                featureParts.add(featurePath);
+                moveOthers(featurePath.getParent(), featureDir, featurePath.getFileName().toString(), k);
+            }
+        }
+        Path featureFile = featureDir.resolve(FEATURE_FILE);
+        featureParserService.mergeFeatureFiles(featureParts, featureFile);
+
+        String message = outputs.isEmpty() ? null : outputs.get(0).getMessage();
+        return new MultiFrameOutput(featureFile.toAbsolutePath().toString(), imgDir.toAbsolutePath().toString(),
+                message, fileNum);
+    }
+
+    /**
+     * 移动分片的结果图像，帧号加上分片的起始帧号。不符合命名约定的文件保持原名 (重名时加分片前缀)。
+     */
+    private static void moveImages(Path from, Path to, int offset, int shard) throws IOException {
+        try (Stream<Path> files = Files.list(from)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                Matcher m = FRAME_IMAGE.matcher(name);
+                if (m.matches()) {
+                    name = m.group(1) + "_" + (Long.parseLong(m.group(2)) + offset) + m.group(3);
+                }
+                move(file, to, name, shard);
+            }
+        }
+    }
+
+    private static void moveOthers(Path from, Path to, String skip, int shard) throws IOException {
+        try (Stream<Path> files = Files.list(from)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.equals(skip)) {
+                    move(file, to, name, shard);
+                }
+            }
+        }
+    }
+
+    private static void move(Path file, Path dir, String name, int shard) throws IOException {
+        try {
+            Files.move(file, dir.resolve(name));
+        } catch (FileAlreadyExistsException e) {
+            Files.move(file, dir.resolve("shard" + shard + "_" + name));
+        }
+    }
+
+    private static MultiFrameOutput join(CompletableFuture<MultiFrameOutput> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ProcessException("分片处理失败: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static void deleteRecursively(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException e) {
+            logger.warn("无法删除分片目录: {}", dir, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,68 @@
+package com.demo.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 应用目录的统一解析。
+ * - 在IDE中运行时，classes 目录为 D:\...\demo\target\classes，项目根目录为其上两级。
+ * - 从jar包运行时，jar 为 D:\...\demo\target\demo.jar，项目根目录同样为其上两级。
+ * 原生库的输出目录 (result)、模型参数 (Parameter) 都相对于项目根目录。
+ */
+public final class AppPaths {
+    private static final Logger logger = LoggerFactory.getLogger(AppPaths.class);
+
+    private static volatile Path projectRoot;
+
+    private AppPaths() {
+    }
+
+    /**
+     * @return 项目根目录；无法确定时回退到当前工作目录
+     */
+    public static Path projectRoot() {
+        Path root = projectRoot;
+        if (root == null) {
+            root = resolveProjectRoot();
+            projectRoot = root;
+        }
+        return root;
+    }
+
+    /**
+     * @return 结果根目录 (项目根目录下的 result)，与 C++ 的输出目录一致
+     */
+    public static Path resultRoot() {
+        return projectRoot().resolve("result");
+    }
+
+    private static Path resolveProjectRoot() {
+        try {
+            URL location = AppPaths.class.getProtectionDomain().getCodeSource().getLocation();
+            Path basePath;
+            if ("jar".equals(location.getProtocol())) {
+                // 从 "jar:file:/D:/demo/target/demo.jar!/..." 提取出 JAR 文件的路径
+                String jarPathString = location.toURI().getSchemeSpecificPart();
+                int bangIndex = jarPathString.indexOf('!');
+                if (bangIndex != -1) {
+                    jarPathString = jarPathString.substring(0, bangIndex);
+                }
+                Path jarFile = Paths.get(new URI(jarPathString));
+                basePath = jarFile.getParent().getParent();
+            } else {
+                Path classesPath = Paths.get(location.toURI());
+                basePath = classesPath.getParent().getParent();
+            }
+            logger.info("项目根目录（基准目录）设置为: {}", basePath);
+            return basePath;
+        } catch (Exception e) {
+            logger.error("无法动态确定项目根目录，将回退到使用当前工作目录。", e);
+            return Paths.get(".").toAbsolutePath();
+        }
+    }
+}
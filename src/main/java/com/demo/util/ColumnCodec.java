@@ -0,0 +1,202 @@
+package com.demo.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 特征列的压缩编码。
+ * - 整数列 (int / short): 相邻值做差 (delta)，差值 zigzag 映射为非负数后按 varint (每字节 7 位) 写出，
+ *   变化缓慢的列 (坐标、时间字段等) 每个值通常只占 1 字节。
+ * - 浮点列 (float): Gorilla 风格的 XOR 编码。每个值与前一个值的位模式做异或，
+ *   相同写 1 位 '0'；否则只写出异或结果中有效 (去掉前导零和尾随零) 的位，
+ *   有效位落在上一个值的窗口内时复用窗口，不再写前导零个数和长度。
+ * 编码结果不含长度信息，解码时由调用方给出值的个数。
+ */
+public final class ColumnCodec {
+
+    private ColumnCodec() {
+    }
+
+    // ---------------- 整数: delta + zigzag + varint ----------------
+
+    /**
+     * @return 编码后的字节
+     */
+    public static byte[] encodeInts(int[] values, int count) {
+        byte[] out = new byte[Math.max(16, count + count / 4)];
+        int pos = 0;
+        int prev = 0;
+        for (int i = 0; i < count; i++) {
+            long delta = (long) values[i] - prev;
+            prev = values[i];
+            long zigzag = (delta << 1) ^ (delta >> 63);
+            if (pos + 10 > out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            while ((zigzag & ~0x7FL) != 0) {
+                out[pos++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            out[pos++] = (byte) zigzag;
+        }
+        return Arrays.copyOf(out, pos);
+    }
+
+    /**
+     * 从 buffer 当前位置解码 count 个整数，buffer 的位置移动到编码数据之后。
+     */
+    public static int[] decodeInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        int prev = 0;
+        for (int i = 0; i < count; i++) {
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get();
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            long delta = (zigzag >>> 1) ^ -(zigzag & 1);
+            prev = (int) (prev + delta);
+            values[i] = prev;
+        }
+        return values;
+    }
+
+    // ---------------- 浮点: Gorilla XOR ----------------
+
+    /**
+     * @return 编码后的字节
+     */
+    public static byte[] encodeFloats(float[] values, int count) {
+        BitWriter out = new BitWriter(Math.max(16, count * 2));
+        if (count == 0) {
+            return out.toByteArray();
+        }
+        int prevBits = Float.floatToRawIntBits(values[0]);
+        out.write(prevBits & 0xFFFFFFFFL, 32);
+        int prevLeading = -1;
+        int prevTrailing = 0;
+        for (int i = 1; i < count; i++) {
+            int bits = Float.floatToRawIntBits(values[i]);
+            int xor = bits ^ prevBits;
+            prevBits = bits;
+            if (xor == 0) {
+                out.write(0, 1);
+                continue;
+            }
+            int leading = Integer.numberOfLeadingZeros(xor);
+            int trailing = Integer.numberOfTrailingZeros(xor);
+            if (prevLeading >= 0 && leading >= prevLeading && trailing >= prevTrailing) {
+                // '10' + 窗口内的有效位
+                out.write(0b10, 2);
+                out.write((xor >>> prevTrailing) & 0xFFFFFFFFL, 32 - prevLeading - prevTrailing);
+            } else {
+                // '11' + 前导零个数 (5 位) + 有效位长度 - 1 (5 位) + 有效位
+                int significant = 32 - leading - trailing;
+                out.write(0b11, 2);
+                out.write(leading, 5);
+                out.write(significant - 1, 5);
+                out.write((xor >>> trailing) & 0xFFFFFFFFL, significant);
+                prevLeading = leading;
+                prevTrailing = trailing;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 从 buffer 当前位置解码 count 个浮点数，buffer 的位置移动到编码数据之后。
+     */
+    public static float[] decodeFloats(ByteBuffer buffer, int count) {
+        float[] values = new float[count];
+        if (count == 0) {
+            return values;
+        }
+        BitReader in = new BitReader(buffer);
+        int bits = (int) in.read(32);
+        values[0] = Float.intBitsToFloat(bits);
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < count; i++) {
+            if (in.read(1) != 0) {
+                if (in.read(1) != 0) {
+                    leading = (int) in.read(5);
+                    int significant = (int) in.read(5) + 1;
+                    trailing = 32 - leading - significant;
+                }
+                int significant = 32 - leading - trailing;
+                bits ^= (int) in.read(significant) << trailing;
+            }
+            values[i] = Float.intBitsToFloat(bits);
+        }
+        in.finish();
+        return values;
+    }
+
+    /**
+     * 按位写出，高位在前。
+     */
+    private static final class BitWriter {
+        private byte[] bytes;
+        private int pos;
+        private long acc;   // 尚未写出的位 (低 filled 位有效)
+        private int filled;
+
+        BitWriter(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        /**
+         * 写出 value 的低 n 位 (n <= 32)。
+         */
+        void write(long value, int n) {
+            acc = (acc << n) | (value & ((1L << n) - 1));
+            filled += n;
+            while (filled >= 8) {
+                if (pos == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                filled -= 8;
+                bytes[pos++] = (byte) (acc >>> filled);
+            }
+        }
+
+        byte[] toByteArray() {
+            if (filled > 0) {
+                write(0, 8 - filled);
+            }
+            return Arrays.copyOf(bytes, pos);
+        }
+    }
+
+    /**
+     * 按位读取，高位在前。预读的整字节在 {@link #finish()} 时退回，使 buffer 停在编码数据末尾。
+     */
+    private static final class BitReader {
+        private final ByteBuffer buffer;
+        private long acc;     // 预读的位 (低 available 位有效)
+        private int available;
+
+        BitReader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * 读取 n 位 (n <= 32)。
+         */
+        long read(int n) {
+            while (available < n) {
+                acc = (acc << 8) | (buffer.get() & 0xFF);
+                available += 8;
+            }
+            available -= n;
+            return (acc >>> available) & ((1L << n) - 1);
+        }
+
+        void finish() {
+            buffer.position(buffer.position() - available / 8);
+        }
+    }
+}
@@ -2,18 +2,21 @@ package com.demo.util;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.util.Base64Utils;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.awt.image.DataBufferByte;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * 数据转图像的工具类
@@ -22,6 +25,11 @@ import java.nio.DoubleBuffer;
 public class ConvertDatToImg {
     private static final Logger logger = LoggerFactory.getLogger(ConvertDatToImg.class);
 
+    // 像素数达到该值时按行分带并行转换 (512x512)
+    private static final int PARALLEL_THRESHOLD = 512 * 512;
+    // 每个并行分带的最大行数
+    private static final int BAND_ROWS = 64;
+
     /**
      * 将 .dat 文件或字节数组转换为 PNG 图像的 Base64 编码字符串。
      *
@@ -32,8 +40,52 @@ public class ConvertDatToImg {
      * @return          包含 Base64 编码字符串的 ConvertResult 对象，转换失败时返回 null
      */
     public static ConvertResult convertToPngBase64(byte[] datBytes, String filename, int rows, int cols) {
+        return convertToPngBase64(datBytes, filename, rows, cols, PngEncoder.DEFAULT);
+    }
+
+    /**
+     * 将 .dat 文件或字节数组转换为 PNG 图像的 Base64 编码字符串，并指定 PNG 编码参数。
+     *
+     * @param pngOptions PNG 编码参数 (压缩级别、行过滤器)
+     * @see #convertToPngBase64(byte[], String, int, int)
+     */
+    public static ConvertResult convertToPngBase64(byte[] datBytes, String filename, int rows, int cols,
+                                                   PngEncoder.Options pngOptions) {
+        BufferedImage image = convertToImage(datBytes, filename, rows, cols);
+        if (image == null) {
+            return null;
+        }
+        try {
+            return new ConvertResult(PngEncoder.encodeToBase64(image, pngOptions));
+        } catch (IOException e) {
+            logger.error("转换文件到 PNG 失败 (ConvertDatToImg): {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 将 .dat 文件或字节数组转换为图像，不做 PNG 编码。
+     * .dat 文件转换为归一化的 TYPE_BYTE_GRAY 图像，其他文件按图像格式解码。
+     * 调用方可以在同一个栅格上裁剪 (见 {@link CropImg#crop})，再分别编码原图和裁剪图，避免重复解码。
+     *
+     * @param datBytes  输入的字节数组，可以是 .dat 文件数据或图像文件数据
+     * @param filename  文件名，用于判断是否为 .dat 文件
+     * @param rows      图像的行数（仅对 .dat 文件有效）
+     * @param cols      图像的列数（仅对 .dat 文件有效）
+     * @return          转换后的图像，转换失败时返回 null
+     */
+    public static BufferedImage convertToImage(byte[] datBytes, String filename, int rows, int cols) {
+        return convertToImage(ByteBuffer.wrap(datBytes), filename, rows, cols);
+    }
+
+    /**
+     * 将缓冲区中的 .dat 数据或图像文件转换为图像，不复制到 byte[]。
+     * 缓冲区可以是直接缓冲区或内存映射缓冲区，读取范围为 [position, limit)，不改变其 position。
+     *
+     * @see #convertToImage(byte[], String, int, int)
+     */
+    public static BufferedImage convertToImage(ByteBuffer data, String filename, int rows, int cols) {
         try {
-            String normalizedBase64 = null;
             if (filename.toLowerCase().endsWith(".dat")) {
                 // 处理 .dat 文件
                 if (rows <= 0 || cols <= 0) {
@@ -42,7 +94,7 @@ public class ConvertDatToImg {
                 }
 
                 // 使用 ByteBuffer 读取 .dat 文件数据
-                ByteBuffer buffer = ByteBuffer.wrap(datBytes).order(ByteOrder.LITTLE_ENDIAN);
+                ByteBuffer buffer = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
                 DoubleBuffer doubleBuffer = buffer.asDoubleBuffer();
 
                 // 检查数据是否足够生成图像
@@ -51,29 +103,20 @@ public class ConvertDatToImg {
                     return null;
                 }
 
-                // 读取像素数据
-                double[] pixelDataDouble = new double[rows * cols];
-                doubleBuffer.get(pixelDataDouble, 0, rows * cols);
-
-                // 创建归一化图像
-                BufferedImage normalizedImage = createNormalizedImage(pixelDataDouble, rows, cols);
-                normalizedBase64 = encodeToBase64(normalizedImage);
-
+                // 直接从缓冲区创建归一化灰度图像
+                BufferedImage normalizedImage = toGrayImage(doubleBuffer, rows, cols);
                 // saveImageToLocal(normalizedImage, filename); // 可选：保存图像到本地
-            } else {
-                // 处理非 .dat 文件（假设是图像文件）
-                ByteArrayInputStream bais = new ByteArrayInputStream(datBytes);
-                BufferedImage image = ImageIO.read(bais);
-                if (image == null) {
-                    logger.error("无法读取图像文件: {}", filename);
-                    return null;
-                }
-                normalizedBase64 = encodeToBase64(image);
+                return normalizedImage;
             }
-            return new ConvertResult(normalizedBase64);
 
+            // 处理非 .dat 文件（假设是图像文件）
+            BufferedImage image = ImageIO.read(new ByteBufferInputStream(data.duplicate()));
+            if (image == null) {
+                logger.error("无法读取图像文件: {}", filename);
+            }
+            return image;
         } catch (IOException e) {
-            logger.error("转换文件到 PNG 失败 (ConvertDatToImg): {}", e.getMessage(), e);
+            logger.error("转换文件到图像失败 (ConvertDatToImg): {}", e.getMessage(), e);
             return null;
         } catch (NegativeArraySizeException | BufferUnderflowException e) {
             logger.error("读取 .dat 文件数据时出错: {}", e.getMessage(), e);
@@ -82,64 +125,146 @@ public class ConvertDatToImg {
     }
 
     /**
-     * 根据 double 数组创建归一化的灰度图像。
+     * 将 double 像素数据归一化为 8 位灰度图像。
+     * 直接从 DoubleBuffer 读取 (不复制到 double[])，先一次遍历求最小/最大值，
+     * 再用预先计算的倒数缩放，并把灰度字节直接写入 TYPE_BYTE_GRAY 图像的 DataBufferByte，
+     * 避免 setRGB 对每个像素做 ColorModel 转换。
+     * 像素数不少于 {@link #PARALLEL_THRESHOLD} 时按行分带，使用 fork-join 并行处理。
      *
-     * @param pixelDataFloat 像素数据数组
-     * @param imageRows      图像的行数
-     * @param imageCols      图像的列数
-     * @return               归一化后的 BufferedImage 对象
+     * @param data 像素数据 (从当前 position 开始，按行优先排列)
+     * @param rows 图像的行数
+     * @param cols 图像的列数
+     * @return     归一化后的灰度图像
      */
-    private static BufferedImage createNormalizedImage(double[] pixelDataFloat, int imageRows, int imageCols) {
-        if (pixelDataFloat == null || pixelDataFloat.length < imageRows * imageCols) {
-            logger.error("pixelDataFloat 为空或长度不足 {}x{}", imageRows, imageCols);
+    public static BufferedImage toGrayImage(DoubleBuffer data, int rows, int cols) {
+        int pixels = rows * cols;
+        if (data == null || data.remaining() < pixels) {
+            logger.error("像素数据为空或长度不足 {}x{}", rows, cols);
             return new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY); // 返回占位图像
         }
 
-        // 计算数据的最小值和最大值
+        BufferedImage image = new BufferedImage(cols, rows, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] gray = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int offset = data.position();
+        boolean parallel = pixels >= PARALLEL_THRESHOLD;
+
+        // 1. 计算数据的最小值和最大值
+        double[] range;
+        if (parallel) {
+            range = ForkJoinPool.commonPool().invoke(new MinMaxTask(data, offset, cols, 0, rows));
+        } else {
+            range = minMax(data, offset, pixels);
+        }
+        double minVal = range[0];
+        double maxVal = range[1];
+
+        // 2. 归一化并写入灰度字节
+        if (maxVal > minVal) {
+            double scale = 255.0 / (maxVal - minVal);
+            if (parallel) {
+                ForkJoinPool.commonPool().invoke(new NormalizeTask(data, offset, gray, cols, 0, rows, minVal, scale));
+            } else {
+                normalize(data, offset, gray, 0, pixels, minVal, scale);
+            }
+        } else if (minVal != 0) {
+            Arrays.fill(gray, (byte) 127); // 处理所有值相同的情况 (0.5 * 255)
+        }
+        return image;
+    }
+
+    /**
+     * 计算 [offset, offset + length) 范围内的最小值和最大值。
+     * @return [0] 最小值, [1] 最大值
+     */
+    private static double[] minMax(DoubleBuffer data, int offset, int length) {
         double minVal = Double.MAX_VALUE;
         double maxVal = -Double.MAX_VALUE;
-        for (int i = 0; i < imageRows * imageCols; i++) {
-            double val = pixelDataFloat[i];
+        for (int i = offset, end = offset + length; i < end; i++) {
+            double val = data.get(i);
             minVal = Math.min(minVal, val);
             maxVal = Math.max(maxVal, val);
         }
+        return new double[]{minVal, maxVal};
+    }
+
+    /**
+     * 将像素 [from, to) 归一化为 0-255 的灰度值写入 gray 数组。
+     */
+    private static void normalize(DoubleBuffer data, int offset, byte[] gray, int from, int to,
+                                  double minVal, double scale) {
+        for (int i = from; i < to; i++) {
+            int grayValue = (int) ((data.get(offset + i) - minVal) * scale);
+            gray[i] = (byte) Math.min(255, Math.max(0, grayValue));
+        }
+    }
 
-        // 创建 RGB 图像
-        BufferedImage bufferedImage = new BufferedImage(imageCols, imageRows, BufferedImage.TYPE_3BYTE_BGR);
-        for (int row = 0; row < imageRows; row++) {
-            for (int col = 0; col < imageCols; col++) {
-                int pixelIndex = row * imageCols + col;
+    /**
+     * 按行分带并行计算最小值和最大值。
+     */
+    private static final class MinMaxTask extends RecursiveTask<double[]> {
+        private final DoubleBuffer data;
+        private final int offset;
+        private final int cols;
+        private final int fromRow;
+        private final int toRow;
 
-                // 归一化像素值到 [0, 1] 范围
-                double normalizedVal = 0;
-                if (maxVal > minVal) {
-                    normalizedVal = (pixelDataFloat[pixelIndex] - minVal) / (maxVal - minVal);
-                } else if (maxVal == minVal && minVal != 0) {
-                    normalizedVal = 0.5; // 处理所有值相同的情况
-                }
+        MinMaxTask(DoubleBuffer data, int offset, int cols, int fromRow, int toRow) {
+            this.data = data;
+            this.offset = offset;
+            this.cols = cols;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
 
-                // 转换为灰度值（0-255）
-                int grayValue = (int) (normalizedVal * 255);
-                grayValue = Math.min(255, Math.max(0, grayValue));
-                int rgb = (grayValue << 16) | (grayValue << 8) | grayValue; // RGB 值相同（灰度）
-                bufferedImage.setRGB(col, row, rgb);
+        @Override
+        protected double[] compute() {
+            if (toRow - fromRow <= BAND_ROWS) {
+                return minMax(data, offset + fromRow * cols, (toRow - fromRow) * cols);
             }
+            int mid = (fromRow + toRow) >>> 1;
+            MinMaxTask upper = new MinMaxTask(data, offset, cols, fromRow, mid);
+            upper.fork();
+            double[] lower = new MinMaxTask(data, offset, cols, mid, toRow).compute();
+            double[] first = upper.join();
+            return new double[]{Math.min(first[0], lower[0]), Math.max(first[1], lower[1])};
         }
-        return bufferedImage;
     }
 
     /**
-     * 将 BufferedImage 编码为 Base64 字符串。
-     *
-     * @param image 输入的 BufferedImage 对象
-     * @return      Base64 编码的字符串
-     * @throws IOException 如果图像写入失败
+     * 按行分带并行归一化像素。各分带写入 gray 数组中互不重叠的区间。
      */
-    private static String encodeToBase64(BufferedImage image) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(image, "png", baos);
-        byte[] pngImageBytes = baos.toByteArray();
-        return Base64Utils.encodeToString(pngImageBytes);
+    private static final class NormalizeTask extends RecursiveAction {
+        private final DoubleBuffer data;
+        private final int offset;
+        private final byte[] gray;
+        private final int cols;
+        private final int fromRow;
+        private final int toRow;
+        private final double minVal;
+        private final double scale;
+
+        NormalizeTask(DoubleBuffer data, int offset, byte[] gray, int cols, int fromRow, int toRow,
+                      double minVal, double scale) {
+            this.data = data;
+            this.offset = offset;
+            this.gray = gray;
+            this.cols = cols;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.minVal = minVal;
+            this.scale = scale;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= BAND_ROWS) {
+                normalize(data, offset, gray, fromRow * cols, toRow * cols, minVal, scale);
+                return;
+            }
+            int mid = (fromRow + toRow) >>> 1;
+            invokeAll(new NormalizeTask(data, offset, gray, cols, fromRow, mid, minVal, scale),
+                    new NormalizeTask(data, offset, gray, cols, mid, toRow, minVal, scale));
+        }
     }
 
     /**
@@ -159,6 +284,37 @@ public class ConvertDatToImg {
         logger.info("已将 .dat 文件转换为 PNG 并保存到: {}", localFilePath);
     }
 
+    /**
+     * 以 InputStream 方式读取 ByteBuffer，供 ImageIO 解码图像文件。
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
     /**
      * 用于封装转换结果的内部类。
      */
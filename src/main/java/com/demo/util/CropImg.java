@@ -5,7 +5,6 @@ import org.springframework.util.Base64Utils;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Map;
 
@@ -28,6 +27,17 @@ public class CropImg {
      * @throws IOException 如果图像解码或编码过程中发生错误
      */
     public static String cropImage(String base64Image, Map<String, Integer> cropCoordinates) throws IOException {
+        return cropImage(base64Image, cropCoordinates, PngEncoder.DEFAULT);
+    }
+
+    /**
+     * 裁剪 Base64 编码的图像，并指定裁剪结果的 PNG 编码参数。
+     *
+     * @param pngOptions PNG 编码参数 (压缩级别、行过滤器)
+     * @see #cropImage(String, Map)
+     */
+    public static String cropImage(String base64Image, Map<String, Integer> cropCoordinates,
+                                   PngEncoder.Options pngOptions) throws IOException {
         // 如果没有裁剪数据或输入为空，则直接返回原始图像
         if (base64Image == null || cropCoordinates == null || cropCoordinates.isEmpty()) {
             return base64Image;
@@ -38,20 +48,32 @@ public class CropImg {
         ByteArrayInputStream bais = new ByteArrayInputStream(imageBytes);
         BufferedImage originalImage = ImageIO.read(bais);
 
+        // 裁剪图像
+        BufferedImage croppedImage = crop(originalImage, cropCoordinates);
+
+        // 将裁剪后的图像编码为 Base64 字符串
+        return PngEncoder.encodeToBase64(croppedImage, pngOptions);
+    }
+
+    /**
+     * 在已解码的图像栅格上裁剪，不做任何编码。
+     * 返回的图像与原图共享像素数据，不复制像素。
+     *
+     * @param image           原始图像
+     * @param cropCoordinates 裁剪坐标的 Map，键同 {@link #cropImage(String, Map)}
+     * @return 裁剪后的图像；没有裁剪数据时返回原图
+     */
+    public static BufferedImage crop(BufferedImage image, Map<String, Integer> cropCoordinates) {
+        if (image == null || cropCoordinates == null || cropCoordinates.isEmpty()) {
+            return image;
+        }
+
         // 从 Map 中获取裁剪坐标
         int x = cropCoordinates.get("left");
         int y = cropCoordinates.get("top");
         int width = cropCoordinates.get("width");
         int height = cropCoordinates.get("height");
 
-        // 裁剪图像
-        BufferedImage croppedImage = originalImage.getSubimage(x, y, width, height);
-
-        // 将裁剪后的图像编码为 Base64 字符串
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(croppedImage, "png", baos);
-        byte[] croppedImageBytes = baos.toByteArray();
-
-        return Base64Utils.encodeToString(croppedImageBytes);
+        return image.getSubimage(x, y, width, height);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,71 @@
+package com.demo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 经纬度固定网格。
+ * 全球按 {@link #CELL_DEGREES} 度划分为 {@link #COLUMNS} x {@link #ROWS} 个网格，
+ * 网格编号按行优先排列: row * COLUMNS + column (row 由纬度决定，column 由经度决定)，
+ * 因此同一纬度行内相邻的网格编号连续，一个矩形范围可以表示为每行一个编号区间。
+ */
+public final class GeoGrid {
+
+    /**
+     * 网格边长 (度)，约 1.1 km。网格编号持久化在数据库中，修改此值需要重建 geo_cell 列。
+     */
+    public static final double CELL_DEGREES = 0.01;
+    public static final int COLUMNS = (int) Math.round(360 / CELL_DEGREES);
+    public static final int ROWS = (int) Math.round(180 / CELL_DEGREES);
+
+    private GeoGrid() {
+    }
+
+    /**
+     * @return 经纬度所在网格的编号；任一坐标为 null 或 NaN 时返回 null。超出范围的坐标归入边缘网格。
+     */
+    public static Long cellOf(Float lgt, Float lat) {
+        if (lgt == null || lat == null || lgt.isNaN() || lat.isNaN()) {
+            return null;
+        }
+        return (long) row(lat) * COLUMNS + column(lgt);
+    }
+
+    /**
+     * 计算覆盖矩形范围的网格编号区间 (闭区间，按编号升序且互不相邻)。
+     * 每个纬度行一个区间；只有经度覆盖整行时相邻行才连成一个区间，因此区间内不会包含矩形经度范围以外的网格。
+     * 区间个数不超过 {@link #ROWS}。
+     *
+     * @return 每个元素为 {起始编号, 结束编号}
+     */
+    public static List<long[]> cover(double minLgt, double minLat, double maxLgt, double maxLat) {
+        int x0 = column(minLgt);
+        int x1 = column(maxLgt);
+        int y0 = row(minLat);
+        int y1 = row(maxLat);
+        List<long[]> ranges = new ArrayList<>();
+        for (int y = y0; y <= y1; y++) {
+            long from = (long) y * COLUMNS + x0;
+            long to = (long) y * COLUMNS + x1;
+            long[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && last[1] + 1 >= from) {
+                last[1] = to; // 经度覆盖整行时相邻行连成一个区间
+            } else {
+                ranges.add(new long[]{from, to});
+            }
+        }
+        return ranges;
+    }
+
+    private static int column(double lgt) {
+        return clamp((int) Math.floor((lgt + 180) / CELL_DEGREES), COLUMNS);
+    }
+
+    private static int row(double lat) {
+        return clamp((int) Math.floor((lat + 90) / CELL_DEGREES), ROWS);
+    }
+
+    private static int clamp(int index, int size) {
+        return Math.max(0, Math.min(size - 1, index));
+    }
+}
@@ -0,0 +1,201 @@
+package com.demo.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 文件名的自然排序工具。例如: "file_2.png" 会排在 "file_10.png" 之前。
+ * 每个名称只在排序前分解一次为 {@link Key} (文字段 + 数值段)，比较时不再分配对象；
+ * 元素较多时使用 {@link Arrays#parallelSort} 并行排序。
+ */
+public final class NaturalSort {
+
+    /**
+     * 元素数不少于该值时并行排序。
+     */
+    static final int PARALLEL_THRESHOLD = 8192;
+
+    private static final Comparator<Entry<?>> ENTRY_ORDER = (a, b) -> a.key.compareTo(b.key);
+
+    private NaturalSort() {
+    }
+
+    /**
+     * 按自然顺序对字符串列表原地排序。
+     *
+     * @param names 要排序的列表 (必须可修改)
+     */
+    public static void sort(List<String> names) {
+        Key[] keys = new Key[names.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new Key(names.get(i));
+        }
+        if (keys.length >= PARALLEL_THRESHOLD) {
+            Arrays.parallelSort(keys);
+        } else {
+            Arrays.sort(keys);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            names.set(i, keys[i].value);
+        }
+    }
+
+    /**
+     * 按元素名称的自然顺序返回排序后的新列表，原列表不变。名称为 null 时视为空字符串。
+     *
+     * @param items 要排序的元素
+     * @param name  取元素名称的函数，每个元素只调用一次
+     * @return 排序后的新列表
+     */
+    public static <T> List<T> sorted(List<? extends T> items, Function<? super T, String> name) {
+        @SuppressWarnings("unchecked")
+        Entry<T>[] entries = new Entry[items.size()];
+        for (int i = 0; i < entries.length; i++) {
+            T item = items.get(i);
+            String itemName = name.apply(item);
+            entries[i] = new Entry<>(new Key(itemName != null ? itemName : ""), item);
+        }
+        if (entries.length >= PARALLEL_THRESHOLD) {
+            Arrays.parallelSort(entries, ENTRY_ORDER);
+        } else {
+            Arrays.sort(entries, ENTRY_ORDER);
+        }
+        List<T> result = new ArrayList<>(entries.length);
+        for (Entry<T> entry : entries) {
+            result.add(entry.item);
+        }
+        return result;
+    }
+
+    private static final class Entry<T> {
+        private final Key key;
+        private final T item;
+
+        Entry(Key key, T item) {
+            this.key = key;
+            this.item = item;
+        }
+    }
+
+    /**
+     * 一个字符串的自然排序键。
+     * 构造时只扫描一次字符串，记录每段数字的位置和值；比较时直接比较字符区间与数值，不编译正则也不分配子串。
+     * 数值相同但写法不同 (如 "01" 与 "1") 时按原字符串比较，保证全序。
+     */
+    public static final class Key implements Comparable<Key> {
+        private final String value;
+        private final int[] digitStart; // 第 k 段数字的起始下标
+        private final int[] digitEnd;   // 第 k 段数字的结束下标 (不含)
+        private final long[] numbers;   // 第 k 段数字的值；超过 18 位时为 -1，按字符比较
+
+        public Key(String value) {
+            this.value = value;
+            int runs = 0;
+            for (int i = 0, n = value.length(); i < n; i++) {
+                if (isDigit(value.charAt(i)) && (i == 0 || !isDigit(value.charAt(i - 1)))) {
+                    runs++;
+                }
+            }
+            digitStart = new int[runs];
+            digitEnd = new int[runs];
+            numbers = new long[runs];
+            int k = 0;
+            for (int i = 0, n = value.length(); i < n; ) {
+                if (!isDigit(value.charAt(i))) {
+                    i++;
+                    continue;
+                }
+                int start = i;
+                long number = 0;
+                while (i < n && isDigit(value.charAt(i))) {
+                    number = number * 10 + (value.charAt(i) - '0');
+                    i++;
+                }
+                digitStart[k] = start;
+                digitEnd[k] = i;
+                numbers[k] = i - start > 18 ? -1 : number;
+                k++;
+            }
+        }
+
+        /**
+         * @return 原字符串。
+         */
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int runs = Math.min(numbers.length, other.numbers.length);
+            int pos = 0;
+            int otherPos = 0;
+            for (int k = 0; k <= runs; k++) {
+                // 1. 数字之前的文字部分
+                int end = k < numbers.length ? digitStart[k] : value.length();
+                int otherEnd = k < other.numbers.length ? other.digitStart[k] : other.value.length();
+                int c = compareRegion(value, pos, end, other.value, otherPos, otherEnd);
+                if (c != 0) {
+                    return c;
+                }
+                if (k == runs) {
+                    break;
+                }
+                // 2. 数字部分按数值比较
+                c = compareNumber(k, other);
+                if (c != 0) {
+                    return c;
+                }
+                pos = digitEnd[k];
+                otherPos = other.digitEnd[k];
+            }
+            if (numbers.length != other.numbers.length) {
+                return numbers.length < other.numbers.length ? -1 : 1;
+            }
+            return value.compareTo(other.value);
+        }
+
+        private int compareNumber(int k, Key other) {
+            long a = numbers[k];
+            long b = other.numbers[k];
+            if (a >= 0 && b >= 0) {
+                return Long.compare(a, b);
+            }
+            // 超长数字：去掉前导零后先比较位数，再逐位比较
+            int s1 = skipZeros(value, digitStart[k], digitEnd[k]);
+            int s2 = skipZeros(other.value, other.digitStart[k], other.digitEnd[k]);
+            int len1 = digitEnd[k] - s1;
+            int len2 = other.digitEnd[k] - s2;
+            if (len1 != len2) {
+                return Integer.compare(len1, len2);
+            }
+            return compareRegion(value, s1, digitEnd[k], other.value, s2, other.digitEnd[k]);
+        }
+
+        private static int skipZeros(String s, int from, int to) {
+            while (from < to - 1 && s.charAt(from) == '0') {
+                from++;
+            }
+            return from;
+        }
+
+        private static int compareRegion(String a, int aFrom, int aTo, String b, int bFrom, int bTo) {
+            int len = Math.min(aTo - aFrom, bTo - bFrom);
+            for (int i = 0; i < len; i++) {
+                char c1 = a.charAt(aFrom + i);
+                char c2 = b.charAt(bFrom + i);
+                if (c1 != c2) {
+                    return c1 - c2;
+                }
+            }
+            return (aTo - aFrom) - (bTo - bFrom);
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+    }
+}
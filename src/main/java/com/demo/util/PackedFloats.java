@@ -0,0 +1,91 @@
+package com.demo.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * float 数组与紧凑字节之间的转换 (每个值 4 字节 float32，小端序，与 Feature.dat 一致)。
+ * 用于帧的置信度列 CONFIDENCES_BLOB；早期版本写入的逗号分隔文本可用 {@link #parseCsv(String)} 读取。
+ */
+public final class PackedFloats {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private PackedFloats() {
+    }
+
+    /**
+     * 打包 values[from, to)。
+     */
+    public static byte[] pack(List<? extends Number> values, int from, int to) {
+        ByteBuffer buffer = ByteBuffer.allocate((to - from) * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = from; i < to; i++) {
+            Number v = values.get(i);
+            buffer.putFloat(v == null ? Float.NaN : v.floatValue());
+        }
+        return buffer.array();
+    }
+
+    public static byte[] pack(float[] values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(values);
+        return buffer.array();
+    }
+
+    /**
+     * @throws IllegalArgumentException 长度不是 4 的倍数
+     */
+    public static float[] unpack(byte[] packed) {
+        if (packed.length % 4 != 0) {
+            throw new IllegalArgumentException("打包的 float 数据长度不是 4 的倍数: " + packed.length);
+        }
+        float[] values = new float[packed.length / 4];
+        ByteBuffer.wrap(packed).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * 解析旧格式的逗号分隔文本 (例如 "0.1,0.05,0.8")，空文本返回空数组。
+     *
+     * @throws NumberFormatException 文本中包含无法解析的数值
+     */
+    public static float[] parseCsv(String csv) {
+        if (csv == null || csv.isEmpty()) {
+            return new float[0];
+        }
+        int count = 1;
+        for (int i = 0; i < csv.length(); i++) {
+            if (csv.charAt(i) == ',') {
+                count++;
+            }
+        }
+        float[] values = new float[count];
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int end = csv.indexOf(',', start);
+            if (end < 0) {
+                end = csv.length();
+            }
+            values[i] = Float.parseFloat(csv.substring(start, end).trim());
+            start = end + 1;
+        }
+        return values;
+    }
+
+    /**
+     * @return SQLite BLOB 字面量 X'...'
+     */
+    public static String toSqlLiteral(byte[] packed) {
+        char[] chars = new char[packed.length * 2 + 3];
+        chars[0] = 'X';
+        chars[1] = '\'';
+        for (int i = 0; i < packed.length; i++) {
+            int v = packed[i] & 0xFF;
+            chars[2 + i * 2] = HEX[v >>> 4];
+            chars[3 + i * 2] = HEX[v & 0x0F];
+        }
+        chars[chars.length - 1] = '\'';
+        return new String(chars);
+    }
+}
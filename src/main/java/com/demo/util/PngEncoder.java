@@ -0,0 +1,324 @@
+package com.demo.util;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.util.Base64Utils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 8 位灰度 PNG 编码器。
+ * 与 ImageIO 默认设置相比：
+ * - zlib 压缩级别可配置 (0/1 适合内部传递给 C++ 的图像，预览图可使用更高级别)。
+ * - 行过滤器可选 NONE / SUB / UP，不做 ImageIO 的逐行自适应过滤选择。
+ * - 每个线程复用一个 {@link Deflater} 和输出缓冲区，编码过程不产生中间流对象；
+ *   超过 {@link #MAX_RETAINED_BYTES} 的缓冲区在编码结束后丢弃，大帧不会让每个线程长期占用大块堆内存。
+ * 非 TYPE_BYTE_GRAY 图像或关闭快速编码时回退到 ImageIO。
+ */
+public class PngEncoder {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] IHDR = "IHDR".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IDAT = "IDAT".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IEND = "IEND".getBytes(StandardCharsets.US_ASCII);
+
+    /** 每个线程在两次编码之间最多保留的单个缓冲区大小。 */
+    static final int MAX_RETAINED_BYTES = 8 * 1024 * 1024;
+
+    private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(Deflater::new);
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    /**
+     * PNG 行过滤器类型 (取值与 PNG 规范中的过滤器编号一致)。
+     */
+    public enum Filter {
+        /** 不过滤，速度最快。 */
+        NONE,
+        /** 与左侧像素做差，对平滑图像压缩率更好。 */
+        SUB,
+        /** 与上一行像素做差。 */
+        UP
+    }
+
+    /**
+     * 编码参数。每个使用场景 (内部传递 / 预览) 持有一份，可通过配置文件调整。
+     */
+    @Setter
+    @Getter
+    public static class Options {
+        /** 是否使用快速编码器；为 false 时始终使用 ImageIO。 */
+        private boolean fast = true;
+        /** zlib 压缩级别 (0-9)。 */
+        private int level = Deflater.BEST_SPEED;
+        /** 行过滤器。 */
+        private Filter filter = Filter.NONE;
+
+        public Options() {
+        }
+
+        public Options(boolean fast, int level, Filter filter) {
+            this.fast = fast;
+            this.level = level;
+            this.filter = filter;
+        }
+    }
+
+    /** 默认参数：压缩级别 1、不过滤，适合内部传递。 */
+    public static final Options DEFAULT = new Options();
+
+    private PngEncoder() {
+    }
+
+    /**
+     * 将图像编码为 PNG 并返回 Base64 字符串。
+     */
+    public static String encodeToBase64(BufferedImage image, Options options) throws IOException {
+        if (!canEncode(image, options)) {
+            return Base64Utils.encodeToString(encodeWithImageIO(image));
+        }
+        Raster raster = image.getRaster();
+        ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int origin = raster.getDataBuffer().getOffset()
+                + sampleModel.getOffset(-raster.getSampleModelTranslateX(), -raster.getSampleModelTranslateY());
+        return encodeGrayToBase64(data, origin, sampleModel.getScanlineStride(),
+                image.getWidth(), image.getHeight(), options);
+    }
+
+    /**
+     * 将图像编码为 PNG 字节数组。
+     */
+    public static byte[] encode(BufferedImage image, Options options) throws IOException {
+        if (!canEncode(image, options)) {
+            return encodeWithImageIO(image);
+        }
+        Raster raster = image.getRaster();
+        ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int origin = raster.getDataBuffer().getOffset()
+                + sampleModel.getOffset(-raster.getSampleModelTranslateX(), -raster.getSampleModelTranslateY());
+        Buffers buffers = encodeGray(data, origin, sampleModel.getScanlineStride(),
+                image.getWidth(), image.getHeight(), options);
+        try {
+            return Arrays.copyOf(buffers.out, buffers.length);
+        } finally {
+            buffers.trim();
+        }
+    }
+
+    /**
+     * 将行优先排列的灰度像素编码为 PNG 并返回 Base64 字符串。
+     *
+     * @param pixels 像素数组
+     * @param offset 第一个像素在数组中的位置
+     * @param stride 相邻两行首像素之间的距离
+     * @param width  图像宽度
+     * @param height 图像高度
+     */
+    public static String encodeGrayToBase64(byte[] pixels, int offset, int stride, int width, int height,
+                                            Options options) {
+        Buffers buffers = encodeGray(pixels, offset, stride, width, height, options);
+        try {
+            ByteBuffer base64 = Base64.getEncoder().encode(ByteBuffer.wrap(buffers.out, 0, buffers.length));
+            return new String(base64.array(), 0, base64.limit(), StandardCharsets.US_ASCII);
+        } finally {
+            buffers.trim();
+        }
+    }
+
+    /**
+     * @return 当前线程在两次编码之间保留的缓冲区字节数
+     */
+    static long retainedBytes() {
+        Buffers buffers = BUFFERS.get();
+        return (long) buffers.rawRows.length + buffers.out.length;
+    }
+
+    private static boolean canEncode(BufferedImage image, Options options) {
+        return options.isFast()
+                && image.getType() == BufferedImage.TYPE_BYTE_GRAY
+                && image.getRaster().getSampleModel() instanceof ComponentSampleModel
+                && image.getRaster().getDataBuffer() instanceof DataBufferByte;
+    }
+
+    private static byte[] encodeWithImageIO(BufferedImage image) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * 编码到当前线程的输出缓冲区。返回的缓冲区在调用 {@link Buffers#trim()} 之前有效。
+     */
+    private static Buffers encodeGray(byte[] pixels, int offset, int stride, int width, int height, Options options) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("无效的图像尺寸: " + width + "x" + height);
+        }
+        Buffers buffers = BUFFERS.get();
+        int rowLength = width + 1;
+        byte[] raw = buffers.raw(rowLength * height);
+        filterRows(pixels, offset, stride, width, height, options.getFilter(), raw);
+        try {
+            return deflate(buffers, raw, rowLength * height, width, height, options);
+        } catch (RuntimeException | Error e) {
+            buffers.trim();
+            throw e;
+        }
+    }
+
+    private static Buffers deflate(Buffers buffers, byte[] raw, int rawLength, int width, int height, Options options) {
+
+        // 签名 + IHDR(25) + IDAT 头(8)，压缩数据写在其后，最后是 IDAT CRC(4) + IEND(12)
+        buffers.length = 0;
+        buffers.ensure(SIGNATURE.length + 25 + 8 + 64);
+        buffers.put(SIGNATURE, 0, SIGNATURE.length);
+        int ihdrStart = buffers.length;
+        buffers.putInt(13);
+        buffers.put(IHDR, 0, IHDR.length);
+        buffers.putInt(width);
+        buffers.putInt(height);
+        buffers.put((byte) 8);  // 位深度
+        buffers.put((byte) 0);  // 颜色类型: 灰度
+        buffers.put((byte) 0);  // 压缩方法
+        buffers.put((byte) 0);  // 过滤方法
+        buffers.put((byte) 0);  // 不隔行
+        buffers.putCrc(ihdrStart + 4);
+
+        int idatStart = buffers.length;
+        buffers.putInt(0); // 长度稍后回填
+        buffers.put(IDAT, 0, IDAT.length);
+
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        deflater.setLevel(options.getLevel());
+        deflater.setInput(raw, 0, rawLength);
+        deflater.finish();
+        while (!deflater.finished()) {
+            buffers.ensure(Math.max(8192, rawLength >>> 3));
+            buffers.length += deflater.deflate(buffers.out, buffers.length, buffers.out.length - buffers.length);
+        }
+        int idatLength = buffers.length - idatStart - 8;
+        writeInt(buffers.out, idatStart, idatLength);
+        buffers.ensure(16);
+        buffers.putCrc(idatStart + 4);
+
+        int iendStart = buffers.length;
+        buffers.putInt(0);
+        buffers.put(IEND, 0, IEND.length);
+        buffers.putCrc(iendStart + 4);
+        return buffers;
+    }
+
+    /**
+     * 为每行加上过滤器类型字节并按选定的过滤器转换像素。
+     */
+    private static void filterRows(byte[] pixels, int offset, int stride, int width, int height,
+                                   Filter filter, byte[] raw) {
+        int rowLength = width + 1;
+        for (int y = 0; y < height; y++) {
+            int src = offset + y * stride;
+            int dst = y * rowLength;
+            switch (filter) {
+                case SUB:
+                    raw[dst] = 1;
+                    raw[dst + 1] = pixels[src];
+                    for (int x = 1; x < width; x++) {
+                        raw[dst + 1 + x] = (byte) (pixels[src + x] - pixels[src + x - 1]);
+                    }
+                    break;
+                case UP:
+                    raw[dst] = 2;
+                    if (y == 0) {
+                        System.arraycopy(pixels, src, raw, dst + 1, width);
+                    } else {
+                        for (int x = 0; x < width; x++) {
+                            raw[dst + 1 + x] = (byte) (pixels[src + x] - pixels[src - stride + x]);
+                        }
+                    }
+                    break;
+                default:
+                    raw[dst] = 0;
+                    System.arraycopy(pixels, src, raw, dst + 1, width);
+            }
+        }
+    }
+
+    private static void writeInt(byte[] out, int pos, int value) {
+        out[pos] = (byte) (value >>> 24);
+        out[pos + 1] = (byte) (value >>> 16);
+        out[pos + 2] = (byte) (value >>> 8);
+        out[pos + 3] = (byte) value;
+    }
+
+    /**
+     * 每个线程复用的过滤行缓冲区和输出缓冲区。编码时按需扩容，编码结束后由 {@link #trim()} 丢弃过大的缓冲区。
+     */
+    private static final class Buffers {
+        private static final int INITIAL_OUT_BYTES = 64 * 1024;
+
+        private final CRC32 crc = new CRC32();
+        private byte[] rawRows = new byte[0];
+        private byte[] out = new byte[INITIAL_OUT_BYTES];
+        private int length;
+
+        /**
+         * 丢弃超过 {@link #MAX_RETAINED_BYTES} 的缓冲区，常见尺寸的帧仍然复用。
+         */
+        void trim() {
+            if (rawRows.length > MAX_RETAINED_BYTES) {
+                rawRows = new byte[0];
+            }
+            if (out.length > MAX_RETAINED_BYTES) {
+                out = new byte[INITIAL_OUT_BYTES];
+            }
+            length = 0;
+        }
+
+        byte[] raw(int size) {
+            if (rawRows.length < size) {
+                rawRows = new byte[size];
+            }
+            return rawRows;
+        }
+
+        void ensure(int extra) {
+            if (out.length - length < extra) {
+                out = Arrays.copyOf(out, Math.max(out.length * 2, length + extra));
+            }
+        }
+
+        void put(byte b) {
+            out[length++] = b;
+        }
+
+        void put(byte[] src, int from, int count) {
+            System.arraycopy(src, from, out, length, count);
+            length += count;
+        }
+
+        void putInt(int value) {
+            writeInt(out, length, value);
+            length += 4;
+        }
+
+        /**
+         * 写入从 from 到当前位置 (块类型 + 块数据) 的 CRC。
+         */
+        void putCrc(int from) {
+            crc.reset();
+            crc.update(out, from, length - from);
+            putInt((int) crc.getValue());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.demo.util;
+
+import com.demo.exception.ProcessException;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 相同键的并发请求合并执行 (single-flight)。
+ * 同一个键的第一个请求负责执行任务，执行期间到达的相同请求等待同一个 {@link CompletableFuture}，
+ * 得到相同的结果或相同的异常。任务结束后键被移除，之后的请求会重新执行。
+ *
+ * @param <K> 键类型，需要正确实现 equals/hashCode
+ * @param <V> 结果类型
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * 可抛出 IOException 的任务。
+     */
+    @FunctionalInterface
+    public interface Task<V> {
+        V call() throws IOException;
+    }
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * 执行任务；如果相同键的任务正在执行，则等待其结果。
+     *
+     * @param key  请求键
+     * @param task 实际执行的任务
+     * @return 任务结果 (可能来自并发的相同请求)
+     * @throws IOException 任务抛出的 I/O 异常
+     */
+    public V execute(K key, Task<V> task) throws IOException {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return await(existing);
+        }
+        try {
+            V value = task.call();
+            own.complete(value);
+            return value;
+        } catch (IOException | RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * @return 当前正在执行的任务数。
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * @return 累计被合并 (没有重复执行) 的请求数。
+     */
+    public long coalescedCount() {
+        return coalesced.get();
+    }
+
+    private V await(CompletableFuture<V> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessException("等待相同请求的处理结果时被中断。", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ProcessException("相同请求的处理失败: " + cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.demo.bench;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import com.demo.dto.MultiFrameResultResponse;
+import com.demo.service.jna.MultiFrameProcessorCpp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 多帧结果响应的构建 ({@link MultiFrameProcessorCpp#buildResponse})：扫描结果目录、自然排序、匹配 roi_ 图像与原始文件名。
+ * 结果目录中每帧一个 {原始文件名}_{帧号}.png，每 10 帧一个 roi_ 图像；每 50 帧来自同一个上传文件。
+ * 运行: mvn -Pbench test -Dbench=BuildResponseBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuildResponseBenchmark {
+
+    @Param({"20000", "100000"})
+    private int files;
+
+    private Path resultDir;
+    private List<String> originalNames;
+
+    @Setup
+    public void setUp() throws IOException {
+        // 每次调用的 INFO 日志不计入
+        for (Logger logger : ((LoggerContext) LoggerFactory.getILoggerFactory()).getLoggerList()) {
+            if (logger.getLevel() != null) {
+                logger.setLevel(Level.WARN);
+            }
+        }
+        resultDir = Files.createTempDirectory("build-response");
+        originalNames = new ArrayList<>();
+        for (int i = 0; i < files; i += 50) {
+            originalNames.add("IMG0/frame_" + i / 50 + ".dat");
+        }
+        for (int i = 0; i < files; i++) {
+            String png = "frame_" + i / 50 + "_" + i + ".png";
+            Files.createFile(resultDir.resolve(png));
+            if (i % 10 == 0) {
+                Files.createFile(resultDir.resolve("roi_" + png));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> walk = Files.walk(resultDir)) {
+            walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public MultiFrameResultResponse buildResponse() throws IOException {
+        return MultiFrameProcessorCpp.buildResponse(resultDir.toString(), null, files, originalNames);
+    }
+}
@@ -0,0 +1,94 @@
+package com.demo.bench;
+
+import com.demo.util.ColumnCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 列式归档 (Feature.col) 的压缩比与编解码吞吐量。
+ * 每次调用处理一整列 (size 个值)，吞吐量 (值/秒) = ops/s * size；压缩比在 Setup 中打印 (ASCII，分叉的 JVM 可能不是 UTF-8 输出)。
+ * - smooth: 变化缓慢的列 (经纬度、时间字段、帧间连续的坐标)
+ * - noisy:  低位随机的测量值 (约 12 位有效尾数)
+ * - constant: 常量列
+ * 运行: mvn -Pbench test -Dbench=ColumnCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColumnCodecBenchmark {
+
+    @Param({"100000"})
+    private int size;
+
+    @Param({"smooth", "noisy", "constant"})
+    private String column;
+
+    private float[] floats;
+    private int[] ints;
+    private byte[] encodedFloats;
+    private byte[] encodedInts;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(46);
+        floats = new float[size];
+        ints = new int[size];
+        for (int i = 0; i < size; i++) {
+            switch (column) {
+                case "smooth":
+                    floats[i] = 39.0f + i * 1e-4f;
+                    ints[i] = 512 + i / 25 + random.nextInt(3);
+                    break;
+                case "noisy":
+                    floats[i] = Math.round(random.nextFloat() * 4096) / 4096f * 100;
+                    ints[i] = random.nextInt(4096);
+                    break;
+                default:
+                    floats[i] = 42.5f;
+                    ints[i] = 2025;
+                    break;
+            }
+        }
+        encodedFloats = ColumnCodec.encodeFloats(floats, size);
+        encodedInts = ColumnCodec.encodeInts(ints, size);
+        System.out.printf("%n[%s, %d values] float ratio %.2f (%d bytes), int ratio %.2f (%d bytes)%n", column, size,
+                size * 4.0 / encodedFloats.length, encodedFloats.length,
+                size * 4.0 / encodedInts.length, encodedInts.length);
+    }
+
+    @Benchmark
+    public byte[] encodeFloats() {
+        return ColumnCodec.encodeFloats(floats, size);
+    }
+
+    @Benchmark
+    public float[] decodeFloats() {
+        return ColumnCodec.decodeFloats(ByteBuffer.wrap(encodedFloats), size);
+    }
+
+    @Benchmark
+    public byte[] encodeInts() {
+        return ColumnCodec.encodeInts(ints, size);
+    }
+
+    @Benchmark
+    public int[] decodeInts() {
+        return ColumnCodec.decodeInts(ByteBuffer.wrap(encodedInts), size);
+    }
+}
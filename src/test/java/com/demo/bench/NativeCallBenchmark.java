@@ -0,0 +1,128 @@
+package com.demo.bench;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import com.demo.config.NativeProperties;
+import com.demo.dto.ConfigDto;
+import com.demo.service.jna.MultiFrameProcessorCpp.InputData;
+import com.demo.service.jna.MultiFrameProcessorCpp.NativeMultiFrameLib;
+import com.demo.service.jna.MultiFrameProcessorCpp.OutputData;
+import com.demo.service.jna.MultiFrameSession;
+import com.demo.service.jna.NativeFrameProcessor;
+import com.demo.service.processor.MultiFrameOutput;
+import com.demo.service.processor.MultiFrameTask;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多帧原生调用的 JNA 开销 (不含 C++ 处理本身)。
+ * Setup 用 cc 把 src/test/resources/native/stub_multi.c 编译为临时目录下的 libXJYTXFXCV_multi.so，
+ * 桩函数只填写输出字段，因此测得的是封送、绑定方式与结构体分配的成本。
+ * - pooledDirect / pooledProxy: {@link NativeFrameProcessor#processMultiFrame} (线程复用的结构体)，
+ *   分别使用直接映射与接口代理
+ * - freshProxy: 旧实现，每次调用新建结构体 (JNA 自动同步) 并通过接口代理调用
+ * 需要 PATH 中有 C 编译器 (cc)。
+ * 运行: mvn -Pbench test -Dbench=NativeCallBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NativeCallBenchmark {
+
+    private NativeFrameProcessor direct;
+    private NativeFrameProcessor proxy;
+    private MultiFrameTask task;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        Path libDir = Files.createTempDirectory("stub-native");
+        Path source = libDir.resolve("stub_multi.c");
+        try (InputStream in = NativeCallBenchmark.class.getResourceAsStream("/native/stub_multi.c")) {
+            Files.copy(in, source, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Process cc = new ProcessBuilder("cc", "-O2", "-shared", "-fPIC", "-o",
+                libDir.resolve("libXJYTXFXCV_multi.so").toString(), source.toString()).inheritIO().start();
+        if (cc.waitFor() != 0) {
+            throw new IllegalStateException("Failed to compile the stub library with cc");
+        }
+        // 必须在任何绑定加载库之前设置 (ImgProcessorCpp / MultiFrameProcessorCpp 的静态块会改为 ./lib，这里不加载它们)
+        System.setProperty("jna.library.path", libDir.toString());
+        // 每次调用的 INFO 日志会掩盖调用开销 (logback.xml 为各个类单独配置了 INFO)
+        for (Logger logger : ((LoggerContext) LoggerFactory.getILoggerFactory()).getLoggerList()) {
+            if (logger.getLevel() != null) {
+                logger.setLevel(Level.WARN);
+            }
+        }
+
+        direct = processor(true);
+        proxy = processor(false);
+        ConfigDto.Region crop = new ConfigDto.Region();
+        crop.setWidth(640);
+        crop.setHeight(512);
+        task = new MultiFrameTask("/data/upload/IMG1", "/data/result", null, "XJYTXFXCV", 1, 2000, crop);
+    }
+
+    private static NativeFrameProcessor processor(boolean directMapping) {
+        NativeProperties properties = new NativeProperties();
+        properties.setDirectMapping(directMapping);
+        properties.getSession().setEnabled(false); // 桩库没有会话入口，始终走 processImageWrapper
+        return new NativeFrameProcessor(null, new MultiFrameSession(properties), properties);
+    }
+
+    @Benchmark
+    public MultiFrameOutput pooledDirect() {
+        return direct.processMultiFrame(task);
+    }
+
+    @Benchmark
+    public MultiFrameOutput pooledProxy() {
+        return proxy.processMultiFrame(task);
+    }
+
+    @Benchmark
+    public MultiFrameOutput freshProxy() {
+        InputData.ByReference input = new InputData.ByReference();
+        OutputData.ByReference output = new OutputData.ByReference();
+        input.inputPathSet.inImgDir = task.getImageDir();
+        input.inputPathSet.outputDir = task.getOutputDir();
+        input.inputPathSet.par_path = "/data/Parameter/tfImg.pb";
+        input.inputPathSet.trackPath = task.getTrackPath();
+        input.mode = task.getMode();
+        input.algorithmName = task.getAlgorithmName();
+        input.fileNum = task.getFileNum();
+        input.crop.x = task.getCrop().getX();
+        input.crop.y = task.getCrop().getY();
+        input.crop.width = task.getCrop().getWidth();
+        input.crop.height = task.getCrop().getHeight();
+        input.imgType = 1;
+        try {
+            if (NativeMultiFrameLib.INSTANCE.processImageWrapper(input, output) != 0) {
+                throw new IllegalStateException(output.message);
+            }
+            return new MultiFrameOutput(output.outputPathSet.feature_path, output.outputPathSet.outImgDir,
+                    output.message, output.fileNum);
+        } finally {
+            NativeMultiFrameLib.INSTANCE.freeOutputData(output);
+        }
+    }
+}
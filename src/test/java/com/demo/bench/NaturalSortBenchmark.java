@@ -0,0 +1,63 @@
+package com.demo.bench;
+
+import com.demo.util.LegacyNaturalOrderComparator;
+import com.demo.util.NaturalSort;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上传文件名排序: 旧的正则比较器 vs {@link NaturalSort} (预先分解的排序键，大列表并行排序)。
+ * 运行: mvn -Pbench test -Dbench=NaturalSortBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NaturalSortBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private List<String> names;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        names = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            names.add("IMG" + random.nextInt(4) + "/frame_" + random.nextInt(size) + ".dat");
+        }
+        Collections.shuffle(names, random);
+    }
+
+    @Benchmark
+    public List<String> legacyRegexComparator() {
+        List<String> copy = new ArrayList<>(names);
+        copy.sort(new LegacyNaturalOrderComparator());
+        return copy;
+    }
+
+    @Benchmark
+    public List<String> naturalSort() {
+        List<String> copy = new ArrayList<>(names);
+        NaturalSort.sort(copy);
+        return copy;
+    }
+}
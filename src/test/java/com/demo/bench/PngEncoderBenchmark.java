@@ -0,0 +1,78 @@
+package com.demo.bench;
+
+import com.demo.util.PngEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 灰度图像 PNG 编码: {@link PngEncoder} (压缩级别 0/1，过滤器 NONE/SUB/UP) vs ImageIO.write。
+ * 测试图像为带噪声的平滑渐变 (接近红外帧)，宽 width、高 width * 4 / 5；编码后的大小在 Setup 中打印 (ASCII)。
+ * imageIO 与 level/filter 无关，各组参数下的结果应相同。
+ * 运行: mvn -Pbench test -Dbench=PngEncoderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PngEncoderBenchmark {
+
+    @Param({"640", "2048"})
+    private int width;
+
+    @Param({"0", "1"})
+    private int level;
+
+    @Param({"NONE", "SUB", "UP"})
+    private PngEncoder.Filter filter;
+
+    private BufferedImage image;
+    private PngEncoder.Options options;
+
+    @Setup
+    public void setUp() throws IOException {
+        int height = width * 4 / 5;
+        image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        Random random = new Random(30);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                pixels[y * width + x] = (byte) (64 + (x + y) * 128 / (width + height) + random.nextInt(8));
+            }
+        }
+        options = new PngEncoder.Options(true, level, filter);
+        System.out.printf("%n[%dx%d, level %d, %s] PngEncoder %d bytes, ImageIO %d bytes (raw %d)%n",
+                width, height, level, filter, PngEncoder.encode(image, options).length, imageIO().length,
+                pixels.length);
+    }
+
+    @Benchmark
+    public byte[] pngEncoder() throws IOException {
+        return PngEncoder.encode(image, options);
+    }
+
+    @Benchmark
+    public byte[] imageIO() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
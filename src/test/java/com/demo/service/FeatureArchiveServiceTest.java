@@ -0,0 +1,188 @@
+package com.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FeatureArchiveServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private FeatureDatFixture fixture;
+    private FeatureLayout layout;
+    private FeatureArchiveService service;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new FeatureDatFixture(dir)
+                .column("SCR", 'f', frame -> frame % 3 == 0 ? -0.0 : frame * 0.25)
+                .column("xjy_area", 'i', frame -> frame % 2 == 0 ? Integer.MAX_VALUE : Integer.MIN_VALUE)
+                .column("year", 's', frame -> 2025)
+                .column("lat", 'f', frame -> 39.0 + frame * 1e-4)
+                .confidences((c, frame) -> frame % 5 == 0 ? Float.NaN : 1.0 / (c + 1));
+        layout = fixture.layout();
+        service = new FeatureArchiveService(fixture.properties(), layout);
+    }
+
+    private Path writeFeatureDat(int numFrames, int categoryNum) throws IOException {
+        return fixture.write("Feature.dat", numFrames, categoryNum, 7);
+    }
+
+    private static void assertSameValues(Map<String, List<? extends Number>> actual, Map<String, List<? extends Number>> expected) {
+        assertThat(actual.keySet()).containsExactlyElementsOf(expected.keySet());
+        for (String name : expected.keySet()) {
+            List<? extends Number> a = actual.get(name);
+            List<? extends Number> e = expected.get(name);
+            assertThat(a).as(name).hasSameSizeAs(e);
+            for (int i = 0; i < e.size(); i++) {
+                if (e.get(i) instanceof Float) {
+                    assertThat(Float.floatToRawIntBits((Float) a.get(i))).as("%s[%d]", name, i)
+                            .isEqualTo(Float.floatToRawIntBits((Float) e.get(i)));
+                } else {
+                    assertThat(a.get(i)).as("%s[%d]", name, i).isEqualTo(e.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * 修改归档文件的字节后重新写回。
+     */
+    private static void patch(Path archive, Consumer<ByteBuffer> change) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(archive)).order(ByteOrder.LITTLE_ENDIAN);
+        change.accept(bytes);
+        Files.write(archive, bytes.array());
+    }
+
+    private static int footerOffset(ByteBuffer bytes) {
+        return (int) bytes.getLong(bytes.capacity() - 12);
+    }
+
+    /**
+     * @return 列索引中第一列 (confidences) 的 "值个数" 字段的位置，其后依次为偏移 (int64) 与长度 (int32)
+     */
+    private static int firstEntryCount(ByteBuffer bytes) {
+        int position = footerOffset(bytes) + 4;
+        int nameLength = bytes.getShort(position) & 0xFFFF;
+        return position + 2 + nameLength + 1;
+    }
+
+    @Test
+    void archiveRoundTripsEveryColumn() throws IOException {
+        Path dat = writeFeatureDat(1000, 3);
+        Path archive = service.writeArchive(dat);
+        assertThat(archive.getFileName().toString()).isEqualTo(FeatureArchiveService.ARCHIVE_FILE);
+        assertThat(Files.size(archive)).isLessThan(Files.size(dat));
+        assertSameValues(service.readArchive(archive, null), layout.read(dat));
+    }
+
+    @Test
+    void selectedColumnsOnly() throws IOException {
+        Path archive = service.writeArchive(writeFeatureDat(10, 2));
+        Map<String, List<? extends Number>> result = service.readArchive(archive, Arrays.asList("year", "confidences"));
+        assertThat(result.keySet()).containsExactly("year", "confidences");
+        assertThat(result.get("year")).hasSize(10).allMatch(v -> v.shortValue() == 2025);
+        assertThat(result.get("confidences")).hasSize(20);
+        assertThatThrownBy(() -> service.readArchive(archive, Collections.singletonList("missing")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void singleFrameAndNoConfidences() throws IOException {
+        Path dat = writeFeatureDat(1, 0);
+        assertSameValues(service.readArchive(service.writeArchive(dat), null), layout.read(dat));
+    }
+
+    @Test
+    void emptyFeatureFileGivesEmptyArchive() throws IOException {
+        Path dat = writeFeatureDat(0, 0);
+        assertThat(service.readArchive(service.writeArchive(dat), null)).isEmpty();
+    }
+
+    @Test
+    void truncatedArchiveIsRejected() throws IOException {
+        Path archive = service.writeArchive(writeFeatureDat(100, 2));
+        byte[] bytes = Files.readAllBytes(archive);
+        Files.write(archive, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThatThrownBy(() -> service.readArchive(archive, null)).isInstanceOf(IOException.class);
+        Files.write(archive, Arrays.copyOf(bytes, 10));
+        assertThatThrownBy(() -> service.readArchive(archive, null)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void corruptTrailerIsRejected() throws IOException {
+        Path archive = service.writeArchive(writeFeatureDat(100, 2));
+        patch(archive, b -> b.put(b.capacity() - 1, (byte) 'X'));
+        assertThatThrownBy(() -> service.readArchive(archive, null)).isInstanceOf(IOException.class);
+
+        service.writeArchive(dir.resolve("Feature.dat"));
+        patch(archive, b -> b.putLong(b.capacity() - 12, b.capacity()));
+        assertThatThrownBy(() -> service.readArchive(archive, null)).isInstanceOf(IOException.class);
+
+        service.writeArchive(dir.resolve("Feature.dat"));
+        patch(archive, b -> b.putInt(4, 99)); // 版本
+        assertThatThrownBy(() -> service.readArchive(archive, null)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void corruptIndexIsRejected() throws IOException {
+        Path dat = writeFeatureDat(100, 2);
+        Path archive = service.writeArchive(dat);
+
+        // 列数大于实际列数
+        patch(archive, b -> b.putInt(footerOffset(b), 1000));
+        assertThatThrownBy(() -> service.readArchive(archive, null)).isInstanceOf(IOException.class);
+
+        // 列数为负
+        service.writeArchive(dat);
+        patch(archive, b -> b.putInt(footerOffset(b), -1));
+        assertThatThrownBy(() -> service.readArchive(archive, null)).isInstanceOf(IOException.class);
+
+        // 类型字符无效
+        service.writeArchive(dat);
+        patch(archive, b -> b.put(firstEntryCount(b) - 1, (byte) 'x'));
+        assertThatThrownBy(() -> service.readArchive(archive, null)).isInstanceOf(IOException.class);
+
+        // 压缩块越过列索引
+        service.writeArchive(dat);
+        patch(archive, b -> b.putLong(firstEntryCount(b) + 4, footerOffset(b) - 1));
+        assertThatThrownBy(() -> service.readArchive(archive, null)).isInstanceOf(IOException.class);
+
+        // 长度为负
+        service.writeArchive(dat);
+        patch(archive, b -> b.putInt(firstEntryCount(b) + 12, -5));
+        assertThatThrownBy(() -> service.readArchive(archive, null)).isInstanceOf(IOException.class);
+
+        // 压缩块长度比实际数据短 (解码越界) 或长 (有剩余字节)
+        service.writeArchive(dat);
+        patch(archive, b -> b.putInt(firstEntryCount(b) + 12, 3));
+        assertThatThrownBy(() -> service.readArchive(archive, null)).isInstanceOf(IOException.class);
+        service.writeArchive(dat);
+        patch(archive, b -> b.putInt(firstEntryCount(b) + 12, b.getInt(firstEntryCount(b) + 12) + 1));
+        assertThatThrownBy(() -> service.readArchive(archive, null)).isInstanceOf(IOException.class);
+
+        // 值个数与文件头不符
+        service.writeArchive(dat);
+        patch(archive, b -> b.putInt(firstEntryCount(b), 150));
+        assertThatThrownBy(() -> service.readArchive(archive, null)).isInstanceOf(IOException.class);
+
+        // 未被修改的归档仍可读取
+        service.writeArchive(dat);
+        assertSameValues(service.readArchive(archive, null), layout.read(dat));
+    }
+}
@@ -0,0 +1,92 @@
+package com.demo.service;
+
+import com.demo.config.FeatureProperties;
+import com.demo.dto.FeatureDefinition;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * 测试用的 Feature.dat 夹具：逐列声明特征 (名称、类型、每帧的取值)，由此得到特征定义、{@link FeatureLayout}，
+ * 并在指定目录中写出文件。取值是帧号的函数，写出时帧号从 frameOffset 起 (模拟分片)。
+ */
+final class FeatureDatFixture {
+    private final Path dir;
+    private final List<FeatureDefinition> definitions = new ArrayList<>();
+    private final List<IntToDoubleFunction> values = new ArrayList<>();
+    private FeatureLayout.ValueSource confidences = (c, frame) -> 0;
+    private FeatureLayout layout;
+
+    /**
+     * @param dir 写出文件的目录 (通常是测试的 @TempDir)
+     */
+    FeatureDatFixture(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * 追加一列。
+     *
+     * @param name  特征名
+     * @param type  类型字符 ('f' / 'i' / 's')
+     * @param value 帧号 -> 取值 (写出时按列类型截断)
+     */
+    FeatureDatFixture column(String name, char type, IntToDoubleFunction value) {
+        definitions.add(new FeatureDefinition(name, type));
+        values.add(value);
+        layout = null;
+        return this;
+    }
+
+    /**
+     * @param confidence (类别, 帧号) -> 置信度
+     */
+    FeatureDatFixture confidences(FeatureLayout.ValueSource confidence) {
+        this.confidences = confidence;
+        return this;
+    }
+
+    List<FeatureDefinition> definitions() {
+        return Collections.unmodifiableList(definitions);
+    }
+
+    FeatureLayout layout() {
+        if (layout == null) {
+            layout = new FeatureLayout(definitions);
+        }
+        return layout;
+    }
+
+    FeatureProperties properties() {
+        FeatureProperties properties = new FeatureProperties();
+        properties.setDefinitions(new ArrayList<>(definitions));
+        return properties;
+    }
+
+    double value(int column, int frame) {
+        return values.get(column).applyAsDouble(frame);
+    }
+
+    double confidence(int c, int frame) {
+        return confidences.value(c, frame);
+    }
+
+    Path write(String name, int numFrames, int categoryNum, int categoryType) throws IOException {
+        return write(name, 0, numFrames, categoryNum, categoryType);
+    }
+
+    /**
+     * 写出 numFrames 帧，第 i 帧的取值对应帧号 frameOffset + i。
+     */
+    Path write(String name, int frameOffset, int numFrames, int categoryNum, int categoryType) throws IOException {
+        Path file = dir.resolve(name);
+        layout().write(file, new FeatureLayout.Header(numFrames, categoryNum, categoryType),
+                (c, frame) -> confidence(c, frameOffset + frame),
+                (column, frame) -> value(column, frameOffset + frame));
+        return file;
+    }
+}
@@ -0,0 +1,196 @@
+package com.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FeatureFilterServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private FeatureDatFixture fixture;
+    private FeatureFilterService service;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new FeatureDatFixture(dir)
+                .column("SCR", 'f', FeatureFilterServiceTest::scr)
+                .column("variance", 'f', FeatureFilterServiceTest::variance)
+                .column("xjy_area", 'i', FeatureFilterServiceTest::area)
+                .column("tl_xs", 'i', FeatureFilterServiceTest::tlXs)
+                .column("year", 's', FeatureFilterServiceTest::year)
+                .column("msec", 'f', FeatureFilterServiceTest::msec)
+                .confidences((c, frame) -> frame + c * 0.5);
+        service = new FeatureFilterService(fixture.layout());
+    }
+
+    // 每帧的列值 (夹具写出的值，也供对照计算)
+    private static float scr(int f) { return (f * 37) % 100; }
+    private static float variance(int f) { return (f * 53) % 100; }
+    private static int area(int f) { return f % 20; }
+    private static int tlXs(int f) { return (f * 7) % 20; }
+    private static short year(int f) { return (short) (2020 + f % 6); }
+    private static float msec(int f) { return f % 5 == 0 ? Float.NaN : f % 3; }
+
+    private Path write(int numFrames) throws IOException {
+        return fixture.write("Feature-" + numFrames + ".dat", numFrames, 2, 0);
+    }
+
+    private int[] run(Path file, String expression) throws IOException {
+        return service.filter(file, service.compile(expression), Collections.singletonList("SCR")).getFrameIndices();
+    }
+
+    private static int[] expected(int numFrames, IntPredicate predicate) {
+        return IntStream.range(0, numFrames).filter(predicate).toArray();
+    }
+
+    private void assertFilter(Path file, int numFrames, String expression, IntPredicate predicate) throws IOException {
+        assertThat(run(file, expression)).as(expression).containsExactly(expected(numFrames, predicate));
+    }
+
+    @Test
+    void andBindsTighterThanOr() throws IOException {
+        Path file = write(500);
+        IntPredicate orFirst = f -> scr(f) > 50 || area(f) > 10 && year(f) == 2024;
+        assertFilter(file, 500, "SCR > 50 || xjy_area > 10 && year == 2024", orFirst);
+        assertFilter(file, 500, "SCR > 50 or xjy_area > 10 AND year == 2024", orFirst);
+        assertFilter(file, 500, "xjy_area > 10 && year == 2024 || SCR > 50", orFirst);
+        IntPredicate grouped = f -> (scr(f) > 50 || area(f) > 10) && year(f) == 2024;
+        assertFilter(file, 500, "(SCR > 50 || xjy_area > 10) && year == 2024", grouped);
+        // 夹具能区分两种结合方式
+        assertThat(expected(500, orFirst)).isNotEqualTo(expected(500, grouped));
+    }
+
+    @Test
+    void notAndNotEquals() throws IOException {
+        Path file = write(300);
+        assertFilter(file, 300, "!(SCR > 50)", f -> !(scr(f) > 50));
+        assertFilter(file, 300, "not SCR > 50", f -> !(scr(f) > 50));
+        assertFilter(file, 300, "!!(xjy_area == 3)", f -> area(f) == 3);
+        assertFilter(file, 300, "NOT (xjy_area == 3 || xjy_area == 4) && year != 2021",
+                f -> !(area(f) == 3 || area(f) == 4) && year(f) != 2021);
+        assertFilter(file, 300, "xjy_area != 3", f -> area(f) != 3);
+        assertFilter(file, 300, "3 != xjy_area", f -> area(f) != 3);
+        assertThatThrownBy(() -> service.compile("!= 3")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.compile("notice > 3")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void constantComparisonsAreFolded() throws IOException {
+        Path file = write(130);
+        assertFilter(file, 130, "1 < 2", f -> true);
+        assertFilter(file, 130, "1 > 2", f -> false);
+        assertFilter(file, 130, "2 == 2.0 && SCR > 50", f -> scr(f) > 50);
+        assertFilter(file, 130, "1 > 2 || SCR > 50", f -> scr(f) > 50);
+        assertFilter(file, 130, "!(1 > 2)", f -> true);
+        // 常量在左侧时交换运算符
+        assertFilter(file, 130, "50 < SCR", f -> scr(f) > 50);
+        assertFilter(file, 130, "10 >= xjy_area", f -> area(f) <= 10);
+        assertFilter(file, 130, "-1e1 < xjy_area", f -> true);
+        assertFilter(file, 130, "+2.5E1 > SCR", f -> scr(f) < 25);
+    }
+
+    @Test
+    void columnToColumnComparisons() throws IOException {
+        Path file = write(400);
+        assertFilter(file, 400, "SCR > variance", f -> scr(f) > variance(f));
+        assertFilter(file, 400, "SCR <= variance", f -> scr(f) <= variance(f));
+        assertFilter(file, 400, "xjy_area == tl_xs", f -> area(f) == tlXs(f));
+        assertFilter(file, 400, "xjy_area != tl_xs", f -> area(f) != tlXs(f));
+        assertFilter(file, 400, "year > xjy_area", f -> true);
+        assertFilter(file, 400, "tl_xs >= SCR && SCR == SCR", f -> tlXs(f) >= scr(f));
+    }
+
+    @Test
+    void nanMatchesOnlyNotEqualsAndNegations() throws IOException {
+        Path file = write(200);
+        assertFilter(file, 200, "msec >= 0", f -> f % 5 != 0);
+        assertFilter(file, 200, "msec < 100", f -> f % 5 != 0);
+        assertFilter(file, 200, "msec == 1", f -> f % 5 != 0 && f % 3 == 1);
+        assertFilter(file, 200, "msec != 1", f -> f % 5 == 0 || f % 3 != 1);
+        assertFilter(file, 200, "!(msec >= 0)", f -> f % 5 == 0);
+        assertFilter(file, 200, "msec == msec", f -> f % 5 != 0);
+        assertFilter(file, 200, "msec != msec", f -> f % 5 == 0);
+        assertThatThrownBy(() -> service.compile("msec > NaN")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.compile("msec > 1e400")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void tailBitsBeyondTheLastFrameStayClear() throws IOException {
+        for (int numFrames : new int[]{1, 63, 64, 65, 100, 127, 128, 129}) {
+            Path file = write(numFrames);
+            int[] all = expected(numFrames, f -> true);
+            assertThat(run(file, "1 < 2")).as("constant, %d frames", numFrames).containsExactly(all);
+            assertThat(run(file, "!(SCR > 1000)")).as("not, %d frames", numFrames).containsExactly(all);
+            assertThat(run(file, "not (1 > 2)")).as("not constant, %d frames", numFrames).containsExactly(all);
+            assertThat(run(file, "!(SCR < 1000) || 1 < 2")).as("or, %d frames", numFrames).containsExactly(all);
+        }
+    }
+
+    @Test
+    void chunkBoundaries() throws IOException {
+        List<String> expressions = Arrays.asList("1 < 2", "!(xjy_area == 7)", "SCR > variance || msec != msec",
+                "xjy_area == 19 && year == 2023");
+        List<IntPredicate> predicates = Arrays.asList(f -> true, f -> area(f) != 7,
+                f -> scr(f) > variance(f) || f % 5 == 0, f -> area(f) == 19 && year(f) == 2023);
+        for (int numFrames : new int[]{4095, 4096, 4097, 8193}) {
+            Path file = write(numFrames);
+            for (int e = 0; e < expressions.size(); e++) {
+                assertThat(run(file, expressions.get(e))).as("%s, %d frames", expressions.get(e), numFrames)
+                        .containsExactly(expected(numFrames, predicates.get(e)));
+            }
+        }
+    }
+
+    @Test
+    void projectsOnlyMatchedFrames() throws IOException {
+        Path file = write(5000);
+        FeatureFilterService.Result result = service.filter(file, service.compile("xjy_area == 19 && year == 2023"),
+                Arrays.asList("confidences", "year", "tl_xs", "SCR"));
+        int[] frames = expected(5000, f -> area(f) == 19 && year(f) == 2023);
+        assertThat(result.getTotalFrames()).isEqualTo(5000);
+        assertThat(result.getFrameIndices()).containsExactly(frames);
+        assertThat(result.getFeatures().keySet()).containsExactly("confidences", "year", "tl_xs", "SCR");
+
+        List<Float> confidences = new ArrayList<>();
+        List<Short> years = new ArrayList<>();
+        List<Integer> tlXs = new ArrayList<>();
+        List<Float> scr = new ArrayList<>();
+        for (int f : frames) {
+            confidences.add((float) f);
+            confidences.add(f + 0.5f);
+            years.add(year(f));
+            tlXs.add(tlXs(f));
+            scr.add(scr(f));
+        }
+        assertThat(new ArrayList<>(result.getFeatures().get("confidences"))).isEqualTo(confidences);
+        assertThat(new ArrayList<>(result.getFeatures().get("year"))).isEqualTo(years);
+        assertThat(new ArrayList<>(result.getFeatures().get("tl_xs"))).isEqualTo(tlXs);
+        assertThat(new ArrayList<>(result.getFeatures().get("SCR"))).isEqualTo(scr);
+
+        assertThatThrownBy(() -> service.filter(file, service.compile("1 < 2"), Collections.singletonList("missing")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void invalidExpressionsAreRejected() {
+        for (String expression : new String[]{"", "SCR", "SCR >", "SCR > 1 &&", "(SCR > 1", "SCR > 1)",
+                "unknown > 1", "SCR >> 1", "SCR > 1 SCR > 2"}) {
+            assertThatThrownBy(() -> service.compile(expression)).as(expression)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
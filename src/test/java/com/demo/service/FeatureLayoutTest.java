@@ -0,0 +1,185 @@
+package com.demo.service;
+
+import com.demo.dto.FeatureDefinition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FeatureLayoutTest {
+
+    @TempDir
+    Path dir;
+
+    private FeatureDatFixture fixture;
+    private List<FeatureDefinition> definitions;
+    private FeatureLayout layout;
+    private FeatureParserService parser;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new FeatureDatFixture(dir)
+                .column("variance", 'f', f -> f * 1.25)
+                .column("xjy_area", 'i', f -> f % 2 == 0 ? -f : Integer.MAX_VALUE - f)
+                .column("tl_xs", 'i', f -> f)
+                .column("year", 's', f -> f % 3 == 0 ? Short.MIN_VALUE : 2024)
+                .column("msec", 'f', f -> f % 7 == 0 ? Float.NaN : f / 1000.0)
+                .column("sec", 's', f -> f % 60)
+                .confidences((c, f) -> f * 0.5 + c);
+        definitions = fixture.definitions();
+        layout = fixture.layout();
+        parser = new FeatureParserService(fixture.properties(), layout);
+    }
+
+    private Path write(String name, int frameOffset, int numFrames, int categoryNum) throws IOException {
+        return fixture.write(name, frameOffset, numFrames, categoryNum, 3);
+    }
+
+    /**
+     * 按 C++ 写出顺序逐字段读取 (不经过 FeatureLayout)，作为对照。
+     */
+    private Map<String, List<Number>> referenceRead(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        int numFrames = buffer.getInt();
+        int categoryNum = buffer.getInt();
+        buffer.getInt();
+        Map<String, List<Number>> result = new LinkedHashMap<>();
+        if (categoryNum > 0) {
+            List<Number> confidences = new ArrayList<>();
+            for (int i = 0; i < numFrames * categoryNum; i++) {
+                confidences.add(buffer.getFloat());
+            }
+            result.put(FeatureLayout.CONFIDENCES, confidences);
+        }
+        for (FeatureDefinition def : definitions) {
+            List<Number> values = new ArrayList<>();
+            for (int i = 0; i < numFrames; i++) {
+                values.add(def.getTypeChar() == 'f' ? (Number) buffer.getFloat()
+                        : def.getTypeChar() == 'i' ? (Number) buffer.getInt() : (Number) buffer.getShort());
+            }
+            result.put(def.getName(), values);
+        }
+        assertThat(buffer.remaining()).isZero();
+        return result;
+    }
+
+    /**
+     * 按夹具各列的取值函数期望的值 (帧号从 frameOffset 起)。
+     */
+    private Map<String, List<Number>> expected(int frameOffset, int numFrames, int categoryNum) {
+        Map<String, List<Number>> result = new LinkedHashMap<>();
+        if (categoryNum > 0) {
+            List<Number> confidences = new ArrayList<>();
+            for (int frame = 0; frame < numFrames; frame++) {
+                for (int c = 0; c < categoryNum; c++) {
+                    confidences.add((float) fixture.confidence(c, frameOffset + frame));
+                }
+            }
+            result.put(FeatureLayout.CONFIDENCES, confidences);
+        }
+        for (int column = 0; column < definitions.size(); column++) {
+            char type = definitions.get(column).getTypeChar();
+            List<Number> values = new ArrayList<>();
+            for (int frame = 0; frame < numFrames; frame++) {
+                double v = fixture.value(column, frameOffset + frame);
+                values.add(type == 'f' ? (Number) (float) v : type == 'i' ? (Number) (int) v : (Number) (short) v);
+            }
+            result.put(definitions.get(column).getName(), values);
+        }
+        return result;
+    }
+
+    private static void assertSameValues(Map<String, ? extends List<? extends Number>> actual,
+                                         Map<String, ? extends List<? extends Number>> expected) {
+        assertThat(actual.keySet()).containsExactlyElementsOf(expected.keySet());
+        for (String name : expected.keySet()) {
+            // 列表元素的类型 (Float / Integer / Short) 也必须一致；Float.equals 按位比较 NaN
+            assertThat(new ArrayList<>(actual.get(name))).as(name).isEqualTo(new ArrayList<>(expected.get(name)));
+        }
+    }
+
+    @Test
+    void writeThenReadMatchesParserAndByteOrder() throws IOException {
+        Path file = write("Feature.dat", 0, 257, 3);
+        assertThat(Files.size(file)).isEqualTo(layout.expectedSize(257, 3));
+
+        Map<String, List<? extends Number>> read = layout.read(file);
+        assertSameValues(read, expected(0, 257, 3));
+        assertSameValues(read, referenceRead(file));
+        assertSameValues(parser.parseFeatureFile(file.toString()), read);
+    }
+
+    @Test
+    void noConfidencesAndEmptyFile() throws IOException {
+        Path file = write("Feature.dat", 5, 4, 0);
+        assertSameValues(layout.read(file), expected(5, 4, 0));
+
+        Path empty = write("empty.dat", 0, 0, 0);
+        Map<String, List<? extends Number>> read = parser.parseFeatureFile(empty.toString());
+        assertThat(read.keySet()).containsExactly("variance", "xjy_area", "tl_xs", "year", "msec", "sec");
+        assertThat(read.values()).allMatch(List::isEmpty);
+    }
+
+    @Test
+    void truncatedFileIsRejectedByTheHeaderSizeCheck() throws IOException {
+        Path file = write("Feature.dat", 0, 100, 2);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThatThrownBy(() -> parser.parseFeatureFile(file.toString()))
+                .isInstanceOf(IOException.class).hasMessageContaining("小于布局预期");
+
+        // 文件头声明 1 亿帧但只有几十字节: readHeader 只比较长度，不读取任何列即失败
+        ByteBuffer header = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN).putInt(100_000_000).putInt(2).putInt(0);
+        Files.write(file, header.array());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertThatThrownBy(() -> layout.readHeader(channel, file))
+                    .isInstanceOf(IOException.class).hasMessageContaining("小于布局预期");
+            assertThat(channel.position()).isZero();
+        }
+        assertThatThrownBy(() -> layout.read(file)).isInstanceOf(IOException.class).hasMessageContaining("小于布局预期");
+
+        // 文件头本身不完整
+        Files.write(file, new byte[]{1, 0, 0, 0, 2, 0});
+        assertThatThrownBy(() -> layout.read(file)).isInstanceOf(IOException.class);
+        Files.write(file, new byte[]{1, 0});
+        assertThatThrownBy(() -> layout.read(file)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void mergedFileReParses() throws IOException {
+        List<Path> parts = Arrays.asList(
+                write("part0.dat", 0, 64, 2),
+                write("part1.dat", 64, 0, 0),     // 空分片
+                write("part2.dat", 64, 1, 2),
+                write("part3.dat", 65, 100, 2));
+        Path merged = dir.resolve("merged.dat");
+        assertThat(parser.mergeFeatureFiles(parts, merged)).isEqualTo(165);
+
+        assertThat(Files.size(merged)).isEqualTo(layout.expectedSize(165, 2));
+        Map<String, List<? extends Number>> read = parser.parseFeatureFile(merged.toString());
+        assertSameValues(read, expected(0, 165, 2));
+        assertSameValues(read, referenceRead(merged));
+    }
+
+    @Test
+    void mergeRejectsMismatchedCategories() throws IOException {
+        List<Path> parts = Arrays.asList(write("part0.dat", 0, 10, 2), write("part1.dat", 10, 10, 3));
+        assertThatThrownBy(() -> parser.mergeFeatureFiles(parts, dir.resolve("merged.dat")))
+                .isInstanceOf(IOException.class);
+    }
+}
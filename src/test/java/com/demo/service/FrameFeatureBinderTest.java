@@ -0,0 +1,120 @@
+package com.demo.service;
+
+import com.demo.config.FeatureProperties;
+import com.demo.dto.FeatureDefinition;
+import com.demo.entity.FrameFeature;
+import org.junit.jupiter.api.Test;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FrameFeatureBinderTest {
+
+    /**
+     * 参考实现: 旧版逐帧使用的 ZonedDateTime (字段无效时为 null)。
+     */
+    private static Instant reference(int year, int month, int day, int hour, int minute, int second, long nanos) {
+        try {
+            return ZonedDateTime.of(year, month, day, hour, minute, second, (int) nanos, ZoneOffset.UTC).toInstant();
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static void assertMatchesReference(int year, int month, int day, int hour, int minute, int second, long nanos) {
+        assertThat(FrameFeatureBinder.utcInstant(year, month, day, hour, minute, second, nanos))
+                .as("%d-%d-%d %d:%d:%d.%09d", year, month, day, hour, minute, second, nanos)
+                .isEqualTo(reference(year, month, day, hour, minute, second, nanos));
+    }
+
+    @Test
+    void everyDayOfLeapAndCenturyYearsMatchesZonedDateTime() {
+        int[] years = {-401, -1, 0, 1, 4, 100, 400, 1600, 1699, 1700, 1896, 1900, 1904, 1969, 1970, 1971,
+                1999, 2000, 2001, 2023, 2024, 2025, 2100, 2400, 9999};
+        for (int year : years) {
+            for (int month = 0; month <= 13; month++) {
+                for (int day = 0; day <= 32; day++) {
+                    assertMatchesReference(year, month, day, 0, 0, 0, 0);
+                    assertMatchesReference(year, month, day, 23, 59, 59, 999_999_999);
+                }
+            }
+        }
+    }
+
+    @Test
+    void februaryTwentyNinth() {
+        assertThat(FrameFeatureBinder.utcInstant(2000, 2, 29, 0, 0, 0, 0)).isEqualTo(Instant.parse("2000-02-29T00:00:00Z"));
+        assertThat(FrameFeatureBinder.utcInstant(2024, 2, 29, 12, 0, 0, 0)).isEqualTo(Instant.parse("2024-02-29T12:00:00Z"));
+        assertThat(FrameFeatureBinder.utcInstant(1900, 2, 29, 0, 0, 0, 0)).isNull();
+        assertThat(FrameFeatureBinder.utcInstant(2100, 2, 29, 0, 0, 0, 0)).isNull();
+        assertThat(FrameFeatureBinder.utcInstant(2023, 2, 29, 0, 0, 0, 0)).isNull();
+    }
+
+    @Test
+    void invalidTimeFieldsGiveNull() {
+        assertThat(FrameFeatureBinder.utcInstant(2025, 1, 1, 24, 0, 0, 0)).isNull();
+        assertThat(FrameFeatureBinder.utcInstant(2025, 1, 1, -1, 0, 0, 0)).isNull();
+        assertThat(FrameFeatureBinder.utcInstant(2025, 1, 1, 0, 60, 0, 0)).isNull();
+        assertThat(FrameFeatureBinder.utcInstant(2025, 1, 1, 0, 0, 60, 0)).isNull();
+        assertThat(FrameFeatureBinder.utcInstant(2025, 1, 1, 0, 0, 0, -1)).isNull();
+        assertThat(FrameFeatureBinder.utcInstant(2025, 1, 1, 0, 0, 0, 1_000_000_000)).isNull();
+        assertThat(FrameFeatureBinder.utcInstant(2025, 4, 31, 0, 0, 0, 0)).isNull();
+    }
+
+    @Test
+    void randomFieldsMatchZonedDateTime() {
+        Random random = new Random(48);
+        for (int i = 0; i < 200_000; i++) {
+            assertMatchesReference(1 + random.nextInt(3000), random.nextInt(14), random.nextInt(33),
+                    random.nextInt(26) - 1, random.nextInt(62) - 1, random.nextInt(62) - 1,
+                    random.nextInt(1_000_000_100) - 50);
+        }
+    }
+
+    @Test
+    void bindWritesTimeColumnsAndFaTime() {
+        List<FeatureDefinition> definitions = Arrays.asList(
+                new FeatureDefinition("SCR", 'f'), new FeatureDefinition("xjy_area", 'i'),
+                new FeatureDefinition("year", 's'), new FeatureDefinition("month", 's'), new FeatureDefinition("day", 's'),
+                new FeatureDefinition("hour", 's'), new FeatureDefinition("min", 's'), new FeatureDefinition("sec", 's'),
+                new FeatureDefinition("msec", 'f'));
+        FeatureProperties properties = new FeatureProperties();
+        properties.setDefinitions(definitions);
+        FrameFeatureBinder binder = new FrameFeatureBinder(properties);
+
+        Map<String, List<? extends Number>> columns = new LinkedHashMap<>();
+        columns.put("SCR", Arrays.asList(1.5f, 2.5f));
+        columns.put("xjy_area", Arrays.asList(10, 20));
+        columns.put("year", Arrays.asList((short) 2024, (short) 2024));
+        columns.put("month", Arrays.asList((short) 2, (short) 0)); // C++ 写出 0 表示无效
+        columns.put("day", Arrays.asList((short) 29, (short) 1));
+        columns.put("hour", Arrays.asList((short) 23, (short) 0));
+        columns.put("min", Arrays.asList((short) 59, (short) 0));
+        columns.put("sec", Arrays.asList((short) 58, (short) 0));
+        columns.put("msec", Arrays.asList(250.0f, 0.0f));
+        List<FrameFeature> frames = Arrays.asList(new FrameFeature(), new FrameFeature());
+        binder.bind(columns, frames);
+
+        FrameFeature first = frames.get(0);
+        assertThat(first.getSCR()).isEqualTo(1.5f);
+        assertThat(first.getXjy_area()).isEqualTo(10);
+        // 时间字段与其他特征一样写入实体 (持久化列)
+        assertThat(first.getYear()).isEqualTo((short) 2024);
+        assertThat(first.getMonth()).isEqualTo((short) 2);
+        assertThat(first.getMsec()).isEqualTo(250.0f);
+        assertThat(first.getFaTime()).isEqualTo(Instant.parse("2024-02-29T23:59:58.250Z"));
+
+        FrameFeature second = frames.get(1);
+        assertThat(second.getMonth()).isEqualTo((short) 0);
+        assertThat(second.getFaTime()).isNull();
+    }
+}
@@ -0,0 +1,148 @@
+package com.demo.service;
+
+import com.demo.config.UploadProperties;
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UploadIngestServiceTest {
+
+    private static UploadIngestService service(int poolSize, int maxBytes) {
+        UploadProperties properties = new UploadProperties();
+        properties.setPoolSize(poolSize);
+        properties.setPooledBufferMaxBytes(maxBytes);
+        properties.setPoolWaitMs(1);
+        properties.setChunkBytes(1000);
+        return new UploadIngestService(properties);
+    }
+
+    private static MockMultipartFile upload(int size, long seed) {
+        byte[] content = new byte[size];
+        new Random(seed).nextBytes(content);
+        return new MockMultipartFile("file", "f.dat", "application/octet-stream", content);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] out = new byte[buffer.remaining()];
+        buffer.get(out);
+        return out;
+    }
+
+    @Test
+    void readsContentAndMd5() throws IOException {
+        UploadIngestService service = service(2, 1 << 20);
+        for (int size : new int[]{0, 1, 999, 1000, 1001, 300_000}) {
+            MockMultipartFile file = upload(size, size);
+            try (UploadIngestService.IngestedFile ingested = service.ingest(file)) {
+                assertThat(bytes(ingested.getData())).isEqualTo(file.getBytes());
+                assertThat(ingested.getMd5()).isEqualTo(DigestUtils.md5DigestAsHex(file.getBytes()));
+                assertThat(ingested.getData().isReadOnly()).isTrue();
+            }
+        }
+    }
+
+    @Test
+    void poolIsBoundedAndFallsBackToMappedFile() throws IOException {
+        UploadIngestService service = service(2, 1 << 20);
+        List<UploadIngestService.IngestedFile> open = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            open.add(service.ingest(upload(4096, i)));
+        }
+        assertThat(open.get(0).isMapped()).isFalse();
+        assertThat(open.get(1).isMapped()).isFalse();
+        assertThat(open.get(2).isMapped()).isTrue();
+        assertThat(bytes(open.get(2).getData())).isEqualTo(upload(4096, 2).getBytes());
+        open.get(0).close();
+        open.get(0).close(); // 重复关闭不会多归还一个名额
+
+        try (UploadIngestService.IngestedFile reused = service.ingest(upload(4096, 7))) {
+            assertThat(reused.isMapped()).isFalse();
+            try (UploadIngestService.IngestedFile overflow = service.ingest(upload(16, 8))) {
+                assertThat(overflow.isMapped()).isTrue();
+            }
+        }
+        open.get(1).close();
+        open.get(2).close();
+    }
+
+    @Test
+    void largeFilesAreMappedWithoutAHeapCopy() throws IOException {
+        UploadIngestService service = service(2, 1024);
+        MockMultipartFile file = upload(32 << 20, 1);
+        service.ingest(upload(4096, 2)).close(); // 类加载等一次性分配不计入
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        try (UploadIngestService.IngestedFile ingested = service.ingest(file)) {
+            // 只分配了固定大小的拷贝块，没有与文件等大的堆缓冲区
+            assertThat(threads.getThreadAllocatedBytes(threadId) - before).isLessThan(file.getSize() / 8);
+            assertThat(ingested.isMapped()).isTrue();
+            assertThat(ingested.getData().isDirect()).isTrue();
+            assertThat(ingested.getData().isReadOnly()).isTrue();
+            assertThat(ingested.getMd5()).isEqualTo(DigestUtils.md5DigestAsHex(file.getBytes()));
+            assertThat(bytes(ingested.getData())).isEqualTo(file.getBytes());
+        }
+    }
+
+    @Test
+    void closeDeletesTheTempFile() throws IOException {
+        UploadIngestService service = service(0, 1024);
+        Path tempDir = Paths.get(System.getProperty("java.io.tmpdir"));
+        Set<Path> existing = tempFiles(tempDir);
+        UploadIngestService.IngestedFile ingested = service.ingest(upload(4096, 3));
+        Set<Path> created = tempFiles(tempDir);
+        created.removeAll(existing);
+        assertThat(created).hasSize(1);
+        ingested.close();
+        ingested.close();
+        assertThat(created).allMatch(path -> !Files.exists(path));
+
+        // 大小不符时同样删除临时文件
+        MockMultipartFile lying = new MockMultipartFile("file", "f.dat", null, new byte[5000]) {
+            @Override
+            public long getSize() {
+                return 4000;
+            }
+        };
+        assertThatThrownBy(() -> service.ingest(lying)).isInstanceOf(IOException.class);
+        assertThat(tempFiles(tempDir)).isEqualTo(existing);
+    }
+
+    private static Set<Path> tempFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith("infer-upload-")).collect(Collectors.toSet());
+        }
+    }
+
+    @Test
+    void sizeMismatchReleasesBuffer() throws IOException {
+        UploadIngestService service = service(1, 1 << 20);
+        MockMultipartFile lying = new MockMultipartFile("file", "f.dat", null, new byte[100]) {
+            @Override
+            public long getSize() {
+                return 10;
+            }
+        };
+        assertThatThrownBy(() -> service.ingest(lying)).isInstanceOf(IOException.class);
+        try (UploadIngestService.IngestedFile ingested = service.ingest(upload(10, 1))) {
+            assertThat(ingested.isMapped()).isFalse();
+        }
+    }
+}
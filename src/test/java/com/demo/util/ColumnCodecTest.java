@@ -0,0 +1,118 @@
+package com.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ColumnCodecTest {
+
+    private static void assertFloatsRoundTrip(float... values) {
+        byte[] encoded = ColumnCodec.encodeFloats(values, values.length);
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        float[] decoded = ColumnCodec.decodeFloats(buffer, values.length);
+        assertThat(buffer.remaining()).isZero();
+        assertThat(decoded).hasSameSizeAs(values);
+        for (int i = 0; i < values.length; i++) {
+            // 按位比较: NaN 的载荷与 -0.0 的符号位都必须保留
+            assertThat(Float.floatToRawIntBits(decoded[i])).as("index %d", i)
+                    .isEqualTo(Float.floatToRawIntBits(values[i]));
+        }
+    }
+
+    private static void assertIntsRoundTrip(int... values) {
+        byte[] encoded = ColumnCodec.encodeInts(values, values.length);
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        assertThat(ColumnCodec.decodeInts(buffer, values.length)).isEqualTo(values);
+        assertThat(buffer.remaining()).isZero();
+    }
+
+    private static float bits(int bits) {
+        return Float.intBitsToFloat(bits);
+    }
+
+    @Test
+    void emptyAndSingleValueInputs() {
+        assertThat(ColumnCodec.encodeFloats(new float[0], 0)).isEmpty();
+        assertThat(ColumnCodec.encodeInts(new int[0], 0)).isEmpty();
+        assertFloatsRoundTrip();
+        assertIntsRoundTrip();
+        assertFloatsRoundTrip(3.25f);
+        assertFloatsRoundTrip(Float.NaN);
+        assertIntsRoundTrip(-7);
+        assertIntsRoundTrip(Integer.MIN_VALUE);
+    }
+
+    @Test
+    void nanPayloadsAndSignedZerosAreBitExact() {
+        assertFloatsRoundTrip(Float.NaN, bits(0x7FC00001), bits(0xFFC00000), bits(0x7F800001), Float.NaN,
+                0.0f, -0.0f, -0.0f, 0.0f, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY,
+                Float.MIN_VALUE, -Float.MIN_VALUE, Float.MAX_VALUE);
+    }
+
+    @Test
+    void constantColumnsTakeOneBitPerValue() {
+        float[] floats = new float[4096];
+        Arrays.fill(floats, 42.5f);
+        byte[] encoded = ColumnCodec.encodeFloats(floats, floats.length);
+        assertThat(encoded).hasSize(4 + (floats.length - 1 + 7) / 8);
+        assertFloatsRoundTrip(floats);
+
+        int[] ints = new int[4096];
+        Arrays.fill(ints, 2025);
+        // 第一个值的 delta 为 2025 (2 字节)，之后每个 delta 为 0 (1 字节)
+        assertThat(ColumnCodec.encodeInts(ints, ints.length)).hasSize(2 + ints.length - 1);
+        assertIntsRoundTrip(ints);
+    }
+
+    @Test
+    void xorsWithAllThirtyTwoBitsSignificant() {
+        // 0x00000001 ^ 0x80000000 = 0x80000001: 无前导零也无尾随零
+        assertFloatsRoundTrip(bits(0x00000001), bits(0x80000000), bits(0x00000001), bits(0x80000000));
+        // 先建立一个窄窗口，再出现需要全部 32 位的异或结果 (不能复用窗口)
+        assertFloatsRoundTrip(bits(0x3F800000), bits(0x3F800100), bits(0x3F800000), bits(0xC07FFFFF), bits(0x3F800001));
+        // 先建立 32 位窗口，之后的异或结果都复用它
+        assertFloatsRoundTrip(bits(0x00000001), bits(0x80000000), bits(0x80000010), bits(0x00000010), bits(0x12345678));
+    }
+
+    @Test
+    void extremeIntDeltas() {
+        assertIntsRoundTrip(Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, 0, -1, 1, Integer.MIN_VALUE);
+        assertIntsRoundTrip(Short.MIN_VALUE, Short.MAX_VALUE, 0, Short.MIN_VALUE);
+    }
+
+    @Test
+    void randomColumnsRoundTrip() {
+        Random random = new Random(46);
+        for (int round = 0; round < 50; round++) {
+            int count = random.nextInt(2000);
+            float[] floats = new float[count];
+            int[] ints = new int[count];
+            for (int i = 0; i < count; i++) {
+                floats[i] = round % 2 == 0 ? Float.intBitsToFloat(random.nextInt()) : (float) (i * 0.01 + random.nextGaussian());
+                ints[i] = round % 2 == 0 ? random.nextInt() : i / 3 + random.nextInt(5);
+            }
+            assertFloatsRoundTrip(floats);
+            assertIntsRoundTrip(ints);
+        }
+    }
+
+    @Test
+    void decodingStopsAtTheEndOfEachBlock() {
+        float[] floats = {1.5f, 1.5f, 2.75f, -0.0f, Float.NaN};
+        int[] ints = {5, 6, 7, -100};
+        byte[] a = ColumnCodec.encodeFloats(floats, floats.length);
+        byte[] b = ColumnCodec.encodeInts(ints, ints.length);
+        ByteBuffer buffer = ByteBuffer.allocate(a.length + b.length + a.length).put(a).put(b).put(a).flip();
+        assertThat(ColumnCodec.decodeFloats(buffer, floats.length)).usingElementComparator(Float::compare)
+                .containsExactly(1.5f, 1.5f, 2.75f, -0.0f, Float.NaN);
+        assertThat(buffer.position()).isEqualTo(a.length);
+        assertThat(ColumnCodec.decodeInts(buffer, ints.length)).containsExactly(ints);
+        assertThat(buffer.position()).isEqualTo(a.length + b.length);
+        assertThat(ColumnCodec.decodeFloats(buffer, floats.length)).hasSize(floats.length);
+        assertThat(buffer.remaining()).isZero();
+    }
+}
@@ -0,0 +1,45 @@
+package com.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeoGridTest {
+
+    @Test
+    void tallNarrowBoxStaysWithinItsLongitudes() {
+        // 约 10 度高 (1000 行)、0.05 度宽的矩形
+        List<long[]> ranges = GeoGrid.cover(116.0, 30.0, 116.05, 40.0);
+        assertThat(ranges).hasSize(1001);
+        long x0 = GeoGrid.cellOf(116.0f, 30.0f) % GeoGrid.COLUMNS;
+        long x1 = GeoGrid.cellOf(116.05f, 30.0f) % GeoGrid.COLUMNS;
+        long previousEnd = -1;
+        for (long[] range : ranges) {
+            assertThat(range[0] / GeoGrid.COLUMNS).isEqualTo(range[1] / GeoGrid.COLUMNS);
+            assertThat(range[0] % GeoGrid.COLUMNS).isEqualTo(x0);
+            assertThat(range[1] % GeoGrid.COLUMNS).isEqualTo(x1);
+            assertThat(range[0]).isGreaterThan(previousEnd + 1);
+            previousEnd = range[1];
+        }
+    }
+
+    @Test
+    void fullWidthRowsMergeIntoOneRange() {
+        List<long[]> ranges = GeoGrid.cover(-180, -10, 180, 10);
+        assertThat(ranges).hasSize(1);
+        assertThat(ranges.get(0)[0]).isEqualTo(GeoGrid.cellOf(-180f, -10f));
+        assertThat(ranges.get(0)[1]).isEqualTo(GeoGrid.cellOf(180f, 10f));
+    }
+
+    @Test
+    void everyPointInsideTheBoxIsCovered() {
+        double[][] points = {{116.0, 30.0}, {116.05, 40.0}, {116.02, 35.5}, {116.049, 30.001}};
+        List<long[]> ranges = GeoGrid.cover(116.0, 30.0, 116.05, 40.0);
+        for (double[] point : points) {
+            long cell = GeoGrid.cellOf((float) point[0], (float) point[1]);
+            assertThat(ranges).anyMatch(r -> r[0] <= cell && cell <= r[1]);
+        }
+    }
+}
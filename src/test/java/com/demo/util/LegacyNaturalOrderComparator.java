@@ -0,0 +1,49 @@
+package com.demo.util;
+
+import java.util.Comparator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 旧版 MultiFrameProcessorCpp.NaturalOrderComparator 的原样拷贝 (基于正则)，
+ * 仅用作 {@link NaturalSort} 的对照实现与基准测试的基线。
+ */
+public class LegacyNaturalOrderComparator implements Comparator<String> {
+    private final Pattern NUMERICAL_PATTERN = Pattern.compile("(\\D*)(\\d+)(.*)");
+
+    @Override
+    public int compare(String s1, String s2) {
+        Matcher m1 = NUMERICAL_PATTERN.matcher(s1);
+        Matcher m2 = NUMERICAL_PATTERN.matcher(s2);
+
+        while (m1.find() && m2.find()) {
+            String prefix1 = m1.group(1);
+            String prefix2 = m2.group(1);
+            if (!prefix1.equals(prefix2)) {
+                return prefix1.compareTo(prefix2);
+            }
+
+            String numStr1 = m1.group(2);
+            String numStr2 = m2.group(2);
+            if (!numStr1.equals(numStr2)) {
+                try {
+                    long num1 = Long.parseLong(numStr1);
+                    long num2 = Long.parseLong(numStr2);
+                    if (num1 != num2) {
+                        return Long.compare(num1, num2);
+                    }
+                } catch (NumberFormatException e) {
+                    // Fallback to string comparison if not a valid long
+                    return numStr1.compareTo(numStr2);
+                }
+            }
+
+            s1 = m1.group(3);
+            s2 = m2.group(3);
+            m1 = NUMERICAL_PATTERN.matcher(s1);
+            m2 = NUMERICAL_PATTERN.matcher(s2);
+        }
+
+        return s1.compareTo(s2);
+    }
+}
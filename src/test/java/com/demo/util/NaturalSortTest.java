@@ -0,0 +1,186 @@
+package com.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NaturalSortTest {
+
+    private static int compare(String a, String b) {
+        return Integer.signum(new NaturalSort.Key(a).compareTo(new NaturalSort.Key(b)));
+    }
+
+    private static List<String> sorted(String... names) {
+        List<String> list = new ArrayList<>(Arrays.asList(names));
+        NaturalSort.sort(list);
+        return list;
+    }
+
+    /**
+     * 任意字符组成的名称: 字母、分隔符与数字段 (含前导零、超过 18 位的数字段)。
+     */
+    private static String randomName(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int parts = random.nextInt(5);
+        for (int p = 0; p < parts; p++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    sb.append("ab_.-".charAt(random.nextInt(5)));
+                    break;
+                case 1:
+                    sb.append(random.nextInt(3) == 0 ? "0" : "").append(random.nextInt(20));
+                    break;
+                case 2:
+                    int digits = 17 + random.nextInt(6);
+                    for (int d = 0; d < digits; d++) {
+                        sb.append((char) ('0' + random.nextInt(random.nextInt(4) == 0 ? 2 : 10)));
+                    }
+                    break;
+                default:
+                    sb.append("ab".charAt(random.nextInt(2))).append(random.nextInt(3));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 实际上传的文件名: 目录 + 前缀 + 帧号 (可能补零) + 扩展名。
+     */
+    private static String randomFileName(Random random) {
+        String[] dirs = {"", "IMG0/", "IMG1/", "run2/"};
+        String[] prefixes = {"f", "frame_", "img", "roi_f"};
+        String[] exts = {".dat", ".png", "_roi.png"};
+        int frame = random.nextInt(random.nextBoolean() ? 20 : 5000);
+        String number = random.nextInt(4) == 0 ? String.format("%04d", frame) : Integer.toString(frame);
+        return dirs[random.nextInt(dirs.length)] + prefixes[random.nextInt(prefixes.length)] + number
+                + exts[random.nextInt(exts.length)];
+    }
+
+    @Test
+    void ordersNumbersByValue() {
+        assertThat(sorted("file_10.png", "file_2.png", "file_1.png"))
+                .containsExactly("file_1.png", "file_2.png", "file_10.png");
+        assertThat(sorted("IMG0/f12.dat", "IMG0/f3.dat", "IMG0/f100.dat", "IMG0/f0.dat"))
+                .containsExactly("IMG0/f0.dat", "IMG0/f3.dat", "IMG0/f12.dat", "IMG0/f100.dat");
+    }
+
+    @Test
+    void leadingZerosAreOrderedButNotEqual() {
+        // 数值相同时按原字符串比较: "a01" < "a1" ('0' < '1')，两者不相等
+        assertThat(compare("a01", "a1")).isEqualTo(-1);
+        assertThat(compare("a1", "a01")).isEqualTo(1);
+        assertThat(compare("a1", "a1")).isZero();
+        assertThat(compare("a01", "a2")).isEqualTo(-1);
+        assertThat(compare("a010", "a9")).isEqualTo(1);
+    }
+
+    @Test
+    void digitRunsLongerThan18Digits() {
+        String nineteen = "9999999999999999999";      // 超过 long 的安全范围
+        String twenty = "10000000000000000000";
+        assertThat(compare("x" + nineteen, "x" + twenty)).isEqualTo(-1);
+        assertThat(compare("x" + twenty, "x" + nineteen)).isEqualTo(1);
+        assertThat(compare("x00" + twenty, "x" + twenty)).isEqualTo(-1);  // 数值相同，按原字符串
+        assertThat(compare("x" + twenty + "1", "x" + twenty + "2")).isEqualTo(-1);
+        assertThat(compare("x123456789012345678", "x" + nineteen)).isEqualTo(-1);  // 18 位与 19 位混合
+        assertThat(compare("x000000000000000000005", "x6")).isEqualTo(-1);         // 前导零很多的小数值
+    }
+
+    @Test
+    void differentNumberOfDigitRuns() {
+        assertThat(compare("a1", "a1b2")).isEqualTo(-1);
+        assertThat(compare("a1b", "a1b2")).isEqualTo(-1);
+        assertThat(compare("a1b9", "a1b")).isEqualTo(1);
+        assertThat(compare("abc", "abc1")).isEqualTo(-1);
+        assertThat(compare("", "0")).isEqualTo(-1);
+        assertThat(compare("f2_roi", "f10")).isEqualTo(-1);
+    }
+
+    @Test
+    void comparatorContractOnRandomNames() {
+        Random random = new Random(42);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            names.add(randomName(random));
+        }
+        for (String a : names) {
+            for (String b : names) {
+                int ab = compare(a, b);
+                // 符号对称，且只有相同字符串才相等
+                assertThat(ab).as("%s vs %s", a, b).isEqualTo(-compare(b, a));
+                assertThat(ab == 0).as("%s vs %s", a, b).isEqualTo(a.equals(b));
+            }
+        }
+        // 传递性: 排序结果中任意前后两个元素都满足 a <= b
+        List<String> list = new ArrayList<>(names);
+        NaturalSort.sort(list);
+        for (int i = 0; i < list.size(); i++) {
+            for (int j = i + 1; j < list.size(); j++) {
+                assertThat(compare(list.get(i), list.get(j))).as("%s vs %s", list.get(i), list.get(j))
+                        .isLessThanOrEqualTo(0);
+            }
+        }
+        for (int t = 0; t < 200_000; t++) {
+            String a = names.get(random.nextInt(names.size()));
+            String b = names.get(random.nextInt(names.size()));
+            String c = names.get(random.nextInt(names.size()));
+            if (compare(a, b) <= 0 && compare(b, c) <= 0) {
+                assertThat(compare(a, c)).as("%s <= %s <= %s", a, b, c).isLessThanOrEqualTo(0);
+            }
+        }
+    }
+
+    @Test
+    void matchesLegacyComparatorOnFileNames() {
+        // 旧比较器不是全序 (数值相同的 "01" 与 "1" 视为相等)，只在它给出非零结果时比较方向
+        LegacyNaturalOrderComparator legacy = new LegacyNaturalOrderComparator();
+        Random random = new Random(7);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            names.add(randomFileName(random));
+        }
+        for (int t = 0; t < 200_000; t++) {
+            String a = names.get(random.nextInt(names.size()));
+            String b = names.get(random.nextInt(names.size()));
+            int expected = Integer.signum(legacy.compare(a, b));
+            if (expected != 0) {
+                assertThat(compare(a, b)).as("%s vs %s", a, b).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void parallelAndSequentialSortsAgree() {
+        Random random = new Random(3);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < NaturalSort.PARALLEL_THRESHOLD * 2; i++) {
+            names.add(randomFileName(random));
+        }
+        List<String> parallel = new ArrayList<>(names);
+        NaturalSort.sort(parallel);
+
+        List<NaturalSort.Key> keys = new ArrayList<>();
+        for (String name : names) {
+            keys.add(new NaturalSort.Key(name));
+        }
+        Collections.sort(keys);
+        List<String> sequential = new ArrayList<>();
+        for (NaturalSort.Key key : keys) {
+            sequential.add(key.getValue());
+        }
+        assertThat(parallel).isEqualTo(sequential);
+        assertThat(NaturalSort.sorted(names, s -> s)).isEqualTo(sequential);
+    }
+
+    @Test
+    void sortedTreatsNullNamesAsEmpty() {
+        List<String> items = Arrays.asList("b2", null, "b10");
+        assertThat(NaturalSort.sorted(items, s -> s)).containsExactly(null, "b2", "b10");
+    }
+}
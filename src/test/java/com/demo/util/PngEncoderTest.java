@@ -0,0 +1,61 @@
+package com.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PngEncoderTest {
+
+    private static BufferedImage randomGray(int width, int height, long seed) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        new Random(seed).nextBytes(((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+        return image;
+    }
+
+    private static void assertSamePixels(BufferedImage expected, byte[] png) throws IOException {
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png));
+        assertThat(decoded.getWidth()).isEqualTo(expected.getWidth());
+        assertThat(decoded.getHeight()).isEqualTo(expected.getHeight());
+        assertThat(decoded.getRaster().getDataElements(0, 0, decoded.getWidth(), decoded.getHeight(), null))
+                .isEqualTo(expected.getRaster().getDataElements(0, 0, expected.getWidth(), expected.getHeight(), null));
+    }
+
+    @Test
+    void roundTripsEveryFilter() throws IOException {
+        BufferedImage image = randomGray(37, 23, 1);
+        for (PngEncoder.Filter filter : PngEncoder.Filter.values()) {
+            for (int level : new int[]{0, 1, 9}) {
+                PngEncoder.Options options = new PngEncoder.Options(true, level, filter);
+                assertSamePixels(image, PngEncoder.encode(image, options));
+                assertSamePixels(image, Base64.getDecoder().decode(PngEncoder.encodeToBase64(image, options)));
+            }
+        }
+    }
+
+    @Test
+    void roundTripsSubImage() throws IOException {
+        BufferedImage sub = randomGray(64, 48, 2).getSubimage(5, 7, 30, 20);
+        assertSamePixels(sub, PngEncoder.encode(sub, new PngEncoder.Options(true, 1, PngEncoder.Filter.UP)));
+    }
+
+    @Test
+    void largeFrameDoesNotStayPinned() throws IOException {
+        // 4096 x 4096 的过滤行约 16 MB，超过保留上限；编码后线程只保留初始大小的缓冲区
+        BufferedImage large = randomGray(4096, 4096, 3);
+        assertSamePixels(large, PngEncoder.encode(large, new PngEncoder.Options(true, 0, PngEncoder.Filter.NONE)));
+        assertThat(PngEncoder.retainedBytes()).isLessThan(1024 * 1024);
+
+        // 之后的小帧照常编码，并继续复用缓冲区
+        BufferedImage small = randomGray(512, 512, 4);
+        assertSamePixels(small, PngEncoder.encode(small, PngEncoder.DEFAULT));
+        assertThat(PngEncoder.retainedBytes()).isGreaterThanOrEqualTo(513L * 512);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * 多帧核心库 (XJYTXFXCV_multi) 的桩实现，仅供 NativeCallBenchmark 测量 JNA 调用开销。
+ * 结构体布局与 MultiFrameProcessorCpp 中的 JNA Structure 一致；不做任何图像处理。
+ */
+typedef struct {
+    char *outputDir;
+    char *par_path;
+    char *trackPath;
+    char *inImgDir;
+} InputPathSet;
+
+typedef struct {
+    int x;
+    int y;
+    int width;
+    int height;
+} CropBox;
+
+typedef struct {
+    InputPathSet inputPathSet;
+    const char *algorithmName;
+    int fileNum;
+    int mode;
+    int imgType;
+    int id;
+    CropBox crop;
+} InputData;
+
+typedef struct {
+    char *feature_path;
+    char *outImgDir;
+} OutputPathSet;
+
+typedef struct {
+    OutputPathSet outputPathSet;
+    char *message;
+    int fileNum;
+} OutputData;
+
+static char FEATURE_PATH[] = "/tmp/stub/feature/Feature.dat";
+static char OUT_IMG_DIR[] = "/tmp/stub/img";
+static char MESSAGE[] = "ok";
+
+int processImageWrapper(InputData *input, OutputData *output) {
+    if (input == 0 || output == 0 || input->inputPathSet.inImgDir == 0) {
+        return -1;
+    }
+    output->outputPathSet.feature_path = FEATURE_PATH;
+    output->outputPathSet.outImgDir = OUT_IMG_DIR;
+    output->message = MESSAGE;
+    output->fileNum = input->fileNum;
+    return 0;
+}
+
+void freeOutputData(OutputData *output) {
+    /* 输出字段指向静态字符串，无需释放 */
+    output->outputPathSet.feature_path = 0;
+    output->outputPathSet.outImgDir = 0;
+    output->message = 0;
+}